@@ -0,0 +1,151 @@
+package spice86.benchmark;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import spice86.emulator.cpu.Alu;
+
+/**
+ * Measures individual Alu operations on pseudo random operands.<br/>
+ * The benchmarks reading a flag after the operation show the cost of lazy flags when they are needed.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class AluBenchmark {
+  private static final int VALUES_MASK = 0x3FF;
+
+  @Param({ "false", "true" })
+  private boolean lazyFlags;
+
+  private final int[] values = new int[VALUES_MASK + 1];
+  // Fully qualified, State is also the name of the JMH annotation
+  private spice86.emulator.cpu.State state;
+  private Alu alu;
+  private int index;
+
+  @Setup
+  public void createAlu() {
+    // Fixed seed so that every run sees the same operands
+    Random random = new Random(86);
+    for (int i = 0; i < values.length; i++) {
+      values[i] = random.nextInt(0x10000);
+    }
+    state = new spice86.emulator.cpu.State();
+    alu = new Alu(state);
+    alu.setLazyFlags(lazyFlags);
+  }
+
+  private int nextValue() {
+    index = (index + 1) & VALUES_MASK;
+    return values[index];
+  }
+
+  @Benchmark
+  public int add8() {
+    return alu.add8(nextValue() & 0xFF, nextValue() & 0xFF);
+  }
+
+  @Benchmark
+  public int add16() {
+    return alu.add16(nextValue(), nextValue());
+  }
+
+  @Benchmark
+  public int adc16() {
+    return alu.adc16(nextValue(), nextValue());
+  }
+
+  @Benchmark
+  public int sub16() {
+    return alu.sub16(nextValue(), nextValue());
+  }
+
+  @Benchmark
+  public int inc16() {
+    return alu.inc16(nextValue());
+  }
+
+  @Benchmark
+  public int dec16() {
+    return alu.dec16(nextValue());
+  }
+
+  @Benchmark
+  public int and16() {
+    return alu.and16(nextValue(), nextValue());
+  }
+
+  @Benchmark
+  public int or16() {
+    return alu.or16(nextValue(), nextValue());
+  }
+
+  @Benchmark
+  public int xor16() {
+    return alu.xor16(nextValue(), nextValue());
+  }
+
+  @Benchmark
+  public int shl16() {
+    return alu.shl16(nextValue(), nextValue() & 0xF);
+  }
+
+  @Benchmark
+  public int rcl16() {
+    return alu.rcl16(nextValue(), nextValue() & 0xF);
+  }
+
+  @Benchmark
+  public int mul16() {
+    return alu.mul16(nextValue(), nextValue());
+  }
+
+  @Benchmark
+  public Integer div16() {
+    // Divisor is never 0
+    return alu.div16(nextValue() << 8, nextValue() | 1);
+  }
+
+  /**
+   * CMP followed by JZ.
+   */
+  @Benchmark
+  public boolean sub16ThenZeroFlag() {
+    alu.sub16(nextValue(), nextValue());
+    return state.getZeroFlag();
+  }
+
+  /**
+   * ADD followed by PUSHF.
+   */
+  @Benchmark
+  public int add16ThenFlagRegister() {
+    alu.add16(nextValue(), nextValue());
+    return state.getFlags().getFlagRegister();
+  }
+
+  /**
+   * ADD followed by ADC, the carry of the first operation is needed by the second one.
+   */
+  @Benchmark
+  public int add16ThenAdc16() {
+    alu.add16(nextValue(), nextValue());
+    return alu.adc16(nextValue(), nextValue());
+  }
+}
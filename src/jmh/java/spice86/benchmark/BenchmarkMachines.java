@@ -0,0 +1,107 @@
+package spice86.benchmark;
+
+import java.io.File;
+import java.net.URISyntaxException;
+import java.net.URL;
+
+import spice86.emulator.Configuration;
+import spice86.emulator.ProgramExecutor;
+import spice86.emulator.cpu.Cpu;
+import spice86.emulator.cpu.State;
+import spice86.emulator.machine.Machine;
+import spice86.emulator.memory.MemoryUtils;
+import spice86.utils.ConvertUtils;
+
+/**
+ * Creates machines for the benchmarks, the same way MachineTest does.<br/>
+ * Synthetic code is loaded at 1000:0000, data segments point to zones that are not used by the code.
+ */
+public class BenchmarkMachines {
+  // Infinite loop of instructions with memory operands, a segment override prefix and a rep prefix
+  public static final String MIXED_CODE = "BB0002" // MOV BX,0200
+      + "BE1000" // MOV SI,0010
+      + "034010" // loop: ADD AX,[BX+SI+10]
+      + "89800020" // MOV [BX+SI+2000],AX
+      + "26FF060003" // INC word ptr ES:[0300]
+      + "31C2" // XOR DX,AX
+      + "B90400" // MOV CX,0004
+      + "BF0004" // MOV DI,0400
+      + "F3AA" // REP STOSB
+      + "EBE8"; // JMP loop
+  // Infinite loop of register only arithmetic
+  public static final String REGISTER_ARITHMETIC_CODE = "01D8" // loop: ADD AX,BX
+      + "29CA" // SUB DX,CX
+      + "40" // INC AX
+      + "4B" // DEC BX
+      + "31C1" // XOR CX,AX
+      + "21D3" // AND BX,DX
+      + "09C2" // OR DX,AX
+      + "39D8" // CMP AX,BX
+      + "75F0" // JNZ loop
+      + "EBEE"; // JMP loop
+  // Infinite loop of memory accesses with the different addressing modes, stack operations and a near call
+  public static final String MEMORY_ACCESS_CODE = "BB0001" // MOV BX,0100
+      + "BE0200" // MOV SI,0002
+      + "BF0400" // MOV DI,0004
+      + "8B00" // loop: MOV AX,[BX+SI]
+      + "034102" // ADD AX,[BX+DI+02]
+      + "89840010" // MOV [SI+1000],AX
+      + "FF060020" // INC word ptr [2000]
+      + "50" // PUSH AX
+      + "E80300" // CALL function
+      + "58" // POP AX
+      + "EBEC" // JMP loop
+      + "8B1D" // function: MOV BX,[DI]
+      + "C3"; // RET
+
+  public static ProgramExecutor createProgramExecutor(Configuration configuration, String binName) {
+    // Making sure int8 is not going to be triggered
+    configuration.setInstructionsPerSecond(10000000l);
+    configuration.setExe(getCpuTestBinPath(binName));
+    return new ProgramExecutor(null, configuration);
+  }
+
+  /**
+   * Machine for the synthetic code, the program executor loads the "add" cpu test binary but it is not executed.
+   */
+  public static ProgramExecutor createProgramExecutor(Configuration configuration) {
+    return createProgramExecutor(configuration, "add");
+  }
+
+  public static String getCpuTestBinPath(String binName) {
+    URL binUrl = BenchmarkMachines.class.getClassLoader().getResource("cpuTests/" + binName + ".bin");
+    if (binUrl == null) {
+      throw new IllegalArgumentException("No cpu test binary named " + binName);
+    }
+    try {
+      return new File(binUrl.toURI()).getAbsolutePath();
+    } catch (URISyntaxException e) {
+      throw new IllegalArgumentException(e);
+    }
+  }
+
+  /**
+   * @param recompileThreshold
+   *          number or "off" to disable the block recompiler
+   */
+  public static Integer parseRecompileThreshold(String recompileThreshold) {
+    if ("off".equals(recompileThreshold)) {
+      return null;
+    }
+    return Integer.valueOf(recompileThreshold);
+  }
+
+  public static void loadCode(Machine machine, String hexCode) {
+    byte[] code = ConvertUtils.hexToByteArray(hexCode);
+    machine.getMemory().loadData(MemoryUtils.toPhysicalAddress(0x1000, 0), code);
+    Cpu cpu = machine.getCpu();
+    State state = cpu.getState();
+    state.setCS(0x1000);
+    state.setIP(0);
+    state.setDS(0x2000);
+    state.setES(0x3000);
+    state.setSS(0x4000);
+    state.setSP(0x100);
+    state.setInterruptFlag(false);
+  }
+}
@@ -0,0 +1,77 @@
+package spice86.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import spice86.emulator.Configuration;
+import spice86.emulator.ProgramExecutor;
+import spice86.emulator.cpu.Cpu;
+import spice86.emulator.cpu.OpcodeDispatchMode;
+import spice86.emulator.errors.InvalidOperationException;
+import spice86.emulator.machine.Machine;
+
+/**
+ * Runs the cpu test binaries from start to end, like MachineTest does.<br/>
+ * Creating the machine is not measured, only the execution of the program.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class CpuTestBinaryBenchmark {
+  @Param({ "add", "bcdcnv", "bitwise", "cmpneg", "control", "datatrnf", "div", "interrupt", "jmpmov", "jump1", "jump2",
+      "mul", "rep", "rotate", "segpr", "shifts", "strings", "sub" })
+  private String binName;
+
+  @Param({ "SWITCH", "TABLE" })
+  private OpcodeDispatchMode opcodeDispatchMode;
+
+  @Param({ "off", "0" })
+  private String recompileThreshold;
+
+  @Param({ "false", "true" })
+  private boolean lazyFlags;
+
+  private ProgramExecutor programExecutor;
+
+  @Setup(Level.Invocation)
+  public void createMachine() {
+    Configuration configuration = new Configuration();
+    configuration.setOpcodeDispatchMode(opcodeDispatchMode);
+    configuration.setRecompileThreshold(BenchmarkMachines.parseRecompileThreshold(recompileThreshold));
+    configuration.setLazyFlags(lazyFlags);
+    programExecutor = BenchmarkMachines.createProgramExecutor(configuration, binName);
+    Machine machine = programExecutor.getMachine();
+    Cpu cpu = machine.getCpu();
+    // Disabling custom IO handling
+    cpu.setIoPortDispatcher(null);
+    cpu.setErrorOnUninitializedInterruptHandler(false);
+    cpu.getState().getFlags().setDosboxCompatibility(false);
+  }
+
+  @TearDown(Level.Invocation)
+  public void closeMachine() {
+    programExecutor.close();
+  }
+
+  @Benchmark
+  public Machine run() throws InvalidOperationException {
+    programExecutor.run();
+    return programExecutor.getMachine();
+  }
+}
@@ -0,0 +1,79 @@
+package spice86.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import spice86.emulator.cpu.Stack;
+import spice86.emulator.machine.breakpoint.BreakPoint;
+import spice86.emulator.machine.breakpoint.BreakPointType;
+import spice86.emulator.memory.Memory;
+
+/**
+ * Measures Memory.getUint16 / setUint16 and Stack.push / pop.<br/>
+ * With memoryBreakPoint, a breakpoint is set on an address that is never accessed, so that the cost of checking the
+ * breakpoints is included.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class MemoryBenchmark {
+  // Accesses stay in a 64KB window, like most accesses of a segment
+  private static final int WINDOW_MASK = 0xFFFF;
+  private static final int WINDOW_START = 0x20000;
+
+  @Param({ "false", "true" })
+  private boolean memoryBreakPoint;
+
+  private Memory memory;
+  private Stack stack;
+  private int address;
+
+  @Setup
+  public void createMemory() {
+    memory = new Memory(0x100000);
+    if (memoryBreakPoint) {
+      memory.toggleBreakPoint(new BreakPoint(BreakPointType.ACCESS, 0xF0000, breakPoint -> {}, false), true);
+    }
+    spice86.emulator.cpu.State state = new spice86.emulator.cpu.State();
+    state.setSS(0x4000);
+    state.setSP(0x100);
+    stack = new Stack(memory, state);
+  }
+
+  private int nextAddress() {
+    // Odd increment so that aligned and unaligned accesses alternate
+    address = (address + 0x101) & WINDOW_MASK;
+    return WINDOW_START + address;
+  }
+
+  @Benchmark
+  public int getUint16() {
+    return memory.getUint16(nextAddress());
+  }
+
+  @Benchmark
+  public void setUint16() {
+    int address = nextAddress();
+    memory.setUint16(address, address);
+  }
+
+  @Benchmark
+  public int pushPop() {
+    stack.push(address++);
+    return stack.pop();
+  }
+}
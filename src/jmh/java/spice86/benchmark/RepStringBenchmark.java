@@ -0,0 +1,82 @@
+package spice86.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import spice86.emulator.Configuration;
+import spice86.emulator.ProgramExecutor;
+import spice86.emulator.cpu.Cpu;
+import spice86.emulator.errors.InvalidOperationException;
+import spice86.emulator.machine.Machine;
+import spice86.emulator.machine.breakpoint.BreakPointType;
+import spice86.emulator.machine.breakpoint.UnconditionalBreakPoint;
+
+/**
+ * Measures the REP string instructions. Score is the time for one REP instruction of count elements.<br/>
+ * With memoryBreakPoint, an unconditional memory breakpoint forces the element by element execution.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class RepStringBenchmark {
+  // Instructions executed for each REP instruction: MOV CX / XOR SI / XOR DI / MOV AL / REP / JMP
+  private static final int INSTRUCTIONS_PER_LOOP = 6;
+
+  @Param({ "F3A4", "F3A5", "F3AA", "F3AB", "F3A6", "F2AE" })
+  private String repInstruction;
+
+  @Param({ "16", "256", "4096" })
+  private int count;
+
+  @Param({ "false", "true" })
+  private boolean memoryBreakPoint;
+
+  private ProgramExecutor programExecutor;
+  private Cpu cpu;
+
+  @Setup
+  public void createMachine() {
+    programExecutor = BenchmarkMachines.createProgramExecutor(new Configuration());
+    Machine machine = programExecutor.getMachine();
+    String code = String.format("B9%02X%02X", count & 0xFF, count >>> 8) // loop: MOV CX,count
+        + "31F6" // XOR SI,SI
+        + "31FF" // XOR DI,DI
+        // Not in memory, so that REPNE SCASB goes to the end
+        + "B077" // MOV AL,77
+        + repInstruction
+        + "EBF3"; // JMP loop
+    BenchmarkMachines.loadCode(machine, code);
+    if (memoryBreakPoint) {
+      machine.getMemory()
+          .toggleBreakPoint(new UnconditionalBreakPoint(BreakPointType.ACCESS, breakPoint -> {}, false), true);
+    }
+    cpu = machine.getCpu();
+  }
+
+  @TearDown
+  public void closeMachine() {
+    programExecutor.close();
+  }
+
+  @Benchmark
+  public void executeRepInstruction() throws InvalidOperationException {
+    for (int i = 0; i < INSTRUCTIONS_PER_LOOP; i++) {
+      cpu.executeNextInstruction();
+    }
+  }
+}
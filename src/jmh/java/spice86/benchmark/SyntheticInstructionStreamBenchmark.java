@@ -0,0 +1,84 @@
+package spice86.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import spice86.emulator.Configuration;
+import spice86.emulator.ProgramExecutor;
+import spice86.emulator.cpu.Cpu;
+import spice86.emulator.cpu.OpcodeDispatchMode;
+import spice86.emulator.errors.InvalidOperationException;
+
+/**
+ * Measures Cpu.executeNextInstruction on infinite loops of synthetic code. Score is the time per instruction.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SyntheticInstructionStreamBenchmark {
+  private static final int INSTRUCTIONS_PER_INVOCATION = 1000;
+
+  @Param({ "MIXED", "REGISTER_ARITHMETIC", "MEMORY_ACCESS" })
+  private String code;
+
+  @Param({ "SWITCH", "TABLE" })
+  private OpcodeDispatchMode opcodeDispatchMode;
+
+  @Param({ "off", "0" })
+  private String recompileThreshold;
+
+  @Param({ "false", "true" })
+  private boolean lazyFlags;
+
+  private ProgramExecutor programExecutor;
+  private Cpu cpu;
+
+  @Setup
+  public void createMachine() {
+    Configuration configuration = new Configuration();
+    configuration.setOpcodeDispatchMode(opcodeDispatchMode);
+    configuration.setRecompileThreshold(BenchmarkMachines.parseRecompileThreshold(recompileThreshold));
+    configuration.setLazyFlags(lazyFlags);
+    programExecutor = BenchmarkMachines.createProgramExecutor(configuration);
+    BenchmarkMachines.loadCode(programExecutor.getMachine(), getHexCode());
+    cpu = programExecutor.getMachine().getCpu();
+  }
+
+  private String getHexCode() {
+    return switch (code) {
+      case "MIXED" -> BenchmarkMachines.MIXED_CODE;
+      case "REGISTER_ARITHMETIC" -> BenchmarkMachines.REGISTER_ARITHMETIC_CODE;
+      case "MEMORY_ACCESS" -> BenchmarkMachines.MEMORY_ACCESS_CODE;
+      default -> throw new IllegalArgumentException("Unknown code " + code);
+    };
+  }
+
+  @TearDown
+  public void closeMachine() {
+    programExecutor.close();
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(INSTRUCTIONS_PER_INVOCATION)
+  public void executeNextInstruction() throws InvalidOperationException {
+    for (int i = 0; i < INSTRUCTIONS_PER_INVOCATION; i++) {
+      cpu.executeNextInstruction();
+    }
+  }
+}
@@ -0,0 +1,59 @@
+package spice86.emulator.cpu;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import spice86.benchmark.BenchmarkMachines;
+import spice86.emulator.Configuration;
+import spice86.emulator.ProgramExecutor;
+
+/**
+ * Measures reading immediate operands from the instruction stream with Cpu.nextUint8 / nextUint16.<br/>
+ * In the cpu package because rewinding the instruction pointer needs package private access.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@org.openjdk.jmh.annotations.State(Scope.Thread)
+public class InstructionFetchBenchmark {
+  private ProgramExecutor programExecutor;
+  private Cpu cpu;
+
+  @Setup
+  public void createMachine() {
+    programExecutor = BenchmarkMachines.createProgramExecutor(new Configuration());
+    BenchmarkMachines.loadCode(programExecutor.getMachine(), BenchmarkMachines.MIXED_CODE);
+    cpu = programExecutor.getMachine().getCpu();
+  }
+
+  @TearDown
+  public void closeMachine() {
+    programExecutor.close();
+  }
+
+  @Benchmark
+  public int nextUint8() {
+    int res = cpu.nextUint8();
+    cpu.skipInstructionBytes(-1);
+    return res;
+  }
+
+  @Benchmark
+  public int nextUint16() {
+    int res = cpu.nextUint16();
+    cpu.skipInstructionBytes(-2);
+    return res;
+  }
+}
@@ -0,0 +1,72 @@
+package spice86.emulator.cpu;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import spice86.benchmark.BenchmarkMachines;
+import spice86.emulator.Configuration;
+import spice86.emulator.ProgramExecutor;
+
+/**
+ * Measures ModRM.read on the different kinds of mod r/m bytes, alone and followed by a 16 bit access to the operand.<br/>
+ * In the cpu package because rewinding the instruction pointer after each read needs package private access. No
+ * instruction is executed, so the mod r/m is fully decoded each time instead of being taken from the decoded
+ * instruction cache.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@org.openjdk.jmh.annotations.State(Scope.Thread)
+public class ModRMBenchmark {
+  // Register, [BX+SI], [BX+SI+10], [BX+SI+2000], [BP+DI+10] and [0300]
+  @Param({ "C0", "00", "4010", "800020", "4310", "060003" })
+  private String modRM;
+
+  private ProgramExecutor programExecutor;
+  private Cpu cpu;
+  private ModRM modRMReader;
+
+  @Setup
+  public void createMachine() {
+    programExecutor = BenchmarkMachines.createProgramExecutor(new Configuration());
+    BenchmarkMachines.loadCode(programExecutor.getMachine(), modRM);
+    cpu = programExecutor.getMachine().getCpu();
+    modRMReader = new ModRM(programExecutor.getMachine(), cpu);
+  }
+
+  @TearDown
+  public void closeMachine() {
+    programExecutor.close();
+  }
+
+  @Benchmark
+  public int read() throws InvalidModeException {
+    int startIp = cpu.getInternalIp();
+    modRMReader.read();
+    cpu.skipInstructionBytes(startIp - cpu.getInternalIp());
+    return modRMReader.getMemoryAddress();
+  }
+
+  @Benchmark
+  public int readRm16() throws InvalidModeException {
+    int startIp = cpu.getInternalIp();
+    modRMReader.read();
+    cpu.skipInstructionBytes(startIp - cpu.getInternalIp());
+    int value = modRMReader.getRm16();
+    modRMReader.setRm16(value + 1);
+    return value;
+  }
+}
@@ -1,5 +1,9 @@
 package spice86.emulator;
 
+import java.util.List;
+
+import spice86.emulator.cpu.OpcodeDispatchMode;
+import spice86.emulator.devices.video.capture.CaptureFormat;
 import spice86.emulator.function.OverrideSupplier;
 
 /**
@@ -20,6 +24,16 @@ public class Configuration {
   private int programEntryPointSegment;
   private byte[] expectedChecksum = new byte[0];
   private String defaultDumpDirectory;
+  private OpcodeDispatchMode opcodeDispatchMode = OpcodeDispatchMode.SWITCH;
+  // Null when the block recompiler is disabled
+  private Integer recompileThreshold;
+  private boolean lazyFlags;
+  private boolean offHeapMemory;
+  // Save state followed by its checkpoints, empty when the program starts from the beginning
+  private List<String> loadStateFiles = List.of();
+  // Where to capture the video to, null when video is not captured
+  private String captureVideo;
+  private CaptureFormat captureFormat = CaptureFormat.Y4M;
 
   public String getExe() {
     return exe;
@@ -124,4 +138,60 @@ public class Configuration {
   public void setDefaultDumpDirectory(String defaultDumpDirectory) {
     this.defaultDumpDirectory = defaultDumpDirectory;
   }
+
+  public OpcodeDispatchMode getOpcodeDispatchMode() {
+    return opcodeDispatchMode;
+  }
+
+  public void setOpcodeDispatchMode(OpcodeDispatchMode opcodeDispatchMode) {
+    this.opcodeDispatchMode = opcodeDispatchMode;
+  }
+
+  public Integer getRecompileThreshold() {
+    return recompileThreshold;
+  }
+
+  public void setRecompileThreshold(Integer recompileThreshold) {
+    this.recompileThreshold = recompileThreshold;
+  }
+
+  public boolean isLazyFlags() {
+    return lazyFlags;
+  }
+
+  public void setLazyFlags(boolean lazyFlags) {
+    this.lazyFlags = lazyFlags;
+  }
+
+  public boolean isOffHeapMemory() {
+    return offHeapMemory;
+  }
+
+  public void setOffHeapMemory(boolean offHeapMemory) {
+    this.offHeapMemory = offHeapMemory;
+  }
+
+  public List<String> getLoadStateFiles() {
+    return loadStateFiles;
+  }
+
+  public void setLoadStateFiles(List<String> loadStateFiles) {
+    this.loadStateFiles = loadStateFiles;
+  }
+
+  public String getCaptureVideo() {
+    return captureVideo;
+  }
+
+  public void setCaptureVideo(String captureVideo) {
+    this.captureVideo = captureVideo;
+  }
+
+  public CaptureFormat getCaptureFormat() {
+    return captureFormat;
+  }
+
+  public void setCaptureFormat(CaptureFormat captureFormat) {
+    this.captureFormat = captureFormat;
+  }
 }
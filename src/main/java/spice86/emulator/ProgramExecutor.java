@@ -6,6 +6,7 @@ import org.slf4j.LoggerFactory;
 import spice86.emulator.cpu.Cpu;
 import spice86.emulator.cpu.State;
 import spice86.emulator.devices.timer.CounterConfigurator;
+import spice86.emulator.devices.video.capture.VideoCapture;
 import spice86.emulator.errors.InvalidOperationException;
 import spice86.emulator.errors.UnrecoverableException;
 import spice86.emulator.function.FunctionHandler;
@@ -17,17 +18,22 @@ import spice86.emulator.loadablefile.bios.BiosLoader;
 import spice86.emulator.loadablefile.dos.com.ComLoader;
 import spice86.emulator.loadablefile.dos.exe.ExeLoader;
 import spice86.emulator.machine.Machine;
+import spice86.emulator.memory.ByteArrayMemoryBackend;
+import spice86.emulator.memory.MemoryBackend;
+import spice86.emulator.memory.OffHeapMemoryBackend;
 import spice86.emulator.memory.SegmentedAddress;
 import spice86.ui.Gui;
 import spice86.utils.ConvertUtils;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -39,6 +45,7 @@ public class ProgramExecutor implements java.io.Closeable {
 
   private Machine machine;
   private GdbServer gdbServer;
+  private VideoCapture videoCapture;
 
   public ProgramExecutor(Gui gui, Configuration configuration) {
     createMachine(gui, configuration);
@@ -55,8 +62,10 @@ public class ProgramExecutor implements java.io.Closeable {
   private final void createMachine(Gui gui, Configuration configuration) {
     CounterConfigurator counterConfigurator = new CounterConfigurator(configuration);
     boolean debugMode = configuration.getGdbPort() != null;
-    machine = new Machine(gui, counterConfigurator, configuration.isFailOnUnhandledPort(), debugMode);
-    initializeCpu();
+    MemoryBackend memoryBackend = configuration.isOffHeapMemory() ? new OffHeapMemoryBackend(Machine.MEMORY_SIZE)
+        : new ByteArrayMemoryBackend(Machine.MEMORY_SIZE);
+    machine = new Machine(gui, counterConfigurator, configuration.isFailOnUnhandledPort(), debugMode, memoryBackend);
+    initializeCpu(configuration);
     initializeDos(configuration);
     if (configuration.isInstallInterruptVector()) {
       // Doing this after function Handler init so that custom code there can have a chance to register some callbacks
@@ -65,12 +74,19 @@ public class ProgramExecutor implements java.io.Closeable {
     }
     initializeFunctionHandlers(configuration);
     loadFileToRun(configuration);
+    loadState(configuration);
+    startVideoCapture(configuration);
     startGdbServer(configuration);
   }
 
-  private void initializeCpu() {
+  private void initializeCpu(Configuration configuration) {
     Cpu cpu = machine.getCpu();
     cpu.setErrorOnUninitializedInterruptHandler(true);
+    cpu.setOpcodeDispatchMode(configuration.getOpcodeDispatchMode());
+    if (configuration.getRecompileThreshold() != null) {
+      cpu.enableBlockRecompiler(configuration.getRecompileThreshold());
+    }
+    cpu.getAlu().setLazyFlags(configuration.isLazyFlags());
     State state = cpu.getState();
     state.getFlags().setDosboxCompatibility(true);
   }
@@ -127,6 +143,32 @@ public class ProgramExecutor implements java.io.Closeable {
     }
   }
 
+  private void loadState(Configuration configuration) {
+    List<String> loadStateFiles = configuration.getLoadStateFiles();
+    if (loadStateFiles.isEmpty()) {
+      return;
+    }
+    try {
+      machine.getSaveStateManager()
+          .restore(loadStateFiles.get(0), loadStateFiles.subList(1, loadStateFiles.size()));
+    } catch (IOException e) {
+      throw new UnrecoverableException("Failed to load state from " + loadStateFiles, e);
+    }
+  }
+
+  private void startVideoCapture(Configuration configuration) {
+    String captureVideo = configuration.getCaptureVideo();
+    if (captureVideo == null) {
+      return;
+    }
+    try {
+      videoCapture = new VideoCapture(Path.of(captureVideo), configuration.getCaptureFormat());
+    } catch (IOException e) {
+      throw new UnrecoverableException("Failed to start video capture to " + captureVideo, e);
+    }
+    machine.getVgaCard().setFrameSink(videoCapture);
+  }
+
   private void checkSha256Checksum(byte[] file, byte[] expectedHash) {
     if (expectedHash.length == 0) {
       // No hash check
@@ -162,6 +204,13 @@ public class ProgramExecutor implements java.io.Closeable {
     if (gdbServer != null) {
       gdbServer.close();
     }
+    if (videoCapture != null) {
+      try {
+        videoCapture.close();
+      } catch (IOException e) {
+        LOGGER.error("Failed to write video capture", e);
+      }
+    }
   }
 
   private void setupFunctionHandler(FunctionHandler functionHandler,
@@ -0,0 +1,182 @@
+package spice86.emulator.benchmark;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.google.gson.GsonBuilder;
+
+/**
+ * Measurements of a headless benchmark run. Serialized as JSON so that runs of different builds can be compared.
+ */
+public class BenchmarkResult {
+  /**
+   * Time spent in the handlers of the events of a device.
+   */
+  public static class DeviceTime {
+    private long fires;
+    private double milliseconds;
+
+    public long getFires() {
+      return fires;
+    }
+
+    public double getMilliseconds() {
+      return milliseconds;
+    }
+
+    void add(long fires, long nanoseconds) {
+      this.fires += fires;
+      this.milliseconds += nanoseconds / 1_000_000.0;
+    }
+  }
+
+  private String exe;
+  private String opcodeDispatchMode;
+  private Integer recompileThreshold;
+  private boolean lazyFlags;
+  private String javaVersion;
+  private long requestedCycles;
+  private long executedInstructions;
+  private int inputEvents;
+  private double loadMilliseconds;
+  private double wallClockMilliseconds;
+  private double mips;
+  // -1 when the JVM cannot measure it
+  private long allocatedBytes;
+  private double allocationRateMegabytesPerSecond;
+  private long gcCount;
+  private long gcPauseMilliseconds;
+  private Map<String, DeviceTime> deviceTimes = new LinkedHashMap<>();
+
+  public String getExe() {
+    return exe;
+  }
+
+  void setExe(String exe) {
+    this.exe = exe;
+  }
+
+  public String getOpcodeDispatchMode() {
+    return opcodeDispatchMode;
+  }
+
+  void setOpcodeDispatchMode(String opcodeDispatchMode) {
+    this.opcodeDispatchMode = opcodeDispatchMode;
+  }
+
+  public Integer getRecompileThreshold() {
+    return recompileThreshold;
+  }
+
+  void setRecompileThreshold(Integer recompileThreshold) {
+    this.recompileThreshold = recompileThreshold;
+  }
+
+  public boolean isLazyFlags() {
+    return lazyFlags;
+  }
+
+  void setLazyFlags(boolean lazyFlags) {
+    this.lazyFlags = lazyFlags;
+  }
+
+  public String getJavaVersion() {
+    return javaVersion;
+  }
+
+  void setJavaVersion(String javaVersion) {
+    this.javaVersion = javaVersion;
+  }
+
+  public long getRequestedCycles() {
+    return requestedCycles;
+  }
+
+  void setRequestedCycles(long requestedCycles) {
+    this.requestedCycles = requestedCycles;
+  }
+
+  public long getExecutedInstructions() {
+    return executedInstructions;
+  }
+
+  void setExecutedInstructions(long executedInstructions) {
+    this.executedInstructions = executedInstructions;
+  }
+
+  public int getInputEvents() {
+    return inputEvents;
+  }
+
+  void setInputEvents(int inputEvents) {
+    this.inputEvents = inputEvents;
+  }
+
+  public double getLoadMilliseconds() {
+    return loadMilliseconds;
+  }
+
+  void setLoadMilliseconds(double loadMilliseconds) {
+    this.loadMilliseconds = loadMilliseconds;
+  }
+
+  public double getWallClockMilliseconds() {
+    return wallClockMilliseconds;
+  }
+
+  void setWallClockMilliseconds(double wallClockMilliseconds) {
+    this.wallClockMilliseconds = wallClockMilliseconds;
+  }
+
+  public double getMips() {
+    return mips;
+  }
+
+  void setMips(double mips) {
+    this.mips = mips;
+  }
+
+  public long getAllocatedBytes() {
+    return allocatedBytes;
+  }
+
+  void setAllocatedBytes(long allocatedBytes) {
+    this.allocatedBytes = allocatedBytes;
+  }
+
+  public double getAllocationRateMegabytesPerSecond() {
+    return allocationRateMegabytesPerSecond;
+  }
+
+  void setAllocationRateMegabytesPerSecond(double allocationRateMegabytesPerSecond) {
+    this.allocationRateMegabytesPerSecond = allocationRateMegabytesPerSecond;
+  }
+
+  public long getGcCount() {
+    return gcCount;
+  }
+
+  void setGcCount(long gcCount) {
+    this.gcCount = gcCount;
+  }
+
+  public long getGcPauseMilliseconds() {
+    return gcPauseMilliseconds;
+  }
+
+  void setGcPauseMilliseconds(long gcPauseMilliseconds) {
+    this.gcPauseMilliseconds = gcPauseMilliseconds;
+  }
+
+  public Map<String, DeviceTime> getDeviceTimes() {
+    return deviceTimes;
+  }
+
+  void addDeviceTime(String device, long fires, long nanoseconds) {
+    deviceTimes.computeIfAbsent(device, d -> new DeviceTime()).add(fires, nanoseconds);
+  }
+
+  public String toJson() {
+    return new GsonBuilder().setPrettyPrinting().create().toJson(this);
+  }
+}
@@ -0,0 +1,125 @@
+package spice86.emulator.benchmark;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import spice86.emulator.Configuration;
+import spice86.emulator.ProgramExecutor;
+import spice86.emulator.cpu.State;
+import spice86.emulator.errors.InvalidOperationException;
+import spice86.emulator.machine.DeviceScheduler;
+import spice86.emulator.machine.Machine;
+import spice86.emulator.machine.ScheduledEvent;
+
+/**
+ * Runs a program without gui for a fixed number of cycles and measures the emulator throughput.<br/>
+ * Input can be injected at given cycles with an InputScript. Device time is the time spent in the handlers of the
+ * events of the DeviceScheduler, time spent in IO port handlers called by the CPU is counted as CPU time.
+ */
+public class HeadlessBenchmark {
+  private static final Logger LOGGER = LoggerFactory.getLogger(HeadlessBenchmark.class);
+
+  private final Configuration configuration;
+  private final long cycles;
+  private final String inputScriptPath;
+
+  /**
+   * @param inputScriptPath
+   *          path of the InputScript, null for no input
+   */
+  public HeadlessBenchmark(Configuration configuration, long cycles, String inputScriptPath) {
+    this.configuration = configuration;
+    this.cycles = cycles;
+    this.inputScriptPath = inputScriptPath;
+  }
+
+  public BenchmarkResult run() throws InvalidOperationException {
+    BenchmarkResult result = new BenchmarkResult();
+    result.setExe(configuration.getExe());
+    result.setOpcodeDispatchMode(configuration.getOpcodeDispatchMode().name());
+    result.setRecompileThreshold(configuration.getRecompileThreshold());
+    result.setLazyFlags(configuration.isLazyFlags());
+    result.setJavaVersion(System.getProperty("java.version"));
+    result.setRequestedCycles(cycles);
+    long loadStart = System.nanoTime();
+    try (ProgramExecutor programExecutor = new ProgramExecutor(null, configuration)) {
+      Machine machine = programExecutor.getMachine();
+      State state = machine.getCpu().getState();
+      DeviceScheduler deviceScheduler = machine.getDeviceScheduler();
+      if (inputScriptPath != null) {
+        InputScript inputScript = new InputScript(machine);
+        inputScript.load(inputScriptPath);
+        result.setInputEvents(inputScript.getEventCount());
+      }
+      long startCycles = state.getCycles();
+      ScheduledEvent endEvent = new ScheduledEvent("Benchmark end", cycle -> machine.getCpu().setRunning(false));
+      deviceScheduler.schedule(endEvent, startCycles + cycles);
+      deviceScheduler.setEventTimingEnabled(true);
+      result.setLoadMilliseconds((System.nanoTime() - loadStart) / 1_000_000.0);
+
+      long gcCountBefore = getGcCount();
+      long gcTimeBefore = getGcTime();
+      long allocatedBytesBefore = getCurrentThreadAllocatedBytes();
+      long start = System.nanoTime();
+      programExecutor.run();
+      long nanoseconds = System.nanoTime() - start;
+      long allocatedBytesAfter = getCurrentThreadAllocatedBytes();
+
+      long executedInstructions = state.getCycles() - startCycles;
+      double seconds = nanoseconds / 1_000_000_000.0;
+      result.setExecutedInstructions(executedInstructions);
+      result.setWallClockMilliseconds(nanoseconds / 1_000_000.0);
+      result.setMips(executedInstructions / seconds / 1_000_000.0);
+      if (allocatedBytesBefore >= 0 && allocatedBytesAfter >= 0) {
+        long allocatedBytes = allocatedBytesAfter - allocatedBytesBefore;
+        result.setAllocatedBytes(allocatedBytes);
+        result.setAllocationRateMegabytesPerSecond(allocatedBytes / seconds / (1024 * 1024));
+      } else {
+        result.setAllocatedBytes(-1);
+      }
+      result.setGcCount(getGcCount() - gcCountBefore);
+      result.setGcPauseMilliseconds(getGcTime() - gcTimeBefore);
+      for (ScheduledEvent event : deviceScheduler.getTimedEvents()) {
+        if (event != endEvent) {
+          result.addDeviceTime(event.getName(), event.getFireCount(), event.getFireNanos());
+        }
+      }
+    }
+    LOGGER.info("Executed {} instructions in {} ms, {} MIPS", result.getExecutedInstructions(),
+        result.getWallClockMilliseconds(), result.getMips());
+    return result;
+  }
+
+  private long getCurrentThreadAllocatedBytes() {
+    ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+    if (threadMXBean instanceof com.sun.management.ThreadMXBean sunThreadMXBean
+        && sunThreadMXBean.isThreadAllocatedMemoryEnabled()) {
+      return sunThreadMXBean.getCurrentThreadAllocatedBytes();
+    }
+    return -1;
+  }
+
+  private long getGcCount() {
+    long res = 0;
+    for (GarbageCollectorMXBean garbageCollector : ManagementFactory.getGarbageCollectorMXBeans()) {
+      res += Math.max(0, garbageCollector.getCollectionCount());
+    }
+    return res;
+  }
+
+  /**
+   * @return accumulated collection time in ms. For concurrent collectors this includes time that did not pause the
+   *         application.
+   */
+  private long getGcTime() {
+    long res = 0;
+    for (GarbageCollectorMXBean garbageCollector : ManagementFactory.getGarbageCollectorMXBeans()) {
+      res += Math.max(0, garbageCollector.getCollectionTime());
+    }
+    return res;
+  }
+}
@@ -0,0 +1,116 @@
+package spice86.emulator.benchmark;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.math.NumberUtils;
+
+import javafx.scene.input.KeyCode;
+import spice86.emulator.errors.UnrecoverableException;
+import spice86.emulator.machine.DeviceScheduler;
+import spice86.emulator.machine.Machine;
+import spice86.emulator.machine.ScheduledEvent;
+
+/**
+ * Input to inject in a run without gui. Each line is an event stamped with the cycle at which it happens:
+ * <ul>
+ * <li>&lt;cycle&gt; key &lt;press or release&gt; &lt;javafx KeyCode name, for example ENTER or A&gt;</li>
+ * <li>&lt;cycle&gt; mouse &lt;x&gt; &lt;y&gt; &lt;buttons, bit 0 for left and bit 1 for right&gt;</li>
+ * </ul>
+ * Empty lines and lines starting with # are ignored.
+ */
+public class InputScript {
+  public static final String KEYBOARD_EVENT_NAME = "Keyboard input";
+  public static final String MOUSE_EVENT_NAME = "Mouse input";
+
+  private final Machine machine;
+  private int eventCount;
+
+  public InputScript(Machine machine) {
+    this.machine = machine;
+  }
+
+  public int getEventCount() {
+    return eventCount;
+  }
+
+  public void load(String path) {
+    try {
+      parse(Files.readAllLines(Path.of(path)));
+    } catch (IOException e) {
+      throw new UnrecoverableException("Failed to read input script " + path, e);
+    }
+  }
+
+  /**
+   * Schedules the events of the script in the DeviceScheduler of the machine.
+   */
+  public void parse(List<String> lines) {
+    for (int i = 0; i < lines.size(); i++) {
+      String line = lines.get(i).trim();
+      if (line.isEmpty() || line.startsWith("#")) {
+        continue;
+      }
+      parseLine(i + 1, StringUtils.split(line));
+    }
+  }
+
+  private void parseLine(int lineNumber, String[] tokens) {
+    if (tokens.length < 2) {
+      throw invalidLine(lineNumber, "expected a cycle and an event type");
+    }
+    long cycle = parseNumber(lineNumber, tokens[0]);
+    ScheduledEvent event = switch (tokens[1]) {
+      case "key" -> parseKeyEvent(lineNumber, tokens);
+      case "mouse" -> parseMouseEvent(lineNumber, tokens);
+      default -> throw invalidLine(lineNumber, "unknown event type " + tokens[1]);
+    };
+    DeviceScheduler deviceScheduler = machine.getDeviceScheduler();
+    deviceScheduler.schedule(event, cycle);
+    eventCount++;
+  }
+
+  private ScheduledEvent parseKeyEvent(int lineNumber, String[] tokens) {
+    if (tokens.length != 4) {
+      throw invalidLine(lineNumber, "expected key <press or release> <key code>");
+    }
+    boolean pressed = switch (tokens[2]) {
+      case "press" -> true;
+      case "release" -> false;
+      default -> throw invalidLine(lineNumber, "expected press or release, got " + tokens[2]);
+    };
+    KeyCode keyCode;
+    try {
+      keyCode = KeyCode.valueOf(tokens[3]);
+    } catch (IllegalArgumentException e) {
+      throw invalidLine(lineNumber, "unknown key code " + tokens[3]);
+    }
+    return new ScheduledEvent(KEYBOARD_EVENT_NAME,
+        cycle -> machine.getKeyboard().injectKeyEvent(keyCode, pressed));
+  }
+
+  private ScheduledEvent parseMouseEvent(int lineNumber, String[] tokens) {
+    if (tokens.length != 5) {
+      throw invalidLine(lineNumber, "expected mouse <x> <y> <buttons>");
+    }
+    int x = (int)parseNumber(lineNumber, tokens[2]);
+    int y = (int)parseNumber(lineNumber, tokens[3]);
+    int buttons = (int)parseNumber(lineNumber, tokens[4]);
+    return new ScheduledEvent(MOUSE_EVENT_NAME,
+        cycle -> machine.getMouseInt33Handler().injectMouseState(x, y, (buttons & 1) != 0, (buttons & 2) != 0));
+  }
+
+  private long parseNumber(int lineNumber, String value) {
+    if (!NumberUtils.isDigits(value)) {
+      throw invalidLine(lineNumber, value + " is not a positive number");
+    }
+    return Long.parseLong(value);
+  }
+
+  private UnrecoverableException invalidLine(int lineNumber, String message) {
+    return new UnrecoverableException("Invalid input script line " + lineNumber + ": " + message);
+  }
+}
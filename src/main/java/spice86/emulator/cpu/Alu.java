@@ -37,33 +37,52 @@ public class Alu {
   private static final int BEFORE_MSB_MASK_8 = 0x40;
   private static final int MSB_MASK_16 = 0x8000;
   private static final int BEFORE_MSB_MASK_16 = 0x4000;
+  private static final int ARITHMETIC_FLAGS =
+      Flags.CARRY | Flags.PARITY | Flags.AUXILIARY | Flags.ZERO | Flags.SIGN | Flags.OVERFLOW;
+  private static final int RESULT_FLAGS = Flags.PARITY | Flags.ZERO | Flags.SIGN;
 
   private State state;
+  private Flags flags;
+  // When true, flags of add / sub / inc / dec / and / or / xor are only computed when read
+  private boolean lazyFlags;
 
   public Alu(State state) {
     this.state = state;
+    this.flags = state.getFlags();
+  }
+
+  public boolean isLazyFlags() {
+    return lazyFlags;
+  }
+
+  public void setLazyFlags(boolean lazyFlags) {
+    this.lazyFlags = lazyFlags;
   }
 
   // from https://www.vogons.org/viewtopic.php?t=55377
-  private int overflowBitsAdd(int value1, int value2, int dst) {
+  static int overflowBitsAdd(int value1, int value2, int dst) {
     return ((value1 ^ dst) & (~(value1 ^ value2)));
   }
 
-  private int carryBitsAdd(int value1, int value2, int dst) {
+  static int carryBitsAdd(int value1, int value2, int dst) {
     return (((value1 ^ value2) ^ dst) ^ ((value1 ^ dst) & (~(value1 ^ value2))));
   }
 
-  private int overflowBitsSub(int value1, int value2, int dst) {
+  static int overflowBitsSub(int value1, int value2, int dst) {
     return ((value1 ^ dst) & (value1 ^ value2));
   }
 
-  private int borrowBitsSub(int value1, int value2, int dst) {
+  static int borrowBitsSub(int value1, int value2, int dst) {
     return (((value1 ^ value2) ^ dst) ^ ((value1 ^ dst) & (value1 ^ value2)));
   }
 
   public int add8(int value1, int value2, boolean useCarry) {
     int carry = (useCarry && state.getCarryFlag()) ? 1 : 0;
     int res = uint8(value1 + value2 + carry);
+    if (lazyFlags) {
+      flags.setLazyOperation(Flags.LAZY_ADD, ARITHMETIC_FLAGS, 7, value1, value2, res);
+      return res;
+    }
     updateFlags8(res);
     int carryBits = carryBitsAdd(value1, value2, res);
     int overflowBits = overflowBitsAdd(value1, value2, res);
@@ -76,6 +95,10 @@ public class Alu {
   public int add16(int value1, int value2, boolean useCarry) {
     int carry = (useCarry && state.getCarryFlag()) ? 1 : 0;
     int res = uint16(value1 + value2 + carry);
+    if (lazyFlags) {
+      flags.setLazyOperation(Flags.LAZY_ADD, ARITHMETIC_FLAGS, 15, value1, value2, res);
+      return res;
+    }
     updateFlags16(res);
     int carryBits = carryBitsAdd(value1, value2, res);
     int overflowBits = overflowBitsAdd(value1, value2, res);
@@ -103,6 +126,11 @@ public class Alu {
 
   public int inc8(int value) {
     // CF is not modified
+    if (lazyFlags) {
+      int res = uint8(value + 1);
+      flags.setLazyOperation(Flags.LAZY_ADD, ARITHMETIC_FLAGS & ~Flags.CARRY, 7, value, 1, res);
+      return res;
+    }
     boolean carry = state.getCarryFlag();
     int res = add8(value, 1, false);
     state.setCarryFlag(carry);
@@ -111,6 +139,11 @@ public class Alu {
 
   public int inc16(int value) {
     // CF is not modified
+    if (lazyFlags) {
+      int res = uint16(value + 1);
+      flags.setLazyOperation(Flags.LAZY_ADD, ARITHMETIC_FLAGS & ~Flags.CARRY, 15, value, 1, res);
+      return res;
+    }
     boolean carry = state.getCarryFlag();
     int res = add16(value, 1, false);
     state.setCarryFlag(carry);
@@ -119,6 +152,11 @@ public class Alu {
 
   public int or8(int value1, int value2) {
     int res = value1 | value2;
+    if (lazyFlags) {
+      flags.setFlag(Flags.CARRY | Flags.OVERFLOW, false);
+      flags.setLazyOperation(Flags.LAZY_RESULT, RESULT_FLAGS, 7, value1, value2, res);
+      return res;
+    }
     updateFlags8(res);
     state.setCarryFlag(false);
     state.setOverflowFlag(false);
@@ -127,6 +165,11 @@ public class Alu {
 
   public int or16(int value1, int value2) {
     int res = value1 | value2;
+    if (lazyFlags) {
+      flags.setFlag(Flags.CARRY | Flags.OVERFLOW, false);
+      flags.setLazyOperation(Flags.LAZY_RESULT, RESULT_FLAGS, 15, value1, value2, res);
+      return res;
+    }
     updateFlags16(res);
     state.setCarryFlag(false);
     state.setOverflowFlag(false);
@@ -136,6 +179,10 @@ public class Alu {
   public int sub8(int value1, int value2, boolean useCarry) {
     int carry = (useCarry && state.getCarryFlag()) ? 1 : 0;
     int res = uint8(value1 - value2 - carry);
+    if (lazyFlags) {
+      flags.setLazyOperation(Flags.LAZY_SUB, ARITHMETIC_FLAGS, 7, value1, value2, res);
+      return res;
+    }
     updateFlags8(res);
     int borrowBits = borrowBitsSub(value1, value2, res);
     int overflowBits = overflowBitsSub(value1, value2, res);
@@ -149,6 +196,10 @@ public class Alu {
   public int sub16(int value1, int value2, boolean useCarry) {
     int carry = (useCarry && state.getCarryFlag()) ? 1 : 0;
     int res = uint16(value1 - value2 - carry);
+    if (lazyFlags) {
+      flags.setLazyOperation(Flags.LAZY_SUB, ARITHMETIC_FLAGS, 15, value1, value2, res);
+      return res;
+    }
     updateFlags16(res);
     int borrowBits = borrowBitsSub(value1, value2, res);
     int overflowBits = overflowBitsSub(value1, value2, res);
@@ -177,6 +228,11 @@ public class Alu {
 
   public int dec8(int value1) {
     // CF is not modified
+    if (lazyFlags) {
+      int res = uint8(value1 - 1);
+      flags.setLazyOperation(Flags.LAZY_SUB, ARITHMETIC_FLAGS & ~Flags.CARRY, 7, value1, 1, res);
+      return res;
+    }
     boolean carry = state.getCarryFlag();
     int res = sub8(value1, 1, false);
     state.setCarryFlag(carry);
@@ -185,6 +241,11 @@ public class Alu {
 
   public int dec16(int value1) {
     // CF is not modified
+    if (lazyFlags) {
+      int res = uint16(value1 - 1);
+      flags.setLazyOperation(Flags.LAZY_SUB, ARITHMETIC_FLAGS & ~Flags.CARRY, 15, value1, 1, res);
+      return res;
+    }
     boolean carry = state.getCarryFlag();
     int res = sub16(value1, 1, false);
     state.setCarryFlag(carry);
@@ -193,6 +254,11 @@ public class Alu {
 
   public int and8(int value1, int value2) {
     int res = value1 & value2;
+    if (lazyFlags) {
+      flags.setFlag(Flags.CARRY | Flags.OVERFLOW, false);
+      flags.setLazyOperation(Flags.LAZY_RESULT, RESULT_FLAGS, 7, value1, value2, res);
+      return res;
+    }
     updateFlags8(res);
     state.setCarryFlag(false);
     state.setOverflowFlag(false);
@@ -201,6 +267,11 @@ public class Alu {
 
   public int and16(int value1, int value2) {
     int res = value1 & value2;
+    if (lazyFlags) {
+      flags.setFlag(Flags.CARRY | Flags.OVERFLOW, false);
+      flags.setLazyOperation(Flags.LAZY_RESULT, RESULT_FLAGS, 15, value1, value2, res);
+      return res;
+    }
     updateFlags16(res);
     state.setCarryFlag(false);
     state.setOverflowFlag(false);
@@ -209,6 +280,11 @@ public class Alu {
 
   public int xor8(int value1, int value2) {
     int res = value1 ^ value2;
+    if (lazyFlags) {
+      flags.setFlag(Flags.CARRY | Flags.OVERFLOW, false);
+      flags.setLazyOperation(Flags.LAZY_RESULT, RESULT_FLAGS, 7, value1, value2, res);
+      return res;
+    }
     updateFlags8(res);
     state.setCarryFlag(false);
     state.setOverflowFlag(false);
@@ -217,6 +293,11 @@ public class Alu {
 
   public int xor16(int value1, int value2) {
     int res = value1 ^ value2;
+    if (lazyFlags) {
+      flags.setFlag(Flags.CARRY | Flags.OVERFLOW, false);
+      flags.setLazyOperation(Flags.LAZY_RESULT, RESULT_FLAGS, 15, value1, value2, res);
+      return res;
+    }
     updateFlags16(res);
     state.setCarryFlag(false);
     state.setOverflowFlag(false);
@@ -577,7 +658,7 @@ public class Alu {
     state.setParityFlag(isParity(uint8(value)));
   }
 
-  private boolean isParity(int value) {
+  static boolean isParity(int value) {
     int low4 = value & 0xF;
     int high4 = (value >>> 4) & 0xF;
     return ((FOUR_BIT_PARITY_EVEN_TABLE >>> low4) & 1) == ((FOUR_BIT_PARITY_EVEN_TABLE >>> high4) & 1);
@@ -3,22 +3,28 @@ package spice86.emulator.cpu;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import spice86.emulator.callback.CallbackHandler;
+import spice86.emulator.cpu.recompiler.BlockRecompiler;
+import spice86.emulator.cpu.recompiler.RecompiledBlock;
 import spice86.emulator.errors.InvalidOperationException;
 import spice86.emulator.errors.UnhandledOperationException;
 import spice86.emulator.function.CallType;
 import spice86.emulator.function.FunctionHandler;
 import spice86.emulator.function.OperandSize;
+import spice86.emulator.function.SamplingProfiler;
 import spice86.emulator.function.StaticAddressesRecorder;
 import spice86.emulator.function.ValueOperation;
 import spice86.emulator.ioports.IOPortDispatcher;
 import spice86.emulator.machine.Machine;
 import spice86.emulator.memory.Memory;
 import spice86.emulator.memory.MemoryUtils;
+import spice86.emulator.savestate.Savable;
 import spice86.utils.ConvertUtils;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.util.Arrays;
-import java.util.HashSet;
-import java.util.Set;
+import java.util.function.IntBinaryOperator;
 import java.util.function.Supplier;
 
 import static spice86.utils.ConvertUtils.int16;
@@ -51,15 +57,17 @@ import static spice86.utils.ConvertUtils.uint8;
     "java:S3776",
     // We actually check whether log level is enabled / disabled via another method and sonar does not detect it.
     "java:S2629" })
-public class Cpu {
+public class Cpu implements Savable {
   private static final Logger LOGGER = LoggerFactory.getLogger(Cpu.class);
 
   // Extract regIndex from opcode
   private static final int REG_INDEX_MASK = 0b111;
-  private static final Set<Integer> PREFIXES_OPCODES = new HashSet<>(
-      Arrays.asList(0x26, 0x2E, 0x36, 0x3E, 0x64, 0x65, 0xF0, 0xF2, 0xF3));
-  private static final Set<Integer> STRING_OPCODES =
-      new HashSet<>(Arrays.asList(0xA4, 0xA5, 0xA6, 0xA7, 0xAA, 0xAB, 0xAC, 0xAD, 0xAE, 0xAF, 0x6C, 0x6D, 0x6E, 0x6F));
+  private static final int NO_EXTERNAL_INTERRUPT = -1;
+  // Indexed by opcode, arrays of primitives so that lookups do not box the opcode
+  private static final boolean[] PREFIXES_OPCODES =
+      createOpcodeSet(0x26, 0x2E, 0x36, 0x3E, 0x64, 0x65, 0xF0, 0xF2, 0xF3);
+  private static final boolean[] STRING_OPCODES =
+      createOpcodeSet(0xA4, 0xA5, 0xA6, 0xA7, 0xAA, 0xAB, 0xAC, 0xAD, 0xAE, 0xAF, 0x6C, 0x6D, 0x6E, 0x6F);
 
   private Machine machine;
   private State state;
@@ -80,13 +88,37 @@ public class Cpu {
   private int internalIp;
   private boolean running = true;
   // interrupt not generated by the code
-  private Integer externalInterruptVectorNumber;
+  private int externalInterruptVectorNumber = NO_EXTERNAL_INTERRUPT;
   // When true will crash if an interrupt targets code at 0000:0000
   private boolean errorOnUninitializedInterruptHandler;
   private Boolean forceLog;
+  // How execOpcode finds the code to run for an opcode
+  private OpcodeDispatchMode opcodeDispatchMode = OpcodeDispatchMode.SWITCH;
+  private final OpcodeHandler[] opcodeHandlers;
+  // Sub tables for opcodes where the operation is selected by the mod r/m register index (TABLE dispatch mode)
+  private IntBinaryOperator[] grp1Operations8;
+  private IntBinaryOperator[] grp1Operations16;
+  private IntBinaryOperator[] grp2Operations8;
+  private IntBinaryOperator[] grp2Operations16;
+  private OpcodeHandler[] grp3aHandlers;
+  private OpcodeHandler[] grp3bHandlers;
+  private OpcodeHandler[] grp4Handlers;
+  private OpcodeHandler[] grp5Handlers;
+  // Null in debug mode, as instructions read from the cache do not go through the memory breakpoints
+  private DecodedInstructionCache decodedInstructionCache;
+  // Instruction being executed, null if it is not in the cache
+  private DecodedInstruction currentDecodedInstruction;
+  // Null unless enabled, executes hot blocks translated to JVM classes
+  private BlockRecompiler blockRecompiler;
+  // Null unless profiling, counts executions and time per opcode
+  private OpcodeProfiler opcodeProfiler;
+  // Null unless sampling, takes the samples requested by its sampler thread
+  private SamplingProfiler samplingProfiler;
+  private final boolean debugMode;
 
   public Cpu(Machine machine, boolean debugMode) {
     this.machine = machine;
+    this.debugMode = debugMode;
     this.memory = machine.getMemory();
     this.state = new State();
     this.alu = new Alu(state);
@@ -96,6 +128,12 @@ public class Cpu {
     this.functionHandlerInUse = functionHandler;
     this.staticAddressesRecorder = new StaticAddressesRecorder(state, debugMode);
     this.modRM = new ModRM(machine, this);
+    this.opcodeHandlers = createOpcodeHandlers();
+    createGroupHandlers();
+    if (!debugMode) {
+      this.decodedInstructionCache = new DecodedInstructionCache(memory.getSize());
+      memory.addWriteListener(decodedInstructionCache);
+    }
   }
 
   public State getState() {
@@ -126,6 +164,55 @@ public class Cpu {
     this.ioPortDispatcher = ioPortDispatcher;
   }
 
+  public OpcodeDispatchMode getOpcodeDispatchMode() {
+    return opcodeDispatchMode;
+  }
+
+  public void setOpcodeDispatchMode(OpcodeDispatchMode opcodeDispatchMode) {
+    this.opcodeDispatchMode = opcodeDispatchMode;
+  }
+
+  /**
+   * Enables the translation of hot blocks to JVM classes.<br/>
+   * Ignored in debug mode since breakpoints need each instruction to go through the interpreter.
+   * 
+   * @param threshold
+   *          number of times an address has to be executed by the interpreter before the block starting there is
+   *          translated
+   */
+  public void enableBlockRecompiler(int threshold) {
+    if (debugMode) {
+      LOGGER.info("Block recompiler is not available in debug mode");
+      return;
+    }
+    blockRecompiler = new BlockRecompiler(memory, threshold);
+    memory.addWriteListener(blockRecompiler);
+  }
+
+  public OpcodeProfiler getOpcodeProfiler() {
+    return opcodeProfiler;
+  }
+
+  /**
+   * @param opcodeProfiler
+   *          profiler recording the instructions executed from now on, null to stop profiling
+   */
+  public void setOpcodeProfiler(OpcodeProfiler opcodeProfiler) {
+    this.opcodeProfiler = opcodeProfiler;
+  }
+
+  public SamplingProfiler getSamplingProfiler() {
+    return samplingProfiler;
+  }
+
+  /**
+   * @param samplingProfiler
+   *          profiler whose sample requests are taken before the next instructions, null to stop sampling
+   */
+  public void setSamplingProfiler(SamplingProfiler samplingProfiler) {
+    this.samplingProfiler = samplingProfiler;
+  }
+
   public FunctionHandler getFunctionHandler() {
     return this.functionHandler;
   }
@@ -148,7 +235,7 @@ public class Cpu {
 
   public void externalInterrupt(int vectorNumber) {
     // hack: do not let the timer overwrite keyboard.
-    if (this.externalInterruptVectorNumber == null || this.externalInterruptVectorNumber != 9) {
+    if (this.externalInterruptVectorNumber != 9) {
       this.externalInterruptVectorNumber = vectorNumber;
     }
   }
@@ -157,6 +244,22 @@ public class Cpu {
     this.errorOnUninitializedInterruptHandler = errorOnUninitializedInterruptHandler;
   }
 
+  /**
+   * Saves the state and the pending external interrupt. Only valid between two instructions.
+   */
+  @Override
+  public void saveState(DataOutput output) throws IOException {
+    state.saveState(output);
+    output.writeInt(externalInterruptVectorNumber);
+  }
+
+  @Override
+  public void restoreState(DataInput input) throws IOException {
+    state.restoreState(input);
+    externalInterruptVectorNumber = input.readInt();
+    internalIp = state.getIP();
+  }
+
   private void addCurrentInstructionPrefix(Supplier<String> getLog) {
     // Optimization, do not calculate the log if it is not used
     if (isLoggingEnabled()) {
@@ -165,7 +268,9 @@ public class Cpu {
   }
 
   private void setCurrentInstructionName(Supplier<String> getLog) {
-    // Optimization, do not calculate the log if it is not used
+    // Optimization, do not calculate the log if it is not used.
+    // Only for lambdas not capturing anything: the others are allocated at each call even when the log is disabled,
+    // so the callers check isLoggingEnabled() themselves.
     if (isLoggingEnabled()) {
       state.setCurrentInstructionName(getLog.get());
     }
@@ -179,6 +284,12 @@ public class Cpu {
   }
 
   public void executeNextInstruction() throws InvalidOperationException {
+    if (samplingProfiler != null && samplingProfiler.isSampleRequested()) {
+      samplingProfiler.takeSample();
+    }
+    if (blockRecompiler != null && executeRecompiledBlock()) {
+      return;
+    }
     internalIp = state.getIP();
     staticAddressesRecorder.reset();
     String stateString = "";
@@ -187,17 +298,22 @@ public class Cpu {
       state.resetCurrentInstructionPrefix();
       state.setCurrentInstructionName("");
     }
-    int opcode = processPrefixes();
+    long profilingStart = opcodeProfiler != null ? System.nanoTime() : 0;
+    int opcode = decodePrefixesAndOpcode();
     if (isLoggingEnabled()) {
       LOGGER.debug("Before execution: opcode {} {} ", ConvertUtils.toHex8(opcode),
           stateString);
     }
-    if (state.getContinueZeroFlagValue() != null && isStringOpcode(opcode)) {
+    if (state.hasRepPrefix() && isStringOpcode(opcode)) {
       // continueZeroFlag is either true or false if a rep prefix has been encountered
       processRep(opcode);
     } else {
       execOpcode(opcode);
     }
+    if (opcodeProfiler != null) {
+      opcodeProfiler.recordInstruction(opcode, state.getSegmentOverrideIndex(), state.hasRepPrefix(),
+          state.getContinueZeroFlagValue(), modRM.getRegisterIndex(), System.nanoTime() - profilingStart);
+    }
     if (isLoggingEnabled()) {
       String instructionName = state.getCurrentInstructionNameWithPrefix();
       LOGGER.debug("After execution of {} {}", instructionName, state);
@@ -209,15 +325,40 @@ public class Cpu {
     state.setIP(internalIp);
   }
 
+  private boolean executeRecompiledBlock() throws InvalidOperationException {
+    if (isLoggingEnabled()) {
+      // Instructions need to be executed one by one to be logged
+      return false;
+    }
+    int ip = state.getIP();
+    RecompiledBlock block = blockRecompiler.getBlock(MemoryUtils.toPhysicalAddress(state.getCS(), ip));
+    // Blocks are contiguous in physical memory, this does not work when IP wraps around
+    if (block == null || ip + block.getLength() > 0xFFFF) {
+      return false;
+    }
+    if (opcodeProfiler != null) {
+      long profilingStart = System.nanoTime();
+      block.execute(state, alu);
+      opcodeProfiler.recordRecompiledBlock(block.getInstructionCount(), System.nanoTime() - profilingStart);
+    } else {
+      block.execute(state, alu);
+    }
+    internalIp = ip + block.getLength();
+    state.setCycles(state.getCycles() + block.getInstructionCount());
+    handleExternalInterrupt();
+    state.setIP(internalIp);
+    return true;
+  }
+
   private void handleExternalInterrupt() throws InvalidOperationException {
-    if (externalInterruptVectorNumber == null || !state.getInterruptFlag()) {
+    if (externalInterruptVectorNumber == NO_EXTERNAL_INTERRUPT || !state.getInterruptFlag()) {
       return;
     }
     if (isLoggingEnabled()) {
       LOGGER.debug("Interrupted!, int {}", externalInterruptVectorNumber);
     }
     interrupt(externalInterruptVectorNumber, true);
-    externalInterruptVectorNumber = null;
+    externalInterruptVectorNumber = NO_EXTERNAL_INTERRUPT;
   }
 
   private void processRep(int opcode) throws InvalidOperationException {
@@ -227,6 +368,9 @@ public class Cpu {
     // For some instructions, zero flag is not to be checked
     boolean checkZeroFlag = isStringOpUpdatingFlags(opcode);
     int cx = state.getCX();
+    if (cx != 0 && processRepWithBulkMemoryOperation(opcode, cx, continueZeroFlagValue)) {
+      return;
+    }
     while (cx != 0) {
       // re-set the segment override that may have been cleared. No need to reset ip
       // as string instructions don't modify it and are only one byte.
@@ -246,6 +390,123 @@ public class Cpu {
     state.setCX(cx);
   }
 
+  /**
+   * Executes REP MOVS, REP STOS, REPE CMPSB and REPNE SCASB in one memory operation instead of element by element.
+   * <br/>
+   * Only possible when going forward without wrapping around a segment and without breakpoints in the accessed memory.
+   * 
+   * @return true if the instruction was executed, false if it has to be executed element by element
+   */
+  private boolean processRepWithBulkMemoryOperation(int opcode, int count, boolean continueZeroFlagValue) {
+    if (state.getDirectionFlag() || isLoggingEnabled()) {
+      return false;
+    }
+    int elementSize = 1 << (opcode & 1);
+    int length = count * elementSize;
+    int si = state.getSI();
+    int di = state.getDI();
+    int destination = getMemoryAddressEsDi();
+    if (di + length > 0x10000 || !isBulkAccessible(destination, length)) {
+      return false;
+    }
+    // Number of elements processed before the operation stopped
+    int processed = count;
+    switch (opcode) {
+      case 0xA4, 0xA5 -> {
+        int source = getMemoryAddressOverridableDsSi();
+        // When destination is in the source, each element copied is copied again later. Bulk copy does not do that.
+        boolean destinationInSource = destination > source && destination < source + length;
+        if (si + length > 0x10000 || !isBulkAccessible(source, length) || destinationInSource) {
+          return false;
+        }
+        memory.memCopy(source, destination, length);
+        state.setSI(si + length);
+      }
+      case 0xAA -> memory.memset(destination, state.getAL(), length);
+      case 0xAB -> memory.memset16(destination, state.getAX(), count);
+      case 0xA6 -> {
+        int source = getMemoryAddressOverridableDsSi();
+        if (!continueZeroFlagValue || si + length > 0x10000 || !isBulkAccessible(source, length)) {
+          return false;
+        }
+        // REPE CMPSB stops after the first byte that differs
+        int mismatch = memory.mismatch(source, destination, length);
+        if (mismatch != -1) {
+          processed = mismatch + 1;
+        }
+        // Flags are the ones of the last comparison
+        alu.sub8(memory.getUint8(source + processed - 1), memory.getUint8(destination + processed - 1));
+        state.setSI(si + processed);
+      }
+      case 0xAE -> {
+        if (continueZeroFlagValue) {
+          return false;
+        }
+        // REPNE SCASB stops after the first byte equal to AL
+        int index = memory.indexOf(destination, length, state.getAL());
+        if (index != -1) {
+          processed = index + 1;
+        }
+        alu.sub8(state.getAL(), memory.getUint8(destination + processed - 1));
+      }
+      default -> {
+        return false;
+      }
+    }
+    state.setDI(di + processed * elementSize);
+    state.setCX(count - processed);
+    return true;
+  }
+
+  private boolean isBulkAccessible(int address, int length) {
+    int endAddress = address + length;
+    return endAddress <= memory.getSize() && !memory.isWatchedRange(address, endAddress);
+  }
+
+  private int decodePrefixesAndOpcode() throws InvalidOperationException {
+    if (decodedInstructionCache == null || isLoggingEnabled()) {
+      // Prefixes need to be processed one by one to be logged
+      currentDecodedInstruction = null;
+      return processPrefixes();
+    }
+    int instructionAddress = getInternalIpPhysicalAddress();
+    DecodedInstruction decodedInstruction = decodedInstructionCache.get(instructionAddress);
+    if (decodedInstruction != null) {
+      state.setSegmentOverrideIndex(decodedInstruction.getSegmentOverrideIndex());
+      if (decodedInstruction.hasRepPrefix()) {
+        state.setContinueZeroFlagValue(decodedInstruction.getContinueZeroFlagValue());
+      }
+      internalIp += decodedInstruction.getPrefixesAndOpcodeLength();
+      currentDecodedInstruction = decodedInstruction;
+      return decodedInstruction.getOpcode();
+    }
+    int startIp = internalIp;
+    int opcode = processPrefixes();
+    int prefixesAndOpcodeLength = internalIp - startIp;
+    // Keep room for the mod r/m byte and the displacement
+    if (prefixesAndOpcodeLength > DecodedInstructionCache.MAX_INSTRUCTION_LENGTH - 3) {
+      currentDecodedInstruction = null;
+      return opcode;
+    }
+    decodedInstruction = new DecodedInstruction(prefixesAndOpcodeLength, state.getSegmentOverrideIndex(),
+        state.hasRepPrefix(), state.getContinueZeroFlagValue(), opcode);
+    decodedInstructionCache.put(instructionAddress, decodedInstruction);
+    currentDecodedInstruction = decodedInstruction;
+    return opcode;
+  }
+
+  DecodedInstruction getCurrentDecodedInstruction() {
+    return currentDecodedInstruction;
+  }
+
+  int getInternalIp() {
+    return internalIp;
+  }
+
+  void skipInstructionBytes(int count) {
+    internalIp += count;
+  }
+
   private int processPrefixes() throws InvalidOperationException {
     int opcode = nextUint8();
     while (isPrefix(opcode)) {
@@ -285,7 +546,12 @@ public class Cpu {
       case 0xF2, 0xF3 -> { // REPNZ, REPZ
         boolean continueZeroFlagValue = (opcode & 1) == 1;
         state.setContinueZeroFlagValue(continueZeroFlagValue);
-        addCurrentInstructionPrefix(() -> "REP" + (continueZeroFlagValue ? "Z" : ""));
+        // Not capturing continueZeroFlagValue in the lambda avoids an allocation per prefix
+        if (continueZeroFlagValue) {
+          addCurrentInstructionPrefix(() -> "REPZ");
+        } else {
+          addCurrentInstructionPrefix(() -> "REP");
+        }
       }
       default -> throw new InvalidOperationException(machine,
           "processPrefix Called with a non prefix opcode " + opcode);
@@ -293,849 +559,1409 @@ public class Cpu {
   }
 
   private void execOpcode(int opcode) throws InvalidOperationException {
+    if (opcodeDispatchMode == OpcodeDispatchMode.TABLE) {
+      opcodeHandlers[opcode].execute(opcode);
+      return;
+    }
     switch (opcode) {
-      case 0x00 -> {
-        setCurrentInstructionName(() -> "ADD rmb rb");
-        modRM.read();
-        modRM.setRm8(alu.add8(modRM.getRm8(), modRM.getR8()));
-      }
-      case 0x01 -> {
-        setCurrentInstructionName(() -> "ADD rmw rw");
-        modRM.read();
-        modRM.setRm16(alu.add16(modRM.getRm16(), modRM.getR16()));
-      }
-      case 0x02 -> {
-        setCurrentInstructionName(() -> "ADD rb rmb");
-        modRM.read();
-        modRM.setR8(alu.add8(modRM.getR8(), modRM.getRm8()));
-      }
-      case 0x03 -> {
-        setCurrentInstructionName(() -> "ADD rw rmw");
-        modRM.read();
-        modRM.setR16(alu.add16(modRM.getR16(), modRM.getRm16()));
-      }
-      case 0x04 -> {
-        setCurrentInstructionName(() -> "ADD AL ib");
-        state.setAL(alu.add8(state.getAL(), nextUint8()));
-      }
-      case 0x05 -> {
-        setCurrentInstructionName(() -> "ADD AX iw");
-        state.setAX(alu.add16(state.getAX(), nextUint16()));
-      }
-      case 0x06 -> {
-        setCurrentInstructionName(() -> "PUSH ES");
-        stack.push(state.getES());
-      }
-      case 0x07 -> {
-        setCurrentInstructionName(() -> "POP ES");
-        state.setES(stack.pop());
-      }
-      case 0x08 -> {
-        setCurrentInstructionName(() -> "OR rmb rb");
-        modRM.read();
-        modRM.setRm8(alu.or8(modRM.getRm8(), modRM.getR8()));
-      }
-      case 0x09 -> {
-        setCurrentInstructionName(() -> "OR rmw rw");
-        modRM.read();
-        modRM.setRm16(alu.or16(modRM.getRm16(), modRM.getR16()));
-      }
-      case 0x0A -> {
-        setCurrentInstructionName(() -> "OR rb rmb");
-        modRM.read();
-        modRM.setR8(alu.or8(modRM.getR8(), modRM.getRm8()));
-      }
-      case 0x0B -> {
-        setCurrentInstructionName(() -> "OR rw rmw");
-        modRM.read();
-        modRM.setR16(alu.or16(modRM.getR16(), modRM.getRm16()));
-      }
-      case 0x0C -> {
-        setCurrentInstructionName(() -> "OR AL ib");
-        state.setAL(alu.or8(state.getAL(), nextUint8()));
-      }
-      case 0x0D -> {
-        setCurrentInstructionName(() -> "OR AX iw");
-        state.setAX(alu.or16(state.getAX(), nextUint16()));
-      }
-      case 0x0E -> {
-        setCurrentInstructionName(() -> "PUSH CS");
-        stack.push(state.getCS());
-      }
+      case 0x00 -> addRmbRb();
+      case 0x01 -> addRmwRw();
+      case 0x02 -> addRbRmb();
+      case 0x03 -> addRwRmw();
+      case 0x04 -> addAlIb();
+      case 0x05 -> addAxIw();
+      case 0x06 -> pushEs();
+      case 0x07 -> popEs();
+      case 0x08 -> orRmbRb();
+      case 0x09 -> orRmwRw();
+      case 0x0A -> orRbRmb();
+      case 0x0B -> orRwRmw();
+      case 0x0C -> orAlIb();
+      case 0x0D -> orAxIw();
+      case 0x0E -> pushCs();
       case 0x0F -> handleInvalidOpcode(opcode);
-      case 0x10 -> {
-        setCurrentInstructionName(() -> "ADC rmb rb");
-        modRM.read();
-        modRM.setRm8(alu.adc8(modRM.getRm8(), modRM.getR8()));
-      }
-      case 0x11 -> {
-        setCurrentInstructionName(() -> "ADC rmw rw");
-        modRM.read();
-        modRM.setRm16(alu.adc16(modRM.getRm16(), modRM.getR16()));
-      }
-      case 0x12 -> {
-        setCurrentInstructionName(() -> "ADC rb rmb");
-        modRM.read();
-        modRM.setR8(alu.adc8(modRM.getR8(), modRM.getRm8()));
-      }
-      case 0x13 -> {
-        setCurrentInstructionName(() -> "ADC rw rmw");
-        modRM.read();
-        modRM.setR16(alu.adc16(modRM.getR16(), modRM.getRm16()));
-      }
-      case 0x14 -> {
-        setCurrentInstructionName(() -> "ADC AL ib");
-        state.setAL(alu.adc8(state.getAL(), nextUint8()));
-      }
-      case 0x15 -> {
-        setCurrentInstructionName(() -> "ADC AX iw");
-        state.setAX(alu.adc16(state.getAX(), nextUint16()));
-      }
-      case 0x16 -> {
-        setCurrentInstructionName(() -> "PUSH SS");
-        stack.push(state.getSS());
-      }
-      case 0x17 -> {
-        setCurrentInstructionName(() -> "POP SS");
-        state.setSS(stack.pop());
-      }
-      case 0x18 -> {
-        setCurrentInstructionName(() -> "SBB rmb rb");
-        modRM.read();
-        modRM.setRm8(alu.sbb8(modRM.getRm8(), modRM.getR8()));
-      }
-      case 0x19 -> {
-        setCurrentInstructionName(() -> "SBB rmw rw");
-        modRM.read();
-        modRM.setRm16(alu.sbb16(modRM.getRm16(), modRM.getR16()));
-      }
-      case 0x1A -> {
-        setCurrentInstructionName(() -> "SBB rb rmb");
-        modRM.read();
-        modRM.setR8(alu.sbb8(modRM.getR8(), modRM.getRm8()));
-      }
-      case 0x1B -> {
-        setCurrentInstructionName(() -> "SBB rw rmw");
-        modRM.read();
-        modRM.setR16(alu.sbb16(modRM.getR16(), modRM.getRm16()));
-      }
-      case 0x1C -> {
-        setCurrentInstructionName(() -> "SBB AL ib");
-        state.setAL(alu.sbb8(state.getAL(), nextUint8()));
-      }
-      case 0x1D -> {
-        setCurrentInstructionName(() -> "SBB AX iw");
-        state.setAX(alu.sbb16(state.getAX(), nextUint16()));
-      }
-      case 0x1E -> {
-        setCurrentInstructionName(() -> "PUSH DS");
-        stack.push(state.getDS());
-      }
-      case 0x1F -> {
-        setCurrentInstructionName(() -> "POP DS");
-        state.setDS(stack.pop());
-      }
-      case 0x20 -> {
-        setCurrentInstructionName(() -> "AND rmb rb");
-        modRM.read();
-        modRM.setRm8(alu.and8(modRM.getRm8(), modRM.getR8()));
-      }
-      case 0x21 -> {
-        setCurrentInstructionName(() -> "AND rmw rw");
-        modRM.read();
-        modRM.setRm16(alu.and16(modRM.getRm16(), modRM.getR16()));
-      }
-      case 0x22 -> {
-        setCurrentInstructionName(() -> "AND rb rmb");
-        modRM.read();
-        modRM.setR8(alu.and8(modRM.getR8(), modRM.getRm8()));
-      }
-      case 0x23 -> {
-        setCurrentInstructionName(() -> "AND rw rmw");
-        modRM.read();
-        modRM.setR16(alu.and16(modRM.getR16(), modRM.getRm16()));
-      }
-      case 0x24 -> {
-        setCurrentInstructionName(() -> "AND AL ib");
-        state.setAL(alu.and8(state.getAL(), nextUint8()));
-      }
-      case 0x25 -> {
-        setCurrentInstructionName(() -> "AND AX iw");
-        state.setAX(alu.and16(state.getAX(), nextUint16()));
-      }
+      case 0x10 -> adcRmbRb();
+      case 0x11 -> adcRmwRw();
+      case 0x12 -> adcRbRmb();
+      case 0x13 -> adcRwRmw();
+      case 0x14 -> adcAlIb();
+      case 0x15 -> adcAxIw();
+      case 0x16 -> pushSs();
+      case 0x17 -> popSs();
+      case 0x18 -> sbbRmbRb();
+      case 0x19 -> sbbRmwRw();
+      case 0x1A -> sbbRbRmb();
+      case 0x1B -> sbbRwRmw();
+      case 0x1C -> sbbAlIb();
+      case 0x1D -> sbbAxIw();
+      case 0x1E -> pushDs();
+      case 0x1F -> popDs();
+      case 0x20 -> andRmbRb();
+      case 0x21 -> andRmwRw();
+      case 0x22 -> andRbRmb();
+      case 0x23 -> andRwRmw();
+      case 0x24 -> andAlIb();
+      case 0x25 -> andAxIw();
       case 0x26 -> handleInvalidOpcodeBecausePrefix(opcode);
-      case 0x27 -> {
-        setCurrentInstructionName(() -> "DAA");
-        int initialAL = state.getAL();
-        boolean initialCF = state.getCarryFlag();
-        boolean finalAuxillaryFlag = false;
-        boolean finalCarryFlag = false;
-        if ((state.getAL() & 0x0F) > 9 || state.getAuxiliaryFlag()) {
-          state.setAL(state.getAL() + 6);
-          finalAuxillaryFlag = true;
-        }
-
-        if (initialAL > 0x99 || initialCF) {
-          state.setAL(state.getAL() + 0x60);
-          finalCarryFlag = true;
-        } else {
-          finalCarryFlag = false;
-        }
-        // Undocumented behaviour
-        alu.updateFlags8(state.getAL());
-        state.setAuxiliaryFlag(finalAuxillaryFlag);
-        state.setCarryFlag(finalCarryFlag);
-      }
-      case 0x28 -> {
-        setCurrentInstructionName(() -> "SUB rmb rb");
-        modRM.read();
-        modRM.setRm8(alu.sub8(modRM.getRm8(), modRM.getR8()));
-      }
-      case 0x29 -> {
-        setCurrentInstructionName(() -> "SUB rmw rw");
-        modRM.read();
-        modRM.setRm16(alu.sub16(modRM.getRm16(), modRM.getR16()));
-      }
-      case 0x2A -> {
-        setCurrentInstructionName(() -> "SUB rb rmb");
-        modRM.read();
-        modRM.setR8(alu.sub8(modRM.getR8(), modRM.getRm8()));
-      }
-      case 0x2B -> {
-        setCurrentInstructionName(() -> "SUB rw rmw");
-        modRM.read();
-        modRM.setR16(alu.sub16(modRM.getR16(), modRM.getRm16()));
-      }
-      case 0x2C -> {
-        setCurrentInstructionName(() -> "SUB AL ib");
-        state.setAL(alu.sub8(state.getAL(), nextUint8()));
-      }
-      case 0x2D -> {
-        setCurrentInstructionName(() -> "SUB AX iw");
-        state.setAX(alu.sub16(state.getAX(), nextUint16()));
-      }
+      case 0x27 -> daa();
+      case 0x28 -> subRmbRb();
+      case 0x29 -> subRmwRw();
+      case 0x2A -> subRbRmb();
+      case 0x2B -> subRwRmw();
+      case 0x2C -> subAlIb();
+      case 0x2D -> subAxIw();
       case 0x2E -> handleInvalidOpcodeBecausePrefix(opcode);
-      case 0x2F -> {
-        setCurrentInstructionName(() -> "DAS");
-        int initialAL = state.getAL();
-        boolean initialCF = state.getCarryFlag();
-        boolean finalAuxillaryFlag = false;
-        boolean finalCarryFlag = false;
-        state.setCarryFlag(false);
-        if ((state.getAL() & 0x0F) > 9 || state.getAuxiliaryFlag()) {
-          state.setAL(state.getAL() - 6);
-          finalCarryFlag = state.getCarryFlag() || initialCF;
-          finalAuxillaryFlag = true;
-        }
-        if (initialAL > 0x99 || initialCF) {
-          state.setAL(state.getAL() - 0x60);
-          finalCarryFlag = true;
-        }
-        // Undocumented behaviour
-        alu.updateFlags8(state.getAL());
-        state.setAuxiliaryFlag(finalAuxillaryFlag);
-        state.setCarryFlag(finalCarryFlag);
-      }
-      case 0x30 -> {
-        setCurrentInstructionName(() -> "XOR rmb rb");
-        modRM.read();
-        modRM.setRm8(alu.xor8(modRM.getRm8(), modRM.getR8()));
-      }
-      case 0x31 -> {
-        setCurrentInstructionName(() -> "XOR rmw rw");
-        modRM.read();
-        modRM.setRm16(alu.xor16(modRM.getRm16(), modRM.getR16()));
-      }
-      case 0x32 -> {
-        setCurrentInstructionName(() -> "XOR rb rmb");
-        modRM.read();
-        modRM.setR8(alu.xor8(modRM.getR8(), modRM.getRm8()));
-      }
-      case 0x33 -> {
-        setCurrentInstructionName(() -> "XOR rw rmw");
-        modRM.read();
-        modRM.setR16(alu.xor16(modRM.getR16(), modRM.getRm16()));
-      }
-      case 0x34 -> {
-        setCurrentInstructionName(() -> "XOR AL mb");
-        state.setAL(alu.xor8(state.getAL(), nextUint8()));
-      }
-      case 0x35 -> {
-        setCurrentInstructionName(() -> "XOR AX mw");
-        state.setAX(alu.xor16(state.getAX(), nextUint16()));
-      }
+      case 0x2F -> das();
+      case 0x30 -> xorRmbRb();
+      case 0x31 -> xorRmwRw();
+      case 0x32 -> xorRbRmb();
+      case 0x33 -> xorRwRmw();
+      case 0x34 -> xorAlIb();
+      case 0x35 -> xorAxIw();
       case 0x36 -> handleInvalidOpcodeBecausePrefix(opcode);
-      case 0x37 -> {
-        setCurrentInstructionName(() -> "AAA");
-        boolean finalAuxillaryFlag = false;
-        boolean finalCarryFlag = false;
-        if ((state.getAL() & 0x0F) > 9 || state.getAuxiliaryFlag()) {
-          state.setAX(state.getAX() + 0x106);
-          finalAuxillaryFlag = true;
-          finalCarryFlag = true;
-        }
-        state.setAL(state.getAL() & 0x0F);
-        // Undocumented behaviour
-        alu.updateFlags8(state.getAL());
-        state.setAuxiliaryFlag(finalAuxillaryFlag);
-        state.setCarryFlag(finalCarryFlag);
-      }
-      case 0x38 -> {
-        setCurrentInstructionName(() -> "CMP rmb rb");
-        modRM.read();
-        alu.sub8(modRM.getRm8(), modRM.getR8());
-      }
-      case 0x39 -> {
-        setCurrentInstructionName(() -> "CMP rmw rw");
-        modRM.read();
-        alu.sub16(modRM.getRm16(), modRM.getR16());
-      }
-      case 0x3A -> {
-        setCurrentInstructionName(() -> "CMP rb rmb");
-        modRM.read();
-        alu.sub8(modRM.getR8(), modRM.getRm8());
-      }
-      case 0x3B -> {
-        setCurrentInstructionName(() -> "CMP rw rmw");
-        modRM.read();
-        alu.sub16(modRM.getR16(), modRM.getRm16());
-      }
-      case 0x3C -> {
-        setCurrentInstructionName(() -> "CMP AL ib");
-        alu.sub8(state.getAL(), nextUint8());
-      }
-      case 0x3D -> {
-        setCurrentInstructionName(() -> "CMP AX iw");
-        alu.sub16(state.getAX(), nextUint16());
-      }
+      case 0x37 -> aaa();
+      case 0x38 -> cmpRmbRb();
+      case 0x39 -> cmpRmwRw();
+      case 0x3A -> cmpRbRmb();
+      case 0x3B -> cmpRwRmw();
+      case 0x3C -> cmpAlIb();
+      case 0x3D -> cmpAxIw();
       case 0x3E -> handleInvalidOpcodeBecausePrefix(opcode);
-      case 0x3F -> {
-        setCurrentInstructionName(() -> "AAS");
-        boolean finalAuxillaryFlag = false;
-        boolean finalCarryFlag = false;
-        if ((state.getAL() & 0x0F) > 9 || state.getAuxiliaryFlag()) {
-          state.setAX(state.getAX() - 6);
-          state.setAH(state.getAH() - 1);
-          finalAuxillaryFlag = true;
-          finalCarryFlag = true;
-        }
-        state.setAL(state.getAL() & 0x0F);
-        // Undocumented behaviour
-        alu.updateFlags8(state.getAL());
-        state.setAuxiliaryFlag(finalAuxillaryFlag);
-        state.setCarryFlag(finalCarryFlag);
-      }
-      case 0x40, 0x41, 0x42, 0x43, 0x44, 0x45, 0x46, 0x47 -> {
-        int regIndex = opcode & REG_INDEX_MASK;
-        setCurrentInstructionName(() -> "INC " + state.getRegisters().getRegName(regIndex));
-        state.getRegisters().setRegister(regIndex, alu.inc16(state.getRegisters().getRegister(regIndex)));
-      }
-      case 0x48, 0x49, 0x4A, 0x4B, 0x4C, 0x4D, 0x4E, 0x4F -> {
-        int regIndex = opcode & REG_INDEX_MASK;
-        setCurrentInstructionName(() -> "DEC " + state.getRegisters().getRegName(regIndex));
-        state.getRegisters().setRegister(regIndex, alu.dec16(state.getRegisters().getRegister(regIndex)));
-      }
-      case 0x50, 0x51, 0x52, 0x53, 0x54, 0x55, 0x56, 0x57 -> {
-        int regIndex = opcode & REG_INDEX_MASK;
-        setCurrentInstructionName(() -> "PUSH " + state.getRegisters().getRegName(regIndex));
-        stack.push(state.getRegisters().getRegister(regIndex));
-      }
-      case 0x58, 0x59, 0x5A, 0x5B, 0x5C, 0x5D, 0x5E, 0x5F -> {
-        int regIndex = opcode & REG_INDEX_MASK;
-        setCurrentInstructionName(() -> "POP " + state.getRegisters().getRegName(regIndex));
-        state.getRegisters().setRegister(regIndex, stack.pop());
-      }
-      case 0x60 -> {
-        // 80186
-        setCurrentInstructionName(() -> "PUSHA");
-        int sp = state.getSP();
-        stack.push(state.getAX());
-        stack.push(state.getCX());
-        stack.push(state.getDX());
-        stack.push(state.getBX());
-        stack.push(sp);
-        stack.push(state.getBP());
-        stack.push(state.getSI());
-        stack.push(state.getDI());
-      }
-      case 0x61 -> {
-        // 80186
-        setCurrentInstructionName(() -> "POPA");
-        state.setDI(stack.pop());
-        state.setSI(stack.pop());
-        state.setBP(stack.pop());
-        // not restoring SP
-        stack.pop();
-        state.setBX(stack.pop());
-        state.setDX(stack.pop());
-        state.setCX(stack.pop());
-        state.setAX(stack.pop());
-      }
+      case 0x3F -> aas();
+      case 0x40, 0x41, 0x42, 0x43, 0x44, 0x45, 0x46, 0x47 -> incReg(opcode);
+      case 0x48, 0x49, 0x4A, 0x4B, 0x4C, 0x4D, 0x4E, 0x4F -> decReg(opcode);
+      case 0x50, 0x51, 0x52, 0x53, 0x54, 0x55, 0x56, 0x57 -> pushReg(opcode);
+      case 0x58, 0x59, 0x5A, 0x5B, 0x5C, 0x5D, 0x5E, 0x5F -> popReg(opcode);
+      case 0x60 -> pusha();
+      case 0x61 -> popa();
       case 0x62, 0x63, 0x64, 0x65, 0x66, 0x67 -> handleInvalidOpcode(opcode);
-      case 0x68 -> {
-        // 80186
-        int value = this.nextUint16();
-        setCurrentInstructionName(() -> "PUSH " + ConvertUtils.toHex16(value));
-        stack.push(value);
-      }
-      case 0x69 -> {
-        modRM.read();
-        int value = this.nextUint16();
-        setCurrentInstructionName(() -> "IMUL16 rm16 " + ConvertUtils.toHex16(value));
-        int result = alu.imul16(value, modRM.getRm16());
-        modRM.setR16(result);
-      }
-      case 0x6A -> {
-        // 80186
-        // sign extend it to 16 bits
-        int value = uint16(int8(this.nextUint8()));
-        setCurrentInstructionName(() -> "PUSH " + ConvertUtils.toHex16(value));
-        stack.push(value);
-      }
-      case 0x6B -> {
-        modRM.read();
-        int value = int8(this.nextUint8());
-        setCurrentInstructionName(() -> "IMUL8 rm16 " + ConvertUtils.toHex16(value));
-        int result = alu.imul16(value, modRM.getRm16());
-        modRM.setR16(result);
-      }
+      case 0x68 -> pushIw();
+      case 0x69 -> imulRwRmwIw();
+      case 0x6A -> pushIb();
+      case 0x6B -> imulRwRmwIb();
       case 0x6C, 0x6D, 0x6E, 0x6F -> // INSB, INSW, OUTSB, OUTSW
         processString(opcode);
       case 0x70, 0x71, 0x72, 0x73, 0x74, 0x75, 0x76, 0x77, 0x78, 0x79, 0x7A, 0x7B, 0x7C, 0x7D, 0x7E, 0x7F -> jcc(
           opcode);
       case 0x80, // GRP1 rmb ib, GRP1 rmw iw, GRP1 rmb ib, GRP1 rmw ib
       0x81, 0x82, 0x83 -> grp1(opcode);
-      case 0x84 -> {
-        setCurrentInstructionName(() -> "TEST rmb rb");
-        modRM.read();
-        alu.and8(modRM.getRm8(), modRM.getR8());
-      }
-      case 0x85 -> {
-        setCurrentInstructionName(() -> "TEST rmw rw");
-        modRM.read();
-        alu.and16(modRM.getRm16(), modRM.getR16());
-      }
-      case 0x86 -> {
-        setCurrentInstructionName(() -> "XCHG8");
-        modRM.read();
-        int value1 = modRM.getRm8();
-        int value2 = modRM.getR8();
-        modRM.setR8(value1);
-        modRM.setRm8(value2);
-      }
-      case 0x87 -> {
-        setCurrentInstructionName(() -> "XCHG16");
-        modRM.read();
-        int value1 = modRM.getRm16();
-        int value2 = modRM.getR16();
-        modRM.setR16(value1);
-        modRM.setRm16(value2);
-      }
-      case 0x88 -> {
-        setCurrentInstructionName(() -> "MOV rmb rb");
-        modRM.read();
-        modRM.setRm8(modRM.getR8());
-      }
-      case 0x89 -> {
-        setCurrentInstructionName(() -> "MOV rmw rw");
-        modRM.read();
-        modRM.setRm16(uint16(modRM.getR16()));
-      }
-      case 0x8A -> {
-        setCurrentInstructionName(() -> "MOV rb, rmb");
-        modRM.read();
-        modRM.setR8(modRM.getRm8());
-      }
-      case 0x8B -> {
-        setCurrentInstructionName(() -> "MOV rw rmw");
-        modRM.read();
-        modRM.setR16(modRM.getRm16());
-      }
-      case 0x8C -> {
-        setCurrentInstructionName(() -> "MOV rmw sreg");
-        modRM.read();
-        modRM.setRm16(uint16(modRM.getSegmentRegister()));
-      }
-      case 0x8D -> {
-        setCurrentInstructionName(() -> "LEA");
-        modRM.read();
-        modRM.setR16(uint16(modRM.getMemoryOffset()));
-      }
-      case 0x8E -> {
-        setCurrentInstructionName(() -> "MOV sreg rmw");
-        modRM.read();
-        modRM.setSegmentRegister(modRM.getRm16());
-      }
-      case 0x8F -> {
-        setCurrentInstructionName(() -> "POP rmw");
-        modRM.read();
-        modRM.setRm16(stack.pop());
-      }
-      case 0x90 -> setCurrentInstructionName(() -> "NOP");
-      case 0x91, 0x92, 0x93, 0x94, 0x95, 0x96, 0x97 -> {
-        int regIndex = opcode & REG_INDEX_MASK;
-        setCurrentInstructionName(() -> "XCHG AX," + state.getRegisters().getRegName(regIndex));
-        int value1 = state.getAX();
-        int value2 = state.getRegisters().getRegister(regIndex);
-        state.setAX(value2);
-        state.getRegisters().setRegister(regIndex, value1);
-      }
-      case 0x98 -> {
-        // Convert byte to word
-        setCurrentInstructionName(() -> "CBW");
-        state.setAX(uint16(int8(state.getAL())));
-      }
-      case 0x99 -> {
-        // Sign extend AX into DX (word to dword)
-        setCurrentInstructionName(() -> "CWD");
-        if (state.getAX() >= 0x8000) {
-          state.setDX(0xFFFF);
-        } else {
-          state.setDX(0);
-        }
-      }
-      case 0x9A -> { // FAR CALL
-        int ip = nextUint16();
-        int cs = nextUint16();
-        setCurrentInstructionName(() -> "FAR CALL");
-        farCall(state.getCS(), internalIp, cs, ip);
-      }
-      // Do nothing, this is to wait for the FPU which is not implemented
-      case 0x9B -> setCurrentInstructionName(() -> "WAIT");
-      case 0x9C -> {
-        setCurrentInstructionName(() -> "PUSHF");
-        stack.push(state.getFlags().getFlagRegister());
-      }
-      case 0x9D -> {
-        setCurrentInstructionName(() -> "POPF");
-        state.getFlags().setFlagRegister(stack.pop());
-      }
-      case 0x9E -> {
-        setCurrentInstructionName(() -> "SAHF");
-        state.getFlags().setFlagRegister(state.getAH());
-      }
-      case 0x9F -> {
-        setCurrentInstructionName(() -> "LAHF");
-        state.setAH(state.getFlags().getFlagRegister());
-      }
-      case 0xA0 -> {
-        setCurrentInstructionName(() -> "MOV AL moffs8");
-        state.setAL(memory.getUint8(getDsNextUint16Address()));
-        staticAddressesRecorder.setCurrentAddressOperation(ValueOperation.READ, OperandSize.BYTE8);
-      }
-      case 0xA1 -> {
-        setCurrentInstructionName(() -> "MOV AX moffs16");
-        state.setAX(memory.getUint16(getDsNextUint16Address()));
-        staticAddressesRecorder.setCurrentAddressOperation(ValueOperation.READ, OperandSize.WORD16);
-      }
-      case 0xA2 -> {
-        setCurrentInstructionName(() -> "MOV moffs8 AL");
-        memory.setUint8(getDsNextUint16Address(), state.getAL());
-        staticAddressesRecorder.setCurrentAddressOperation(ValueOperation.WRITE, OperandSize.BYTE8);
-      }
-      case 0xA3 -> {
-        setCurrentInstructionName(() -> "MOV moffs16 AX");
-        memory.setUint16(getDsNextUint16Address(), state.getAX());
-        staticAddressesRecorder.setCurrentAddressOperation(ValueOperation.WRITE, OperandSize.WORD16);
-      }
+      case 0x84 -> testRmbRb();
+      case 0x85 -> testRmwRw();
+      case 0x86 -> xchgRmbRb();
+      case 0x87 -> xchgRmwRw();
+      case 0x88 -> movRmbRb();
+      case 0x89 -> movRmwRw();
+      case 0x8A -> movRbRmb();
+      case 0x8B -> movRwRmw();
+      case 0x8C -> movRmwSreg();
+      case 0x8D -> lea();
+      case 0x8E -> movSregRmw();
+      case 0x8F -> popRmw();
+      case 0x90 -> nop();
+      case 0x91, 0x92, 0x93, 0x94, 0x95, 0x96, 0x97 -> xchgAxReg(opcode);
+      case 0x98 -> cbw();
+      case 0x99 -> cwd();
+      case 0x9A -> callFarImmediate();
+      case 0x9B -> waitFpu();
+      case 0x9C -> pushf();
+      case 0x9D -> popf();
+      case 0x9E -> sahf();
+      case 0x9F -> lahf();
+      case 0xA0 -> movAlMoffs8();
+      case 0xA1 -> movAxMoffs16();
+      case 0xA2 -> movMoffs8Al();
+      case 0xA3 -> movMoffs16Ax();
       case 0xA4, 0xA5, 0xA6, 0xA7 -> processString(opcode);
-      case 0xA8 -> {
-        setCurrentInstructionName(() -> "TEST AL ib");
-        alu.and8(state.getAL(), nextUint8());
-      }
-      case 0xA9 -> {
-        setCurrentInstructionName(() -> "TEST AX iw");
-        alu.and16(state.getAX(), nextUint16());
-      }
+      case 0xA8 -> testAlIb();
+      case 0xA9 -> testAxIw();
       case 0xAA, 0xAB, 0xAC, 0xAD, 0xAE, 0xAF -> processString(opcode);
-      case 0xB0, 0xB1, 0xB2, 0xB3, 0xB4, 0xB5, 0xB6, 0xB7 -> {
-        int regIndex = opcode & REG_INDEX_MASK;
-        setCurrentInstructionName(() -> "MOV " + state.getRegisters().getReg8Name(regIndex) + " ib");
-        state.getRegisters().setRegisterFromHighLowIndex8(regIndex, nextUint8());
-      }
-      case 0xB8, 0xB9, 0xBA, 0xBB, 0xBC, 0xBD, 0xBE, 0xBF -> {
-        int regIndex = opcode & REG_INDEX_MASK;
-        setCurrentInstructionName(() -> "MOV " + state.getRegisters().getRegName(regIndex) + " iw");
-        state.getRegisters().setRegister(regIndex, nextUint16());
-      }
-      case 0xC0 -> {
-        modRM.read();
-        int count = this.nextUint8();
-        int value = modRM.getRm8();
-        setCurrentInstructionName(() -> "SHL rmb " + count);
-        modRM.setRm8(alu.shl8(value, count));
-      }
-      case 0xC1 -> {
-        modRM.read();
-        int count = this.nextUint8();
-        int value = modRM.getRm16();
-        setCurrentInstructionName(() -> "SHL rmw " + count);
-        modRM.setRm16(alu.shl16(value, count));
-      }
-      case 0xC2 -> {
-        int numberOfBytesToPop = nextUint8();
-        setCurrentInstructionName(() -> "RET and pop " + numberOfBytesToPop + " bytes");
-        nearRet(numberOfBytesToPop);
-      }
-      case 0xC3 -> {
-        setCurrentInstructionName(() -> "RET");
-        nearRet(0);
-      }
-      case 0xC4, 0xC5 -> {
-        // Copy segmented address that is in memory (32bits) into DS/ES and the
-        // specified register
-        modRM.read();
-        modRM.setR16(memory.getUint16(modRM.getMemoryAddress()));
-        int value = memory.getUint16(modRM.getMemoryAddress() + 2);
-        this.getStaticAddressesRecorder().setCurrentAddressOperation(ValueOperation.READ, OperandSize.DWORD32);
-        if (opcode == 0xC4) {
-          // LES
-          setCurrentInstructionName(() -> "LES rw md");
-          state.setES(value);
-        } else {
-          // LDS
-          setCurrentInstructionName(() -> "LDS rw md");
-          state.setDS(value);
-        }
-      }
-      case 0xC6 -> {
-        setCurrentInstructionName(() -> "MOV rmb ib");
-        modRM.read();
-        modRM.setRm8(nextUint8());
-      }
-      case 0xC7 -> {
-        setCurrentInstructionName(() -> "MOV rmw iw");
-        modRM.read();
-        modRM.setRm16(nextUint16());
-      }
+      case 0xB0, 0xB1, 0xB2, 0xB3, 0xB4, 0xB5, 0xB6, 0xB7 -> movReg8Ib(opcode);
+      case 0xB8, 0xB9, 0xBA, 0xBB, 0xBC, 0xBD, 0xBE, 0xBF -> movRegIw(opcode);
+      case 0xC0 -> shlRmbIb();
+      case 0xC1 -> shlRmwIb();
+      case 0xC2 -> retNearIw();
+      case 0xC3 -> retNear();
+      case 0xC4, 0xC5 -> lesLds(opcode);
+      case 0xC6 -> movRmbIb();
+      case 0xC7 -> movRmwIw();
       case 0xC8, 0xC9 -> handleInvalidOpcode(opcode);
-      case 0xCA -> {
-        int numberOfBytesToPop = nextUint8();
-        setCurrentInstructionName(() -> "RETF and pop " + numberOfBytesToPop + " bytes");
-        farRet(numberOfBytesToPop);
-      }
-      case 0xCB -> {
-        setCurrentInstructionName(() -> "RETF");
-        farRet(0);
-      }
-      case 0xCC -> {
-        setCurrentInstructionName(() -> "INT 3");
-        interrupt(3, false);
-      }
-      case 0xCD -> {
-        setCurrentInstructionName(() -> "INT ib");
-        interrupt(nextUint8(), false);
-      }
-      case 0xCE -> {
-        setCurrentInstructionName(() -> "INTO");
-        if (state.getOverflowFlag()) {
-          interrupt(4, false);
-        }
-      }
-      case 0xCF -> {
-        setCurrentInstructionName(() -> "IRET");
-        interruptRet();
-      }
+      case 0xCA -> retFarIw();
+      case 0xCB -> retFar();
+      case 0xCC -> int3();
+      case 0xCD -> intIb();
+      case 0xCE -> into();
+      case 0xCF -> iret();
       case 0xD0, 0xD1, 0xD2, 0xD3 -> // GRP2 rmb 1, GRP2 rmw 1, GRP2 rmb CL, GRP2 rmw CL
         grp2(opcode);
-      case 0xD4 -> {
-        setCurrentInstructionName(() -> "AAM ib");
-        int v1 = state.getAL();
-        int v2 = nextUint8();
-        if (v2 == 0) {
-          handleDivisionError();
-          break;
-        }
-        int result = v1 % v2;
-        state.setAH(v1 / v2);
-        state.setAL(result);
-        alu.updateFlags8(result);
-      }
-      case 0xD5 -> {
-        setCurrentInstructionName(() -> "AAD ib");
-        int result = uint8(state.getAL() + state.getAH() * nextUint8());
-        state.setAL(result);
-        state.setAH(0);
-        state.getFlags().setFlagRegister(0);
-        alu.updateFlags8(result);
-      }
+      case 0xD4 -> aam();
+      case 0xD5 -> aad();
       case 0xD6 -> handleInvalidOpcode(opcode);
-      case 0xD7 -> {
-        setCurrentInstructionName(() -> "XLAT");
-        int address = modRM.getAddress(SegmentRegisters.DS_INDEX, state.getBX()) + state.getAL();
-        state.setAL(memory.getUint8(address));
-      }
+      case 0xD7 -> xlat();
       case 0xD8 -> handleInvalidOpcode(opcode);
-      case 0xD9 -> {
-        modRM.read();
-        int groupIndex = modRM.getRegisterIndex();
-        switch (groupIndex) {
-          case 0x7 -> {
-            // Set the control word to the value expected after init since FPU is not supported.
-            modRM.setRm16(0x37F);
-            setCurrentInstructionName(() -> "FNSTCW");
-          }
-          default -> throw new InvalidGroupIndexException(machine, groupIndex);
-        }
-      }
+      case 0xD9 -> fpuD9();
       case 0xDA -> handleInvalidOpcode(opcode);
-      case 0xDB -> {
-        int opCodeNextByte = nextUint8();
-        if (opCodeNextByte != 0xE3) {
-          int fullOpCode = (opcode << 8) | opCodeNextByte;
-          handleInvalidOpcode(fullOpCode);
-        }
-        setCurrentInstructionName(() -> "FNINIT");
-        // Do nothing, no FPU emulation, but this is used to detect FPU
-      }
+      case 0xDB -> fnInit(opcode);
       case 0xDC -> handleInvalidOpcode(opcode);
-      case 0xDD -> {
-        modRM.read();
-        int groupIndex = modRM.getRegisterIndex();
-        switch (groupIndex) {
-          case 0x7 -> {
-            // Set non zero, means no FPU installed when called after FNINIT.
-            modRM.setRm16(0xFF);
-            setCurrentInstructionName(() -> "FNSTSW");
-          }
-          default -> throw new InvalidGroupIndexException(machine, groupIndex);
-        }
-      }
+      case 0xDD -> fpuDD();
       case 0xDE, 0xDF -> handleInvalidOpcode(opcode);
-      case 0xE0, 0xE1 -> { // LOOPZ / LOOPNZ
-        boolean zeroFlag = (opcode & 0x1) == 1;
-        int address = int8(nextUint8());
-        if (zeroFlag) {
-          setCurrentInstructionName(() -> "LOOPZ " + address);
-        } else {
-          setCurrentInstructionName(() -> "LOOPNZ " + address);
-        }
-        int cx = state.getCX() - 1;
-        state.setCX(cx);
-        if (cx != 0 && state.getZeroFlag() == zeroFlag) {
-          internalIp += address;
-        }
-      }
-      case 0xE2 -> { // LOOP
-        setCurrentInstructionName(() -> "LOOP");
-        int address = int8(nextUint8());
-        int cx = state.getCX() - 1;
-        state.setCX(cx);
-        if (cx != 0) {
-          internalIp += address;
-        }
-      }
+      case 0xE0, 0xE1 -> loopzLoopnz(opcode);
+      case 0xE2 -> loop();
       case 0xE3 -> // JCXZ
         jcc(opcode);
-      case 0xE4 -> {
-        int port = nextUint8();
-        setCurrentInstructionName(() -> "IN AL " + ConvertUtils.toHex8(port));
-        state.setAL(uint8(inb(port)));
-      }
-      case 0xE5 -> {
-        int port = nextUint16();
-        setCurrentInstructionName(() -> "IN AL " + ConvertUtils.toHex16(port));
-        state.setAX(uint16(inw(port)));
-      }
-      case 0xE6 -> {
-        int port = nextUint8();
-        int value = state.getAL();
-        setCurrentInstructionName(() -> "OUT " + ConvertUtils.toHex8(port) + " AL=" + ConvertUtils.toHex8(value));
-        outb(port, value);
-      }
-      case 0xE7 -> {
-        int port = nextUint16();
-        int value = state.getAX();
-        setCurrentInstructionName(() -> "OUT " + ConvertUtils.toHex16(port) + " AX=" + ConvertUtils.toHex16(value));
-        outw(port, value);
-      }
-      case 0xE8 -> {
-        setCurrentInstructionName(() -> "CALL NEAR");
-        int nextInstruction = internalIp + 2;
-        int offset = int16(nextUint16());
-        int callAddress = uint16(nextInstruction + offset);
-        nearCall(nextInstruction, callAddress);
-      }
-      case 0xE9 -> {
-        int offset = int16(nextUint16());
-        jumpNear(internalIp + offset);
-      }
-      case 0xEA -> {
-        int ip = nextUint16();
-        int cs = nextUint16();
-        jumpFar(cs, ip);
-      }
-      case 0xEB -> {
-        int offset = int8(nextUint8());
-        jumpNear(internalIp + offset);
-      }
-      case 0xEC -> {
-        int port = state.getDX();
-        setCurrentInstructionName(() -> "IN AL DX=" + ConvertUtils.toHex16(port));
-        state.setAL(inb(port));
-      }
-      case 0xED -> {
-        int port = state.getDX();
-        setCurrentInstructionName(() -> "IN AX DX=" + ConvertUtils.toHex16(port));
-        state.setAX(inw(port));
-      }
-      case 0xEE -> {
-        int port = state.getDX();
-        int value = state.getAL();
-        setCurrentInstructionName(() -> "OUT DX=" + ConvertUtils.toHex16(port) + " AL=" + ConvertUtils.toHex8(value));
-        outb(port, value);
-      }
-      case 0xEF -> {
-        int port = state.getDX();
-        int value = state.getAX();
-        setCurrentInstructionName(() -> "OUT DX=" + ConvertUtils.toHex16(port) + " AX=" + ConvertUtils.toHex16(value));
-        outw(port, value);
-      }
+      case 0xE4 -> inAlIb();
+      case 0xE5 -> inAxIw();
+      case 0xE6 -> outIbAl();
+      case 0xE7 -> outIwAx();
+      case 0xE8 -> callNearImmediate();
+      case 0xE9 -> jmpNearIw();
+      case 0xEA -> jmpFarImmediate();
+      case 0xEB -> jmpNearIb();
+      case 0xEC -> inAlDx();
+      case 0xED -> inAxDx();
+      case 0xEE -> outDxAl();
+      case 0xEF -> outDxAx();
       case 0xF0, 0xF1 -> handleInvalidOpcode(opcode);
       case 0xF2, 0xF3 -> handleInvalidOpcodeBecausePrefix(opcode);
-      case 0xF4 -> {
-        setCurrentInstructionName(() -> "HLT");
-        LOGGER.info("HLT instruction encountered, halting!");
-        this.running = false;
-      }
-      case 0xF5 -> {
-        setCurrentInstructionName(() -> "CMC");
-        state.setCarryFlag(!state.getCarryFlag());
-      }
+      case 0xF4 -> hlt();
+      case 0xF5 -> cmc();
       case 0xF6 -> // GRP3a rmb
         grp3a();
       case 0xF7 -> // GRP3b rmw
         grp3b();
-      case 0xF8 -> {
-        setCurrentInstructionName(() -> "CLC");
-        state.setCarryFlag(false);
-      }
-      case 0xF9 -> {
-        setCurrentInstructionName(() -> "STC");
-        state.setCarryFlag(true);
-      }
-      case 0xFA -> {
-        setCurrentInstructionName(() -> "CLI");
-        state.setInterruptFlag(false);
+      case 0xF8 -> clc();
+      case 0xF9 -> stc();
+      case 0xFA -> cli();
+      case 0xFB -> sti();
+      case 0xFC -> cld();
+      case 0xFD -> std();
+      case 0xFE -> // GRP4 rmb
+        grp4();
+      case 0xFF -> // GRP5 rmw
+        grp5();
+      default -> handleInvalidOpcode(opcode);
+    }
+  }
+
+  /**
+   * Builds the opcode handlers used when dispatch mode is TABLE.<br/>
+   * Each entry only calls the small method implementing the opcode so that the JIT can compile and inline them
+   * independently instead of dealing with one huge switch.
+   */
+  private OpcodeHandler[] createOpcodeHandlers() {
+    OpcodeHandler[] res = new OpcodeHandler[256];
+    Arrays.fill(res, (OpcodeHandler)this::handleInvalidOpcode);
+    res[0x00] = opcode -> addRmbRb();
+    res[0x01] = opcode -> addRmwRw();
+    res[0x02] = opcode -> addRbRmb();
+    res[0x03] = opcode -> addRwRmw();
+    res[0x04] = opcode -> addAlIb();
+    res[0x05] = opcode -> addAxIw();
+    res[0x06] = opcode -> pushEs();
+    res[0x07] = opcode -> popEs();
+    res[0x08] = opcode -> orRmbRb();
+    res[0x09] = opcode -> orRmwRw();
+    res[0x0A] = opcode -> orRbRmb();
+    res[0x0B] = opcode -> orRwRmw();
+    res[0x0C] = opcode -> orAlIb();
+    res[0x0D] = opcode -> orAxIw();
+    res[0x0E] = opcode -> pushCs();
+    res[0x10] = opcode -> adcRmbRb();
+    res[0x11] = opcode -> adcRmwRw();
+    res[0x12] = opcode -> adcRbRmb();
+    res[0x13] = opcode -> adcRwRmw();
+    res[0x14] = opcode -> adcAlIb();
+    res[0x15] = opcode -> adcAxIw();
+    res[0x16] = opcode -> pushSs();
+    res[0x17] = opcode -> popSs();
+    res[0x18] = opcode -> sbbRmbRb();
+    res[0x19] = opcode -> sbbRmwRw();
+    res[0x1A] = opcode -> sbbRbRmb();
+    res[0x1B] = opcode -> sbbRwRmw();
+    res[0x1C] = opcode -> sbbAlIb();
+    res[0x1D] = opcode -> sbbAxIw();
+    res[0x1E] = opcode -> pushDs();
+    res[0x1F] = opcode -> popDs();
+    res[0x20] = opcode -> andRmbRb();
+    res[0x21] = opcode -> andRmwRw();
+    res[0x22] = opcode -> andRbRmb();
+    res[0x23] = opcode -> andRwRmw();
+    res[0x24] = opcode -> andAlIb();
+    res[0x25] = opcode -> andAxIw();
+    res[0x27] = opcode -> daa();
+    res[0x28] = opcode -> subRmbRb();
+    res[0x29] = opcode -> subRmwRw();
+    res[0x2A] = opcode -> subRbRmb();
+    res[0x2B] = opcode -> subRwRmw();
+    res[0x2C] = opcode -> subAlIb();
+    res[0x2D] = opcode -> subAxIw();
+    res[0x2F] = opcode -> das();
+    res[0x30] = opcode -> xorRmbRb();
+    res[0x31] = opcode -> xorRmwRw();
+    res[0x32] = opcode -> xorRbRmb();
+    res[0x33] = opcode -> xorRwRmw();
+    res[0x34] = opcode -> xorAlIb();
+    res[0x35] = opcode -> xorAxIw();
+    res[0x37] = opcode -> aaa();
+    res[0x38] = opcode -> cmpRmbRb();
+    res[0x39] = opcode -> cmpRmwRw();
+    res[0x3A] = opcode -> cmpRbRmb();
+    res[0x3B] = opcode -> cmpRwRmw();
+    res[0x3C] = opcode -> cmpAlIb();
+    res[0x3D] = opcode -> cmpAxIw();
+    res[0x3F] = opcode -> aas();
+    for (int i = 0; i < 8; i++) {
+      res[0x40 + i] = this::incReg;
+      res[0x48 + i] = this::decReg;
+      res[0x50 + i] = this::pushReg;
+      res[0x58 + i] = this::popReg;
+      res[0xB0 + i] = this::movReg8Ib;
+      res[0xB8 + i] = this::movRegIw;
+    }
+    res[0x60] = opcode -> pusha();
+    res[0x61] = opcode -> popa();
+    res[0x68] = opcode -> pushIw();
+    res[0x69] = opcode -> imulRwRmwIw();
+    res[0x6A] = opcode -> pushIb();
+    res[0x6B] = opcode -> imulRwRmwIb();
+    for (int i = 0x6C; i <= 0x6F; i++) {
+      res[i] = this::processString;
+    }
+    for (int i = 0x70; i <= 0x7F; i++) {
+      res[i] = this::jcc;
+    }
+    for (int i = 0x80; i <= 0x83; i++) {
+      res[i] = this::grp1;
+    }
+    res[0x84] = opcode -> testRmbRb();
+    res[0x85] = opcode -> testRmwRw();
+    res[0x86] = opcode -> xchgRmbRb();
+    res[0x87] = opcode -> xchgRmwRw();
+    res[0x88] = opcode -> movRmbRb();
+    res[0x89] = opcode -> movRmwRw();
+    res[0x8A] = opcode -> movRbRmb();
+    res[0x8B] = opcode -> movRwRmw();
+    res[0x8C] = opcode -> movRmwSreg();
+    res[0x8D] = opcode -> lea();
+    res[0x8E] = opcode -> movSregRmw();
+    res[0x8F] = opcode -> popRmw();
+    res[0x90] = opcode -> nop();
+    for (int i = 0x91; i <= 0x97; i++) {
+      res[i] = this::xchgAxReg;
+    }
+    res[0x98] = opcode -> cbw();
+    res[0x99] = opcode -> cwd();
+    res[0x9A] = opcode -> callFarImmediate();
+    res[0x9B] = opcode -> waitFpu();
+    res[0x9C] = opcode -> pushf();
+    res[0x9D] = opcode -> popf();
+    res[0x9E] = opcode -> sahf();
+    res[0x9F] = opcode -> lahf();
+    res[0xA0] = opcode -> movAlMoffs8();
+    res[0xA1] = opcode -> movAxMoffs16();
+    res[0xA2] = opcode -> movMoffs8Al();
+    res[0xA3] = opcode -> movMoffs16Ax();
+    for (int i = 0xA4; i <= 0xA7; i++) {
+      res[i] = this::processString;
+    }
+    res[0xA8] = opcode -> testAlIb();
+    res[0xA9] = opcode -> testAxIw();
+    for (int i = 0xAA; i <= 0xAF; i++) {
+      res[i] = this::processString;
+    }
+    res[0xC0] = opcode -> shlRmbIb();
+    res[0xC1] = opcode -> shlRmwIb();
+    res[0xC2] = opcode -> retNearIw();
+    res[0xC3] = opcode -> retNear();
+    res[0xC4] = this::lesLds;
+    res[0xC5] = this::lesLds;
+    res[0xC6] = opcode -> movRmbIb();
+    res[0xC7] = opcode -> movRmwIw();
+    res[0xCA] = opcode -> retFarIw();
+    res[0xCB] = opcode -> retFar();
+    res[0xCC] = opcode -> int3();
+    res[0xCD] = opcode -> intIb();
+    res[0xCE] = opcode -> into();
+    res[0xCF] = opcode -> iret();
+    for (int i = 0xD0; i <= 0xD3; i++) {
+      res[i] = this::grp2;
+    }
+    res[0xD4] = opcode -> aam();
+    res[0xD5] = opcode -> aad();
+    res[0xD7] = opcode -> xlat();
+    res[0xD9] = opcode -> fpuD9();
+    res[0xDB] = this::fnInit;
+    res[0xDD] = opcode -> fpuDD();
+    res[0xE0] = this::loopzLoopnz;
+    res[0xE1] = this::loopzLoopnz;
+    res[0xE2] = opcode -> loop();
+    res[0xE3] = this::jcc;
+    res[0xE4] = opcode -> inAlIb();
+    res[0xE5] = opcode -> inAxIw();
+    res[0xE6] = opcode -> outIbAl();
+    res[0xE7] = opcode -> outIwAx();
+    res[0xE8] = opcode -> callNearImmediate();
+    res[0xE9] = opcode -> jmpNearIw();
+    res[0xEA] = opcode -> jmpFarImmediate();
+    res[0xEB] = opcode -> jmpNearIb();
+    res[0xEC] = opcode -> inAlDx();
+    res[0xED] = opcode -> inAxDx();
+    res[0xEE] = opcode -> outDxAl();
+    res[0xEF] = opcode -> outDxAx();
+    res[0xF4] = opcode -> hlt();
+    res[0xF5] = opcode -> cmc();
+    res[0xF6] = opcode -> grp3a();
+    res[0xF7] = opcode -> grp3b();
+    res[0xF8] = opcode -> clc();
+    res[0xF9] = opcode -> stc();
+    res[0xFA] = opcode -> cli();
+    res[0xFB] = opcode -> sti();
+    res[0xFC] = opcode -> cld();
+    res[0xFD] = opcode -> std();
+    res[0xFE] = opcode -> grp4();
+    res[0xFF] = opcode -> grp5();
+    // Prefixes are consumed by processPrefixes, finding one here means it is misplaced
+    for (int prefix : new int[] { 0x26, 0x2E, 0x36, 0x3E, 0xF2, 0xF3 }) {
+      res[prefix] = this::handleInvalidOpcodeBecausePrefix;
+    }
+    return res;
+  }
+
+  private void createGroupHandlers() {
+    grp1Operations8 = new IntBinaryOperator[] { alu::add8, alu::or8, alu::adc8, alu::sbb8, alu::and8, alu::sub8,
+        alu::xor8, alu::sub8 };
+    grp1Operations16 = new IntBinaryOperator[] { alu::add16, alu::or16, alu::adc16, alu::sbb16, alu::and16, alu::sub16,
+        alu::xor16, alu::sub16 };
+    // Index 6 is not a valid shift / rotate operation
+    grp2Operations8 = new IntBinaryOperator[] { alu::rol8, alu::ror8, alu::rcl8, alu::rcr8, alu::shl8, alu::shr8, null,
+        alu::sar8 };
+    grp2Operations16 = new IntBinaryOperator[] { alu::rol16, alu::ror16, alu::rcl16, alu::rcr16, alu::shl16, alu::shr16,
+        null, alu::sar16 };
+    grp3aHandlers = createGroupHandlers(groupIndex -> test8(), null, groupIndex -> not8(), groupIndex -> neg8(),
+        groupIndex -> mul8(), groupIndex -> imul8(), groupIndex -> div8(), groupIndex -> idiv8());
+    grp3bHandlers = createGroupHandlers(groupIndex -> test16(), null, groupIndex -> not16(), groupIndex -> neg16(),
+        groupIndex -> mul16(), groupIndex -> imul16(), groupIndex -> div16(), groupIndex -> idiv16());
+    grp4Handlers = createGroupHandlers(groupIndex -> incRmb(), groupIndex -> decRmb(), null, null, null, null, null,
+        groupIndex -> callbackIw());
+    grp5Handlers = createGroupHandlers(groupIndex -> incRmw(), groupIndex -> decRmw(), groupIndex -> callNearRmw(),
+        groupIndex -> callFarMemory(), groupIndex -> jmpNearRmw(), groupIndex -> jmpFarMemory(),
+        groupIndex -> pushRmw(), null);
+  }
+
+  /**
+   * Null handlers are replaced by one throwing InvalidGroupIndexException
+   */
+  private OpcodeHandler[] createGroupHandlers(OpcodeHandler... handlers) {
+    OpcodeHandler[] res = new OpcodeHandler[8];
+    for (int i = 0; i < res.length; i++) {
+      OpcodeHandler handler = handlers[i];
+      if (handler == null) {
+        handler = groupIndex -> {
+          throw new InvalidGroupIndexException(machine, groupIndex);
+        };
+      }
+      res[i] = handler;
+    }
+    return res;
+  }
+
+  private void addRmbRb() throws InvalidModeException {
+    setCurrentInstructionName(() -> "ADD rmb rb");
+    modRM.read();
+    modRM.setRm8(alu.add8(modRM.getRm8(), modRM.getR8()));
+  }
+
+  private void addRmwRw() throws InvalidModeException {
+    setCurrentInstructionName(() -> "ADD rmw rw");
+    modRM.read();
+    modRM.setRm16(alu.add16(modRM.getRm16(), modRM.getR16()));
+  }
+
+  private void addRbRmb() throws InvalidModeException {
+    setCurrentInstructionName(() -> "ADD rb rmb");
+    modRM.read();
+    modRM.setR8(alu.add8(modRM.getR8(), modRM.getRm8()));
+  }
+
+  private void addRwRmw() throws InvalidModeException {
+    setCurrentInstructionName(() -> "ADD rw rmw");
+    modRM.read();
+    modRM.setR16(alu.add16(modRM.getR16(), modRM.getRm16()));
+  }
+
+  private void addAlIb() {
+    setCurrentInstructionName(() -> "ADD AL ib");
+    state.setAL(alu.add8(state.getAL(), nextUint8()));
+  }
+
+  private void addAxIw() {
+    setCurrentInstructionName(() -> "ADD AX iw");
+    state.setAX(alu.add16(state.getAX(), nextUint16()));
+  }
+
+  private void pushEs() {
+    setCurrentInstructionName(() -> "PUSH ES");
+    stack.push(state.getES());
+  }
+
+  private void popEs() {
+    setCurrentInstructionName(() -> "POP ES");
+    state.setES(stack.pop());
+  }
+
+  private void orRmbRb() throws InvalidModeException {
+    setCurrentInstructionName(() -> "OR rmb rb");
+    modRM.read();
+    modRM.setRm8(alu.or8(modRM.getRm8(), modRM.getR8()));
+  }
+
+  private void orRmwRw() throws InvalidModeException {
+    setCurrentInstructionName(() -> "OR rmw rw");
+    modRM.read();
+    modRM.setRm16(alu.or16(modRM.getRm16(), modRM.getR16()));
+  }
+
+  private void orRbRmb() throws InvalidModeException {
+    setCurrentInstructionName(() -> "OR rb rmb");
+    modRM.read();
+    modRM.setR8(alu.or8(modRM.getR8(), modRM.getRm8()));
+  }
+
+  private void orRwRmw() throws InvalidModeException {
+    setCurrentInstructionName(() -> "OR rw rmw");
+    modRM.read();
+    modRM.setR16(alu.or16(modRM.getR16(), modRM.getRm16()));
+  }
+
+  private void orAlIb() {
+    setCurrentInstructionName(() -> "OR AL ib");
+    state.setAL(alu.or8(state.getAL(), nextUint8()));
+  }
+
+  private void orAxIw() {
+    setCurrentInstructionName(() -> "OR AX iw");
+    state.setAX(alu.or16(state.getAX(), nextUint16()));
+  }
+
+  private void pushCs() {
+    setCurrentInstructionName(() -> "PUSH CS");
+    stack.push(state.getCS());
+  }
+
+  private void adcRmbRb() throws InvalidModeException {
+    setCurrentInstructionName(() -> "ADC rmb rb");
+    modRM.read();
+    modRM.setRm8(alu.adc8(modRM.getRm8(), modRM.getR8()));
+  }
+
+  private void adcRmwRw() throws InvalidModeException {
+    setCurrentInstructionName(() -> "ADC rmw rw");
+    modRM.read();
+    modRM.setRm16(alu.adc16(modRM.getRm16(), modRM.getR16()));
+  }
+
+  private void adcRbRmb() throws InvalidModeException {
+    setCurrentInstructionName(() -> "ADC rb rmb");
+    modRM.read();
+    modRM.setR8(alu.adc8(modRM.getR8(), modRM.getRm8()));
+  }
+
+  private void adcRwRmw() throws InvalidModeException {
+    setCurrentInstructionName(() -> "ADC rw rmw");
+    modRM.read();
+    modRM.setR16(alu.adc16(modRM.getR16(), modRM.getRm16()));
+  }
+
+  private void adcAlIb() {
+    setCurrentInstructionName(() -> "ADC AL ib");
+    state.setAL(alu.adc8(state.getAL(), nextUint8()));
+  }
+
+  private void adcAxIw() {
+    setCurrentInstructionName(() -> "ADC AX iw");
+    state.setAX(alu.adc16(state.getAX(), nextUint16()));
+  }
+
+  private void pushSs() {
+    setCurrentInstructionName(() -> "PUSH SS");
+    stack.push(state.getSS());
+  }
+
+  private void popSs() {
+    setCurrentInstructionName(() -> "POP SS");
+    state.setSS(stack.pop());
+  }
+
+  private void sbbRmbRb() throws InvalidModeException {
+    setCurrentInstructionName(() -> "SBB rmb rb");
+    modRM.read();
+    modRM.setRm8(alu.sbb8(modRM.getRm8(), modRM.getR8()));
+  }
+
+  private void sbbRmwRw() throws InvalidModeException {
+    setCurrentInstructionName(() -> "SBB rmw rw");
+    modRM.read();
+    modRM.setRm16(alu.sbb16(modRM.getRm16(), modRM.getR16()));
+  }
+
+  private void sbbRbRmb() throws InvalidModeException {
+    setCurrentInstructionName(() -> "SBB rb rmb");
+    modRM.read();
+    modRM.setR8(alu.sbb8(modRM.getR8(), modRM.getRm8()));
+  }
+
+  private void sbbRwRmw() throws InvalidModeException {
+    setCurrentInstructionName(() -> "SBB rw rmw");
+    modRM.read();
+    modRM.setR16(alu.sbb16(modRM.getR16(), modRM.getRm16()));
+  }
+
+  private void sbbAlIb() {
+    setCurrentInstructionName(() -> "SBB AL ib");
+    state.setAL(alu.sbb8(state.getAL(), nextUint8()));
+  }
+
+  private void sbbAxIw() {
+    setCurrentInstructionName(() -> "SBB AX iw");
+    state.setAX(alu.sbb16(state.getAX(), nextUint16()));
+  }
+
+  private void pushDs() {
+    setCurrentInstructionName(() -> "PUSH DS");
+    stack.push(state.getDS());
+  }
+
+  private void popDs() {
+    setCurrentInstructionName(() -> "POP DS");
+    state.setDS(stack.pop());
+  }
+
+  private void andRmbRb() throws InvalidModeException {
+    setCurrentInstructionName(() -> "AND rmb rb");
+    modRM.read();
+    modRM.setRm8(alu.and8(modRM.getRm8(), modRM.getR8()));
+  }
+
+  private void andRmwRw() throws InvalidModeException {
+    setCurrentInstructionName(() -> "AND rmw rw");
+    modRM.read();
+    modRM.setRm16(alu.and16(modRM.getRm16(), modRM.getR16()));
+  }
+
+  private void andRbRmb() throws InvalidModeException {
+    setCurrentInstructionName(() -> "AND rb rmb");
+    modRM.read();
+    modRM.setR8(alu.and8(modRM.getR8(), modRM.getRm8()));
+  }
+
+  private void andRwRmw() throws InvalidModeException {
+    setCurrentInstructionName(() -> "AND rw rmw");
+    modRM.read();
+    modRM.setR16(alu.and16(modRM.getR16(), modRM.getRm16()));
+  }
+
+  private void andAlIb() {
+    setCurrentInstructionName(() -> "AND AL ib");
+    state.setAL(alu.and8(state.getAL(), nextUint8()));
+  }
+
+  private void andAxIw() {
+    setCurrentInstructionName(() -> "AND AX iw");
+    state.setAX(alu.and16(state.getAX(), nextUint16()));
+  }
+
+  private void daa() {
+    setCurrentInstructionName(() -> "DAA");
+    int initialAL = state.getAL();
+    boolean initialCF = state.getCarryFlag();
+    boolean finalAuxillaryFlag = false;
+    boolean finalCarryFlag = false;
+    if ((state.getAL() & 0x0F) > 9 || state.getAuxiliaryFlag()) {
+      state.setAL(state.getAL() + 6);
+      finalAuxillaryFlag = true;
+    }
+
+    if (initialAL > 0x99 || initialCF) {
+      state.setAL(state.getAL() + 0x60);
+      finalCarryFlag = true;
+    } else {
+      finalCarryFlag = false;
+    }
+    // Undocumented behaviour
+    alu.updateFlags8(state.getAL());
+    state.setAuxiliaryFlag(finalAuxillaryFlag);
+    state.setCarryFlag(finalCarryFlag);
+  }
+
+  private void subRmbRb() throws InvalidModeException {
+    setCurrentInstructionName(() -> "SUB rmb rb");
+    modRM.read();
+    modRM.setRm8(alu.sub8(modRM.getRm8(), modRM.getR8()));
+  }
+
+  private void subRmwRw() throws InvalidModeException {
+    setCurrentInstructionName(() -> "SUB rmw rw");
+    modRM.read();
+    modRM.setRm16(alu.sub16(modRM.getRm16(), modRM.getR16()));
+  }
+
+  private void subRbRmb() throws InvalidModeException {
+    setCurrentInstructionName(() -> "SUB rb rmb");
+    modRM.read();
+    modRM.setR8(alu.sub8(modRM.getR8(), modRM.getRm8()));
+  }
+
+  private void subRwRmw() throws InvalidModeException {
+    setCurrentInstructionName(() -> "SUB rw rmw");
+    modRM.read();
+    modRM.setR16(alu.sub16(modRM.getR16(), modRM.getRm16()));
+  }
+
+  private void subAlIb() {
+    setCurrentInstructionName(() -> "SUB AL ib");
+    state.setAL(alu.sub8(state.getAL(), nextUint8()));
+  }
+
+  private void subAxIw() {
+    setCurrentInstructionName(() -> "SUB AX iw");
+    state.setAX(alu.sub16(state.getAX(), nextUint16()));
+  }
+
+  private void das() {
+    setCurrentInstructionName(() -> "DAS");
+    int initialAL = state.getAL();
+    boolean initialCF = state.getCarryFlag();
+    boolean finalAuxillaryFlag = false;
+    boolean finalCarryFlag = false;
+    state.setCarryFlag(false);
+    if ((state.getAL() & 0x0F) > 9 || state.getAuxiliaryFlag()) {
+      state.setAL(state.getAL() - 6);
+      finalCarryFlag = state.getCarryFlag() || initialCF;
+      finalAuxillaryFlag = true;
+    }
+    if (initialAL > 0x99 || initialCF) {
+      state.setAL(state.getAL() - 0x60);
+      finalCarryFlag = true;
+    }
+    // Undocumented behaviour
+    alu.updateFlags8(state.getAL());
+    state.setAuxiliaryFlag(finalAuxillaryFlag);
+    state.setCarryFlag(finalCarryFlag);
+  }
+
+  private void xorRmbRb() throws InvalidModeException {
+    setCurrentInstructionName(() -> "XOR rmb rb");
+    modRM.read();
+    modRM.setRm8(alu.xor8(modRM.getRm8(), modRM.getR8()));
+  }
+
+  private void xorRmwRw() throws InvalidModeException {
+    setCurrentInstructionName(() -> "XOR rmw rw");
+    modRM.read();
+    modRM.setRm16(alu.xor16(modRM.getRm16(), modRM.getR16()));
+  }
+
+  private void xorRbRmb() throws InvalidModeException {
+    setCurrentInstructionName(() -> "XOR rb rmb");
+    modRM.read();
+    modRM.setR8(alu.xor8(modRM.getR8(), modRM.getRm8()));
+  }
+
+  private void xorRwRmw() throws InvalidModeException {
+    setCurrentInstructionName(() -> "XOR rw rmw");
+    modRM.read();
+    modRM.setR16(alu.xor16(modRM.getR16(), modRM.getRm16()));
+  }
+
+  private void xorAlIb() {
+    setCurrentInstructionName(() -> "XOR AL mb");
+    state.setAL(alu.xor8(state.getAL(), nextUint8()));
+  }
+
+  private void xorAxIw() {
+    setCurrentInstructionName(() -> "XOR AX mw");
+    state.setAX(alu.xor16(state.getAX(), nextUint16()));
+  }
+
+  private void aaa() {
+    setCurrentInstructionName(() -> "AAA");
+    boolean finalAuxillaryFlag = false;
+    boolean finalCarryFlag = false;
+    if ((state.getAL() & 0x0F) > 9 || state.getAuxiliaryFlag()) {
+      state.setAX(state.getAX() + 0x106);
+      finalAuxillaryFlag = true;
+      finalCarryFlag = true;
+    }
+    state.setAL(state.getAL() & 0x0F);
+    // Undocumented behaviour
+    alu.updateFlags8(state.getAL());
+    state.setAuxiliaryFlag(finalAuxillaryFlag);
+    state.setCarryFlag(finalCarryFlag);
+  }
+
+  private void cmpRmbRb() throws InvalidModeException {
+    setCurrentInstructionName(() -> "CMP rmb rb");
+    modRM.read();
+    alu.sub8(modRM.getRm8(), modRM.getR8());
+  }
+
+  private void cmpRmwRw() throws InvalidModeException {
+    setCurrentInstructionName(() -> "CMP rmw rw");
+    modRM.read();
+    alu.sub16(modRM.getRm16(), modRM.getR16());
+  }
+
+  private void cmpRbRmb() throws InvalidModeException {
+    setCurrentInstructionName(() -> "CMP rb rmb");
+    modRM.read();
+    alu.sub8(modRM.getR8(), modRM.getRm8());
+  }
+
+  private void cmpRwRmw() throws InvalidModeException {
+    setCurrentInstructionName(() -> "CMP rw rmw");
+    modRM.read();
+    alu.sub16(modRM.getR16(), modRM.getRm16());
+  }
+
+  private void cmpAlIb() {
+    setCurrentInstructionName(() -> "CMP AL ib");
+    alu.sub8(state.getAL(), nextUint8());
+  }
+
+  private void cmpAxIw() {
+    setCurrentInstructionName(() -> "CMP AX iw");
+    alu.sub16(state.getAX(), nextUint16());
+  }
+
+  private void aas() {
+    setCurrentInstructionName(() -> "AAS");
+    boolean finalAuxillaryFlag = false;
+    boolean finalCarryFlag = false;
+    if ((state.getAL() & 0x0F) > 9 || state.getAuxiliaryFlag()) {
+      state.setAX(state.getAX() - 6);
+      state.setAH(state.getAH() - 1);
+      finalAuxillaryFlag = true;
+      finalCarryFlag = true;
+    }
+    state.setAL(state.getAL() & 0x0F);
+    // Undocumented behaviour
+    alu.updateFlags8(state.getAL());
+    state.setAuxiliaryFlag(finalAuxillaryFlag);
+    state.setCarryFlag(finalCarryFlag);
+  }
+
+  private void incReg(int opcode) {
+    int regIndex = opcode & REG_INDEX_MASK;
+    if (isLoggingEnabled()) {
+      state.setCurrentInstructionName("INC " + state.getRegisters().getRegName(regIndex));
+    }
+    state.getRegisters().setRegister(regIndex, alu.inc16(state.getRegisters().getRegister(regIndex)));
+  }
+
+  private void decReg(int opcode) {
+    int regIndex = opcode & REG_INDEX_MASK;
+    if (isLoggingEnabled()) {
+      state.setCurrentInstructionName("DEC " + state.getRegisters().getRegName(regIndex));
+    }
+    state.getRegisters().setRegister(regIndex, alu.dec16(state.getRegisters().getRegister(regIndex)));
+  }
+
+  private void pushReg(int opcode) {
+    int regIndex = opcode & REG_INDEX_MASK;
+    if (isLoggingEnabled()) {
+      state.setCurrentInstructionName("PUSH " + state.getRegisters().getRegName(regIndex));
+    }
+    stack.push(state.getRegisters().getRegister(regIndex));
+  }
+
+  private void popReg(int opcode) {
+    int regIndex = opcode & REG_INDEX_MASK;
+    if (isLoggingEnabled()) {
+      state.setCurrentInstructionName("POP " + state.getRegisters().getRegName(regIndex));
+    }
+    state.getRegisters().setRegister(regIndex, stack.pop());
+  }
+
+  private void pusha() {
+    // 80186
+    setCurrentInstructionName(() -> "PUSHA");
+    int sp = state.getSP();
+    stack.push(state.getAX());
+    stack.push(state.getCX());
+    stack.push(state.getDX());
+    stack.push(state.getBX());
+    stack.push(sp);
+    stack.push(state.getBP());
+    stack.push(state.getSI());
+    stack.push(state.getDI());
+  }
+
+  private void popa() {
+    // 80186
+    setCurrentInstructionName(() -> "POPA");
+    state.setDI(stack.pop());
+    state.setSI(stack.pop());
+    state.setBP(stack.pop());
+    // not restoring SP
+    stack.pop();
+    state.setBX(stack.pop());
+    state.setDX(stack.pop());
+    state.setCX(stack.pop());
+    state.setAX(stack.pop());
+  }
+
+  private void pushIw() {
+    // 80186
+    int value = this.nextUint16();
+    if (isLoggingEnabled()) {
+      state.setCurrentInstructionName("PUSH " + ConvertUtils.toHex16(value));
+    }
+    stack.push(value);
+  }
+
+  private void imulRwRmwIw() throws InvalidModeException {
+    modRM.read();
+    int value = this.nextUint16();
+    if (isLoggingEnabled()) {
+      state.setCurrentInstructionName("IMUL16 rm16 " + ConvertUtils.toHex16(value));
+    }
+    int result = alu.imul16(value, modRM.getRm16());
+    modRM.setR16(result);
+  }
+
+  private void pushIb() {
+    // 80186
+    // sign extend it to 16 bits
+    int value = uint16(int8(this.nextUint8()));
+    if (isLoggingEnabled()) {
+      state.setCurrentInstructionName("PUSH " + ConvertUtils.toHex16(value));
+    }
+    stack.push(value);
+  }
+
+  private void imulRwRmwIb() throws InvalidModeException {
+    modRM.read();
+    int value = int8(this.nextUint8());
+    if (isLoggingEnabled()) {
+      state.setCurrentInstructionName("IMUL8 rm16 " + ConvertUtils.toHex16(value));
+    }
+    int result = alu.imul16(value, modRM.getRm16());
+    modRM.setR16(result);
+  }
+
+  private void testRmbRb() throws InvalidModeException {
+    setCurrentInstructionName(() -> "TEST rmb rb");
+    modRM.read();
+    alu.and8(modRM.getRm8(), modRM.getR8());
+  }
+
+  private void testRmwRw() throws InvalidModeException {
+    setCurrentInstructionName(() -> "TEST rmw rw");
+    modRM.read();
+    alu.and16(modRM.getRm16(), modRM.getR16());
+  }
+
+  private void xchgRmbRb() throws InvalidModeException {
+    setCurrentInstructionName(() -> "XCHG8");
+    modRM.read();
+    int value1 = modRM.getRm8();
+    int value2 = modRM.getR8();
+    modRM.setR8(value1);
+    modRM.setRm8(value2);
+  }
+
+  private void xchgRmwRw() throws InvalidModeException {
+    setCurrentInstructionName(() -> "XCHG16");
+    modRM.read();
+    int value1 = modRM.getRm16();
+    int value2 = modRM.getR16();
+    modRM.setR16(value1);
+    modRM.setRm16(value2);
+  }
+
+  private void movRmbRb() throws InvalidModeException {
+    setCurrentInstructionName(() -> "MOV rmb rb");
+    modRM.read();
+    modRM.setRm8(modRM.getR8());
+  }
+
+  private void movRmwRw() throws InvalidModeException {
+    setCurrentInstructionName(() -> "MOV rmw rw");
+    modRM.read();
+    modRM.setRm16(uint16(modRM.getR16()));
+  }
+
+  private void movRbRmb() throws InvalidModeException {
+    setCurrentInstructionName(() -> "MOV rb, rmb");
+    modRM.read();
+    modRM.setR8(modRM.getRm8());
+  }
+
+  private void movRwRmw() throws InvalidModeException {
+    setCurrentInstructionName(() -> "MOV rw rmw");
+    modRM.read();
+    modRM.setR16(modRM.getRm16());
+  }
+
+  private void movRmwSreg() throws InvalidModeException {
+    setCurrentInstructionName(() -> "MOV rmw sreg");
+    modRM.read();
+    modRM.setRm16(uint16(modRM.getSegmentRegister()));
+  }
+
+  private void lea() throws InvalidModeException {
+    setCurrentInstructionName(() -> "LEA");
+    modRM.read();
+    modRM.setR16(uint16(modRM.getMemoryOffset()));
+  }
+
+  private void movSregRmw() throws InvalidModeException {
+    setCurrentInstructionName(() -> "MOV sreg rmw");
+    modRM.read();
+    modRM.setSegmentRegister(modRM.getRm16());
+  }
+
+  private void popRmw() throws InvalidModeException {
+    setCurrentInstructionName(() -> "POP rmw");
+    modRM.read();
+    modRM.setRm16(stack.pop());
+  }
+
+  private void nop() {
+    setCurrentInstructionName(() -> "NOP");
+  }
+
+  private void xchgAxReg(int opcode) {
+    int regIndex = opcode & REG_INDEX_MASK;
+    if (isLoggingEnabled()) {
+      state.setCurrentInstructionName("XCHG AX," + state.getRegisters().getRegName(regIndex));
+    }
+    int value1 = state.getAX();
+    int value2 = state.getRegisters().getRegister(regIndex);
+    state.setAX(value2);
+    state.getRegisters().setRegister(regIndex, value1);
+  }
+
+  private void cbw() {
+    // Convert byte to word
+    setCurrentInstructionName(() -> "CBW");
+    state.setAX(uint16(int8(state.getAL())));
+  }
+
+  private void cwd() {
+    // Sign extend AX into DX (word to dword)
+    setCurrentInstructionName(() -> "CWD");
+    if (state.getAX() >= 0x8000) {
+      state.setDX(0xFFFF);
+    } else {
+      state.setDX(0);
+    }
+  }
+
+  private void callFarImmediate() throws InvalidOperationException {
+    int ip = nextUint16();
+    int cs = nextUint16();
+    setCurrentInstructionName(() -> "FAR CALL");
+    farCall(state.getCS(), internalIp, cs, ip);
+  }
+
+  private void waitFpu() {
+    // Do nothing, this is to wait for the FPU which is not implemented
+    setCurrentInstructionName(() -> "WAIT");
+  }
+
+  private void pushf() {
+    setCurrentInstructionName(() -> "PUSHF");
+    stack.push(state.getFlags().getFlagRegister());
+  }
+
+  private void popf() {
+    setCurrentInstructionName(() -> "POPF");
+    state.getFlags().setFlagRegister(stack.pop());
+  }
+
+  private void sahf() {
+    setCurrentInstructionName(() -> "SAHF");
+    state.getFlags().setFlagRegister(state.getAH());
+  }
+
+  private void lahf() {
+    setCurrentInstructionName(() -> "LAHF");
+    state.setAH(state.getFlags().getFlagRegister());
+  }
+
+  private void movAlMoffs8() {
+    setCurrentInstructionName(() -> "MOV AL moffs8");
+    state.setAL(memory.getUint8(getDsNextUint16Address()));
+    staticAddressesRecorder.setCurrentAddressOperation(ValueOperation.READ, OperandSize.BYTE8);
+  }
+
+  private void movAxMoffs16() {
+    setCurrentInstructionName(() -> "MOV AX moffs16");
+    state.setAX(memory.getUint16(getDsNextUint16Address()));
+    staticAddressesRecorder.setCurrentAddressOperation(ValueOperation.READ, OperandSize.WORD16);
+  }
+
+  private void movMoffs8Al() {
+    setCurrentInstructionName(() -> "MOV moffs8 AL");
+    memory.setUint8(getDsNextUint16Address(), state.getAL());
+    staticAddressesRecorder.setCurrentAddressOperation(ValueOperation.WRITE, OperandSize.BYTE8);
+  }
+
+  private void movMoffs16Ax() {
+    setCurrentInstructionName(() -> "MOV moffs16 AX");
+    memory.setUint16(getDsNextUint16Address(), state.getAX());
+    staticAddressesRecorder.setCurrentAddressOperation(ValueOperation.WRITE, OperandSize.WORD16);
+  }
+
+  private void testAlIb() {
+    setCurrentInstructionName(() -> "TEST AL ib");
+    alu.and8(state.getAL(), nextUint8());
+  }
+
+  private void testAxIw() {
+    setCurrentInstructionName(() -> "TEST AX iw");
+    alu.and16(state.getAX(), nextUint16());
+  }
+
+  private void movReg8Ib(int opcode) {
+    int regIndex = opcode & REG_INDEX_MASK;
+    if (isLoggingEnabled()) {
+      state.setCurrentInstructionName("MOV " + state.getRegisters().getReg8Name(regIndex) + " ib");
+    }
+    state.getRegisters().setRegisterFromHighLowIndex8(regIndex, nextUint8());
+  }
+
+  private void movRegIw(int opcode) {
+    int regIndex = opcode & REG_INDEX_MASK;
+    if (isLoggingEnabled()) {
+      state.setCurrentInstructionName("MOV " + state.getRegisters().getRegName(regIndex) + " iw");
+    }
+    state.getRegisters().setRegister(regIndex, nextUint16());
+  }
+
+  private void shlRmbIb() throws InvalidModeException {
+    modRM.read();
+    int count = this.nextUint8();
+    int value = modRM.getRm8();
+    if (isLoggingEnabled()) {
+      state.setCurrentInstructionName("SHL rmb " + count);
+    }
+    modRM.setRm8(alu.shl8(value, count));
+  }
+
+  private void shlRmwIb() throws InvalidModeException {
+    modRM.read();
+    int count = this.nextUint8();
+    int value = modRM.getRm16();
+    if (isLoggingEnabled()) {
+      state.setCurrentInstructionName("SHL rmw " + count);
+    }
+    modRM.setRm16(alu.shl16(value, count));
+  }
+
+  private void retNearIw() {
+    int numberOfBytesToPop = nextUint8();
+    if (isLoggingEnabled()) {
+      state.setCurrentInstructionName("RET and pop " + numberOfBytesToPop + " bytes");
+    }
+    nearRet(numberOfBytesToPop);
+  }
+
+  private void retNear() {
+    setCurrentInstructionName(() -> "RET");
+    nearRet(0);
+  }
+
+  private void lesLds(int opcode) throws InvalidModeException {
+    // Copy segmented address that is in memory (32bits) into DS/ES and the
+    // specified register
+    modRM.read();
+    modRM.setR16(memory.getUint16(modRM.getMemoryAddress()));
+    int value = memory.getUint16(modRM.getMemoryAddress() + 2);
+    this.getStaticAddressesRecorder().setCurrentAddressOperation(ValueOperation.READ, OperandSize.DWORD32);
+    if (opcode == 0xC4) {
+      // LES
+      setCurrentInstructionName(() -> "LES rw md");
+      state.setES(value);
+    } else {
+      // LDS
+      setCurrentInstructionName(() -> "LDS rw md");
+      state.setDS(value);
+    }
+  }
+
+  private void movRmbIb() throws InvalidModeException {
+    setCurrentInstructionName(() -> "MOV rmb ib");
+    modRM.read();
+    modRM.setRm8(nextUint8());
+  }
+
+  private void movRmwIw() throws InvalidModeException {
+    setCurrentInstructionName(() -> "MOV rmw iw");
+    modRM.read();
+    modRM.setRm16(nextUint16());
+  }
+
+  private void retFarIw() {
+    int numberOfBytesToPop = nextUint8();
+    if (isLoggingEnabled()) {
+      state.setCurrentInstructionName("RETF and pop " + numberOfBytesToPop + " bytes");
+    }
+    farRet(numberOfBytesToPop);
+  }
+
+  private void retFar() {
+    setCurrentInstructionName(() -> "RETF");
+    farRet(0);
+  }
+
+  private void int3() throws InvalidOperationException {
+    setCurrentInstructionName(() -> "INT 3");
+    interrupt(3, false);
+  }
+
+  private void intIb() throws InvalidOperationException {
+    setCurrentInstructionName(() -> "INT ib");
+    interrupt(nextUint8(), false);
+  }
+
+  private void into() throws InvalidOperationException {
+    setCurrentInstructionName(() -> "INTO");
+    if (state.getOverflowFlag()) {
+      interrupt(4, false);
+    }
+  }
+
+  private void iret() {
+    setCurrentInstructionName(() -> "IRET");
+    interruptRet();
+  }
+
+  private void aam() throws InvalidOperationException {
+    setCurrentInstructionName(() -> "AAM ib");
+    int v1 = state.getAL();
+    int v2 = nextUint8();
+    if (v2 == 0) {
+      handleDivisionError();
+      return;
+    }
+    int result = v1 % v2;
+    state.setAH(v1 / v2);
+    state.setAL(result);
+    alu.updateFlags8(result);
+  }
+
+  private void aad() {
+    setCurrentInstructionName(() -> "AAD ib");
+    int result = uint8(state.getAL() + state.getAH() * nextUint8());
+    state.setAL(result);
+    state.setAH(0);
+    state.getFlags().setFlagRegister(0);
+    alu.updateFlags8(result);
+  }
+
+  private void xlat() {
+    setCurrentInstructionName(() -> "XLAT");
+    int address = modRM.getAddress(SegmentRegisters.DS_INDEX, state.getBX()) + state.getAL();
+    state.setAL(memory.getUint8(address));
+  }
+
+  private void fpuD9() throws InvalidOperationException {
+    modRM.read();
+    int groupIndex = modRM.getRegisterIndex();
+    switch (groupIndex) {
+      case 0x7 -> {
+        // Set the control word to the value expected after init since FPU is not supported.
+        modRM.setRm16(0x37F);
+        setCurrentInstructionName(() -> "FNSTCW");
       }
-      case 0xFB -> {
-        setCurrentInstructionName(() -> "STI");
-        state.setInterruptFlag(true);
+      default -> throw new InvalidGroupIndexException(machine, groupIndex);
+    }
+  }
+
+  private void fnInit(int opcode) throws InvalidOpcodeException {
+    int opCodeNextByte = nextUint8();
+    if (opCodeNextByte != 0xE3) {
+      int fullOpCode = (opcode << 8) | opCodeNextByte;
+      handleInvalidOpcode(fullOpCode);
+    }
+    setCurrentInstructionName(() -> "FNINIT");
+    // Do nothing, no FPU emulation, but this is used to detect FPU
+  }
+
+  private void fpuDD() throws InvalidOperationException {
+    modRM.read();
+    int groupIndex = modRM.getRegisterIndex();
+    switch (groupIndex) {
+      case 0x7 -> {
+        // Set non zero, means no FPU installed when called after FNINIT.
+        modRM.setRm16(0xFF);
+        setCurrentInstructionName(() -> "FNSTSW");
       }
-      case 0xFC -> {
-        setCurrentInstructionName(() -> "CLD");
-        state.setDirectionFlag(false);
+      default -> throw new InvalidGroupIndexException(machine, groupIndex);
+    }
+  }
+
+  private void loopzLoopnz(int opcode) {
+    boolean zeroFlag = (opcode & 0x1) == 1;
+    int address = int8(nextUint8());
+    if (zeroFlag) {
+      if (isLoggingEnabled()) {
+        state.setCurrentInstructionName("LOOPZ " + address);
       }
-      case 0xFD -> {
-        setCurrentInstructionName(() -> "STD");
-        state.setDirectionFlag(true);
+    } else {
+      if (isLoggingEnabled()) {
+        state.setCurrentInstructionName("LOOPNZ " + address);
       }
-      case 0xFE -> // GRP4 rmb
-        grp4();
-      case 0xFF -> // GRP5 rmw
-        grp5();
-      default -> handleInvalidOpcode(opcode);
     }
+    int cx = state.getCX() - 1;
+    state.setCX(cx);
+    if (cx != 0 && state.getZeroFlag() == zeroFlag) {
+      internalIp += address;
+    }
+  }
+
+  private void loop() {
+    setCurrentInstructionName(() -> "LOOP");
+    int address = int8(nextUint8());
+    int cx = state.getCX() - 1;
+    state.setCX(cx);
+    if (cx != 0) {
+      internalIp += address;
+    }
+  }
+
+  private void inAlIb() throws InvalidOperationException {
+    int port = nextUint8();
+    if (isLoggingEnabled()) {
+      state.setCurrentInstructionName("IN AL " + ConvertUtils.toHex8(port));
+    }
+    state.setAL(uint8(inb(port)));
+  }
+
+  private void inAxIw() throws InvalidOperationException {
+    int port = nextUint16();
+    if (isLoggingEnabled()) {
+      state.setCurrentInstructionName("IN AL " + ConvertUtils.toHex16(port));
+    }
+    state.setAX(uint16(inw(port)));
+  }
+
+  private void outIbAl() throws InvalidOperationException {
+    int port = nextUint8();
+    int value = state.getAL();
+    if (isLoggingEnabled()) {
+      state.setCurrentInstructionName("OUT " + ConvertUtils.toHex8(port) + " AL=" + ConvertUtils.toHex8(value));
+    }
+    outb(port, value);
+  }
+
+  private void outIwAx() throws InvalidOperationException {
+    int port = nextUint16();
+    int value = state.getAX();
+    if (isLoggingEnabled()) {
+      state.setCurrentInstructionName("OUT " + ConvertUtils.toHex16(port) + " AX=" + ConvertUtils.toHex16(value));
+    }
+    outw(port, value);
+  }
+
+  private void callNearImmediate() throws InvalidOperationException {
+    setCurrentInstructionName(() -> "CALL NEAR");
+    int nextInstruction = internalIp + 2;
+    int offset = int16(nextUint16());
+    int callAddress = uint16(nextInstruction + offset);
+    nearCall(nextInstruction, callAddress);
+  }
+
+  private void jmpNearIw() {
+    int offset = int16(nextUint16());
+    jumpNear(internalIp + offset);
+  }
+
+  private void jmpFarImmediate() {
+    int ip = nextUint16();
+    int cs = nextUint16();
+    jumpFar(cs, ip);
+  }
+
+  private void jmpNearIb() {
+    int offset = int8(nextUint8());
+    jumpNear(internalIp + offset);
+  }
+
+  private void inAlDx() throws InvalidOperationException {
+    int port = state.getDX();
+    if (isLoggingEnabled()) {
+      state.setCurrentInstructionName("IN AL DX=" + ConvertUtils.toHex16(port));
+    }
+    state.setAL(inb(port));
+  }
+
+  private void inAxDx() throws InvalidOperationException {
+    int port = state.getDX();
+    if (isLoggingEnabled()) {
+      state.setCurrentInstructionName("IN AX DX=" + ConvertUtils.toHex16(port));
+    }
+    state.setAX(inw(port));
+  }
+
+  private void outDxAl() throws InvalidOperationException {
+    int port = state.getDX();
+    int value = state.getAL();
+    if (isLoggingEnabled()) {
+      state.setCurrentInstructionName("OUT DX=" + ConvertUtils.toHex16(port) + " AL=" + ConvertUtils.toHex8(value));
+    }
+    outb(port, value);
+  }
+
+  private void outDxAx() throws InvalidOperationException {
+    int port = state.getDX();
+    int value = state.getAX();
+    if (isLoggingEnabled()) {
+      state.setCurrentInstructionName("OUT DX=" + ConvertUtils.toHex16(port) + " AX=" + ConvertUtils.toHex16(value));
+    }
+    outw(port, value);
+  }
+
+  private void hlt() {
+    setCurrentInstructionName(() -> "HLT");
+    LOGGER.info("HLT instruction encountered, halting!");
+    this.running = false;
+  }
+
+  private void cmc() {
+    setCurrentInstructionName(() -> "CMC");
+    state.setCarryFlag(!state.getCarryFlag());
+  }
+
+  private void clc() {
+    setCurrentInstructionName(() -> "CLC");
+    state.setCarryFlag(false);
+  }
+
+  private void stc() {
+    setCurrentInstructionName(() -> "STC");
+    state.setCarryFlag(true);
+  }
+
+  private void cli() {
+    setCurrentInstructionName(() -> "CLI");
+    state.setInterruptFlag(false);
+  }
+
+  private void sti() {
+    setCurrentInstructionName(() -> "STI");
+    state.setInterruptFlag(true);
+  }
+
+  private void cld() {
+    setCurrentInstructionName(() -> "CLD");
+    state.setDirectionFlag(false);
+  }
+
+  private void std() {
+    setCurrentInstructionName(() -> "STD");
+    state.setDirectionFlag(true);
   }
 
   private void handleInvalidOpcodeBecausePrefix(int opcode) throws InvalidOpcodeException {
@@ -1185,26 +2011,28 @@ public class Cpu {
       case 0xE3 -> state.getCX() == 0;
       default -> throw new InvalidOpcodeException(machine, opcode, false);
     };
-    setCurrentInstructionName(() -> switch (opcode) {
-      case 0x70 -> "JO";
-      case 0x71 -> "JNO";
-      case 0x72 -> "JB";
-      case 0x73 -> "JNB";
-      case 0x74 -> "JZ";
-      case 0x75 -> "JNZ";
-      case 0x76 -> "JBE";
-      case 0x77 -> "JA";
-      case 0x78 -> "JS";
-      case 0x79 -> "JNS";
-      case 0x7A -> "JP";
-      case 0x7B -> "JPO";
-      case 0x7C -> "JL";
-      case 0x7D -> "JGE";
-      case 0x7E -> "JNG";
-      case 0x7F -> "JG";
-      case 0xE3 -> "JCXZ";
-      default -> "";
-    } + " " + address + " jump?" + jump);
+    if (isLoggingEnabled()) {
+      state.setCurrentInstructionName(switch (opcode) {
+        case 0x70 -> "JO";
+        case 0x71 -> "JNO";
+        case 0x72 -> "JB";
+        case 0x73 -> "JNB";
+        case 0x74 -> "JZ";
+        case 0x75 -> "JNZ";
+        case 0x76 -> "JBE";
+        case 0x77 -> "JA";
+        case 0x78 -> "JS";
+        case 0x79 -> "JNS";
+        case 0x7A -> "JP";
+        case 0x7B -> "JPO";
+        case 0x7C -> "JL";
+        case 0x7D -> "JGE";
+        case 0x7E -> "JNG";
+        case 0x7F -> "JG";
+        case 0xE3 -> "JCXZ";
+        default -> "";
+      } + " " + address + " jump?" + jump);
+    }
     if (jump) {
       internalIp += address;
     }
@@ -1227,9 +2055,14 @@ public class Cpu {
       op2 = nextUint16();
     }
     int op1 = getRm8Or16(op1Byte);
-    setCurrentInstructionName(() -> generateGrp1Name(groupIndex, op1Byte, op1, op2));
+    if (isLoggingEnabled()) {
+      state.setCurrentInstructionName(generateGrp1Name(groupIndex, op1Byte, op1, op2));
+    }
     int res;
-    if (op1Byte) {
+    if (opcodeDispatchMode == OpcodeDispatchMode.TABLE) {
+      IntBinaryOperator[] operations = op1Byte ? grp1Operations8 : grp1Operations16;
+      res = operations[groupIndex].applyAsInt(op1, op2);
+    } else if (op1Byte) {
       res = switch (groupIndex) {
         case 0 -> alu.add8(op1, op2);
         case 1 -> alu.or8(op1, op2);
@@ -1293,9 +2126,17 @@ public class Cpu {
       op2 = 1;
     }
     int op1 = getRm8Or16(op1Byte);
-    setCurrentInstructionName(() -> generateGrp2Name(groupIndex, op1Byte, op1, op2));
+    if (isLoggingEnabled()) {
+      state.setCurrentInstructionName(generateGrp2Name(groupIndex, op1Byte, op1, op2));
+    }
     int res;
-    if (op1Byte) {
+    if (opcodeDispatchMode == OpcodeDispatchMode.TABLE) {
+      IntBinaryOperator operation = (op1Byte ? grp2Operations8 : grp2Operations16)[groupIndex];
+      if (operation == null) {
+        throw new InvalidGroupIndexException(machine, groupIndex);
+      }
+      res = operation.applyAsInt(op1, op2);
+    } else if (op1Byte) {
       res = switch (groupIndex) {
         case 0 -> alu.rol8(op1, op2);
         case 1 -> alu.ror8(op1, op2);
@@ -1357,64 +2198,82 @@ public class Cpu {
   private void grp3a() throws InvalidOperationException {
     modRM.read();
     int groupIndex = modRM.getRegisterIndex();
+    if (opcodeDispatchMode == OpcodeDispatchMode.TABLE) {
+      grp3aHandlers[groupIndex].execute(groupIndex);
+      return;
+    }
     switch (groupIndex) {
-      case 0 -> {
-        setCurrentInstructionName(() -> "TEST8");
-        alu.and8(modRM.getRm8(), nextUint8());
-      }
-      case 2 -> {
-        setCurrentInstructionName(() -> "NOT8");
-        modRM.setRm8(uint8(~modRM.getRm8()));
-      }
-      case 3 -> {
-        setCurrentInstructionName(() -> "NEG8");
-        int value = modRM.getRm8();
-        value = alu.sub8(0, value);
-        modRM.setRm8(value);
-        state.setCarryFlag(value != 0);
-      }
-      case 4 -> {
-        setCurrentInstructionName(() -> "MUL8");
-        int result = alu.mul8(state.getAL(), modRM.getRm8());
-        // Upper part of the result goes in AH
-        state.setAH(uint8(result >> 8));
-        state.setAL(uint8(result));
-      }
-      case 5 -> {
-        setCurrentInstructionName(() -> "IMUL8");
-        int result = alu.imul8(state.getAL(), modRM.getRm8());
-        // Upper part of the result goes in AH
-        state.setAH(uint8(result >> 8));
-        state.setAL(uint8(result));
-      }
-      case 6 -> {
-        setCurrentInstructionName(() -> "DIV8");
-        int v1 = state.getAX();
-        int v2 = modRM.getRm8();
-        Integer result = alu.div8(v1, v2);
-        if (result == null) {
-          handleDivisionError();
-          break;
-        }
-        state.setAL(result);
-        state.setAH(v1 % v2);
-      }
-      case 7 -> {
-        setCurrentInstructionName(() -> "IDIV8");
-        int v1 = int16(state.getAX());
-        int v2 = int8(modRM.getRm8());
-        Integer result = alu.idiv8(v1, v2);
-        if (result == null) {
-          handleDivisionError();
-          break;
-        }
-        state.setAL(result);
-        state.setAH(int16(v1) % int8(v2));
-      }
+      case 0 -> test8();
+      case 2 -> not8();
+      case 3 -> neg8();
+      case 4 -> mul8();
+      case 5 -> imul8();
+      case 6 -> div8();
+      case 7 -> idiv8();
       default -> throw new InvalidGroupIndexException(machine, groupIndex);
     }
   }
 
+  private void test8() {
+    setCurrentInstructionName(() -> "TEST8");
+    alu.and8(modRM.getRm8(), nextUint8());
+  }
+
+  private void not8() {
+    setCurrentInstructionName(() -> "NOT8");
+    modRM.setRm8(uint8(~modRM.getRm8()));
+  }
+
+  private void neg8() {
+    setCurrentInstructionName(() -> "NEG8");
+    int value = modRM.getRm8();
+    value = alu.sub8(0, value);
+    modRM.setRm8(value);
+    state.setCarryFlag(value != 0);
+  }
+
+  private void mul8() {
+    setCurrentInstructionName(() -> "MUL8");
+    int result = alu.mul8(state.getAL(), modRM.getRm8());
+    // Upper part of the result goes in AH
+    state.setAH(uint8(result >> 8));
+    state.setAL(uint8(result));
+  }
+
+  private void imul8() {
+    setCurrentInstructionName(() -> "IMUL8");
+    int result = alu.imul8(state.getAL(), modRM.getRm8());
+    // Upper part of the result goes in AH
+    state.setAH(uint8(result >> 8));
+    state.setAL(uint8(result));
+  }
+
+  private void div8() throws InvalidOperationException {
+    setCurrentInstructionName(() -> "DIV8");
+    int v1 = state.getAX();
+    int v2 = modRM.getRm8();
+    Integer result = alu.div8(v1, v2);
+    if (result == null) {
+      handleDivisionError();
+      return;
+    }
+    state.setAL(result);
+    state.setAH(v1 % v2);
+  }
+
+  private void idiv8() throws InvalidOperationException {
+    setCurrentInstructionName(() -> "IDIV8");
+    int v1 = int16(state.getAX());
+    int v2 = int8(modRM.getRm8());
+    Integer result = alu.idiv8(v1, v2);
+    if (result == null) {
+      handleDivisionError();
+      return;
+    }
+    state.setAL(result);
+    state.setAH(int16(v1) % int8(v2));
+  }
+
   private void handleDivisionError() throws InvalidOperationException {
     // Reset IP because instruction is not finished (this is how an actual CPU behaves)
     internalIp = state.getIP();
@@ -1424,139 +2283,188 @@ public class Cpu {
   private void grp3b() throws InvalidOperationException {
     modRM.read();
     int groupIndex = modRM.getRegisterIndex();
+    if (opcodeDispatchMode == OpcodeDispatchMode.TABLE) {
+      grp3bHandlers[groupIndex].execute(groupIndex);
+      return;
+    }
     switch (groupIndex) {
-      case 0 -> {
-        setCurrentInstructionName(() -> "TEST16");
-        alu.and16(modRM.getRm16(), nextUint16());
-      }
-      case 2 -> {
-        setCurrentInstructionName(() -> "NOT16");
-        modRM.setRm16(uint16(~modRM.getRm16()));
-      }
-      case 3 -> {
-        setCurrentInstructionName(() -> "NEG16");
-        int value = modRM.getRm16();
-        value = alu.sub16(0, value);
-        modRM.setRm16(value);
-        state.setCarryFlag(value != 0);
-      }
-      case 4 -> {
-        setCurrentInstructionName(() -> "MUL16");
-        int result = alu.mul16(state.getAX(), modRM.getRm16());
-        // Upper part of the result goes in DX
-        state.setDX(result >>> 16);
-        state.setAX(result);
-      }
-      case 5 -> {
-        setCurrentInstructionName(() -> "IMUL16");
-        int result = alu.imul16(state.getAX(), modRM.getRm16());
-        // Upper part of the result goes in DX
-        state.setDX(result >>> 16);
-        state.setAX(result);
-      }
-      case 6 -> {
-        setCurrentInstructionName(() -> "DIV16");
-        int v1 = (state.getDX() << 16) | state.getAX();
-        int v2 = modRM.getRm16();
-        Integer result = alu.div16(v1, v2);
-        if (result == null) {
-          handleDivisionError();
-          break;
-        }
-        state.setAX(result);
-        state.setDX((int)(uint32(v1) % uint32(v2)));
-      }
-      case 7 -> {
-        setCurrentInstructionName(() -> "IDIV16");
-        // no sign extension for v1 as it is already a 32bit value
-        int v1 = (state.getDX() << 16) | state.getAX();
-        int v2 = int16(modRM.getRm16());
-        Integer result = alu.idiv16(v1, v2);
-        if (result == null) {
-          handleDivisionError();
-          break;
-        }
-        state.setAX(result);
-        state.setDX(v1 % v2);
-      }
+      case 0 -> test16();
+      case 2 -> not16();
+      case 3 -> neg16();
+      case 4 -> mul16();
+      case 5 -> imul16();
+      case 6 -> div16();
+      case 7 -> idiv16();
       default -> throw new InvalidGroupIndexException(machine, groupIndex);
     }
+  }
+
+  private void test16() {
+    setCurrentInstructionName(() -> "TEST16");
+    alu.and16(modRM.getRm16(), nextUint16());
+  }
+
+  private void not16() {
+    setCurrentInstructionName(() -> "NOT16");
+    modRM.setRm16(uint16(~modRM.getRm16()));
+  }
+
+  private void neg16() {
+    setCurrentInstructionName(() -> "NEG16");
+    int value = modRM.getRm16();
+    value = alu.sub16(0, value);
+    modRM.setRm16(value);
+    state.setCarryFlag(value != 0);
+  }
+
+  private void mul16() {
+    setCurrentInstructionName(() -> "MUL16");
+    int result = alu.mul16(state.getAX(), modRM.getRm16());
+    // Upper part of the result goes in DX
+    state.setDX(result >>> 16);
+    state.setAX(result);
+  }
+
+  private void imul16() {
+    setCurrentInstructionName(() -> "IMUL16");
+    int result = alu.imul16(state.getAX(), modRM.getRm16());
+    // Upper part of the result goes in DX
+    state.setDX(result >>> 16);
+    state.setAX(result);
+  }
 
+  private void div16() throws InvalidOperationException {
+    setCurrentInstructionName(() -> "DIV16");
+    int v1 = (state.getDX() << 16) | state.getAX();
+    int v2 = modRM.getRm16();
+    Integer result = alu.div16(v1, v2);
+    if (result == null) {
+      handleDivisionError();
+      return;
+    }
+    state.setAX(result);
+    state.setDX((int)(uint32(v1) % uint32(v2)));
+  }
+
+  private void idiv16() throws InvalidOperationException {
+    setCurrentInstructionName(() -> "IDIV16");
+    // no sign extension for v1 as it is already a 32bit value
+    int v1 = (state.getDX() << 16) | state.getAX();
+    int v2 = int16(modRM.getRm16());
+    Integer result = alu.idiv16(v1, v2);
+    if (result == null) {
+      handleDivisionError();
+      return;
+    }
+    state.setAX(result);
+    state.setDX(v1 % v2);
   }
 
   private void grp4() throws InvalidOperationException {
     modRM.read();
     int groupIndex = modRM.getRegisterIndex();
+    if (opcodeDispatchMode == OpcodeDispatchMode.TABLE) {
+      grp4Handlers[groupIndex].execute(groupIndex);
+      return;
+    }
     switch (groupIndex) {
-      case 0 -> {
-        setCurrentInstructionName(() -> "INC");
-        modRM.setRm8(alu.inc8(modRM.getRm8()));
-      }
-      case 1 -> {
-        setCurrentInstructionName(() -> "DEC");
-        modRM.setRm8(alu.dec8(modRM.getRm8()));
-      }
-      case 7 ->
-        // Callback, emulator specific instruction FE38 like in dosbox to allow interrupts to be overridden by the
-        // program
-        callback(this.nextUint16());
+      case 0 -> incRmb();
+      case 1 -> decRmb();
+      case 7 -> callbackIw();
       default -> throw new InvalidGroupIndexException(machine, groupIndex);
     }
   }
 
+  private void incRmb() {
+    setCurrentInstructionName(() -> "INC");
+    modRM.setRm8(alu.inc8(modRM.getRm8()));
+  }
+
+  private void decRmb() {
+    setCurrentInstructionName(() -> "DEC");
+    modRM.setRm8(alu.dec8(modRM.getRm8()));
+  }
+
+  private void callbackIw() throws InvalidOperationException {
+    // Callback, emulator specific instruction FE38 like in dosbox to allow interrupts to be overridden by the
+    // program
+    callback(this.nextUint16());
+  }
+
   private void grp5() throws InvalidOperationException {
     modRM.read();
     int groupIndex = modRM.getRegisterIndex();
+    if (opcodeDispatchMode == OpcodeDispatchMode.TABLE) {
+      grp5Handlers[groupIndex].execute(groupIndex);
+      return;
+    }
     switch (groupIndex) {
-      case 0 -> {
-        setCurrentInstructionName(() -> "INC");
-        modRM.setRm16(alu.inc16(modRM.getRm16()));
-      }
-      case 1 -> {
-        setCurrentInstructionName(() -> "DEC");
-        modRM.setRm16(alu.dec16(modRM.getRm16()));
-      }
-      case 2 -> {
-        setCurrentInstructionName(() -> "NEAR CALL");
-        int callAddress = modRM.getRm16();
-        nearCall(internalIp, callAddress);
-      }
-      case 3 -> {
-        setCurrentInstructionName(() -> "FAR CALL");
-        int ipAddress = modRM.getMemoryAddress();
-        this.getStaticAddressesRecorder().setCurrentAddressOperation(ValueOperation.READ, OperandSize.DWORD32PTR);
-        int ip = memory.getUint16(ipAddress);
-        int cs = memory.getUint16(ipAddress + 2);
-        farCall(state.getCS(), internalIp, cs, ip);
-      }
-      case 4 -> {
-        int ip = modRM.getRm16();
-        jumpNear(ip);
-      }
-      case 5 -> {
-        int ipAddress = modRM.getMemoryAddress();
-        this.getStaticAddressesRecorder().setCurrentAddressOperation(ValueOperation.READ, OperandSize.DWORD32PTR);
-        int ip = memory.getUint16(ipAddress);
-        int cs = memory.getUint16(ipAddress + 2);
-        jumpFar(cs, ip);
-      }
-      case 6 -> {
-        setCurrentInstructionName(() -> "PUSH");
-        stack.push(modRM.getRm16());
-      }
+      case 0 -> incRmw();
+      case 1 -> decRmw();
+      case 2 -> callNearRmw();
+      case 3 -> callFarMemory();
+      case 4 -> jmpNearRmw();
+      case 5 -> jmpFarMemory();
+      case 6 -> pushRmw();
       default -> throw new InvalidGroupIndexException(machine, groupIndex);
     }
   }
 
+  private void incRmw() {
+    setCurrentInstructionName(() -> "INC");
+    modRM.setRm16(alu.inc16(modRM.getRm16()));
+  }
+
+  private void decRmw() {
+    setCurrentInstructionName(() -> "DEC");
+    modRM.setRm16(alu.dec16(modRM.getRm16()));
+  }
+
+  private void callNearRmw() throws InvalidOperationException {
+    setCurrentInstructionName(() -> "NEAR CALL");
+    int callAddress = modRM.getRm16();
+    nearCall(internalIp, callAddress);
+  }
+
+  private void callFarMemory() throws InvalidOperationException {
+    setCurrentInstructionName(() -> "FAR CALL");
+    int ipAddress = modRM.getMemoryAddress();
+    this.getStaticAddressesRecorder().setCurrentAddressOperation(ValueOperation.READ, OperandSize.DWORD32PTR);
+    int ip = memory.getUint16(ipAddress);
+    int cs = memory.getUint16(ipAddress + 2);
+    farCall(state.getCS(), internalIp, cs, ip);
+  }
+
+  private void jmpNearRmw() {
+    int ip = modRM.getRm16();
+    jumpNear(ip);
+  }
+
+  private void jmpFarMemory() {
+    int ipAddress = modRM.getMemoryAddress();
+    this.getStaticAddressesRecorder().setCurrentAddressOperation(ValueOperation.READ, OperandSize.DWORD32PTR);
+    int ip = memory.getUint16(ipAddress);
+    int cs = memory.getUint16(ipAddress + 2);
+    jumpFar(cs, ip);
+  }
+
+  private void pushRmw() {
+    setCurrentInstructionName(() -> "PUSH");
+    stack.push(modRM.getRm16());
+  }
+
   private void jumpNear(int ip) {
-    setCurrentInstructionName(
-        () -> "JMP NEAR " + ConvertUtils.toSegmentedAddressRepresentation(state.getCS(), ip));
+    if (isLoggingEnabled()) {
+      state.setCurrentInstructionName(
+          "JMP NEAR " + ConvertUtils.toSegmentedAddressRepresentation(state.getCS(), ip));
+    }
     handleJump(state.getCS(), ip);
   }
 
   private void jumpFar(int cs, int ip) {
-    setCurrentInstructionName(
-        () -> "JMP FAR " + ConvertUtils.toSegmentedAddressRepresentation(cs, ip));
+    if (isLoggingEnabled()) {
+      state.setCurrentInstructionName("JMP FAR " + ConvertUtils.toSegmentedAddressRepresentation(cs, ip));
+    }
     handleJump(cs, ip);
   }
 
@@ -1601,12 +2509,20 @@ public class Cpu {
     state.setSP(numberOfBytesToPop + state.getSP());
   }
 
+  static boolean[] createOpcodeSet(int... opcodes) {
+    boolean[] res = new boolean[256];
+    for (int opcode : opcodes) {
+      res[opcode] = true;
+    }
+    return res;
+  }
+
   private boolean isStringOpcode(int opcode) {
-    return STRING_OPCODES.contains(opcode);
+    return STRING_OPCODES[opcode];
   }
 
   private boolean isPrefix(int opcode) {
-    return PREFIXES_OPCODES.contains(opcode);
+    return PREFIXES_OPCODES[opcode];
   }
 
   private void processString(int opcode) throws InvalidOperationException {
@@ -1787,7 +2703,9 @@ public class Cpu {
   }
 
   private void callback(int callbackIndex) throws UnhandledOperationException {
-    setCurrentInstructionName(() -> "CALLBACK " + callbackIndex);
+    if (isLoggingEnabled()) {
+      state.setCurrentInstructionName("CALLBACK " + callbackIndex);
+    }
     if (isLoggingEnabled()) {
       LOGGER.debug("callback {}", ConvertUtils.toHex16(callbackIndex));
     }
@@ -0,0 +1,84 @@
+package spice86.emulator.cpu;
+
+/**
+ * Result of the decoding of an instruction, minus the immediate operands.<br/>
+ * Contains the prefixes, the opcode and the mod r/m byte and displacement if the instruction has one.
+ */
+class DecodedInstruction {
+  // Number of bytes taken by the prefixes and the opcode
+  private final int prefixesAndOpcodeLength;
+  private final int segmentOverrideIndex;
+  private final boolean repPrefix;
+  private final boolean continueZeroFlagValue;
+  private final int opcode;
+
+  private boolean modRMDecoded;
+  // Number of bytes taken by the mod r/m byte and the displacement
+  private int modRMLength;
+  private int mode;
+  private int registerIndex;
+  private int registerMemoryIndex;
+  private int displacement;
+
+  public DecodedInstruction(int prefixesAndOpcodeLength, int segmentOverrideIndex, boolean repPrefix,
+      boolean continueZeroFlagValue, int opcode) {
+    this.prefixesAndOpcodeLength = prefixesAndOpcodeLength;
+    this.segmentOverrideIndex = segmentOverrideIndex;
+    this.repPrefix = repPrefix;
+    this.continueZeroFlagValue = continueZeroFlagValue;
+    this.opcode = opcode;
+  }
+
+  public int getPrefixesAndOpcodeLength() {
+    return prefixesAndOpcodeLength;
+  }
+
+  public int getSegmentOverrideIndex() {
+    return segmentOverrideIndex;
+  }
+
+  public boolean hasRepPrefix() {
+    return repPrefix;
+  }
+
+  public boolean getContinueZeroFlagValue() {
+    return continueZeroFlagValue;
+  }
+
+  public int getOpcode() {
+    return opcode;
+  }
+
+  public boolean isModRMDecoded() {
+    return modRMDecoded;
+  }
+
+  public void setModRM(int modRMLength, int mode, int registerIndex, int registerMemoryIndex, int displacement) {
+    this.modRMDecoded = true;
+    this.modRMLength = modRMLength;
+    this.mode = mode;
+    this.registerIndex = registerIndex;
+    this.registerMemoryIndex = registerMemoryIndex;
+    this.displacement = displacement;
+  }
+
+  public int getModRMLength() {
+    return modRMLength;
+  }
+
+  public int getMode() {
+    return mode;
+  }
+
+  public int getRegisterIndex() {
+    return registerIndex;
+  }
+
+  public int getRegisterMemoryIndex() {
+    return registerMemoryIndex;
+  }
+
+  public int getDisplacement() {
+    return displacement;
+  }
+}
@@ -0,0 +1,59 @@
+package spice86.emulator.cpu;
+
+import java.util.Arrays;
+
+import spice86.emulator.memory.MemoryWriteListener;
+
+/**
+ * Cache of the instructions already decoded, indexed by the physical address of their first byte.<br/>
+ * Executing an instruction from the cache skips the decoding of its prefixes and of its mod r/m byte.<br/>
+ * Entries are invalidated when the memory they were decoded from is written to (self modifying code, program loading,
+ * ...).
+ */
+public class DecodedInstructionCache implements MemoryWriteListener {
+  // Prefixes + opcode + mod r/m + 16 bits displacement. Longer instructions are not cached.
+  public static final int MAX_INSTRUCTION_LENGTH = 8;
+  private static final int PAGE_SHIFT = 12;
+
+  private final DecodedInstruction[] instructions;
+  // Pages where at least one instruction has been cached. Allows writes to data pages to be ignored quickly.
+  private final boolean[] pagesWithInstructions;
+
+  public DecodedInstructionCache(int memorySize) {
+    this.instructions = new DecodedInstruction[memorySize];
+    this.pagesWithInstructions = new boolean[(memorySize >>> PAGE_SHIFT) + 1];
+  }
+
+  public DecodedInstruction get(int address) {
+    return instructions[address];
+  }
+
+  public void put(int address, DecodedInstruction decodedInstruction) {
+    instructions[address] = decodedInstruction;
+    pagesWithInstructions[address >>> PAGE_SHIFT] = true;
+    pagesWithInstructions[(address + MAX_INSTRUCTION_LENGTH - 1) >>> PAGE_SHIFT] = true;
+  }
+
+  public void clear() {
+    Arrays.fill(instructions, null);
+    Arrays.fill(pagesWithInstructions, false);
+  }
+
+  @Override
+  public void onWrite(int startAddress, int endAddress) {
+    // Instructions starting a bit before the write can still include the bytes written
+    int start = Math.max(0, startAddress - MAX_INSTRUCTION_LENGTH + 1);
+    int end = Math.min(instructions.length, endAddress);
+    if (start >= end) {
+      return;
+    }
+    int lastPage = (end - 1) >>> PAGE_SHIFT;
+    for (int page = start >>> PAGE_SHIFT; page <= lastPage; page++) {
+      if (pagesWithInstructions[page]) {
+        int pageStart = Math.max(start, page << PAGE_SHIFT);
+        int pageEnd = Math.min(end, (page + 1) << PAGE_SHIFT);
+        Arrays.fill(instructions, pageStart, pageEnd, null);
+      }
+    }
+  }
+}
@@ -1,11 +1,16 @@
 package spice86.emulator.cpu;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+import spice86.emulator.savestate.Savable;
 import spice86.utils.ConvertUtils;
 
 /**
  * Handles the CPU flag register.
  */
-public class Flags {
+public class Flags implements Savable {
   // @formatter:off
   public static final int CARRY     = 0b00000000_00000001;
   public static final int PARITY    = 0b00000000_00000100;
@@ -18,6 +23,11 @@ public class Flags {
   public static final int OVERFLOW  = 0b00001000_00000000;
   // @formatter:on
 
+  // Kinds of lazily evaluated operations
+  public static final int LAZY_RESULT = 0;
+  public static final int LAZY_ADD = 1;
+  public static final int LAZY_SUB = 2;
+
   private static char getFlag(int flags, int mask, char representation) {
     if ((flags & mask) == 0) {
       return ' ';
@@ -43,6 +53,15 @@ public class Flags {
   private int additionalFlagMask;
   private int flagRegister;
 
+  // Flags in this mask are not up to date in flagRegister. They are computed from the last operation when read.
+  private int lazyFlagsMask;
+  private int lazyOperation;
+  // 7 for 8 bits operations, 15 for 16 bits
+  private int lazyMsbIndex;
+  private int lazyValue1;
+  private int lazyValue2;
+  private int lazyResult;
+
   public Flags() {
     this.setFlagRegister(0);
   }
@@ -56,10 +75,28 @@ public class Flags {
   }
 
   public int getFlagRegister() {
+    if (lazyFlagsMask != 0) {
+      materialize(lazyFlagsMask);
+    }
     return flagRegister;
   }
 
+  @Override
+  public void saveState(DataOutput output) throws IOException {
+    output.writeShort(getFlagRegister());
+  }
+
+  /**
+   * Restores the register as it was, the dosbox mask is not applied.
+   */
+  @Override
+  public void restoreState(DataInput input) throws IOException {
+    lazyFlagsMask = 0;
+    flagRegister = input.readUnsignedShort();
+  }
+
   public void setFlagRegister(int value) {
+    lazyFlagsMask = 0;
     // Some flags are always 1 or 0 no matter what (8086)
     int modifedValue = (value | 0b10) & 0b0111111111010111;
     // dosbox
@@ -68,10 +105,14 @@ public class Flags {
   }
 
   public boolean getFlag(int mask) {
+    if ((lazyFlagsMask & mask) != 0) {
+      materialize(mask);
+    }
     return (flagRegister & mask) == mask;
   }
 
   public void setFlag(int mask, boolean value) {
+    lazyFlagsMask &= ~mask;
     if (value) {
       flagRegister |= mask;
     } else {
@@ -79,14 +120,80 @@ public class Flags {
     }
   }
 
+  /**
+   * Records an operation instead of computing the flags it affects. Flags in mask will be computed only when read.
+   * 
+   * @param operation
+   *          one of LAZY_RESULT, LAZY_ADD or LAZY_SUB. LAZY_RESULT only supports ZERO, PARITY and SIGN.
+   * @param mask
+   *          flags affected by the operation
+   * @param msbIndex
+   *          7 for 8 bits operations, 15 for 16 bits operations
+   */
+  public void setLazyOperation(int operation, int mask, int msbIndex, int value1, int value2, int result) {
+    // Flags of the previous operation that are not overwritten need to be computed before its operands are lost
+    int previousLazyFlagsMask = lazyFlagsMask & ~mask;
+    if (previousLazyFlagsMask != 0) {
+      materialize(previousLazyFlagsMask);
+    }
+    lazyFlagsMask = mask;
+    lazyOperation = operation;
+    lazyMsbIndex = msbIndex;
+    lazyValue1 = value1;
+    lazyValue2 = value2;
+    lazyResult = result;
+  }
+
+  private void materialize(int mask) {
+    int toCompute = lazyFlagsMask & mask;
+    lazyFlagsMask &= ~mask;
+    int computed = 0;
+    if ((toCompute & ZERO) != 0 && lazyResult == 0) {
+      computed |= ZERO;
+    }
+    if ((toCompute & SIGN) != 0 && ((lazyResult >>> lazyMsbIndex) & 1) == 1) {
+      computed |= SIGN;
+    }
+    if ((toCompute & PARITY) != 0 && Alu.isParity(lazyResult & 0xFF)) {
+      computed |= PARITY;
+    }
+    if ((toCompute & (CARRY | AUXILIARY | OVERFLOW)) != 0) {
+      computed |= computeCarryAuxiliaryOverflow(toCompute);
+    }
+    flagRegister = (flagRegister & ~toCompute) | computed;
+  }
+
+  private int computeCarryAuxiliaryOverflow(int toCompute) {
+    int carryBits;
+    int overflowBits;
+    if (lazyOperation == LAZY_ADD) {
+      carryBits = Alu.carryBitsAdd(lazyValue1, lazyValue2, lazyResult);
+      overflowBits = Alu.overflowBitsAdd(lazyValue1, lazyValue2, lazyResult);
+    } else {
+      carryBits = Alu.borrowBitsSub(lazyValue1, lazyValue2, lazyResult);
+      overflowBits = Alu.overflowBitsSub(lazyValue1, lazyValue2, lazyResult);
+    }
+    int res = 0;
+    if ((toCompute & CARRY) != 0 && ((carryBits >> lazyMsbIndex) & 1) == 1) {
+      res |= CARRY;
+    }
+    if ((toCompute & AUXILIARY) != 0 && ((carryBits >> 3) & 1) == 1) {
+      res |= AUXILIARY;
+    }
+    if ((toCompute & OVERFLOW) != 0 && ((overflowBits >> lazyMsbIndex) & 1) == 1) {
+      res |= OVERFLOW;
+    }
+    return res;
+  }
+
   @Override
   public String toString() {
-    return dumpFlags(flagRegister);
+    return dumpFlags(getFlagRegister());
   }
 
   @Override
   public int hashCode() {
-    return flagRegister;
+    return getFlagRegister();
   }
 
   @Override
@@ -94,6 +201,6 @@ public class Flags {
     if (obj == this) {
       return true;
     }
-    return (obj instanceof Flags other) && this.flagRegister == other.flagRegister;
+    return (obj instanceof Flags other) && this.getFlagRegister() == other.getFlagRegister();
   }
 }
\ No newline at end of file
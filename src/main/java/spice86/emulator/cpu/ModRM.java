@@ -28,6 +28,9 @@ import spice86.emulator.memory.MemoryUtils;
  * </ul>
  */
 public class ModRM {
+  // Value of memoryAddress and memoryOffset when the operand is a register
+  public static final int NO_MEMORY_OPERAND = -1;
+
   private final Machine machine;
   private final Cpu cpu;
   private final Memory memory;
@@ -36,8 +39,9 @@ public class ModRM {
 
   private int registerIndex;
   private int registerMemoryIndex;
-  private Integer memoryAddress;
-  private Integer memoryOffset;
+  // NO_MEMORY_OPERAND when mode is 3 and the operand is a register
+  private int memoryAddress;
+  private int memoryOffset;
 
   /**
    * @param machine
@@ -51,25 +55,42 @@ public class ModRM {
   }
 
   public void read() throws InvalidModeException {
-    int modRM = this.cpu.nextUint8();
-    /**
-     * bit 7 & bit 6 = mode bit 5 through bit 3 = registerIndex bit 2 through bit 0 = registerMemoryIndex
-     */
-    int mode = (modRM >>> 6) & 0b11;
-    registerIndex = (modRM >>> 3) & 0b111;
-    registerMemoryIndex = modRM & 0b111;
+    int mode;
+    int disp;
+    DecodedInstruction decodedInstruction = cpu.getCurrentDecodedInstruction();
+    if (decodedInstruction != null && decodedInstruction.isModRMDecoded()) {
+      // Already decoded the last time this instruction was executed, just skip the bytes
+      mode = decodedInstruction.getMode();
+      registerIndex = decodedInstruction.getRegisterIndex();
+      registerMemoryIndex = decodedInstruction.getRegisterMemoryIndex();
+      disp = decodedInstruction.getDisplacement();
+      cpu.skipInstructionBytes(decodedInstruction.getModRMLength());
+    } else {
+      int startIp = cpu.getInternalIp();
+      int modRM = this.cpu.nextUint8();
+      /**
+       * bit 7 & bit 6 = mode bit 5 through bit 3 = registerIndex bit 2 through bit 0 = registerMemoryIndex
+       */
+      mode = (modRM >>> 6) & 0b11;
+      registerIndex = (modRM >>> 3) & 0b111;
+      registerMemoryIndex = modRM & 0b111;
+      disp = 0;
+      if (mode == 1) {
+        disp = int8(this.cpu.nextUint8());
+      } else if (mode == 2 || mode == 0 && registerMemoryIndex == 6) {
+        // For mode 0 and rm 6 the value is the offset itself and not a displacement
+        disp = int16(this.cpu.nextUint16());
+      }
+      if (decodedInstruction != null) {
+        decodedInstruction.setModRM(cpu.getInternalIp() - startIp, mode, registerIndex, registerMemoryIndex, disp);
+      }
+    }
     if (mode == 3) {
       // value at reg[memoryRegisterIndex] to be used instead of memoryAddress
-      memoryOffset = null;
-      memoryAddress = null;
+      memoryOffset = NO_MEMORY_OPERAND;
+      memoryAddress = NO_MEMORY_OPERAND;
       return;
     }
-    int disp = 0;
-    if (mode == 1) {
-      disp = int8(this.cpu.nextUint8());
-    } else if (mode == 2) {
-      disp = int16(this.cpu.nextUint16());
-    }
     boolean bpForRm6 = mode != 0;
     memoryOffset = uint16(computeOffset(bpForRm6) + disp);
     memoryAddress = getAddress(computeDefaultSegment(bpForRm6), memoryOffset, registerMemoryIndex == 6);
@@ -99,15 +120,16 @@ public class ModRM {
       case 3 -> this.state.getBP() + this.state.getDI();
       case 4 -> this.state.getSI();
       case 5 -> this.state.getDI();
-      case 6 -> bpForRm6 ? this.state.getBP() : this.cpu.nextUint16();
+      // Offset is in the displacement when there is no BP
+      case 6 -> bpForRm6 ? this.state.getBP() : 0;
       case 7 -> this.state.getBX();
       default -> throw new InvalidModeException(machine, registerMemoryIndex);
     };
   }
 
   public int getAddress(int defaultSegmentRegisterIndex, int offset, boolean recordAddress) {
-    Integer segmentIndex = state.getSegmentOverrideIndex();
-    if (segmentIndex == null) {
+    int segmentIndex = state.getSegmentOverrideIndex();
+    if (segmentIndex == State.NO_SEGMENT_OVERRIDE) {
       segmentIndex = defaultSegmentRegisterIndex;
     }
     if (recordAddress) {
@@ -123,7 +145,7 @@ public class ModRM {
   }
 
   public int getRm8() {
-    if (memoryAddress == null) {
+    if (memoryAddress == NO_MEMORY_OPERAND) {
       return this.state.getRegisters().getRegisterFromHighLowIndex8(registerMemoryIndex);
     }
     staticAddressesRecorder.setCurrentAddressOperation(ValueOperation.READ, OperandSize.BYTE8);
@@ -131,7 +153,7 @@ public class ModRM {
   }
 
   public void setRm8(int value) {
-    if (memoryAddress == null) {
+    if (memoryAddress == NO_MEMORY_OPERAND) {
       this.state.getRegisters().setRegisterFromHighLowIndex8(registerMemoryIndex, value);
     } else {
       staticAddressesRecorder.setCurrentAddressOperation(ValueOperation.WRITE, OperandSize.BYTE8);
@@ -140,7 +162,7 @@ public class ModRM {
   }
 
   public int getRm16() {
-    if (memoryAddress == null) {
+    if (memoryAddress == NO_MEMORY_OPERAND) {
       return this.state.getRegisters().getRegister(registerMemoryIndex);
     }
     staticAddressesRecorder.setCurrentAddressOperation(ValueOperation.READ, OperandSize.WORD16);
@@ -148,7 +170,7 @@ public class ModRM {
   }
 
   public void setRm16(int value) {
-    if (memoryAddress == null) {
+    if (memoryAddress == NO_MEMORY_OPERAND) {
       this.state.getRegisters().setRegister(registerMemoryIndex, value);
     } else {
       staticAddressesRecorder.setCurrentAddressOperation(ValueOperation.WRITE, OperandSize.WORD16);
@@ -184,11 +206,11 @@ public class ModRM {
     return registerIndex;
   }
 
-  public Integer getMemoryOffset() {
+  public int getMemoryOffset() {
     return memoryOffset;
   }
 
-  public Integer getMemoryAddress() {
+  public int getMemoryAddress() {
     return memoryAddress;
   }
 }
\ No newline at end of file
@@ -0,0 +1,16 @@
+package spice86.emulator.cpu;
+
+/**
+ * How the CPU finds the code to execute for an opcode.
+ */
+public enum OpcodeDispatchMode {
+  /**
+   * One big switch statement over the opcode.
+   */
+  SWITCH,
+  /**
+   * 256 entries array of handlers indexed by opcode. Each handler is small, which lets the JIT compile and inline them
+   * independently.
+   */
+  TABLE
+}
@@ -0,0 +1,11 @@
+package spice86.emulator.cpu;
+
+import spice86.emulator.errors.InvalidOperationException;
+
+/**
+ * Code executed for a given opcode when the CPU dispatches instructions via a table.
+ */
+@FunctionalInterface
+interface OpcodeHandler {
+  void execute(int opcode) throws InvalidOperationException;
+}
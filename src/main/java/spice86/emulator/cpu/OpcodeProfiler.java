@@ -0,0 +1,123 @@
+package spice86.emulator.cpu;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import spice86.utils.ConvertUtils;
+
+/**
+ * Counts the executions and the host time spent per opcode, per sub-opcode of the group opcodes and per prefix
+ * combination.<br/>
+ * Counters are arrays of primitives indexed by opcode so that recording an instruction does not allocate. Instructions
+ * executed in recompiled blocks are counted together since they are not executed one by one.
+ */
+public class OpcodeProfiler {
+  // Opcodes where the operation is selected by the register index of the mod r/m byte
+  private static final boolean[] GROUP_OPCODES = Cpu.createOpcodeSet(0x80, 0x81, 0x82, 0x83, 0xC0, 0xC1, 0xD0, 0xD1,
+      0xD2, 0xD3, 0xF6, 0xF7, 0xFE, 0xFF);
+  private static final String[] SEGMENT_OVERRIDE_NAMES = { "", "ES", "CS", "SS", "DS", "FS", "GS" };
+  private static final String[] REP_NAMES = { "", "REPNE", "REPE" };
+
+  private final long[] opcodeCounts = new long[256];
+  private final long[] opcodeNanos = new long[256];
+  // Indexed by opcode * 8 + register index of the mod r/m byte
+  private final long[] groupCounts = new long[256 * 8];
+  private final long[] groupNanos = new long[256 * 8];
+  // Indexed by (segment override index + 1) * 3 + rep kind (0 for none, 1 for REPNE, 2 for REPE)
+  private final long[] prefixCounts = new long[SEGMENT_OVERRIDE_NAMES.length * REP_NAMES.length];
+  private final long[] prefixNanos = new long[SEGMENT_OVERRIDE_NAMES.length * REP_NAMES.length];
+  private long recompiledBlockCount;
+  private long recompiledInstructionCount;
+  private long recompiledBlockNanos;
+
+  /**
+   * @param segmentOverrideIndex
+   *          State.NO_SEGMENT_OVERRIDE when there is no segment override prefix
+   * @param registerIndex
+   *          register index of the mod r/m byte, only used for group opcodes
+   */
+  public void recordInstruction(int opcode, int segmentOverrideIndex, boolean repPrefix,
+      boolean continueZeroFlagValue, int registerIndex, long nanos) {
+    opcodeCounts[opcode]++;
+    opcodeNanos[opcode] += nanos;
+    if (GROUP_OPCODES[opcode]) {
+      int groupIndex = opcode * 8 + registerIndex;
+      groupCounts[groupIndex]++;
+      groupNanos[groupIndex] += nanos;
+    }
+    int repKind = 0;
+    if (repPrefix) {
+      repKind = continueZeroFlagValue ? 2 : 1;
+    }
+    int prefixIndex = (segmentOverrideIndex + 1) * REP_NAMES.length + repKind;
+    prefixCounts[prefixIndex]++;
+    prefixNanos[prefixIndex] += nanos;
+  }
+
+  public void recordRecompiledBlock(int instructionCount, long nanos) {
+    recompiledBlockCount++;
+    recompiledInstructionCount += instructionCount;
+    recompiledBlockNanos += nanos;
+  }
+
+  public long getOpcodeCount(int opcode) {
+    return opcodeCounts[opcode];
+  }
+
+  public long getGroupCount(int opcode, int registerIndex) {
+    return groupCounts[opcode * 8 + registerIndex];
+  }
+
+  public long getPrefixCount(int segmentOverrideIndex, int repKind) {
+    return prefixCounts[(segmentOverrideIndex + 1) * REP_NAMES.length + repKind];
+  }
+
+  /**
+   * Dumps the counters in CSV format. Lines of each kind are sorted by decreasing time.
+   */
+  public void dumpCsv(String destinationFilePath) throws IOException {
+    try (PrintWriter printWriter = new PrintWriter(new FileWriter(destinationFilePath))) {
+      printWriter.println(generateLine("Kind", "Name", "Count", "TotalNanoseconds", "AverageNanoseconds"));
+      List<String[]> lines = new ArrayList<>();
+      for (int opcode = 0; opcode < opcodeCounts.length; opcode++) {
+        addLine(lines, "opcode", ConvertUtils.toHex8(opcode), opcodeCounts[opcode], opcodeNanos[opcode]);
+      }
+      printLines(printWriter, lines);
+      for (int i = 0; i < groupCounts.length; i++) {
+        addLine(lines, "group", ConvertUtils.toHex8(i / 8) + "/" + (i % 8), groupCounts[i], groupNanos[i]);
+      }
+      printLines(printWriter, lines);
+      for (int i = 0; i < prefixCounts.length; i++) {
+        String name = (SEGMENT_OVERRIDE_NAMES[i / REP_NAMES.length] + " " + REP_NAMES[i % REP_NAMES.length]).trim();
+        addLine(lines, "prefixes", name.isEmpty() ? "none" : name, prefixCounts[i], prefixNanos[i]);
+      }
+      printLines(printWriter, lines);
+      addLine(lines, "recompiled", "blocks", recompiledBlockCount, recompiledBlockNanos);
+      addLine(lines, "recompiled", "instructions", recompiledInstructionCount, recompiledBlockNanos);
+      printLines(printWriter, lines);
+    }
+  }
+
+  private void addLine(List<String[]> lines, String kind, String name, long count, long nanos) {
+    if (count == 0) {
+      return;
+    }
+    lines.add(new String[] { kind, name, Long.toString(count), Long.toString(nanos), Long.toString(nanos / count) });
+  }
+
+  private void printLines(PrintWriter printWriter, List<String[]> lines) {
+    lines.sort(Comparator.comparingLong((String[] line) -> Long.parseLong(line[3])).reversed());
+    for (String[] line : lines) {
+      printWriter.println(generateLine(line));
+    }
+    lines.clear();
+  }
+
+  private static String generateLine(String... values) {
+    return String.join(",", values);
+  }
+}
@@ -15,6 +15,7 @@ public class Registers extends RegistersHolder {
   public static final int BP_INDEX = 5;
   public static final int SI_INDEX = 6;
   public static final int DI_INDEX = 7;
+  public static final int NUMBER_OF_REGISTERS = 8;
 
   public Registers() {
     super(getRegistersNames());
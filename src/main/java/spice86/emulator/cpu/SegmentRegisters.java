@@ -13,6 +13,7 @@ public class SegmentRegisters extends RegistersHolder {
   public static final int DS_INDEX = 3;
   public static final int FS_INDEX = 4;
   public static final int GS_INDEX = 5;
+  public static final int NUMBER_OF_REGISTERS = 6;
 
   public SegmentRegisters() {
     super(getRegistersNames());
@@ -3,9 +3,14 @@ package spice86.emulator.cpu;
 import static spice86.utils.ConvertUtils.toHex16;
 import static spice86.utils.ConvertUtils.uint16;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
 import org.apache.commons.lang3.builder.HashCodeBuilder;
 
 import spice86.emulator.memory.MemoryUtils;
+import spice86.emulator.savestate.Savable;
 import spice86.utils.ConvertUtils;
 
 /**
@@ -17,7 +22,10 @@ import spice86.utils.ConvertUtils;
  * </ul>
  * Provides some easy methods to get and set registers by their names
  */
-public class State {
+public class State implements Savable {
+  // Value of segmentOverrideIndex when the instruction has no segment override prefix
+  public static final int NO_SEGMENT_OVERRIDE = -1;
+
   // CPU state
   private Registers registers = new Registers();
   private SegmentRegisters segmentRegisters = new SegmentRegisters();
@@ -27,8 +35,10 @@ public class State {
   private long cycles;
 
   // In-instruction state
-  private Integer segmentOverrideIndex = null;
-  private Boolean continueZeroFlagValue = null;
+  private int segmentOverrideIndex = NO_SEGMENT_OVERRIDE;
+  // True when a REP prefix has been encountered, continueZeroFlagValue is only meaningful in this case
+  private boolean repPrefix;
+  private boolean continueZeroFlagValue;
 
   // CPU log
   private String currentInstructionPrefix = "";
@@ -306,25 +316,31 @@ public class State {
     flags.setFlag(Flags.OVERFLOW, value);
   }
 
-  public Integer getSegmentOverrideIndex() {
+  public int getSegmentOverrideIndex() {
     return segmentOverrideIndex;
   }
 
-  public void setSegmentOverrideIndex(Integer segmentOverrideIndex) {
+  public void setSegmentOverrideIndex(int segmentOverrideIndex) {
     this.segmentOverrideIndex = segmentOverrideIndex;
   }
 
-  public Boolean getContinueZeroFlagValue() {
+  public boolean hasRepPrefix() {
+    return repPrefix;
+  }
+
+  public boolean getContinueZeroFlagValue() {
     return continueZeroFlagValue;
   }
 
-  public void setContinueZeroFlagValue(Boolean continueZeroFlagValue) {
+  public void setContinueZeroFlagValue(boolean continueZeroFlagValue) {
+    this.repPrefix = true;
     this.continueZeroFlagValue = continueZeroFlagValue;
   }
 
   public void clearPrefixes() {
-    this.setContinueZeroFlagValue(null);
-    this.setSegmentOverrideIndex(null);
+    this.repPrefix = false;
+    this.continueZeroFlagValue = false;
+    this.setSegmentOverrideIndex(NO_SEGMENT_OVERRIDE);
   }
 
   public int getStackPhysicalAddress() {
@@ -363,6 +379,36 @@ public class State {
     cycles++;
   }
 
+  /**
+   * Saves registers, flags and cycles. In-instruction state is not saved since states are taken between instructions.
+   */
+  @Override
+  public void saveState(DataOutput output) throws IOException {
+    for (int i = 0; i < Registers.NUMBER_OF_REGISTERS; i++) {
+      output.writeShort(registers.getRegister(i));
+    }
+    for (int i = 0; i < SegmentRegisters.NUMBER_OF_REGISTERS; i++) {
+      output.writeShort(segmentRegisters.getRegister(i));
+    }
+    output.writeShort(ip);
+    flags.saveState(output);
+    output.writeLong(cycles);
+  }
+
+  @Override
+  public void restoreState(DataInput input) throws IOException {
+    for (int i = 0; i < Registers.NUMBER_OF_REGISTERS; i++) {
+      registers.setRegister(i, input.readUnsignedShort());
+    }
+    for (int i = 0; i < SegmentRegisters.NUMBER_OF_REGISTERS; i++) {
+      segmentRegisters.setRegister(i, input.readUnsignedShort());
+    }
+    ip = input.readUnsignedShort();
+    flags.restoreState(input);
+    cycles = input.readLong();
+    clearPrefixes();
+  }
+
   public String dumpRegFlags() {
     String res = "cycles=" + this.getCycles();
     res += " CS:IP=" + ConvertUtils.toSegmentedAddressRepresentation(getCS(), getIP()) + '/'
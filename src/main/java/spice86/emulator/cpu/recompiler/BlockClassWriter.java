@@ -0,0 +1,314 @@
+package spice86.emulator.cpu.recompiler;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+import spice86.emulator.errors.UnrecoverableException;
+import spice86.utils.CheckedConsumer;
+
+/**
+ * Minimal class file writer for the classes generated by the recompiler.<br/>
+ * Generated classes have a no-arg constructor and implement CompiledBlock. The code of the execute method is a
+ * straight sequence of instructions without branches, so no stack map frame is needed.<br/>
+ * Format reference: https://docs.oracle.com/javase/specs/jvms/se17/html/jvms-4.html
+ */
+class BlockClassWriter {
+  private static final int JAVA_17_CLASS_VERSION = 61;
+  private static final int ACC_PUBLIC = 0x0001;
+  private static final int ACC_FINAL = 0x0010;
+  private static final int ACC_SUPER = 0x0020;
+
+  private static final int CONSTANT_UTF8 = 1;
+  private static final int CONSTANT_INTEGER = 3;
+  private static final int CONSTANT_CLASS = 7;
+  private static final int CONSTANT_METHODREF = 10;
+  private static final int CONSTANT_NAME_AND_TYPE = 12;
+
+  private static final int ICONST_0 = 0x03;
+  private static final int BIPUSH = 0x10;
+  private static final int SIPUSH = 0x11;
+  private static final int LDC_W = 0x13;
+  private static final int ILOAD = 0x15;
+  private static final int ALOAD = 0x19;
+  private static final int ISTORE = 0x36;
+  private static final int POP = 0x57;
+  private static final int RETURN = 0xB1;
+  private static final int INVOKEVIRTUAL = 0xB6;
+  private static final int INVOKESPECIAL = 0xB7;
+  private static final int INVOKESTATIC = 0xB8;
+
+  private static final String OBJECT_CLASS = "java/lang/Object";
+
+  private final ByteArrayOutputStream constantPoolBytes = new ByteArrayOutputStream();
+  private final DataOutputStream constantPool = new DataOutputStream(constantPoolBytes);
+  private final Map<String, Integer> constantIndexes = new HashMap<>();
+  // Index 0 of the constant pool is not used
+  private int constantPoolCount = 1;
+
+  private final ByteArrayOutputStream codeBytes = new ByteArrayOutputStream();
+  private final DataOutputStream code = new DataOutputStream(codeBytes);
+  private int stackSize;
+  private int maxStackSize;
+  private int maxLocals;
+
+  private final String className;
+  private final String interfaceName;
+  private final String methodName;
+  private final String methodDescriptor;
+
+  /**
+   * @param className
+   *          internal name of the generated class (with / separators)
+   * @param interfaceName
+   *          internal name of the interface implemented by the generated class
+   * @param methodName
+   *          name of the interface method to implement
+   * @param methodDescriptor
+   *          descriptor of the interface method to implement
+   * @param argumentSlots
+   *          number of local variable slots taken by this and the arguments of the method
+   */
+  public BlockClassWriter(String className, String interfaceName, String methodName, String methodDescriptor,
+      int argumentSlots) {
+    this.className = className;
+    this.interfaceName = interfaceName;
+    this.methodName = methodName;
+    this.methodDescriptor = methodDescriptor;
+    this.maxLocals = argumentSlots;
+  }
+
+  public void loadReference(int localIndex) {
+    writeLocalInstruction(ALOAD, localIndex);
+    updateStack(1);
+  }
+
+  public void loadInt(int localIndex) {
+    writeLocalInstruction(ILOAD, localIndex);
+    updateStack(1);
+  }
+
+  public void storeInt(int localIndex) {
+    writeLocalInstruction(ISTORE, localIndex);
+    maxLocals = Math.max(maxLocals, localIndex + 1);
+    updateStack(-1);
+  }
+
+  public void pushInt(int value) {
+    if (value >= -1 && value <= 5) {
+      writeByte(ICONST_0 + value);
+    } else if (value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE) {
+      writeByte(BIPUSH);
+      writeByte(value);
+    } else if (value >= Short.MIN_VALUE && value <= Short.MAX_VALUE) {
+      writeByte(SIPUSH);
+      writeShort(value);
+    } else {
+      writeByte(LDC_W);
+      writeShort(integerConstant(value));
+    }
+    updateStack(1);
+  }
+
+  public void pushBoolean(boolean value) {
+    pushInt(value ? 1 : 0);
+  }
+
+  public void pop() {
+    writeByte(POP);
+    updateStack(-1);
+  }
+
+  public void invokeVirtual(String owner, String name, String descriptor) {
+    writeByte(INVOKEVIRTUAL);
+    writeShort(methodRefConstant(owner, name, descriptor));
+    // Receiver is consumed as well
+    updateStack(-1 + stackDelta(descriptor));
+  }
+
+  public void invokeStatic(String owner, String name, String descriptor) {
+    writeByte(INVOKESTATIC);
+    writeShort(methodRefConstant(owner, name, descriptor));
+    updateStack(stackDelta(descriptor));
+  }
+
+  public void returnVoid() {
+    writeByte(RETURN);
+  }
+
+  public byte[] toByteArray() {
+    try {
+      int thisClass = classConstant(className);
+      int superClass = classConstant(OBJECT_CLASS);
+      int implementedInterface = classConstant(interfaceName);
+      byte[] constructorCode = constructorCode();
+      int constructorName = utf8Constant("<init>");
+      int constructorDescriptor = utf8Constant("()V");
+      int executeName = utf8Constant(methodName);
+      int executeDescriptor = utf8Constant(methodDescriptor);
+      int codeAttributeName = utf8Constant("Code");
+      byte[] executeCode = codeBytes.toByteArray();
+
+      ByteArrayOutputStream classBytes = new ByteArrayOutputStream();
+      DataOutputStream out = new DataOutputStream(classBytes);
+      out.writeInt(0xCAFEBABE);
+      out.writeShort(0);
+      out.writeShort(JAVA_17_CLASS_VERSION);
+      out.writeShort(constantPoolCount);
+      out.write(constantPoolBytes.toByteArray());
+      out.writeShort(ACC_PUBLIC | ACC_FINAL | ACC_SUPER);
+      out.writeShort(thisClass);
+      out.writeShort(superClass);
+      out.writeShort(1);
+      out.writeShort(implementedInterface);
+      // No field
+      out.writeShort(0);
+      out.writeShort(2);
+      writeMethod(out, constructorName, constructorDescriptor, codeAttributeName, 1, 1, constructorCode);
+      writeMethod(out, executeName, executeDescriptor, codeAttributeName, maxStackSize, maxLocals, executeCode);
+      // No class attribute
+      out.writeShort(0);
+      return classBytes.toByteArray();
+    } catch (IOException e) {
+      throw new UnrecoverableException("Could not write class " + className, e);
+    }
+  }
+
+  private byte[] constructorCode() throws IOException {
+    int objectConstructor = methodRefConstant(OBJECT_CLASS, "<init>", "()V");
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    DataOutputStream constructor = new DataOutputStream(bytes);
+    // aload_0
+    constructor.writeByte(0x2A);
+    constructor.writeByte(INVOKESPECIAL);
+    constructor.writeShort(objectConstructor);
+    constructor.writeByte(RETURN);
+    return bytes.toByteArray();
+  }
+
+  private void writeMethod(DataOutputStream out, int name, int descriptor, int codeAttributeName, int maxStack,
+      int locals, byte[] methodCode) throws IOException {
+    out.writeShort(ACC_PUBLIC);
+    out.writeShort(name);
+    out.writeShort(descriptor);
+    out.writeShort(1);
+    out.writeShort(codeAttributeName);
+    // max_stack, max_locals, code_length, code, exception_table_length, attributes_count
+    out.writeInt(2 + 2 + 4 + methodCode.length + 2 + 2);
+    out.writeShort(maxStack);
+    out.writeShort(locals);
+    out.writeInt(methodCode.length);
+    out.write(methodCode);
+    out.writeShort(0);
+    out.writeShort(0);
+  }
+
+  private void writeLocalInstruction(int opcode, int localIndex) {
+    // All the xLOAD_n / xSTORE_n short forms are in sequence after their first one
+    int shortFormStart = switch (opcode) {
+      case ILOAD -> 0x1A;
+      case ALOAD -> 0x2A;
+      case ISTORE -> 0x3B;
+      default -> throw new UnrecoverableException("Unsupported local variable instruction " + opcode);
+    };
+    if (localIndex <= 3) {
+      writeByte(shortFormStart + localIndex);
+    } else {
+      writeByte(opcode);
+      writeByte(localIndex);
+    }
+  }
+
+  private void updateStack(int delta) {
+    stackSize += delta;
+    maxStackSize = Math.max(maxStackSize, stackSize);
+  }
+
+  /**
+   * Only supports int, boolean, reference and void types, which is all the generated code needs.
+   */
+  private int stackDelta(String descriptor) {
+    int arguments = 0;
+    int i = 1;
+    while (descriptor.charAt(i) != ')') {
+      if (descriptor.charAt(i) == 'L') {
+        i = descriptor.indexOf(';', i);
+      }
+      arguments++;
+      i++;
+    }
+    int returned = descriptor.charAt(i + 1) == 'V' ? 0 : 1;
+    return returned - arguments;
+  }
+
+  private void writeByte(int value) {
+    try {
+      code.writeByte(value);
+    } catch (IOException e) {
+      throw new UnrecoverableException("Could not write code", e);
+    }
+  }
+
+  private void writeShort(int value) {
+    try {
+      code.writeShort(value);
+    } catch (IOException e) {
+      throw new UnrecoverableException("Could not write code", e);
+    }
+  }
+
+  private int utf8Constant(String value) {
+    return constant("Utf8:" + value, out -> {
+      out.writeByte(CONSTANT_UTF8);
+      out.writeUTF(value);
+    });
+  }
+
+  private int integerConstant(int value) {
+    return constant("Integer:" + value, out -> {
+      out.writeByte(CONSTANT_INTEGER);
+      out.writeInt(value);
+    });
+  }
+
+  private int classConstant(String internalName) {
+    int name = utf8Constant(internalName);
+    return constant("Class:" + internalName, out -> {
+      out.writeByte(CONSTANT_CLASS);
+      out.writeShort(name);
+    });
+  }
+
+  private int methodRefConstant(String owner, String name, String descriptor) {
+    int ownerClass = classConstant(owner);
+    int methodName = utf8Constant(name);
+    int methodDescriptor = utf8Constant(descriptor);
+    int nameAndType = constant("NameAndType:" + name + descriptor, out -> {
+      out.writeByte(CONSTANT_NAME_AND_TYPE);
+      out.writeShort(methodName);
+      out.writeShort(methodDescriptor);
+    });
+    return constant("Methodref:" + owner + "." + name + descriptor, out -> {
+      out.writeByte(CONSTANT_METHODREF);
+      out.writeShort(ownerClass);
+      out.writeShort(nameAndType);
+    });
+  }
+
+  private int constant(String key, CheckedConsumer<DataOutputStream, IOException> writer) {
+    Integer index = constantIndexes.get(key);
+    if (index != null) {
+      return index;
+    }
+    try {
+      writer.accept(constantPool);
+    } catch (IOException e) {
+      throw new UnrecoverableException("Could not write constant " + key, e);
+    }
+    index = constantPoolCount++;
+    constantIndexes.put(key, index);
+    return index;
+  }
+}
@@ -0,0 +1,128 @@
+package spice86.emulator.cpu.recompiler;
+
+import java.lang.invoke.MethodHandles;
+import java.util.Arrays;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import spice86.emulator.errors.UnrecoverableException;
+import spice86.emulator.memory.Memory;
+import spice86.emulator.memory.MemoryBackend;
+import spice86.emulator.memory.MemoryWriteListener;
+import spice86.utils.ConvertUtils;
+
+/**
+ * Second execution tier of the CPU.<br/>
+ * Counts how many times the interpreter executes each address. Once an address gets hot, the block starting there is
+ * translated to a JVM hidden class so that HotSpot can compile the guest code like any other java code.<br/>
+ * Blocks are invalidated when the memory they were translated from is written to.
+ */
+public class BlockRecompiler implements MemoryWriteListener {
+  private static final Logger LOGGER = LoggerFactory.getLogger(BlockRecompiler.class);
+
+  private static final int MAX_INSTRUCTIONS_PER_BLOCK = 32;
+  // Longest supported instruction is GRP1 rmw iw
+  private static final int MAX_INSTRUCTION_LENGTH = 4;
+  private static final int MAX_BLOCK_LENGTH = MAX_INSTRUCTIONS_PER_BLOCK * MAX_INSTRUCTION_LENGTH;
+  private static final int PAGE_SHIFT = 12;
+
+  private static final String GENERATED_CLASS_NAME = "spice86/emulator/cpu/recompiler/GeneratedBlock";
+  private static final String COMPILED_BLOCK_INTERFACE = "spice86/emulator/cpu/recompiler/CompiledBlock";
+  private static final String EXECUTE_DESCRIPTOR =
+      "(Lspice86/emulator/cpu/State;Lspice86/emulator/cpu/Registers;Lspice86/emulator/cpu/Alu;)V";
+  // this + the 3 arguments of execute
+  private static final int EXECUTE_ARGUMENT_SLOTS = 4;
+
+  // Marks the addresses where the first instruction is not supported so that translation is not attempted each time
+  private static final RecompiledBlock UNTRANSLATABLE = new RecompiledBlock(null, 0, 0);
+
+  private final Memory memory;
+  // Number of times an address needs to be executed before being translated
+  private final int threshold;
+  private final int[] executionCounts;
+  private final RecompiledBlock[] blocks;
+  // Pages where at least one block starts. Allows writes to data pages to be ignored quickly.
+  private final boolean[] pagesWithBlocks;
+  private final MethodHandles.Lookup lookup = MethodHandles.lookup();
+
+  public BlockRecompiler(Memory memory, int threshold) {
+    this.memory = memory;
+    this.threshold = threshold;
+    this.executionCounts = new int[memory.getSize()];
+    this.blocks = new RecompiledBlock[memory.getSize()];
+    this.pagesWithBlocks = new boolean[(memory.getSize() >>> PAGE_SHIFT) + 1];
+  }
+
+  /**
+   * @param address
+   *          physical address about to be executed
+   * @return the block starting at this address or null if the interpreter should execute it
+   */
+  public RecompiledBlock getBlock(int address) {
+    RecompiledBlock block = blocks[address];
+    if (block == null) {
+      executionCounts[address]++;
+      if (executionCounts[address] <= threshold) {
+        return null;
+      }
+      block = recompile(address);
+      blocks[address] = block;
+      pagesWithBlocks[address >>> PAGE_SHIFT] = true;
+      pagesWithBlocks[(address + MAX_BLOCK_LENGTH - 1) >>> PAGE_SHIFT] = true;
+    }
+    if (block == UNTRANSLATABLE) {
+      return null;
+    }
+    return block;
+  }
+
+  @Override
+  public void onWrite(int startAddress, int endAddress) {
+    // Blocks starting before the write can still include the bytes written
+    int start = Math.max(0, startAddress - MAX_BLOCK_LENGTH + 1);
+    int end = Math.min(blocks.length, endAddress);
+    if (start >= end) {
+      return;
+    }
+    int lastPage = (end - 1) >>> PAGE_SHIFT;
+    for (int page = start >>> PAGE_SHIFT; page <= lastPage; page++) {
+      if (pagesWithBlocks[page]) {
+        int pageStart = Math.max(start, page << PAGE_SHIFT);
+        int pageEnd = Math.min(end, (page + 1) << PAGE_SHIFT);
+        Arrays.fill(blocks, pageStart, pageEnd, null);
+        Arrays.fill(executionCounts, pageStart, pageEnd, 0);
+      }
+    }
+  }
+
+  private RecompiledBlock recompile(int address) {
+    MemoryBackend ram = memory.getBackend();
+    BlockClassWriter writer = new BlockClassWriter(GENERATED_CLASS_NAME, COMPILED_BLOCK_INTERFACE, "execute",
+        EXECUTE_DESCRIPTOR, EXECUTE_ARGUMENT_SLOTS);
+    BlockTranslator translator = new BlockTranslator(ram, address, writer);
+    int instructionCount = 0;
+    while (instructionCount < MAX_INSTRUCTIONS_PER_BLOCK
+        && translator.getAddress() + MAX_INSTRUCTION_LENGTH <= ram.getSize()
+        && translator.translateNextInstruction()) {
+      instructionCount++;
+    }
+    if (instructionCount == 0) {
+      return UNTRANSLATABLE;
+    }
+    writer.returnVoid();
+    int length = translator.getAddress() - address;
+    if (LOGGER.isDebugEnabled()) {
+      LOGGER.debug("Recompiling block at {} ({} instructions, {} bytes)", ConvertUtils.toHex(address),
+          instructionCount, length);
+    }
+    try {
+      Class<?> blockClass = lookup.defineHiddenClass(writer.toByteArray(), true).lookupClass();
+      CompiledBlock compiledBlock = (CompiledBlock)blockClass.getDeclaredConstructor().newInstance();
+      return new RecompiledBlock(compiledBlock, length, instructionCount);
+    } catch (ReflectiveOperationException e) {
+      throw new UnrecoverableException("Could not load the class generated for block at " + ConvertUtils.toHex(address),
+          e);
+    }
+  }
+}
@@ -0,0 +1,324 @@
+package spice86.emulator.cpu.recompiler;
+
+import static spice86.utils.ConvertUtils.int8;
+import static spice86.utils.ConvertUtils.uint16;
+
+import spice86.emulator.memory.MemoryBackend;
+
+/**
+ * Translates a sequence of 8086 instructions to the JVM bytecode of the execute method of a CompiledBlock.<br/>
+ * Only instructions working on registers and immediate values are supported: they do not access memory, cannot fault
+ * and do not change the control flow, so the generated code never has to go back to the interpreter in the middle of
+ * a block. Translation stops at the first unsupported instruction, the interpreter will execute it.<br/>
+ * Generated code calls the same Alu methods as the interpreter so that results and flags are identical.
+ */
+class BlockTranslator {
+  private static final String STATE = "spice86/emulator/cpu/State";
+  private static final String REGISTERS = "spice86/emulator/cpu/Registers";
+  private static final String ALU = "spice86/emulator/cpu/Alu";
+  private static final String CONVERT_UTILS = "spice86/utils/ConvertUtils";
+
+  // Local variables of CompiledBlock.execute
+  private static final int STATE_LOCAL = 1;
+  private static final int REGISTERS_LOCAL = 2;
+  private static final int ALU_LOCAL = 3;
+  private static final int TEMP_LOCAL = 4;
+
+  // Operations of opcodes 0x00 to 0x3D and of GRP1, indexed by bits 5 to 3 of the opcode / by the group index.
+  private static final String[] ARITHMETIC_OPERATIONS = { "add", "or", "adc", "sbb", "and", "sub", "xor", "sub" };
+  private static final int CMP_INDEX = 7;
+  // Operations of GRP2, index 6 is invalid
+  private static final String[] SHIFT_OPERATIONS = { "rol", "ror", "rcl", "rcr", "shl", "shr", null, "sar" };
+
+  private final MemoryBackend ram;
+  private final BlockClassWriter writer;
+  // Physical address of the next instruction to translate
+  private int address;
+
+  public BlockTranslator(MemoryBackend ram, int startAddress, BlockClassWriter writer) {
+    this.ram = ram;
+    this.address = startAddress;
+    this.writer = writer;
+  }
+
+  public int getAddress() {
+    return address;
+  }
+
+  /**
+   * @return true if the instruction at the current address was translated, false if it is not supported. Nothing is
+   *         generated when it is not supported.
+   */
+  public boolean translateNextInstruction() {
+    int opcode = peekUint8(0);
+    int length = translate(opcode);
+    if (length == 0) {
+      return false;
+    }
+    address += length;
+    return true;
+  }
+
+  /**
+   * @return length of the instruction in bytes or 0 if it is not supported
+   */
+  private int translate(int opcode) {
+    if (opcode <= 0x3F) {
+      return translateArithmetic(opcode);
+    }
+    return switch (opcode) {
+      case 0x40, 0x41, 0x42, 0x43, 0x44, 0x45, 0x46, 0x47 -> {
+        translateUnary("inc16", opcode & 0b111);
+        yield 1;
+      }
+      case 0x48, 0x49, 0x4A, 0x4B, 0x4C, 0x4D, 0x4E, 0x4F -> {
+        translateUnary("dec16", opcode & 0b111);
+        yield 1;
+      }
+      case 0x80, 0x81, 0x82, 0x83 -> translateGrp1(opcode);
+      case 0x84, 0x85 -> translateTest(opcode);
+      case 0x86, 0x87 -> translateXchg(opcode);
+      case 0x88, 0x89, 0x8A, 0x8B -> translateMov(opcode);
+      // NOP
+      case 0x90 -> 1;
+      case 0x91, 0x92, 0x93, 0x94, 0x95, 0x96, 0x97 -> {
+        swapRegisters(false, 0, opcode & 0b111);
+        yield 1;
+      }
+      case 0x98 -> {
+        translateCbw();
+        yield 1;
+      }
+      case 0xA8 -> {
+        translateAlu(false, false, "and", 0, () -> writer.pushInt(peekUint8(1)));
+        yield 2;
+      }
+      case 0xA9 -> {
+        translateAlu(false, true, "and", 0, () -> writer.pushInt(peekUint16(1)));
+        yield 3;
+      }
+      case 0xB0, 0xB1, 0xB2, 0xB3, 0xB4, 0xB5, 0xB6, 0xB7 -> {
+        int value = peekUint8(1);
+        setRegister(true, opcode & 0b111, () -> writer.pushInt(value));
+        yield 2;
+      }
+      case 0xB8, 0xB9, 0xBA, 0xBB, 0xBC, 0xBD, 0xBE, 0xBF -> {
+        int value = peekUint16(1);
+        setRegister(false, opcode & 0b111, () -> writer.pushInt(value));
+        yield 3;
+      }
+      case 0xC0, 0xC1, 0xD0, 0xD1, 0xD2, 0xD3 -> translateGrp2(opcode);
+      case 0xF8, 0xF9 -> {
+        // CLC / STC
+        setFlag("setCarryFlag", opcode == 0xF9);
+        yield 1;
+      }
+      case 0xFC, 0xFD -> {
+        // CLD / STD
+        setFlag("setDirectionFlag", opcode == 0xFD);
+        yield 1;
+      }
+      default -> 0;
+    };
+  }
+
+  private int translateArithmetic(int opcode) {
+    String operation = ARITHMETIC_OPERATIONS[(opcode >>> 3) & 0b111];
+    boolean store = ((opcode >>> 3) & 0b111) != CMP_INDEX;
+    boolean byteSize = (opcode & 0b1) == 0;
+    switch (opcode & 0b111) {
+      case 0, 1, 2, 3 -> {
+        int modRM = peekUint8(1);
+        if (!isRegisterMode(modRM)) {
+          return 0;
+        }
+        int rm = modRM & 0b111;
+        int r = (modRM >>> 3) & 0b111;
+        // Bit 1 of the opcode is the direction: 0 means rm is the destination
+        boolean rmIsDestination = (opcode & 0b10) == 0;
+        int destination = rmIsDestination ? rm : r;
+        int source = rmIsDestination ? r : rm;
+        translateAlu(store, byteSize, operation, destination, () -> getRegister(byteSize, source));
+        return 2;
+      }
+      case 4 -> {
+        int value = peekUint8(1);
+        translateAlu(store, true, operation, 0, () -> writer.pushInt(value));
+        return 2;
+      }
+      case 5 -> {
+        int value = peekUint16(1);
+        translateAlu(store, false, operation, 0, () -> writer.pushInt(value));
+        return 3;
+      }
+      default -> {
+        // Segment push / pop, prefixes and BCD instructions
+        return 0;
+      }
+    }
+  }
+
+  private int translateGrp1(int opcode) {
+    int modRM = peekUint8(1);
+    if (!isRegisterMode(modRM)) {
+      return 0;
+    }
+    int groupIndex = (modRM >>> 3) & 0b111;
+    int rm = modRM & 0b111;
+    boolean byteSize = (opcode & 0b01) == 0;
+    int value;
+    int length;
+    if (opcode == 0x81) {
+      value = peekUint16(2);
+      length = 4;
+    } else if (opcode == 0x83) {
+      // sign extended
+      value = uint16(int8(peekUint8(2)));
+      length = 3;
+    } else {
+      value = peekUint8(2);
+      length = 3;
+    }
+    translateAlu(groupIndex != CMP_INDEX, byteSize, ARITHMETIC_OPERATIONS[groupIndex], rm,
+        () -> writer.pushInt(value));
+    return length;
+  }
+
+  private int translateGrp2(int opcode) {
+    int modRM = peekUint8(1);
+    if (!isRegisterMode(modRM)) {
+      return 0;
+    }
+    int rm = modRM & 0b111;
+    boolean byteSize = (opcode & 0b01) == 0;
+    if (opcode == 0xC0 || opcode == 0xC1) {
+      // Interpreter always does a SHL for those, whatever the group index
+      int count = peekUint8(2);
+      translateAlu(true, byteSize, "shl", rm, () -> writer.pushInt(count));
+      return 3;
+    }
+    String operation = SHIFT_OPERATIONS[(modRM >>> 3) & 0b111];
+    if (operation == null) {
+      return 0;
+    }
+    if ((opcode & 0b10) == 0b10) {
+      translateAlu(true, byteSize, operation, rm, () -> {
+        writer.loadReference(STATE_LOCAL);
+        writer.invokeVirtual(STATE, "getCL", "()I");
+      });
+    } else {
+      translateAlu(true, byteSize, operation, rm, () -> writer.pushInt(1));
+    }
+    return 2;
+  }
+
+  private int translateTest(int opcode) {
+    int modRM = peekUint8(1);
+    if (!isRegisterMode(modRM)) {
+      return 0;
+    }
+    boolean byteSize = opcode == 0x84;
+    int r = (modRM >>> 3) & 0b111;
+    translateAlu(false, byteSize, "and", modRM & 0b111, () -> getRegister(byteSize, r));
+    return 2;
+  }
+
+  private int translateXchg(int opcode) {
+    int modRM = peekUint8(1);
+    if (!isRegisterMode(modRM)) {
+      return 0;
+    }
+    swapRegisters(opcode == 0x86, (modRM >>> 3) & 0b111, modRM & 0b111);
+    return 2;
+  }
+
+  private int translateMov(int opcode) {
+    int modRM = peekUint8(1);
+    if (!isRegisterMode(modRM)) {
+      return 0;
+    }
+    boolean byteSize = (opcode & 0b1) == 0;
+    int rm = modRM & 0b111;
+    int r = (modRM >>> 3) & 0b111;
+    if ((opcode & 0b10) == 0) {
+      setRegister(byteSize, rm, () -> getRegister(byteSize, r));
+    } else {
+      setRegister(byteSize, r, () -> getRegister(byteSize, rm));
+    }
+    return 2;
+  }
+
+  private void translateCbw() {
+    setRegister(false, 0, () -> {
+      getRegister(true, 0);
+      writer.invokeStatic(CONVERT_UTILS, "int8", "(I)I");
+      writer.invokeStatic(CONVERT_UTILS, "uint16", "(I)I");
+    });
+  }
+
+  private void translateUnary(String operation, int registerIndex) {
+    setRegister(false, registerIndex, () -> {
+      writer.loadReference(ALU_LOCAL);
+      getRegister(false, registerIndex);
+      writer.invokeVirtual(ALU, operation, "(I)I");
+    });
+  }
+
+  /**
+   * Generates destination = operation(destination, value) or just operation(destination, value) when store is false
+   * (CMP and TEST only update the flags).
+   */
+  private void translateAlu(boolean store, boolean byteSize, String operation, int destination,
+      Runnable pushValue) {
+    Runnable pushResult = () -> {
+      writer.loadReference(ALU_LOCAL);
+      getRegister(byteSize, destination);
+      pushValue.run();
+      writer.invokeVirtual(ALU, operation + (byteSize ? "8" : "16"), "(II)I");
+    };
+    if (store) {
+      setRegister(byteSize, destination, pushResult);
+    } else {
+      pushResult.run();
+      writer.pop();
+    }
+  }
+
+  private void swapRegisters(boolean byteSize, int index1, int index2) {
+    getRegister(byteSize, index1);
+    writer.storeInt(TEMP_LOCAL);
+    setRegister(byteSize, index1, () -> getRegister(byteSize, index2));
+    setRegister(byteSize, index2, () -> writer.loadInt(TEMP_LOCAL));
+  }
+
+  private void setFlag(String setter, boolean value) {
+    writer.loadReference(STATE_LOCAL);
+    writer.pushBoolean(value);
+    writer.invokeVirtual(STATE, setter, "(Z)V");
+  }
+
+  private void getRegister(boolean byteSize, int index) {
+    writer.loadReference(REGISTERS_LOCAL);
+    writer.pushInt(index);
+    writer.invokeVirtual(REGISTERS, byteSize ? "getRegisterFromHighLowIndex8" : "getRegister", "(I)I");
+  }
+
+  private void setRegister(boolean byteSize, int index, Runnable pushValue) {
+    writer.loadReference(REGISTERS_LOCAL);
+    writer.pushInt(index);
+    pushValue.run();
+    writer.invokeVirtual(REGISTERS, byteSize ? "setRegisterFromHighLowIndex8" : "setRegister", "(II)V");
+  }
+
+  private boolean isRegisterMode(int modRM) {
+    return (modRM >>> 6) == 0b11;
+  }
+
+  private int peekUint8(int offset) {
+    return ram.getUint8(address + offset);
+  }
+
+  private int peekUint16(int offset) {
+    return ram.getUint16(address + offset);
+  }
+}
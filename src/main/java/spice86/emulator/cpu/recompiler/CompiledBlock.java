@@ -0,0 +1,12 @@
+package spice86.emulator.cpu.recompiler;
+
+import spice86.emulator.cpu.Alu;
+import spice86.emulator.cpu.Registers;
+import spice86.emulator.cpu.State;
+
+/**
+ * Implemented by the classes generated by the recompiler. Executes all the instructions of a block.
+ */
+public interface CompiledBlock {
+  void execute(State state, Registers registers, Alu alu);
+}
@@ -0,0 +1,35 @@
+package spice86.emulator.cpu.recompiler;
+
+import spice86.emulator.cpu.Alu;
+import spice86.emulator.cpu.State;
+
+/**
+ * Block of instructions translated to a JVM class.
+ */
+public class RecompiledBlock {
+  private final CompiledBlock compiledBlock;
+  // Size of the instructions of the block in bytes
+  private final int length;
+  private final int instructionCount;
+
+  public RecompiledBlock(CompiledBlock compiledBlock, int length, int instructionCount) {
+    this.compiledBlock = compiledBlock;
+    this.length = length;
+    this.instructionCount = instructionCount;
+  }
+
+  /**
+   * Executes the instructions of the block. Does not update IP nor the cycles.
+   */
+  public void execute(State state, Alu alu) {
+    compiledBlock.execute(state, state.getRegisters(), alu);
+  }
+
+  public int getLength() {
+    return length;
+  }
+
+  public int getInstructionCount() {
+    return instructionCount;
+  }
+}
@@ -1,5 +1,8 @@
 package spice86.emulator.devices.externalinterrupt;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -11,6 +14,7 @@ import spice86.emulator.errors.UnhandledOperationException;
 import spice86.emulator.ioports.DefaultIOPortHandler;
 import spice86.emulator.ioports.IOPortDispatcher;
 import spice86.emulator.machine.Machine;
+import spice86.emulator.savestate.Savable;
 import spice86.utils.ConvertUtils;
 
 /**
@@ -21,7 +25,7 @@ import spice86.utils.ConvertUtils;
  * <li>https://k.lse.epita.fr/internals/8259a_controller.html</li>
  * </ul>
  */
-public class Pic extends DefaultIOPortHandler {
+public class Pic extends DefaultIOPortHandler implements Savable {
   private static final Logger LOGGER = LoggerFactory.getLogger(Pic.class);
   private static final int MASTER_PORT_A = 0x20;
   private static final int MASTER_PORT_B = 0x21;
@@ -162,6 +166,24 @@ public class Pic extends DefaultIOPortHandler {
     }
   }
 
+  @Override
+  public void saveState(DataOutput output) throws IOException {
+    output.writeBoolean(inintialized);
+    output.writeInt(currentCommand);
+    output.writeInt(commandsToProcess);
+    output.writeByte(interruptMask);
+    output.writeBoolean(lastIrqAcknowledged);
+  }
+
+  @Override
+  public void restoreState(DataInput input) throws IOException {
+    inintialized = input.readBoolean();
+    currentCommand = input.readInt();
+    commandsToProcess = input.readInt();
+    interruptMask = input.readUnsignedByte();
+    lastIrqAcknowledged = input.readBoolean();
+  }
+
   @Override
   public void initPortHandlers(IOPortDispatcher ioPortDispatcher) {
     ioPortDispatcher.addIOPortHandler(MASTER_PORT_A, this);
@@ -22,6 +22,9 @@ public class Keyboard extends DefaultIOPortHandler {
 
   private KeyScancodeConverter keyScancodeConverter = new KeyScancodeConverter();
   private Gui gui;
+  // Last key event injected without a gui, for example by a benchmark input script
+  private KeyCode injectedKeyCode;
+  private boolean injectedKeyPressed;
 
   public Keyboard(Machine machine, Gui gui, boolean failOnUnhandledPort) {
     super(machine, failOnUnhandledPort);
@@ -36,10 +39,30 @@ public class Keyboard extends DefaultIOPortHandler {
     cpu.externalInterrupt(9);
   }
 
+  /**
+   * Simulates a key event when there is no gui.
+   */
+  public void injectKeyEvent(KeyCode keyCode, boolean pressed) {
+    injectedKeyCode = keyCode;
+    injectedKeyPressed = pressed;
+    onKeyEvent();
+  }
+
   public Integer getScancode() {
-    KeyCode keyCode = gui.getLastKeyCode();
+    KeyCode keyCode;
+    boolean pressed;
+    if (gui != null) {
+      keyCode = gui.getLastKeyCode();
+      pressed = gui.isKeyPressed(keyCode);
+    } else {
+      keyCode = injectedKeyCode;
+      pressed = injectedKeyPressed;
+    }
+    if (keyCode == null) {
+      return null;
+    }
     Integer scancode;
-    if (gui.isKeyPressed(keyCode)) {
+    if (pressed) {
       scancode = keyScancodeConverter.getKeyPressedScancode(keyCode);
       LOGGER.info("Getting scancode. Key pressed {} scancode {}", keyCode, scancode);
     } else {
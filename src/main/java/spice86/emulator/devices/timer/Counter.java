@@ -1,12 +1,20 @@
 package spice86.emulator.devices.timer;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.google.gson.Gson;
 
+import spice86.emulator.cpu.State;
 import spice86.emulator.errors.UnhandledOperationException;
+import spice86.emulator.machine.DeviceScheduler;
 import spice86.emulator.machine.Machine;
+import spice86.emulator.machine.ScheduledEvent;
+import spice86.emulator.savestate.Savable;
 import spice86.utils.ConvertUtils;
 
 /**
@@ -15,7 +23,7 @@ import spice86.utils.ConvertUtils;
  * Number of CPU cycles to consider one second elapsed is defined in instructionsPerSecond.<br/>
  * Some documentation: https://k.lse.epita.fr/data/8254.pdf
  */
-public class Counter {
+public class Counter implements Savable {
   private static final Logger LOGGER = LoggerFactory.getLogger(Counter.class);
 
   public static final long HARDWARE_FREQUENCY = 1_193_182;
@@ -23,6 +31,11 @@ public class Counter {
       // Using transient to prevent GSon from serializing it
       "java:S2065" })
   private transient Machine machine;
+  private transient State state;
+  private transient DeviceScheduler deviceScheduler;
+  // Null when nothing has to be done on activation, in this case the counter is never scheduled
+  private transient Runnable onActivation;
+  private transient ScheduledEvent activationEvent;
   private int index;
   // Some programs don't set it so let's use by default the simplest mode
   private int readWritePolicy = 1;
@@ -34,10 +47,14 @@ public class Counter {
   private long ticks;
   private CounterActivator activator;
 
-  public Counter(Machine machine, int index, CounterActivator activator) {
+  public Counter(Machine machine, int index, CounterActivator activator, Runnable onActivation) {
     this.machine = machine;
+    this.state = machine.getCpu().getState();
+    this.deviceScheduler = machine.getDeviceScheduler();
     this.index = index;
     this.activator = activator;
+    this.onActivation = onActivation;
+    this.activationEvent = new ScheduledEvent("Counter " + index, this::processActivation);
     // Default is 18.2 times per second
     updateDesiredFreqency(18);
   }
@@ -157,19 +174,53 @@ public class Counter {
   private void updateDesiredFreqency(long desiredFrequency) {
     activator.updateDesiredFreqency(desiredFrequency);
     LOGGER.info("Updating counter {} frequency to {}.", index, desiredFrequency);
+    reschedule();
   }
 
   /**
-   * @param currentCycles
-   *          current cycle count of the CPU
-   * @return true if latched, false otherwise
+   * Schedules the next activation according to the current programming of the counter.
    */
-  public boolean processActivation(long currentCycles) {
+  public void reschedule() {
+    if (onActivation == null) {
+      return;
+    }
+    deviceScheduler.schedule(activationEvent, activator.getNextActivationCycle(state.getCycles()));
+  }
+
+  private void processActivation(long currentCycles) {
     if (activator.isActivated()) {
       ticks++;
-      return true;
+      onActivation.run();
     }
-    return false;
+    deviceScheduler.schedule(activationEvent, activator.getNextActivationCycle(currentCycles));
+  }
+
+  @Override
+  public void saveState(DataOutput output) throws IOException {
+    output.writeByte(readWritePolicy);
+    output.writeByte(mode);
+    output.writeByte(bcd);
+    output.writeShort(value);
+    output.writeBoolean(firstByteRead);
+    output.writeBoolean(firstByteWritten);
+    output.writeLong(ticks);
+    activator.saveState(output);
+  }
+
+  /**
+   * Restores the programming of the counter and schedules its next activation. CPU cycles have to be restored first.
+   */
+  @Override
+  public void restoreState(DataInput input) throws IOException {
+    readWritePolicy = input.readUnsignedByte();
+    mode = input.readUnsignedByte();
+    bcd = input.readUnsignedByte();
+    value = input.readUnsignedShort();
+    firstByteRead = input.readBoolean();
+    firstByteWritten = input.readBoolean();
+    ticks = input.readLong();
+    activator.restoreState(input);
+    onValueWrite();
   }
 
   @Override
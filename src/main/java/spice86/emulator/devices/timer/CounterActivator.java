@@ -1,14 +1,24 @@
 package spice86.emulator.devices.timer;
 
+import spice86.emulator.savestate.Savable;
+
 /**
- * Common interface to control a timer activation
+ * Common interface to control a timer activation.<br/>
+ * The saved state does not include the frequency, it is set again by the counter after restoration.
  */
-public interface CounterActivator {
+public interface CounterActivator extends Savable {
   /**
    * @return true when activation can occurr. If called twice in a row, next call can return false.
    */
   public boolean isActivated();
 
+  /**
+   * @param currentCycles
+   *          current cycle count of the CPU
+   * @return the cycle at which isActivated() has to be called next
+   */
+  public long getNextActivationCycle(long currentCycles);
+
   /**
    * @param desiredFrequency
    *          the activation frequency
@@ -1,5 +1,9 @@
 package spice86.emulator.devices.timer;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
 import spice86.emulator.cpu.State;
 
 /**
@@ -27,9 +31,25 @@ public class CyclesCounterActivator implements CounterActivator {
     return true;
   }
 
+  @Override
+  public long getNextActivationCycle(long currentCycles) {
+    // isActivated is true when strictly more than cyclesBetweenActivations elapsed
+    return lastActivationCycle + cyclesBetweenActivations + 1;
+  }
+
   @Override
   public void updateDesiredFreqency(long desiredFrequency) {
     cyclesBetweenActivations = this.instructionsPerSecond / desiredFrequency;
   }
 
+  @Override
+  public void saveState(DataOutput output) throws IOException {
+    output.writeLong(lastActivationCycle);
+  }
+
+  @Override
+  public void restoreState(DataInput input) throws IOException {
+    lastActivationCycle = input.readLong();
+  }
+
 }
@@ -1,9 +1,14 @@
 package spice86.emulator.devices.timer;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+
 /**
  * Counter activator based on real system time
  */
 public class TimeCounterActivator implements CounterActivator {
+  // Elapsed time cannot be predicted in cycles, so it is checked at this interval
+  private static final long CYCLES_BETWEEN_TIME_CHECKS = 1000;
   private double multiplier;
   private long timeBetweenTicks;
   private long lastActivationTime = System.nanoTime();
@@ -23,8 +28,23 @@ public class TimeCounterActivator implements CounterActivator {
     return true;
   }
 
+  @Override
+  public long getNextActivationCycle(long currentCycles) {
+    return currentCycles + CYCLES_BETWEEN_TIME_CHECKS;
+  }
+
   @Override
   public void updateDesiredFreqency(long desiredFrequency) {
     timeBetweenTicks = (long)(1_000_000_000 / (multiplier *desiredFrequency));
   }
+
+  @Override
+  public void saveState(DataOutput output) {
+    // Host time is meaningless once restored, nothing to save
+  }
+
+  @Override
+  public void restoreState(DataInput input) {
+    lastActivationTime = System.nanoTime();
+  }
 }
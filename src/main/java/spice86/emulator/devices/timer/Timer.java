@@ -1,5 +1,9 @@
 package spice86.emulator.devices.timer;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -9,6 +13,7 @@ import spice86.emulator.errors.InvalidOperationException;
 import spice86.emulator.ioports.DefaultIOPortHandler;
 import spice86.emulator.ioports.IOPortDispatcher;
 import spice86.emulator.machine.Machine;
+import spice86.emulator.savestate.Savable;
 
 /**
  * Emulates a PIT8254 Programmable Interval Timer.<br/>
@@ -16,7 +21,7 @@ import spice86.emulator.machine.Machine;
  * Triggers interrupt 8 on the CPU via the PIC.<br/>
  * https://k.lse.epita.fr/internals/8254_controller.html
  */
-public class Timer extends DefaultIOPortHandler {
+public class Timer extends DefaultIOPortHandler implements Savable {
   private static final Logger LOGGER = LoggerFactory.getLogger(Timer.class);
   private static final int COUNTER_REGISTER_0 = 0x40;
   private static final int COUNTER_REGISTER_1 = 0x41;
@@ -36,10 +41,13 @@ public class Timer extends DefaultIOPortHandler {
     this.pic = pic;
     this.vgaCard = vgaCard;
     this.cpu = machine.getCpu();
-    for (int i = 0; i < counters.length; i++) {
-      counters[i] = new Counter(machine, i, counterConfigurator.instanciateCounterActivator(cpu.getState()));
+    // Counter 0 is connected to IRQ 0, the others are not used
+    counters[0] = new Counter(machine, 0, counterConfigurator.instanciateCounterActivator(cpu.getState()),
+        () -> pic.processInterrupt(0x8));
+    for (int i = 1; i < counters.length; i++) {
+      counters[i] = new Counter(machine, i, counterConfigurator.instanciateCounterActivator(cpu.getState()), null);
     }
-    vgaCounter = new Counter(machine, 4, new TimeCounterActivator(1));
+    vgaCounter = new Counter(machine, 4, new TimeCounterActivator(1), vgaCard::updateScreen);
     // 30fps
     vgaCounter.setValue((int)(Counter.HARDWARE_FREQUENCY / 30));
   }
@@ -48,16 +56,6 @@ public class Timer extends DefaultIOPortHandler {
     return counters[0].getTicks();
   }
 
-  public void tick() {
-    long cycles = cpu.getState().getCycles();
-    if (counters[0].processActivation(cycles)) {
-      pic.processInterrupt(0x8);
-    }
-    if (vgaCounter.processActivation(cycles)) {
-      vgaCard.updateScreen();
-    }
-  }
-
   @Override
   public void initPortHandlers(IOPortDispatcher ioPortDispatcher) {
     ioPortDispatcher.addIOPortHandler(MODE_COMMAND_REGISTER, this);
@@ -94,6 +92,7 @@ public class Timer extends DefaultIOPortHandler {
       counter.setReadWritePolicy((value >> 4) & 0b11);
       counter.setMode((value >> 1) & 0b111);
       counter.setBcd(value & 1);
+      counter.reschedule();
       LOGGER.info("SETTING CONTROL REGISTER FOR COUNTER {}. {}", counterIndex, counter);
       return;
     }
@@ -107,6 +106,25 @@ public class Timer extends DefaultIOPortHandler {
     return counters[counterIndex];
   }
 
+  /**
+   * Saves the PIT counters. The screen refresh counter is not part of the emulated hardware and is not saved, it is
+   * rescheduled on restore since its next activation was computed from the cycles of the CPU before restoration.
+   */
+  @Override
+  public void saveState(DataOutput output) throws IOException {
+    for (Counter counter : counters) {
+      counter.saveState(output);
+    }
+  }
+
+  @Override
+  public void restoreState(DataInput input) throws IOException {
+    for (Counter counter : counters) {
+      counter.restoreState(input);
+    }
+    vgaCounter.reschedule();
+  }
+
   private Counter getCounterIndexFromPortNumber(int port) throws InvalidCounterIndexException {
     int counter = port & 0b11;
     return getCounter(counter);
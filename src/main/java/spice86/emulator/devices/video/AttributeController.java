@@ -0,0 +1,97 @@
+package spice86.emulator.devices.video;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * VGA attribute controller registers, they translate the 16 colors of text and planar modes to DAC indexes. See
+ * http://www.osdever.net/FreeVGA/vga/attrreg.htm<br/>
+ * Index and data are written to the same port, a flip-flop tells which one is expected next. Reading the input status
+ * register resets it to index.
+ */
+class AttributeController extends IndexedRegisters {
+  public static final int MODE_CONTROL = 0x10;
+  public static final int COLOR_PLANE_ENABLE = 0x12;
+  public static final int COLOR_SELECT = 0x14;
+
+  private boolean dataExpected;
+
+  AttributeController() {
+    super(0x15);
+  }
+
+  /**
+   * Handles a write to the address / data port
+   * 
+   * @return true if value was written to a register, false if it selected the register
+   */
+  public boolean writeAddressOrData(int value) {
+    boolean data = dataExpected;
+    if (data) {
+      write(value);
+    } else {
+      // Bit 5 (palette address source) is not emulated, display is never disabled
+      setIndex(value & 0b1_1111);
+    }
+    dataExpected = !dataExpected;
+    return data;
+  }
+
+  public void resetFlipFlop() {
+    dataExpected = false;
+  }
+
+  /**
+   * @return true in graphic modes, false in text modes
+   */
+  public boolean isGraphicsMode() {
+    return (get(MODE_CONTROL) & 1) != 0;
+  }
+
+  /**
+   * @return true when bit 7 of the text attributes makes characters blink instead of selecting bright backgrounds
+   */
+  public boolean isBlinkEnabled() {
+    return (get(MODE_CONTROL) & 0b1000) != 0;
+  }
+
+  /**
+   * @return true when 2 dots form one 256 colors pixel, as in mode 0x13
+   */
+  public boolean isEightBitColor() {
+    return (get(MODE_CONTROL) & 0b100_0000) != 0;
+  }
+
+  public int getColorPlaneEnable() {
+    return get(COLOR_PLANE_ENABLE) & 0xF;
+  }
+
+  /**
+   * Fills dacIndexes with the DAC index of each of the 16 colors, taking into account the planes disabled.
+   */
+  public void getDacIndexes(byte[] dacIndexes) {
+    int colorSelect = get(COLOR_SELECT);
+    int colorPlaneEnable = getColorPlaneEnable();
+    boolean colorSelectForBits54 = (get(MODE_CONTROL) & 0b1000_0000) != 0;
+    for (int color = 0; color < dacIndexes.length; color++) {
+      int index = get(color & colorPlaneEnable) & 0b11_1111;
+      if (colorSelectForBits54) {
+        index = (index & 0xF) | (colorSelect & 0b11) << 4;
+      }
+      dacIndexes[color] = (byte)(index | (colorSelect & 0b1100) << 4);
+    }
+  }
+
+  @Override
+  public void saveState(DataOutput output) throws IOException {
+    super.saveState(output);
+    output.writeBoolean(dataExpected);
+  }
+
+  @Override
+  public void restoreState(DataInput input) throws IOException {
+    super.restoreState(input);
+    dataExpected = input.readBoolean();
+  }
+}
@@ -0,0 +1,96 @@
+package spice86.emulator.devices.video;
+
+/**
+ * VGA CRT controller registers, they define what part of the video memory is displayed and how. See
+ * http://www.osdever.net/FreeVGA/vga/crtcreg.htm<br/>
+ * Addresses returned are offsets in the planes, or in the linear memory for modes where the CPU sees the memory
+ * linearly (mode 0x13, text).
+ */
+class CrtController extends IndexedRegisters {
+  public static final int HORIZONTAL_DISPLAY_END = 0x01;
+  public static final int OVERFLOW = 0x07;
+  public static final int MAXIMUM_SCAN_LINE = 0x09;
+  public static final int CURSOR_START = 0x0A;
+  public static final int CURSOR_END = 0x0B;
+  public static final int START_ADDRESS_HIGH = 0x0C;
+  public static final int START_ADDRESS_LOW = 0x0D;
+  public static final int CURSOR_LOCATION_HIGH = 0x0E;
+  public static final int CURSOR_LOCATION_LOW = 0x0F;
+  public static final int VERTICAL_DISPLAY_END = 0x12;
+  public static final int OFFSET = 0x13;
+  public static final int UNDERLINE_LOCATION = 0x14;
+  public static final int MODE_CONTROL = 0x17;
+
+  CrtController() {
+    super(0x19);
+  }
+
+  /**
+   * @return log2 of the number of bytes per address unit: 0 in byte mode, 1 in word mode, 2 in double word mode
+   */
+  private int getAddressShift() {
+    if ((get(UNDERLINE_LOCATION) & 0b100_0000) != 0) {
+      return 2;
+    }
+    if ((get(MODE_CONTROL) & 0b100_0000) == 0) {
+      return 1;
+    }
+    return 0;
+  }
+
+  /**
+   * @return number of character clocks displayed per line, that is 8 dots each
+   */
+  public int getCharacterClocksPerLine() {
+    return get(HORIZONTAL_DISPLAY_END) + 1;
+  }
+
+  public int getDisplayedScanLines() {
+    int overflow = get(OVERFLOW);
+    return (get(VERTICAL_DISPLAY_END) | (overflow & 0b10) << 7 | (overflow & 0b100_0000) << 3) + 1;
+  }
+
+  /**
+   * @return number of scan lines of a character row in text modes, of a pixel row in graphic modes
+   */
+  public int getScanLinesPerRow() {
+    return (get(MAXIMUM_SCAN_LINE) & 0b1_1111) + 1;
+  }
+
+  public boolean isDoubleScan() {
+    return (get(MAXIMUM_SCAN_LINE) & 0b1000_0000) != 0;
+  }
+
+  public int getStartAddress() {
+    return (get(START_ADDRESS_HIGH) << 8 | get(START_ADDRESS_LOW)) << getAddressShift();
+  }
+
+  /**
+   * @return number of bytes between the starts of 2 displayed rows
+   */
+  public int getRowLength() {
+    return get(OFFSET) * 2 << getAddressShift();
+  }
+
+  public int getCursorAddress() {
+    return (get(CURSOR_LOCATION_HIGH) << 8 | get(CURSOR_LOCATION_LOW)) << getAddressShift();
+  }
+
+  public void setCursorAddress(int address) {
+    int location = address >>> getAddressShift();
+    set(CURSOR_LOCATION_HIGH, location >>> 8);
+    set(CURSOR_LOCATION_LOW, location);
+  }
+
+  public boolean isCursorEnabled() {
+    return (get(CURSOR_START) & 0b10_0000) == 0;
+  }
+
+  public int getCursorStart() {
+    return get(CURSOR_START) & 0b1_1111;
+  }
+
+  public int getCursorEnd() {
+    return get(CURSOR_END) & 0b1_1111;
+  }
+}
@@ -0,0 +1,81 @@
+package spice86.emulator.devices.video;
+
+/**
+ * VGA graphics controller registers, they define how the CPU accesses the planes. See
+ * http://www.osdever.net/FreeVGA/vga/graphreg.htm
+ */
+class GraphicsController extends IndexedRegisters {
+  public static final int SET_RESET = 0x00;
+  public static final int ENABLE_SET_RESET = 0x01;
+  public static final int COLOR_COMPARE = 0x02;
+  public static final int DATA_ROTATE = 0x03;
+  public static final int READ_MAP_SELECT = 0x04;
+  public static final int GRAPHICS_MODE = 0x05;
+  public static final int MISCELLANEOUS = 0x06;
+  public static final int COLOR_DONT_CARE = 0x07;
+  public static final int BIT_MASK = 0x08;
+
+  GraphicsController() {
+    super(9);
+  }
+
+  public int getSetReset() {
+    return get(SET_RESET) & 0xF;
+  }
+
+  public int getEnableSetReset() {
+    return get(ENABLE_SET_RESET) & 0xF;
+  }
+
+  public int getColorCompare() {
+    return get(COLOR_COMPARE) & 0xF;
+  }
+
+  public int getRotateCount() {
+    return get(DATA_ROTATE) & 0b111;
+  }
+
+  /**
+   * @return 0 to replace, 1 for AND, 2 for OR and 3 for XOR with the latches
+   */
+  public int getLogicalOperation() {
+    return (get(DATA_ROTATE) >>> 3) & 0b11;
+  }
+
+  public int getReadMapSelect() {
+    return get(READ_MAP_SELECT) & 0b11;
+  }
+
+  public int getWriteMode() {
+    return get(GRAPHICS_MODE) & 0b11;
+  }
+
+  /**
+   * @return true when reads return the result of the color comparison instead of the content of a plane
+   */
+  public boolean isReadMode1() {
+    return (get(GRAPHICS_MODE) & 0b1000) != 0;
+  }
+
+  /**
+   * @return true when 4 planes form 256 colors pixels instead of 16 colors ones
+   */
+  public boolean is256ColorShift() {
+    return (get(GRAPHICS_MODE) & 0b100_0000) != 0;
+  }
+
+  /**
+   * @return true in graphic modes, false in text modes
+   */
+  public boolean isGraphicsMode() {
+    return (get(MISCELLANEOUS) & 1) != 0;
+  }
+
+  public int getColorDontCare() {
+    return get(COLOR_DONT_CARE) & 0xF;
+  }
+
+  public int getBitMask() {
+    return get(BIT_MASK);
+  }
+}
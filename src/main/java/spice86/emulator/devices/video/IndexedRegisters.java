@@ -0,0 +1,81 @@
+package spice86.emulator.devices.video;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+import spice86.emulator.savestate.Savable;
+
+/**
+ * Group of VGA registers accessed through an address port selecting the register and a data port.
+ */
+class IndexedRegisters implements Savable {
+  private final int[] registers;
+  private int index;
+
+  IndexedRegisters(int numberOfRegisters) {
+    this.registers = new int[numberOfRegisters];
+  }
+
+  public int getIndex() {
+    return index;
+  }
+
+  public void setIndex(int index) {
+    this.index = index;
+  }
+
+  /**
+   * @return true if the selected register exists
+   */
+  public boolean isIndexValid() {
+    return index < registers.length;
+  }
+
+  /**
+   * @return value of the selected register, 0 if it does not exist
+   */
+  public int read() {
+    return isIndexValid() ? registers[index] : 0;
+  }
+
+  /**
+   * Writes to the selected register, ignored if it does not exist
+   */
+  public void write(int value) {
+    if (isIndexValid()) {
+      registers[index] = value & 0xFF;
+    }
+  }
+
+  public int get(int register) {
+    return registers[register];
+  }
+
+  public void set(int register, int value) {
+    registers[register] = value & 0xFF;
+  }
+
+  /**
+   * Sets all the registers, as done by the BIOS when setting a video mode
+   */
+  public void load(int[] values) {
+    System.arraycopy(values, 0, registers, 0, registers.length);
+  }
+
+  @Override
+  public void saveState(DataOutput output) throws IOException {
+    output.writeByte(index);
+    for (int register : registers) {
+      output.writeByte(register);
+    }
+  }
+
+  @Override
+  public void restoreState(DataInput input) throws IOException {
+    index = input.readUnsignedByte();
+    for (int i = 0; i < registers.length; i++) {
+      registers[i] = input.readUnsignedByte();
+    }
+  }
+}
@@ -0,0 +1,52 @@
+package spice86.emulator.devices.video;
+
+import spice86.emulator.memory.DirtyPageTracker;
+import spice86.emulator.memory.MemoryBackend;
+
+/**
+ * Renders 256 colors modes with chain 4 enabled, like mode 0x13: each byte of the memory seen by the CPU is a pixel,
+ * lines are contiguous in the RAM.
+ */
+class LinearRenderer extends Renderer {
+  private static final int MEMORY_SIZE = 0x10000;
+
+  private final MemoryBackend memory;
+  private final int address;
+
+  /**
+   * @param address
+   *          physical address of the video memory
+   */
+  LinearRenderer(CrtController crtController, MemoryBackend memory, int address) {
+    super(crtController);
+    this.memory = memory;
+    this.address = address;
+  }
+
+  @Override
+  public void configure() {
+    super.configure();
+    configureGraphicSize(true);
+  }
+
+  @Override
+  protected boolean render(byte[] frame, int startAddress, DirtyPageTracker dirtyRegions) {
+    boolean rendered = false;
+    for (int y = 0; y < height; y++) {
+      int lineOffset = (startAddress + y * rowLength) & (MEMORY_SIZE - 1);
+      if (!isDirty(dirtyRegions, address, lineOffset, width, MEMORY_SIZE)) {
+        continue;
+      }
+      rendered = true;
+      markRendered(y, y + 1);
+      if (lineOffset + width <= MEMORY_SIZE) {
+        memory.read(address + lineOffset, frame, y * width, width);
+      } else {
+        for (int x = 0; x < width; x++) {
+          frame[y * width + x] = (byte)memory.getUint8(address + ((lineOffset + x) & (MEMORY_SIZE - 1)));
+        }
+      }
+    }
+    return rendered;
+  }
+}
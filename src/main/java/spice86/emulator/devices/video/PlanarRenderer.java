@@ -0,0 +1,63 @@
+package spice86.emulator.devices.video;
+
+import spice86.emulator.memory.DirtyPageTracker;
+
+/**
+ * Renders 16 colors modes like 0x0D and 0x12: each plane holds one bit of the color of 8 consecutive pixels, the
+ * attribute controller translates the 4 bits to a DAC index.
+ */
+class PlanarRenderer extends Renderer {
+  private static final int PIXELS_PER_BYTE = 8;
+
+  private final VideoMemory videoMemory;
+  private final AttributeController attributeController;
+  private final byte[] dacIndexes = new byte[16];
+  // Color of each of the 8 pixels of a byte, for each value of a byte of a plane
+  private final int[][] planeBits = new int[256][PIXELS_PER_BYTE];
+
+  PlanarRenderer(CrtController crtController, VideoMemory videoMemory, AttributeController attributeController) {
+    super(crtController);
+    this.videoMemory = videoMemory;
+    this.attributeController = attributeController;
+    for (int value = 0; value < 256; value++) {
+      for (int bit = 0; bit < PIXELS_PER_BYTE; bit++) {
+        planeBits[value][bit] = (value >>> (PIXELS_PER_BYTE - 1 - bit)) & 1;
+      }
+    }
+  }
+
+  @Override
+  public void configure() {
+    super.configure();
+    configureGraphicSize(false);
+    attributeController.getDacIndexes(dacIndexes);
+  }
+
+  @Override
+  protected boolean render(byte[] frame, int startAddress, DirtyPageTracker dirtyRegions) {
+    byte[][] planes = videoMemory.getPlanes();
+    int bytesPerLine = width / PIXELS_PER_BYTE;
+    boolean rendered = false;
+    for (int y = 0; y < height; y++) {
+      int lineOffset = (startAddress + y * rowLength) & (VideoMemory.PLANE_SIZE - 1);
+      if (!isDirty(dirtyRegions, videoMemory.getBaseAddress(), lineOffset, bytesPerLine, VideoMemory.PLANE_SIZE)) {
+        continue;
+      }
+      rendered = true;
+      markRendered(y, y + 1);
+      int pixel = y * width;
+      for (int column = 0; column < bytesPerLine; column++) {
+        int offset = (lineOffset + column) & (VideoMemory.PLANE_SIZE - 1);
+        int[] plane0 = planeBits[planes[0][offset] & 0xFF];
+        int[] plane1 = planeBits[planes[1][offset] & 0xFF];
+        int[] plane2 = planeBits[planes[2][offset] & 0xFF];
+        int[] plane3 = planeBits[planes[3][offset] & 0xFF];
+        for (int bit = 0; bit < PIXELS_PER_BYTE; bit++) {
+          int color = plane0[bit] | plane1[bit] << 1 | plane2[bit] << 2 | plane3[bit] << 3;
+          frame[pixel++] = dacIndexes[color];
+        }
+      }
+    }
+    return rendered;
+  }
+}
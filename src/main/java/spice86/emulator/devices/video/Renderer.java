@@ -0,0 +1,111 @@
+package spice86.emulator.devices.video;
+
+import spice86.emulator.memory.DirtyPageTracker;
+
+/**
+ * Converts the video memory to a frame of DAC indexes, one byte per pixel.<br/>
+ * There is one implementation per way the VGA can fetch pixels from memory. The VGA card selects one when the
+ * registers change so that rendering a frame does not have to test the mode for each pixel.<br/>
+ * Only lines whose memory was written are rendered again, everything is rendered when the start address changes.
+ */
+abstract class Renderer {
+  protected final CrtController crtController;
+  protected int width;
+  protected int height;
+  // Number of bytes between the starts of 2 rows
+  protected int rowLength;
+  // Start address of the frame rendered last, -1 when the next frame has to be rendered completely
+  private int renderedStartAddress = -1;
+  // Lines of the frame modified by the last render, end is exclusive
+  private int firstRenderedLine;
+  private int endRenderedLine;
+
+  protected Renderer(CrtController crtController) {
+    this.crtController = crtController;
+  }
+
+  public int getWidth() {
+    return width;
+  }
+
+  public int getHeight() {
+    return height;
+  }
+
+  /**
+   * @return first line of the frame modified by the last render
+   */
+  public int getFirstRenderedLine() {
+    return firstRenderedLine;
+  }
+
+  /**
+   * @return line after the last one modified by the last render, lower or equal to the first one if nothing was
+   *         rendered
+   */
+  public int getEndRenderedLine() {
+    return endRenderedLine;
+  }
+
+  /**
+   * Reads the geometry of the display from the registers. Next frame will be rendered completely.
+   */
+  public void configure() {
+    rowLength = crtController.getRowLength();
+    renderedStartAddress = -1;
+  }
+
+  /**
+   * @param frame
+   *          array of width * height DAC indexes to render to, content of the previous frame
+   * @param dirtyRegions
+   *          memory written since the previous frame, null to render everything
+   * @return true if something was rendered
+   */
+  public boolean render(byte[] frame, DirtyPageTracker dirtyRegions) {
+    int startAddress = crtController.getStartAddress();
+    if (startAddress != renderedStartAddress) {
+      renderedStartAddress = startAddress;
+      dirtyRegions = null;
+    }
+    firstRenderedLine = height;
+    endRenderedLine = 0;
+    return render(frame, startAddress, dirtyRegions);
+  }
+
+  /**
+   * Implementations call markRendered for each part of the frame they modify.
+   */
+  protected abstract boolean render(byte[] frame, int startAddress, DirtyPageTracker dirtyRegions);
+
+  /**
+   * @param endLine
+   *          exclusive
+   */
+  protected void markRendered(int firstLine, int endLine) {
+    firstRenderedLine = Math.min(firstRenderedLine, firstLine);
+    endRenderedLine = Math.max(endRenderedLine, endLine);
+  }
+
+  /**
+   * @return true when a range of the video memory has to be rendered again. Ranges wrapping around the end of the
+   *         memory are considered modified.
+   */
+  protected static boolean isDirty(DirtyPageTracker dirtyRegions, int memoryAddress, int startOffset, int length,
+      int memorySize) {
+    if (dirtyRegions == null || startOffset + length > memorySize) {
+      return true;
+    }
+    return dirtyRegions.isDirty(memoryAddress + startOffset, memoryAddress + startOffset + length);
+  }
+
+  /**
+   * Size of graphic frames: pixels are 8 per character clock, 4 in 256 colors modes where 2 dots make a pixel. Scan
+   * lines are repeated for each pixel row.
+   */
+  protected void configureGraphicSize(boolean eightBitColor) {
+    width = crtController.getCharacterClocksPerLine() * (eightBitColor ? 4 : 8);
+    int scanLinesPerPixel = crtController.getScanLinesPerRow() * (crtController.isDoubleScan() ? 2 : 1);
+    height = crtController.getDisplayedScanLines() / scanLinesPerPixel;
+  }
+}
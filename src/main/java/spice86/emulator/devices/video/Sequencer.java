@@ -0,0 +1,27 @@
+package spice86.emulator.devices.video;
+
+/**
+ * VGA sequencer registers, see http://www.osdever.net/FreeVGA/vga/seqreg.htm
+ */
+class Sequencer extends IndexedRegisters {
+  public static final int MAP_MASK = 0x02;
+  public static final int MEMORY_MODE = 0x04;
+
+  Sequencer() {
+    super(5);
+  }
+
+  /**
+   * @return one bit per plane written by the CPU
+   */
+  public int getMapMask() {
+    return get(MAP_MASK) & 0xF;
+  }
+
+  /**
+   * @return true when the CPU sees the 4 planes as linear memory, like in mode 0x13. False in mode X.
+   */
+  public boolean isChain4() {
+    return (get(MEMORY_MODE) & 0b1000) != 0;
+  }
+}
@@ -0,0 +1,102 @@
+package spice86.emulator.devices.video;
+
+import spice86.emulator.memory.DirtyPageTracker;
+import spice86.emulator.memory.MemoryBackend;
+
+/**
+ * Renders text modes like mode 3: each character is a word in the RAM, the character code followed by its attribute
+ * (foreground color in the low nibble, background color in the high nibble). Glyphs come from the BIOS font and are 8
+ * dots wide.<br/>
+ * Blinking is not animated: with blinking enabled, bit 7 of the attribute is ignored and characters are always shown.
+ */
+class TextRenderer extends Renderer {
+  private static final int MEMORY_SIZE = 0x8000;
+  private static final int CHARACTER_WIDTH = 8;
+
+  private final MemoryBackend memory;
+  private final int address;
+  private final AttributeController attributeController;
+  private final VgaFont font;
+  private final byte[] dacIndexes = new byte[16];
+  private int columns;
+  private int rows;
+  private int characterHeight;
+  private int backgroundMask;
+  // Cursor as displayed in the frame rendered last, to render again the rows where it was and where it is now
+  private int renderedCursorAddress = -1;
+  private int renderedCursorShape = -1;
+
+  /**
+   * @param address
+   *          physical address of the text memory
+   */
+  TextRenderer(CrtController crtController, MemoryBackend memory, int address, AttributeController attributeController,
+      VgaFont font) {
+    super(crtController);
+    this.memory = memory;
+    this.address = address;
+    this.attributeController = attributeController;
+    this.font = font;
+  }
+
+  @Override
+  public void configure() {
+    super.configure();
+    columns = crtController.getCharacterClocksPerLine();
+    characterHeight = crtController.getScanLinesPerRow();
+    rows = crtController.getDisplayedScanLines() / characterHeight;
+    width = columns * CHARACTER_WIDTH;
+    height = rows * characterHeight;
+    backgroundMask = attributeController.isBlinkEnabled() ? 0b111 : 0b1111;
+    attributeController.getDacIndexes(dacIndexes);
+    renderedCursorAddress = -1;
+  }
+
+  @Override
+  protected boolean render(byte[] frame, int startAddress, DirtyPageTracker dirtyRegions) {
+    int cursorAddress = crtController.isCursorEnabled() ? crtController.getCursorAddress() : -1;
+    int cursorShape = crtController.getCursorStart() << 8 | crtController.getCursorEnd();
+    boolean cursorChanged = cursorAddress != renderedCursorAddress || cursorShape != renderedCursorShape;
+    int bytesPerRow = columns * 2;
+    boolean rendered = false;
+    for (int row = 0; row < rows; row++) {
+      int rowOffset = (startAddress + row * rowLength) & (MEMORY_SIZE - 1);
+      boolean cursorInRow = isInRow(cursorAddress, rowOffset, bytesPerRow);
+      if (!isDirty(dirtyRegions, address, rowOffset, bytesPerRow, MEMORY_SIZE)
+          && !(cursorChanged && (cursorInRow || isInRow(renderedCursorAddress, rowOffset, bytesPerRow)))) {
+        continue;
+      }
+      rendered = true;
+      markRendered(row * characterHeight, (row + 1) * characterHeight);
+      for (int column = 0; column < columns; column++) {
+        int offset = (rowOffset + column * 2) & (MEMORY_SIZE - 1);
+        renderCharacter(frame, row, column, offset, cursorInRow && offset == cursorAddress);
+      }
+    }
+    renderedCursorAddress = cursorAddress;
+    renderedCursorShape = cursorShape;
+    return rendered;
+  }
+
+  private static boolean isInRow(int cursorAddress, int rowOffset, int bytesPerRow) {
+    return cursorAddress >= rowOffset && cursorAddress < rowOffset + bytesPerRow;
+  }
+
+  private void renderCharacter(byte[] frame, int row, int column, int offset, boolean cursor) {
+    int character = memory.getUint8(address + offset);
+    int attribute = memory.getUint8(address + offset + 1);
+    byte foreground = dacIndexes[attribute & 0xF];
+    byte background = dacIndexes[(attribute >>> 4) & backgroundMask];
+    int pixel = row * characterHeight * width + column * CHARACTER_WIDTH;
+    for (int scanLine = 0; scanLine < characterHeight; scanLine++) {
+      int glyphRow = font.getRow(character, scanLine);
+      if (cursor && scanLine >= crtController.getCursorStart() && scanLine <= crtController.getCursorEnd()) {
+        glyphRow = 0xFF;
+      }
+      for (int x = 0; x < CHARACTER_WIDTH; x++) {
+        frame[pixel + x] = (glyphRow & (0x80 >>> x)) != 0 ? foreground : background;
+      }
+      pixel += width;
+    }
+  }
+}
@@ -0,0 +1,45 @@
+package spice86.emulator.devices.video;
+
+import spice86.emulator.memory.DirtyPageTracker;
+
+/**
+ * Renders 256 colors modes with chain 4 disabled, known as mode X: pixel x of a line is in plane x % 4, 4 consecutive
+ * pixels share the same offset in the planes.
+ */
+class UnchainedRenderer extends Renderer {
+  private final VideoMemory videoMemory;
+
+  UnchainedRenderer(CrtController crtController, VideoMemory videoMemory) {
+    super(crtController);
+    this.videoMemory = videoMemory;
+  }
+
+  @Override
+  public void configure() {
+    super.configure();
+    configureGraphicSize(true);
+  }
+
+  @Override
+  protected boolean render(byte[] frame, int startAddress, DirtyPageTracker dirtyRegions) {
+    byte[][] planes = videoMemory.getPlanes();
+    int bytesPerLine = width / VideoMemory.NUMBER_OF_PLANES;
+    boolean rendered = false;
+    for (int y = 0; y < height; y++) {
+      int lineOffset = (startAddress + y * rowLength) & (VideoMemory.PLANE_SIZE - 1);
+      if (!isDirty(dirtyRegions, videoMemory.getBaseAddress(), lineOffset, bytesPerLine, VideoMemory.PLANE_SIZE)) {
+        continue;
+      }
+      rendered = true;
+      markRendered(y, y + 1);
+      int pixel = y * width;
+      for (int column = 0; column < bytesPerLine; column++) {
+        int offset = (lineOffset + column) & (VideoMemory.PLANE_SIZE - 1);
+        for (int plane = 0; plane < VideoMemory.NUMBER_OF_PLANES; plane++) {
+          frame[pixel++] = planes[plane][offset];
+        }
+      }
+    }
+    return rendered;
+  }
+}
@@ -1,36 +1,88 @@
 package spice86.emulator.devices.video;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import spice86.emulator.devices.video.capture.FrameSink;
 import spice86.emulator.errors.InvalidOperationException;
 import spice86.emulator.ioports.DefaultIOPortHandler;
 import spice86.emulator.ioports.IOPortDispatcher;
 import spice86.emulator.machine.Machine;
+import spice86.emulator.memory.DirtyPageTracker;
 import spice86.emulator.memory.MemoryMap;
 import spice86.emulator.memory.MemoryUtils;
+import spice86.emulator.savestate.Savable;
 import spice86.ui.Gui;
 
 /**
- * Implementation of VGA card, currently only supports mode 0x13.<br/>
+ * Implementation of VGA card. Supports text mode 0x03, 16 colors modes 0x0D and 0x12, 256 colors mode 0x13 and its
+ * unchained variant (mode X).<br/>
+ * In mode 0x13 and in text mode the CPU accesses the RAM directly. In the other modes the planes are mapped at
+ * 0xA0000 and accesses go through the graphics controller.<br/>
+ * A renderer converting the memory to a frame is selected when the registers change, frames are rendered at each
+ * screen update. Line compare, panning and the 9th dot of text characters are not emulated.
  */
-public class VgaCard extends DefaultIOPortHandler {
+public class VgaCard extends DefaultIOPortHandler implements Savable {
   private static final Logger LOGGER = LoggerFactory.getLogger(VgaCard.class);
 
   public static final int CRT_IO_PORT = 0x03D4;
   // http://www.osdever.net/FreeVGA/vga/extreg.htm#3xAR
+  public static final int ATTRIBUTE_ADDRESS_DATA_PORT = 0x03C0;
+  public static final int ATTRIBUTE_DATA_READ_PORT = 0x03C1;
+  public static final int MISCELLANEOUS_OUTPUT_WRITE_PORT = 0x03C2;
   public static final int VGA_SEQUENCER_ADDRESS_REGISTER_PORT = 0x03C4;
   public static final int VGA_SEQUENCER_DATA_REGISTER_PORT = 0x03C5;
   public static final int VGA_READ_INDEX_PORT = 0x03C7;
   public static final int VGA_WRITE_INDEX_PORT = 0x03C8;
   public static final int VGA_RGB_DATA_PORT = 0x3C9;
+  public static final int MISCELLANEOUS_OUTPUT_READ_PORT = 0x03CC;
   public static final int GRAPHICS_ADDRESS_REGISTER_PORT = 0x3CE;
+  public static final int GRAPHICS_DATA_REGISTER_PORT = 0x3CF;
+  public static final int CRT_CONTROLLER_ADDRESS_REGISTER_PORT = CRT_IO_PORT;
+  public static final int CRT_CONTROLLER_DATA_REGISTER_PORT = 0x03D5;
   public static final int VGA_STATUS_REGISTER_PORT = 0x03DA;
 
+  public static final int MODE_80_25_TEXT = 0x03;
+  public static final int MODE_320_200_16 = 0x0D;
+  public static final int MODE_640_480_16 = 0x12;
   public static final int MODE_320_200_256 = 0x13;
+  // Video memory is watched by blocks of 256 bytes, a bit less than a line in mode 0x13
+  private static final int DIRTY_REGION_SHIFT = 8;
+  private static final int GRAPHIC_MEMORY_ADDRESS =
+      MemoryUtils.toPhysicalAddress(MemoryMap.GRAPHIC_VIDEO_MEMORY_SEGMENT, 0);
+  private static final int TEXT_MEMORY_ADDRESS =
+      MemoryUtils.toPhysicalAddress(MemoryMap.COLOR_TEXT_VIDEO_MEMORY_SEGMENT, 0);
+  private static final int TEXT_MEMORY_SIZE = 0x8000;
 
   private Gui gui;
+  private FrameSink frameSink;
   private VgaDac vgaDac;
+  private final Sequencer sequencer = new Sequencer();
+  private final GraphicsController graphicsController = new GraphicsController();
+  private final CrtController crtController = new CrtController();
+  private final AttributeController attributeController = new AttributeController();
+  private int miscellaneousOutput;
+  private final VideoMemory videoMemory;
+  // True when the CPU accesses the planes instead of the RAM
+  private boolean planesMapped;
+  private final LinearRenderer linearRenderer;
+  private final UnchainedRenderer unchainedRenderer;
+  private final PlanarRenderer planarRenderer;
+  private final TextRenderer textRenderer;
+  private Renderer renderer;
+  // True when registers defining how the memory is displayed changed since the renderer was selected
+  private boolean rendererOutdated = true;
+  // Mode set by the BIOS, null when the mode is not supported
+  private VideoMode videoMode;
+  // Memory written since the last screen update, null when there is no screen to update
+  private DirtyPageTracker dirtyRegions;
+  // True when the sink has to receive the next frame even if the video memory did not change
+  private boolean frameSinkOutdated;
+  private byte[] frame = new byte[0];
   private byte crtStatusRegister;
   private boolean drawing = false;
 
@@ -38,12 +90,36 @@ public class VgaCard extends DefaultIOPortHandler {
     super(machine, failOnUnhandledPort);
     this.gui = gui;
     this.vgaDac = new VgaDac(machine);
+    this.videoMemory = new VideoMemory(sequencer, graphicsController, GRAPHIC_MEMORY_ADDRESS);
+    this.linearRenderer = new LinearRenderer(crtController, memory.getBackend(), GRAPHIC_MEMORY_ADDRESS);
+    this.unchainedRenderer = new UnchainedRenderer(crtController, videoMemory);
+    this.planarRenderer = new PlanarRenderer(crtController, videoMemory, attributeController);
+    this.textRenderer =
+        new TextRenderer(crtController, memory.getBackend(), TEXT_MEMORY_ADDRESS, attributeController, new VgaFont());
+    if (gui != null) {
+      // Whole memory is watched since additional video buffers can display any address
+      this.dirtyRegions = memory.trackDirtyPages(DIRTY_REGION_SHIFT);
+    }
   }
 
   public VgaDac getVgaDac() {
     return vgaDac;
   }
 
+  /**
+   * Sets where to send the frames, in addition to the gui if there is one.
+   *
+   * @param frameSink
+   *          null to stop sending frames
+   */
+  public void setFrameSink(FrameSink frameSink) {
+    this.frameSink = frameSink;
+    this.frameSinkOutdated = true;
+    if (frameSink != null && dirtyRegions == null) {
+      dirtyRegions = memory.trackDirtyPages(DIRTY_REGION_SHIFT);
+    }
+  }
+
   /**
    * @return true when in retrace
    */
@@ -70,6 +146,8 @@ public class VgaCard extends DefaultIOPortHandler {
 
   public int getStatusRegisterPort() {
     LOGGER.info("CHECKING RETRACE");
+    // Reading the status register makes the next write to the attribute controller an index
+    attributeController.resetFlipFlop();
     tickRetrace();
     return crtStatusRegister;
   }
@@ -103,9 +181,98 @@ public class VgaCard extends DefaultIOPortHandler {
     vgaDac.writeColor(VgaDac.from6bitColorTo8bit(value));
   }
 
-  public void updateScreen() {
+  /**
+   * Renders what changed since the last update and sends it to the gui and to the frame sink.<br/>
+   * Synchronized because GDB can request a refresh from its own thread while the emulator draws.
+   */
+  public synchronized void updateScreen() {
+    if (dirtyRegions == null) {
+      return;
+    }
+    // Frames have to be sent again with the new palette even if their memory did not change
+    boolean paletteModified = vgaDac.isPaletteModified();
+    boolean fullRender = rendererOutdated;
+    if (rendererOutdated) {
+      selectRenderer();
+    }
+    int width = renderer.getWidth();
+    int height = renderer.getHeight();
+    if (width > 0 && height > 0) {
+      boolean rendered = renderer.render(frame, fullRender ? null : dirtyRegions);
+      if (paletteModified && gui != null) {
+        gui.drawScreen(frame, 0, height, vgaDac.getArgbs());
+      } else if (rendered && gui != null) {
+        gui.drawScreen(frame, renderer.getFirstRenderedLine(), renderer.getEndRenderedLine(), vgaDac.getArgbs());
+      }
+      if (frameSink != null && (rendered || paletteModified || frameSinkOutdated)) {
+        frameSink.submitFrame(frame, width, height, vgaDac.getArgbs());
+        frameSinkOutdated = false;
+      }
+    }
     if (gui != null) {
-      gui.draw(memory.getRam(), vgaDac.getRgbs());
+      gui.draw(memory.getBackend(), vgaDac.getArgbs(), paletteModified ? null : dirtyRegions);
+    }
+    vgaDac.setPaletteModified(false);
+    dirtyRegions.clear();
+  }
+
+  /**
+   * Renders and displays everything again, even what did not change.
+   */
+  public synchronized void refreshScreen() {
+    rendererOutdated = true;
+    vgaDac.setPaletteModified(true);
+    updateScreen();
+  }
+
+  private void selectRenderer() {
+    if (!attributeController.isGraphicsMode()) {
+      renderer = textRenderer;
+    } else if (graphicsController.is256ColorShift()) {
+      renderer = sequencer.isChain4() ? linearRenderer : unchainedRenderer;
+    } else {
+      renderer = planarRenderer;
+    }
+    renderer.configure();
+    rendererOutdated = false;
+    int width = renderer.getWidth();
+    int height = renderer.getHeight();
+    if (width <= 0 || height <= 0) {
+      // Registers are being reprogrammed
+      return;
+    }
+    if (frame.length != width * height) {
+      frame = new byte[width * height];
+    }
+    frameSinkOutdated = true;
+    if (gui != null && (gui.getWidth() != width || gui.getHeight() != height)) {
+      int address = renderer == textRenderer ? TEXT_MEMORY_ADDRESS : GRAPHIC_MEMORY_ADDRESS;
+      gui.setResolution(width, height, address);
+    }
+  }
+
+  /**
+   * Maps the planes at 0xA0000 when the CPU has to access them through the graphics controller.
+   *
+   * @param convertMemory
+   *          true to convert what the CPU wrote when going from chain 4 to mode X and back
+   */
+  private void updateMemoryMapping(boolean convertMemory) {
+    boolean planes = graphicsController.isGraphicsMode() && !sequencer.isChain4();
+    if (planes == planesMapped) {
+      return;
+    }
+    planesMapped = planes;
+    if (planes) {
+      if (convertMemory) {
+        videoMemory.loadFromLinear(memory.getData(GRAPHIC_MEMORY_ADDRESS, VideoMemory.PLANE_SIZE));
+      }
+      memory.mapDevice(videoMemory, GRAPHIC_MEMORY_ADDRESS, GRAPHIC_MEMORY_ADDRESS + VideoMemory.PLANE_SIZE);
+    } else {
+      memory.unmapDevice(videoMemory);
+      if (convertMemory) {
+        memory.loadData(GRAPHIC_MEMORY_ADDRESS, videoMemory.toLinear());
+      }
     }
   }
 
@@ -120,65 +287,248 @@ public class VgaCard extends DefaultIOPortHandler {
     }
   }
   public void setBlockOfDacColorRegisters(int firstRegister, int numberOfColors, int colorValuesAddress) {
-    Rgb[] rgbs = vgaDac.getRgbs();
     for (int i = 0; i < numberOfColors; i++) {
       int registerToSet = firstRegister + i;
-      Rgb rgb = rgbs[registerToSet];
-      rgb.setR(VgaDac.from6bitColorTo8bit(memory.getUint8(colorValuesAddress++)));
-      rgb.setG(VgaDac.from6bitColorTo8bit(memory.getUint8(colorValuesAddress++)));
-      rgb.setB(VgaDac.from6bitColorTo8bit(memory.getUint8(colorValuesAddress++)));
+      int r = VgaDac.from6bitColorTo8bit(memory.getUint8(colorValuesAddress++));
+      int g = VgaDac.from6bitColorTo8bit(memory.getUint8(colorValuesAddress++));
+      int b = VgaDac.from6bitColorTo8bit(memory.getUint8(colorValuesAddress++));
+      vgaDac.setColor(registerToSet, r, g, b);
     }
   }
 
-  public void setVideoModeValue(int mode) {
-    if (mode == MODE_320_200_256) {
-      int videoHeight = 200;
-      int videoWidth = 320;
-      if (gui != null) {
-        gui.setResolution(videoWidth, videoHeight, MemoryUtils.toPhysicalAddress(MemoryMap.GRAPHIC_VIDEO_MEMORY_SEGMENT, 0));
-      }
-    } else {
+  /**
+   * Programs the registers like the BIOS does for the given mode.
+   *
+   * @param mode
+   *          mode number, memory is not cleared when bit 7 is set
+   * @return false if the mode is not supported, nothing is changed in this case
+   */
+  public boolean setVideoModeValue(int mode) {
+    VideoMode newVideoMode = VideoMode.fromNumber(mode & 0x7F);
+    if (newVideoMode == null) {
       LOGGER.error("UNSUPPORTED VIDEO MODE {}", mode);
+      return false;
+    }
+    videoMode = newVideoMode;
+    miscellaneousOutput = videoMode.getMiscellaneousOutput();
+    sequencer.load(videoMode.getSequencerRegisters());
+    crtController.load(videoMode.getCrtControllerRegisters());
+    graphicsController.load(videoMode.getGraphicsControllerRegisters());
+    attributeController.load(videoMode.getAttributeControllerRegisters());
+    attributeController.resetFlipFlop();
+    updateMemoryMapping(false);
+    if (videoMode.isSixteenColors()) {
+      loadEgaPalette();
+    }
+    if ((mode & 0x80) == 0) {
+      clearMemory();
+    }
+    rendererOutdated = true;
+    return true;
+  }
+
+  /**
+   * Loads the first 64 DAC entries with the colors of the EGA, 2 bits per component.
+   */
+  private void loadEgaPalette() {
+    for (int color = 0; color < 64; color++) {
+      int r = 0xAA * (color >>> 2 & 1) + 0x55 * (color >>> 5 & 1);
+      int g = 0xAA * (color >>> 1 & 1) + 0x55 * (color >>> 4 & 1);
+      int b = 0xAA * (color & 1) + 0x55 * (color >>> 3 & 1);
+      vgaDac.setColor(color, r, g, b);
+    }
+  }
+
+  private void clearMemory() {
+    if (videoMode.isText()) {
+      // Spaces in light gray on black
+      memory.memset16(TEXT_MEMORY_ADDRESS, 0x0720, TEXT_MEMORY_SIZE / 2);
+    } else if (planesMapped) {
+      videoMemory.clear();
+    } else {
+      memory.memset(GRAPHIC_MEMORY_ADDRESS, 0, VideoMemory.PLANE_SIZE);
     }
   }
 
+  /**
+   * @return true if the mode set by the BIOS is a text mode
+   */
+  public boolean isTextMode() {
+    return videoMode != null && videoMode.isText();
+  }
+
+  /**
+   * @return number of text columns of the mode set by the BIOS
+   */
+  public int getColumns() {
+    return videoMode == null ? 0 : videoMode.getColumns();
+  }
+
+  /**
+   * @return number of text rows of the mode set by the BIOS
+   */
+  public int getRows() {
+    return videoMode == null ? 0 : videoMode.getRows();
+  }
+
+  public int getCharacterHeight() {
+    return videoMode == null ? 0 : videoMode.getCharacterHeight();
+  }
+
+  /**
+   * @param address
+   *          offset in the text memory of the character under the cursor
+   */
+  public void setCursorAddress(int address) {
+    crtController.setCursorAddress(address);
+  }
+
+  /**
+   * @param start
+   *          first scan line of the cursor, cursor is hidden when bit 5 is set
+   * @param end
+   *          last scan line of the cursor
+   */
+  public void setCursorShape(int start, int end) {
+    crtController.set(CrtController.CURSOR_START, start & 0b11_1111);
+    crtController.set(CrtController.CURSOR_END, end & 0b1_1111);
+  }
+
   @Override
   public void initPortHandlers(IOPortDispatcher ioPortDispatcher) {
+    ioPortDispatcher.addIOPortHandler(ATTRIBUTE_ADDRESS_DATA_PORT, this);
+    ioPortDispatcher.addIOPortHandler(ATTRIBUTE_DATA_READ_PORT, this);
+    ioPortDispatcher.addIOPortHandler(MISCELLANEOUS_OUTPUT_WRITE_PORT, this);
     ioPortDispatcher.addIOPortHandler(VGA_SEQUENCER_ADDRESS_REGISTER_PORT, this);
     ioPortDispatcher.addIOPortHandler(VGA_SEQUENCER_DATA_REGISTER_PORT, this);
     ioPortDispatcher.addIOPortHandler(VGA_READ_INDEX_PORT, this);
     ioPortDispatcher.addIOPortHandler(VGA_WRITE_INDEX_PORT, this);
     ioPortDispatcher.addIOPortHandler(VGA_RGB_DATA_PORT, this);
+    ioPortDispatcher.addIOPortHandler(MISCELLANEOUS_OUTPUT_READ_PORT, this);
     ioPortDispatcher.addIOPortHandler(GRAPHICS_ADDRESS_REGISTER_PORT, this);
+    ioPortDispatcher.addIOPortHandler(GRAPHICS_DATA_REGISTER_PORT, this);
+    ioPortDispatcher.addIOPortHandler(CRT_CONTROLLER_ADDRESS_REGISTER_PORT, this);
+    ioPortDispatcher.addIOPortHandler(CRT_CONTROLLER_DATA_REGISTER_PORT, this);
     ioPortDispatcher.addIOPortHandler(VGA_STATUS_REGISTER_PORT, this);
   }
 
   @Override
   public int inb(int port) throws InvalidOperationException {
-    if (port == VGA_READ_INDEX_PORT) {
-      return getVgaReadIndex();
-    } else if (port == VGA_STATUS_REGISTER_PORT) {
-      return getStatusRegisterPort();
-    } else if (port == VGA_RGB_DATA_PORT) {
-      return rgbDataRead();
-    }
-    return super.inb(port);
+    return switch (port) {
+      case ATTRIBUTE_ADDRESS_DATA_PORT -> attributeController.getIndex();
+      case ATTRIBUTE_DATA_READ_PORT -> attributeController.read();
+      case MISCELLANEOUS_OUTPUT_READ_PORT -> miscellaneousOutput;
+      case VGA_SEQUENCER_ADDRESS_REGISTER_PORT -> sequencer.getIndex();
+      case VGA_SEQUENCER_DATA_REGISTER_PORT -> sequencer.read();
+      case GRAPHICS_ADDRESS_REGISTER_PORT -> graphicsController.getIndex();
+      case GRAPHICS_DATA_REGISTER_PORT -> graphicsController.read();
+      case CRT_CONTROLLER_ADDRESS_REGISTER_PORT -> crtController.getIndex();
+      case CRT_CONTROLLER_DATA_REGISTER_PORT -> crtController.read();
+      case VGA_READ_INDEX_PORT -> getVgaReadIndex();
+      case VGA_STATUS_REGISTER_PORT -> getStatusRegisterPort();
+      case VGA_RGB_DATA_PORT -> rgbDataRead();
+      default -> super.inb(port);
+    };
   }
 
   @Override
   public void outb(int port, int value) throws InvalidOperationException {
-    if (port == VGA_READ_INDEX_PORT) {
-      setVgaReadIndex(value);
-    } else if (port == VGA_WRITE_INDEX_PORT) {
-      setVgaWriteIndex(value);
-    } else if (port == VGA_RGB_DATA_PORT) {
-      rgbDataWrite(value);
-    } else if (port == VGA_STATUS_REGISTER_PORT) {
-      boolean vsync = (value & 0b100) != 1;
-      LOGGER.info("Vsync value set to {} (this is not implemented)", vsync);
+    switch (port) {
+      case ATTRIBUTE_ADDRESS_DATA_PORT -> {
+        if (attributeController.writeAddressOrData(value)) {
+          // Palette or mode changed
+          rendererOutdated = true;
+        }
+      }
+      case MISCELLANEOUS_OUTPUT_WRITE_PORT -> miscellaneousOutput = value;
+      case VGA_SEQUENCER_ADDRESS_REGISTER_PORT -> sequencer.setIndex(value);
+      case VGA_SEQUENCER_DATA_REGISTER_PORT -> writeSequencer(value);
+      case GRAPHICS_ADDRESS_REGISTER_PORT -> graphicsController.setIndex(value);
+      case GRAPHICS_DATA_REGISTER_PORT -> writeGraphicsController(value);
+      case CRT_CONTROLLER_ADDRESS_REGISTER_PORT -> crtController.setIndex(value);
+      case CRT_CONTROLLER_DATA_REGISTER_PORT -> writeCrtController(value);
+      case VGA_READ_INDEX_PORT -> setVgaReadIndex(value);
+      case VGA_WRITE_INDEX_PORT -> setVgaWriteIndex(value);
+      case VGA_RGB_DATA_PORT -> rgbDataWrite(value);
+      case VGA_STATUS_REGISTER_PORT -> {
+        boolean vsync = (value & 0b100) != 1;
+        LOGGER.info("Vsync value set to {} (this is not implemented)", vsync);
+      }
+      default -> super.outb(port, value);
+    }
+  }
+
+  /**
+   * Programs often write the index and the data of a register with one word access to the address port.
+   */
+  @Override
+  public void outw(int port, int value) throws InvalidOperationException {
+    if (port == VGA_SEQUENCER_ADDRESS_REGISTER_PORT || port == GRAPHICS_ADDRESS_REGISTER_PORT
+        || port == CRT_CONTROLLER_ADDRESS_REGISTER_PORT) {
+      outb(port, value & 0xFF);
+      outb(port + 1, value >>> 8);
     } else {
-      super.outb(port, value);
+      super.outw(port, value);
+    }
+  }
+
+  private void writeSequencer(int value) {
+    int previous = sequencer.read();
+    sequencer.write(value);
+    if (sequencer.getIndex() == Sequencer.MEMORY_MODE && previous != sequencer.read()) {
+      updateMemoryMapping(true);
+      rendererOutdated = true;
     }
   }
 
+  private void writeGraphicsController(int value) {
+    int index = graphicsController.getIndex();
+    boolean graphicsMode = graphicsController.isGraphicsMode();
+    boolean colorShift = graphicsController.is256ColorShift();
+    graphicsController.write(value);
+    if (index == GraphicsController.MISCELLANEOUS && graphicsMode != graphicsController.isGraphicsMode()) {
+      updateMemoryMapping(false);
+    }
+    // Write modes and bit masks change often while drawing and do not need a new renderer
+    if (index == GraphicsController.GRAPHICS_MODE && colorShift != graphicsController.is256ColorShift()) {
+      rendererOutdated = true;
+    }
+  }
+
+  private void writeCrtController(int value) {
+    int index = crtController.getIndex();
+    int previous = crtController.read();
+    crtController.write(value);
+    // Start address and cursor are read at each frame
+    boolean readAtEachFrame = index >= CrtController.START_ADDRESS_HIGH && index <= CrtController.CURSOR_LOCATION_LOW;
+    if (!readAtEachFrame && previous != crtController.read()) {
+      rendererOutdated = true;
+    }
+  }
+
+  @Override
+  public void saveState(DataOutput output) throws IOException {
+    output.writeByte(videoMode == null ? -1 : videoMode.getNumber());
+    output.writeByte(miscellaneousOutput);
+    sequencer.saveState(output);
+    graphicsController.saveState(output);
+    crtController.saveState(output);
+    attributeController.saveState(output);
+    videoMemory.saveState(output);
+  }
+
+  @Override
+  public void restoreState(DataInput input) throws IOException {
+    videoMode = VideoMode.fromNumber(input.readUnsignedByte());
+    miscellaneousOutput = input.readUnsignedByte();
+    sequencer.restoreState(input);
+    graphicsController.restoreState(input);
+    crtController.restoreState(input);
+    attributeController.restoreState(input);
+    videoMemory.restoreState(input);
+    // Planes were restored as they were, RAM is restored by the memory
+    updateMemoryMapping(false);
+    rendererOutdated = true;
+    frameSinkOutdated = true;
+  }
 }
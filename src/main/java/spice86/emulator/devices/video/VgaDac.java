@@ -2,15 +2,20 @@ package spice86.emulator.devices.video;
 
 import static spice86.utils.ConvertUtils.uint8;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
 import org.apache.commons.lang3.builder.ReflectionToStringBuilder;
 import org.apache.commons.lang3.builder.ToStringStyle;
 
 import spice86.emulator.machine.Machine;
+import spice86.emulator.savestate.Savable;
 
 /**
  * VGA Digital Analog Converter Implementation.
  */
-public class VgaDac {
+public class VgaDac implements Savable {
   private static final int RED_INDEX = 0;
   private static final int BLUE_INDEX = 2;
   private static final int GREEN_INDEX = 1;
@@ -33,6 +38,10 @@ public class VgaDac {
   private int writeIndex;
 
   private Rgb[] rgbs = new Rgb[256];
+  // Same colors as rgbs, ready to be displayed. Updated on each color change so that drawing is a lookup.
+  private int[] argbs = new int[256];
+  // True when a color changed since the screen was last drawn
+  private boolean paletteModified = true;
 
   public VgaDac(Machine machine) {
     this.machine = machine;
@@ -43,6 +52,7 @@ public class VgaDac {
       rgb.setG((((i >>> 2) & 0x7) * 255 / 7));
       rgb.setB(((i & 0x3) * 255 / 3));
       rgbs[i] = rgb;
+      argbs[i] = rgb.toArgb();
     }
   }
 
@@ -57,6 +67,8 @@ public class VgaDac {
     } else {
       throw new InvalidColorIndexException(machine, colour);
     }
+    argbs[writeIndex] = rgb.toArgb();
+    paletteModified = true;
     colour = (colour + 1) % 3;
     if (colour == 0) {
       writeIndex++;
@@ -114,6 +126,54 @@ public class VgaDac {
     return rgbs;
   }
 
+  /**
+   * @return the palette in the ARGB format, do not modify it
+   */
+  public int[] getArgbs() {
+    return argbs;
+  }
+
+  public void setColor(int index, int r, int g, int b) {
+    Rgb rgb = rgbs[index];
+    rgb.setR(r);
+    rgb.setG(g);
+    rgb.setB(b);
+    argbs[index] = rgb.toArgb();
+    paletteModified = true;
+  }
+
+  public boolean isPaletteModified() {
+    return paletteModified;
+  }
+
+  public void setPaletteModified(boolean paletteModified) {
+    this.paletteModified = paletteModified;
+  }
+
+  @Override
+  public void saveState(DataOutput output) throws IOException {
+    output.writeByte(state);
+    output.writeByte(colour);
+    output.writeShort(readIndex);
+    output.writeShort(writeIndex);
+    for (Rgb rgb : rgbs) {
+      output.writeByte(rgb.getR());
+      output.writeByte(rgb.getG());
+      output.writeByte(rgb.getB());
+    }
+  }
+
+  @Override
+  public void restoreState(DataInput input) throws IOException {
+    state = input.readUnsignedByte();
+    colour = input.readUnsignedByte();
+    readIndex = input.readUnsignedShort();
+    writeIndex = input.readUnsignedShort();
+    for (int i = 0; i < rgbs.length; i++) {
+      setColor(i, input.readUnsignedByte(), input.readUnsignedByte(), input.readUnsignedByte());
+    }
+  }
+
   @Override
   public String toString() {
     return new ReflectionToStringBuilder(this, ToStringStyle.JSON_STYLE).toString();
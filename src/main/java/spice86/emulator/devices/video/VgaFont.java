@@ -0,0 +1,61 @@
+package spice86.emulator.devices.video;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+
+import spice86.emulator.errors.UnrecoverableException;
+
+/**
+ * 8x16 font of the VGA BIOS for code page 437, used to render text modes.<br/>
+ * Glyphs are read from font8x16.hex, one line per character: its code in hexadecimal, a colon, then 16 bytes in
+ * hexadecimal, one per row from top to bottom with the leftmost pixel in the most significant bit.
+ */
+class VgaFont {
+  public static final int CHARACTER_HEIGHT = 16;
+  private static final String RESOURCE = "font8x16.hex";
+
+  private final byte[] glyphs = new byte[256 * CHARACTER_HEIGHT];
+
+  VgaFont() {
+    try (InputStream inputStream = VgaFont.class.getResourceAsStream(RESOURCE)) {
+      if (inputStream == null) {
+        throw new UnrecoverableException("Font resource " + RESOURCE + " is missing");
+      }
+      parse(new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.US_ASCII)));
+    } catch (IOException e) {
+      throw new UnrecoverableException("Could not read font resource " + RESOURCE, e);
+    }
+  }
+
+  private void parse(BufferedReader reader) throws IOException {
+    String line;
+    while ((line = reader.readLine()) != null) {
+      if (line.isBlank()) {
+        continue;
+      }
+      String[] codeAndBitmap = line.trim().split(":");
+      if (codeAndBitmap.length != 2 || codeAndBitmap[1].length() != CHARACTER_HEIGHT * 2) {
+        throw new UnrecoverableException("Invalid line in font resource " + RESOURCE + ": " + line);
+      }
+      int character = Integer.parseInt(codeAndBitmap[0], 16);
+      for (int row = 0; row < CHARACTER_HEIGHT; row++) {
+        glyphs[character * CHARACTER_HEIGHT + row] =
+            (byte)Integer.parseInt(codeAndBitmap[1].substring(row * 2, row * 2 + 2), 16);
+      }
+    }
+  }
+
+  /**
+   * @return pixels of the given row of the glyph of character, leftmost in the most significant bit. Glyphs are
+   *         empty below row 15 for character heights greater than 16.
+   */
+  public int getRow(int character, int row) {
+    if (row >= CHARACTER_HEIGHT) {
+      return 0;
+    }
+    return glyphs[character * CHARACTER_HEIGHT + row] & 0xFF;
+  }
+}
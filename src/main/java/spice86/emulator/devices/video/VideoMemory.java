@@ -0,0 +1,174 @@
+package spice86.emulator.devices.video;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+import spice86.emulator.memory.MemoryMappedDevice;
+import spice86.emulator.savestate.Savable;
+
+/**
+ * The 4 planes of the VGA memory, as seen by the CPU when it is not accessed linearly: in planar 16 colors modes and
+ * in mode X.<br/>
+ * Reads fill the latches with the byte at the same offset in each plane. Writes combine the value written, the
+ * latches and the set / reset registers according to the graphics controller, then write to the planes enabled in the
+ * map mask. See http://www.osdever.net/FreeVGA/vga/vgamem.htm
+ */
+class VideoMemory implements MemoryMappedDevice, Savable {
+  public static final int NUMBER_OF_PLANES = 4;
+  public static final int PLANE_SIZE = 0x10000;
+
+  private final Sequencer sequencer;
+  private final GraphicsController graphicsController;
+  private final byte[][] planes = new byte[NUMBER_OF_PLANES][PLANE_SIZE];
+  private final int[] latches = new int[NUMBER_OF_PLANES];
+  private final int baseAddress;
+
+  /**
+   * @param baseAddress
+   *          physical address of the first byte of the planes for the CPU
+   */
+  VideoMemory(Sequencer sequencer, GraphicsController graphicsController, int baseAddress) {
+    this.sequencer = sequencer;
+    this.graphicsController = graphicsController;
+    this.baseAddress = baseAddress;
+  }
+
+  public int getBaseAddress() {
+    return baseAddress;
+  }
+
+  /**
+   * @return content of the planes for the renderers, offset in a plane is the offset seen by the CPU
+   */
+  public byte[][] getPlanes() {
+    return planes;
+  }
+
+  @Override
+  public int readUint8(int address) {
+    int offset = (address - baseAddress) & (PLANE_SIZE - 1);
+    for (int plane = 0; plane < NUMBER_OF_PLANES; plane++) {
+      latches[plane] = planes[plane][offset] & 0xFF;
+    }
+    if (!graphicsController.isReadMode1()) {
+      return latches[graphicsController.getReadMapSelect()];
+    }
+    // Bits set where the pixel has the compared color, ignoring the planes not cared about
+    int colorCompare = graphicsController.getColorCompare();
+    int colorDontCare = graphicsController.getColorDontCare();
+    int result = 0xFF;
+    for (int plane = 0; plane < NUMBER_OF_PLANES; plane++) {
+      if ((colorDontCare & (1 << plane)) != 0) {
+        result &= ~(latches[plane] ^ expandBit(colorCompare, plane));
+      }
+    }
+    return result & 0xFF;
+  }
+
+  @Override
+  public void writeUint8(int address, int value) {
+    int offset = (address - baseAddress) & (PLANE_SIZE - 1);
+    int mapMask = sequencer.getMapMask();
+    int writeMode = graphicsController.getWriteMode();
+    int logicalOperation = graphicsController.getLogicalOperation();
+    int bitMask = graphicsController.getBitMask();
+    int setReset = graphicsController.getSetReset();
+    int rotated = rotate(value, graphicsController.getRotateCount());
+    for (int plane = 0; plane < NUMBER_OF_PLANES; plane++) {
+      if ((mapMask & (1 << plane)) == 0) {
+        continue;
+      }
+      int latch = latches[plane];
+      int result = switch (writeMode) {
+        case 0 -> {
+          boolean setResetEnabled = (graphicsController.getEnableSetReset() & (1 << plane)) != 0;
+          int data = setResetEnabled ? expandBit(setReset, plane) : rotated;
+          yield select(combine(logicalOperation, data, latch), latch, bitMask);
+        }
+        case 1 -> latch;
+        case 2 -> select(combine(logicalOperation, expandBit(value, plane), latch), latch, bitMask);
+        // Write mode 3, the rotated value is an additional bit mask
+        default -> select(combine(logicalOperation, expandBit(setReset, plane), latch), latch, rotated & bitMask);
+      };
+      planes[plane][offset] = (byte)result;
+    }
+  }
+
+  private static int rotate(int value, int count) {
+    return ((value >>> count) | (value << (8 - count))) & 0xFF;
+  }
+
+  /**
+   * @return 0xFF if the bit of the plane is set in value, 0 otherwise
+   */
+  private static int expandBit(int value, int plane) {
+    return ((value >>> plane) & 1) == 0 ? 0 : 0xFF;
+  }
+
+  private static int combine(int logicalOperation, int data, int latch) {
+    return switch (logicalOperation) {
+      case 1 -> data & latch;
+      case 2 -> data | latch;
+      case 3 -> data ^ latch;
+      default -> data;
+    };
+  }
+
+  /**
+   * @return bits of data where mask is set, bits of latch elsewhere
+   */
+  private static int select(int data, int latch, int mask) {
+    return (data & mask) | (latch & ~mask);
+  }
+
+  /**
+   * Copies to the planes what the CPU wrote linearly with chain 4 enabled, pixel at offset goes to plane offset % 4.
+   * Called when a program disables chain 4 to switch to mode X.
+   */
+  public void loadFromLinear(byte[] linear) {
+    for (int offset = 0; offset < linear.length / NUMBER_OF_PLANES; offset++) {
+      for (int plane = 0; plane < NUMBER_OF_PLANES; plane++) {
+        planes[plane][offset] = linear[offset * NUMBER_OF_PLANES + plane];
+      }
+    }
+  }
+
+  /**
+   * Opposite of loadFromLinear, called when chain 4 is enabled again.
+   * 
+   * @return the planes as the CPU sees them with chain 4 enabled
+   */
+  public byte[] toLinear() {
+    byte[] linear = new byte[PLANE_SIZE];
+    for (int offset = 0; offset < PLANE_SIZE / NUMBER_OF_PLANES; offset++) {
+      for (int plane = 0; plane < NUMBER_OF_PLANES; plane++) {
+        linear[offset * NUMBER_OF_PLANES + plane] = planes[plane][offset];
+      }
+    }
+    return linear;
+  }
+
+  public void clear() {
+    for (byte[] plane : planes) {
+      Arrays.fill(plane, (byte)0);
+    }
+  }
+
+  @Override
+  public void saveState(DataOutput output) throws IOException {
+    for (int plane = 0; plane < NUMBER_OF_PLANES; plane++) {
+      output.writeByte(latches[plane]);
+      output.write(planes[plane]);
+    }
+  }
+
+  @Override
+  public void restoreState(DataInput input) throws IOException {
+    for (int plane = 0; plane < NUMBER_OF_PLANES; plane++) {
+      latches[plane] = input.readUnsignedByte();
+      input.readFully(planes[plane]);
+    }
+  }
+}
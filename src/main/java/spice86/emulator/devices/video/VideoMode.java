@@ -0,0 +1,120 @@
+package spice86.emulator.devices.video;
+
+/**
+ * Register values the BIOS programs for each supported video mode. Values are the ones of the standard VGA BIOS.
+ */
+enum VideoMode {
+  TEXT_80_25_16(0x03, 80, 25, 16, 0x67,
+      new int[] { 0x03, 0x00, 0x03, 0x00, 0x02 },
+      new int[] { 0x5F, 0x4F, 0x50, 0x82, 0x55, 0x81, 0xBF, 0x1F, 0x00, 0x4F, 0x0D, 0x0E, 0x00, 0x00, 0x00, 0x00, 0x9C,
+          0x8E, 0x8F, 0x28, 0x1F, 0x96, 0xB9, 0xA3, 0xFF },
+      new int[] { 0x00, 0x00, 0x00, 0x00, 0x00, 0x10, 0x0E, 0x00, 0xFF },
+      new int[] { 0x00, 0x01, 0x02, 0x03, 0x04, 0x05, 0x14, 0x07, 0x38, 0x39, 0x3A, 0x3B, 0x3C, 0x3D, 0x3E, 0x3F, 0x0C,
+          0x00, 0x0F, 0x08, 0x00 }),
+  GRAPHICS_320_200_16(0x0D, 40, 25, 8, 0x63,
+      new int[] { 0x03, 0x09, 0x0F, 0x00, 0x06 },
+      new int[] { 0x2D, 0x27, 0x28, 0x90, 0x2B, 0x80, 0xBF, 0x1F, 0x00, 0xC0, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x9C,
+          0x8E, 0x8F, 0x14, 0x00, 0x96, 0xB9, 0xE3, 0xFF },
+      new int[] { 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x05, 0x0F, 0xFF },
+      new int[] { 0x00, 0x01, 0x02, 0x03, 0x04, 0x05, 0x06, 0x07, 0x10, 0x11, 0x12, 0x13, 0x14, 0x15, 0x16, 0x17, 0x01,
+          0x00, 0x0F, 0x00, 0x00 }),
+  GRAPHICS_640_480_16(0x12, 80, 30, 16, 0xE3,
+      new int[] { 0x03, 0x01, 0x0F, 0x00, 0x06 },
+      new int[] { 0x5F, 0x4F, 0x50, 0x82, 0x54, 0x80, 0x0B, 0x3E, 0x00, 0x40, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0xEA,
+          0x8C, 0xDF, 0x28, 0x00, 0xE7, 0x04, 0xE3, 0xFF },
+      new int[] { 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x05, 0x0F, 0xFF },
+      new int[] { 0x00, 0x01, 0x02, 0x03, 0x04, 0x05, 0x14, 0x07, 0x38, 0x39, 0x3A, 0x3B, 0x3C, 0x3D, 0x3E, 0x3F, 0x01,
+          0x00, 0x0F, 0x00, 0x00 }),
+  GRAPHICS_320_200_256(0x13, 40, 25, 8, 0x63,
+      new int[] { 0x03, 0x01, 0x0F, 0x00, 0x0E },
+      new int[] { 0x5F, 0x4F, 0x50, 0x82, 0x54, 0x80, 0xBF, 0x1F, 0x00, 0x41, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x9C,
+          0x0E, 0x8F, 0x28, 0x40, 0x96, 0xB9, 0xA3, 0xFF },
+      new int[] { 0x00, 0x00, 0x00, 0x00, 0x00, 0x40, 0x05, 0x0F, 0xFF },
+      new int[] { 0x00, 0x01, 0x02, 0x03, 0x04, 0x05, 0x06, 0x07, 0x08, 0x09, 0x0A, 0x0B, 0x0C, 0x0D, 0x0E, 0x0F, 0x41,
+          0x00, 0x0F, 0x00, 0x00 });
+
+  private final int number;
+  // Text geometry the BIOS reports, in graphic modes characters are drawn with a font of characterHeight lines
+  private final int columns;
+  private final int rows;
+  private final int characterHeight;
+  private final int miscellaneousOutput;
+  private final int[] sequencerRegisters;
+  private final int[] crtControllerRegisters;
+  private final int[] graphicsControllerRegisters;
+  private final int[] attributeControllerRegisters;
+
+  VideoMode(int number, int columns, int rows, int characterHeight, int miscellaneousOutput,
+      int[] sequencerRegisters, int[] crtControllerRegisters, int[] graphicsControllerRegisters,
+      int[] attributeControllerRegisters) {
+    this.number = number;
+    this.columns = columns;
+    this.rows = rows;
+    this.characterHeight = characterHeight;
+    this.miscellaneousOutput = miscellaneousOutput;
+    this.sequencerRegisters = sequencerRegisters;
+    this.crtControllerRegisters = crtControllerRegisters;
+    this.graphicsControllerRegisters = graphicsControllerRegisters;
+    this.attributeControllerRegisters = attributeControllerRegisters;
+  }
+
+  /**
+   * @return the mode with the given BIOS number, null if it is not supported
+   */
+  public static VideoMode fromNumber(int number) {
+    for (VideoMode videoMode : values()) {
+      if (videoMode.number == number) {
+        return videoMode;
+      }
+    }
+    return null;
+  }
+
+  public int getNumber() {
+    return number;
+  }
+
+  public int getColumns() {
+    return columns;
+  }
+
+  public int getRows() {
+    return rows;
+  }
+
+  public int getCharacterHeight() {
+    return characterHeight;
+  }
+
+  public boolean isText() {
+    return this == TEXT_80_25_16;
+  }
+
+  public int getMiscellaneousOutput() {
+    return miscellaneousOutput;
+  }
+
+  public int[] getSequencerRegisters() {
+    return sequencerRegisters;
+  }
+
+  public int[] getCrtControllerRegisters() {
+    return crtControllerRegisters;
+  }
+
+  public int[] getGraphicsControllerRegisters() {
+    return graphicsControllerRegisters;
+  }
+
+  public int[] getAttributeControllerRegisters() {
+    return attributeControllerRegisters;
+  }
+
+  /**
+   * @return true for modes using the 16 colors of the attribute controller, whose DAC the BIOS loads with the EGA
+   *         palette
+   */
+  public boolean isSixteenColors() {
+    return this != GRAPHICS_320_200_256;
+  }
+}
@@ -0,0 +1,21 @@
+package spice86.emulator.devices.video.capture;
+
+/**
+ * File formats video can be captured to.
+ */
+public enum CaptureFormat {
+  /**
+   * Single file of concatenated 24 bits RGB frames, without header. Only frames of the size of the first one are
+   * written.
+   */
+  RAW,
+  /**
+   * Directory of PNG images, one per frame.
+   */
+  PNG,
+  /**
+   * Single YUV4MPEG2 file with 4:4:4 chroma, readable by most video tools. Only frames of the size of the first one are
+   * written.
+   */
+  Y4M
+}
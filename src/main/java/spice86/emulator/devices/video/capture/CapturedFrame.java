@@ -0,0 +1,47 @@
+package spice86.emulator.devices.video.capture;
+
+import java.util.Arrays;
+
+/**
+ * Copy of a frame owned by the capture. Instances are pooled and their arrays grow to the largest frame seen.
+ */
+class CapturedFrame {
+  private int width;
+  private int height;
+  private byte[] colorIndexes = new byte[0];
+  private final int[] argbPalette = new int[256];
+
+  public int getWidth() {
+    return width;
+  }
+
+  public int getHeight() {
+    return height;
+  }
+
+  public int getColorIndex(int pixel) {
+    return colorIndexes[pixel] & 0xFF;
+  }
+
+  public int[] getArgbPalette() {
+    return argbPalette;
+  }
+
+  public boolean matches(byte[] otherColorIndexes, int otherWidth, int otherHeight, int[] otherArgbPalette) {
+    int size = width * height;
+    return width == otherWidth && height == otherHeight
+        && Arrays.equals(colorIndexes, 0, size, otherColorIndexes, 0, size)
+        && Arrays.equals(argbPalette, otherArgbPalette);
+  }
+
+  public void copyFrom(byte[] sourceColorIndexes, int sourceWidth, int sourceHeight, int[] sourceArgbPalette) {
+    int size = sourceWidth * sourceHeight;
+    if (colorIndexes.length < size) {
+      colorIndexes = new byte[size];
+    }
+    System.arraycopy(sourceColorIndexes, 0, colorIndexes, 0, size);
+    System.arraycopy(sourceArgbPalette, 0, argbPalette, 0, argbPalette.length);
+    this.width = sourceWidth;
+    this.height = sourceHeight;
+  }
+}
@@ -0,0 +1,55 @@
+package spice86.emulator.devices.video.capture;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Base for the formats writing every frame to a single stream. Such streams cannot change resolution, frames with
+ * another size than the first one are skipped.
+ */
+abstract class FixedSizeFrameWriter implements FrameWriter {
+  private static final Logger LOGGER = LoggerFactory.getLogger(FixedSizeFrameWriter.class);
+
+  protected final OutputStream output;
+  private int width;
+  private int height;
+  private long skippedFrames;
+
+  protected FixedSizeFrameWriter(Path path) throws IOException {
+    this.output = new BufferedOutputStream(Files.newOutputStream(path), 1 << 16);
+  }
+
+  @Override
+  public void write(CapturedFrame frame) throws IOException {
+    if (width == 0) {
+      width = frame.getWidth();
+      height = frame.getHeight();
+      writeHeader(width, height);
+    } else if (frame.getWidth() != width || frame.getHeight() != height) {
+      if (skippedFrames++ == 0) {
+        LOGGER.warn("Resolution changed from {}x{} to {}x{}, frames of another resolution will not be captured", width,
+            height, frame.getWidth(), frame.getHeight());
+      }
+      return;
+    }
+    writeFrame(frame);
+  }
+
+  protected abstract void writeHeader(int width, int height) throws IOException;
+
+  protected abstract void writeFrame(CapturedFrame frame) throws IOException;
+
+  @Override
+  public void close() throws IOException {
+    if (skippedFrames > 0) {
+      LOGGER.warn("{} frames were not captured because of a resolution change", skippedFrames);
+    }
+    output.close();
+  }
+}
@@ -0,0 +1,17 @@
+package spice86.emulator.devices.video.capture;
+
+/**
+ * Receives the frames displayed by the VGA card when there is something else than the gui to display them.
+ */
+public interface FrameSink {
+  /**
+   * Called by the emulation thread, implementations must not block it.<br/>
+   * Arrays are reused by the caller for the next frames, implementations have to copy what they need before returning.
+   * 
+   * @param colorIndexes
+   *          width * height palette indexes, line by line
+   * @param argbPalette
+   *          ARGB value of each of the 256 palette indexes
+   */
+  void submitFrame(byte[] colorIndexes, int width, int height, int[] argbPalette);
+}
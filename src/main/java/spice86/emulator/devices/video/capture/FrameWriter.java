@@ -0,0 +1,11 @@
+package spice86.emulator.devices.video.capture;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Writes captured frames in a given format. Only called by the capture writer thread.
+ */
+interface FrameWriter extends Closeable {
+  void write(CapturedFrame frame) throws IOException;
+}
@@ -0,0 +1,46 @@
+package spice86.emulator.devices.video.capture;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import javax.imageio.ImageIO;
+
+/**
+ * Writes each frame to its own PNG file in a directory. Files are numbered in the order the frames are written.
+ */
+class PngFrameWriter implements FrameWriter {
+  private final Path directory;
+  private BufferedImage image;
+  private int[] pixels = new int[0];
+  private int frameNumber;
+
+  public PngFrameWriter(Path directory) throws IOException {
+    this.directory = Files.createDirectories(directory);
+  }
+
+  @Override
+  public void write(CapturedFrame frame) throws IOException {
+    int width = frame.getWidth();
+    int height = frame.getHeight();
+    if (image == null || image.getWidth() != width || image.getHeight() != height) {
+      image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+      pixels = new int[width * height];
+    }
+    int[] argbPalette = frame.getArgbPalette();
+    for (int pixel = 0; pixel < pixels.length; pixel++) {
+      pixels[pixel] = argbPalette[frame.getColorIndex(pixel)];
+    }
+    image.setRGB(0, 0, width, height, pixels, 0, width);
+    Path path = directory.resolve(String.format("frame_%06d.png", frameNumber++));
+    if (!ImageIO.write(image, "png", path.toFile())) {
+      throw new IOException("No PNG writer available to write " + path);
+    }
+  }
+
+  @Override
+  public void close() {
+    // Each file is closed once written
+  }
+}
@@ -0,0 +1,34 @@
+package spice86.emulator.devices.video.capture;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Writes frames as 24 bits RGB pixels, without header.
+ */
+class RawFrameWriter extends FixedSizeFrameWriter {
+  private byte[] rgbs = new byte[0];
+
+  public RawFrameWriter(Path path) throws IOException {
+    super(path);
+  }
+
+  @Override
+  protected void writeHeader(int width, int height) {
+    rgbs = new byte[width * height * 3];
+  }
+
+  @Override
+  protected void writeFrame(CapturedFrame frame) throws IOException {
+    int[] argbPalette = frame.getArgbPalette();
+    int size = frame.getWidth() * frame.getHeight();
+    int offset = 0;
+    for (int pixel = 0; pixel < size; pixel++) {
+      int argb = argbPalette[frame.getColorIndex(pixel)];
+      rgbs[offset++] = (byte)(argb >>> 16);
+      rgbs[offset++] = (byte)(argb >>> 8);
+      rgbs[offset++] = (byte)argb;
+    }
+    output.write(rgbs);
+  }
+}
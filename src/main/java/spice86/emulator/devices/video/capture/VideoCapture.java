@@ -0,0 +1,165 @@
+package spice86.emulator.devices.video.capture;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Captures the displayed frames to files, for when there is no gui or to record what was displayed.<br/>
+ * Frames are copied in the emulation thread and written by a background thread:
+ * <ul>
+ * <li>A frame identical to the previous captured one is ignored.</li>
+ * <li>Frames are copied to a bounded pool. When the writer is late and the pool is exhausted, frames are dropped
+ * instead of making the emulation wait.</li>
+ * </ul>
+ * Since identical and dropped frames are not written, the output does not have a constant frame rate.
+ */
+public class VideoCapture implements FrameSink, Closeable {
+  private static final Logger LOGGER = LoggerFactory.getLogger(VideoCapture.class);
+  // Frames waiting to be written. Around a quarter of a second at 30fps.
+  private static final int QUEUE_CAPACITY = 8;
+  // Queued frames plus the one being written
+  private static final int MAX_FRAMES = QUEUE_CAPACITY + 1;
+  private static final CapturedFrame END_OF_CAPTURE = new CapturedFrame();
+
+  private final Path path;
+  private final FrameWriter frameWriter;
+  private final BlockingQueue<CapturedFrame> pendingFrames = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+  private final Queue<CapturedFrame> freeFrames = new ConcurrentLinkedQueue<>();
+  private final Thread writerThread;
+  // Following fields are only accessed by the emulation thread
+  private final CapturedFrame previousFrame = new CapturedFrame();
+  private int allocatedFrames;
+  private long duplicateFrames;
+  private long droppedFrames;
+  // Frames submitted after close are ignored
+  private volatile boolean closed;
+  // Following fields are only modified by the writer thread
+  private volatile long writtenFrames;
+  private volatile IOException writeError;
+
+  /**
+   * @param path
+   *          file to write to, or directory for PNG
+   */
+  public VideoCapture(Path path, CaptureFormat format) throws IOException {
+    this.path = path;
+    this.frameWriter = switch (format) {
+      case RAW -> new RawFrameWriter(path);
+      case PNG -> new PngFrameWriter(path);
+      case Y4M -> new Y4mFrameWriter(path);
+    };
+    writerThread = new Thread(this::writeFrames, "VideoCapture");
+    // Closed with the program, a daemon does not keep the JVM alive if it is not
+    writerThread.setDaemon(true);
+    writerThread.start();
+    LOGGER.info("Capturing video to {} in format {}", path, format);
+  }
+
+  @Override
+  public void submitFrame(byte[] colorIndexes, int width, int height, int[] argbPalette) {
+    if (closed) {
+      return;
+    }
+    if (previousFrame.matches(colorIndexes, width, height, argbPalette)) {
+      duplicateFrames++;
+      return;
+    }
+    CapturedFrame frame = obtainFrame();
+    if (frame == null) {
+      // Previous frame is not updated so that the next one is not considered a duplicate of a frame not written
+      droppedFrames++;
+      return;
+    }
+    frame.copyFrom(colorIndexes, width, height, argbPalette);
+    if (!pendingFrames.offer(frame)) {
+      // Queue full, for example when the writer thread stopped. Frame goes back to the pool unwritten.
+      freeFrames.offer(frame);
+      droppedFrames++;
+      return;
+    }
+    previousFrame.copyFrom(colorIndexes, width, height, argbPalette);
+  }
+
+  private CapturedFrame obtainFrame() {
+    CapturedFrame frame = freeFrames.poll();
+    if (frame == null && allocatedFrames < MAX_FRAMES) {
+      allocatedFrames++;
+      frame = new CapturedFrame();
+    }
+    return frame;
+  }
+
+  public long getDuplicateFrames() {
+    return duplicateFrames;
+  }
+
+  public long getDroppedFrames() {
+    return droppedFrames;
+  }
+
+  public long getWrittenFrames() {
+    return writtenFrames;
+  }
+
+  private void writeFrames() {
+    try {
+      CapturedFrame frame;
+      while ((frame = pendingFrames.take()) != END_OF_CAPTURE) {
+        write(frame);
+        freeFrames.offer(frame);
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } finally {
+      try {
+        frameWriter.close();
+      } catch (IOException e) {
+        LOGGER.error("Error while closing video capture {}", path, e);
+      }
+    }
+  }
+
+  private void write(CapturedFrame frame) {
+    if (writeError != null) {
+      return;
+    }
+    try {
+      frameWriter.write(frame);
+      writtenFrames++;
+    } catch (IOException e) {
+      LOGGER.error("Error while writing video capture to {}, next frames will not be written", path, e);
+      writeError = e;
+    }
+  }
+
+  /**
+   * Stops the capture and waits for the queued frames to be written.
+   */
+  @Override
+  public void close() throws IOException {
+    if (closed) {
+      return;
+    }
+    closed = true;
+    try {
+      pendingFrames.put(END_OF_CAPTURE);
+      writerThread.join();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while waiting for the video capture to be written", e);
+    }
+    LOGGER.info("Video capture {} finished: {} frames written, {} duplicates ignored, {} dropped", path, writtenFrames,
+        duplicateFrames, droppedFrames);
+    if (writeError != null) {
+      throw writeError;
+    }
+  }
+}
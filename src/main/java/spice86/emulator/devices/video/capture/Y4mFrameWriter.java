@@ -0,0 +1,62 @@
+package spice86.emulator.devices.video.capture;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+
+/**
+ * Writes frames as a YUV4MPEG2 stream with one full resolution plane per component (4:4:4), so that no chroma
+ * subsampling blurs the pixels.<br/>
+ * Colors are converted with the BT.601 studio range formulas. Since pixels are palette indexes, the conversion is done
+ * once per palette entry and planes are filled by lookup.
+ */
+class Y4mFrameWriter extends FixedSizeFrameWriter {
+  // Screen is refreshed 30 times per second, see Timer
+  private static final int FRAMES_PER_SECOND = 30;
+  private static final byte[] FRAME_HEADER = "FRAME\n".getBytes(StandardCharsets.US_ASCII);
+
+  private final byte[] yPalette = new byte[256];
+  private final byte[] uPalette = new byte[256];
+  private final byte[] vPalette = new byte[256];
+  private byte[] plane = new byte[0];
+
+  public Y4mFrameWriter(Path path) throws IOException {
+    super(path);
+  }
+
+  @Override
+  protected void writeHeader(int width, int height) throws IOException {
+    String header = "YUV4MPEG2 W" + width + " H" + height + " F" + FRAMES_PER_SECOND + ":1 Ip A1:1 C444\n";
+    output.write(header.getBytes(StandardCharsets.US_ASCII));
+    plane = new byte[width * height];
+  }
+
+  @Override
+  protected void writeFrame(CapturedFrame frame) throws IOException {
+    convertPalette(frame.getArgbPalette());
+    output.write(FRAME_HEADER);
+    writePlane(frame, yPalette);
+    writePlane(frame, uPalette);
+    writePlane(frame, vPalette);
+  }
+
+  private void convertPalette(int[] argbPalette) {
+    for (int i = 0; i < argbPalette.length; i++) {
+      int argb = argbPalette[i];
+      int r = (argb >>> 16) & 0xFF;
+      int g = (argb >>> 8) & 0xFF;
+      int b = argb & 0xFF;
+      yPalette[i] = (byte)(((66 * r + 129 * g + 25 * b + 128) >> 8) + 16);
+      uPalette[i] = (byte)(((-38 * r - 74 * g + 112 * b + 128) >> 8) + 128);
+      vPalette[i] = (byte)(((112 * r - 94 * g - 18 * b + 128) >> 8) + 128);
+    }
+  }
+
+  private void writePlane(CapturedFrame frame, byte[] componentPalette) throws IOException {
+    int size = frame.getWidth() * frame.getHeight();
+    for (int pixel = 0; pixel < size; pixel++) {
+      plane[pixel] = componentPalette[frame.getColorIndex(pixel)];
+    }
+    output.write(plane, 0, size);
+  }
+}
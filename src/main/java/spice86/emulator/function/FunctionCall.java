@@ -3,28 +3,47 @@ package spice86.emulator.function;
 import org.apache.commons.lang3.builder.ReflectionToStringBuilder;
 import org.apache.commons.lang3.builder.ToStringStyle;
 
+import spice86.emulator.memory.MemoryUtils;
 import spice86.emulator.memory.SegmentedAddress;
 
 /**
  * Represents the state of the machine when a function is called.<br/>
- * Functions can be called from the VM (near / far / interrupt) or at the start of the machine for entry point
+ * Functions can be called from the VM (near / far / interrupt) or at the start of the machine for entry point.<br/>
+ * Instances are reused by the FunctionCallStack so that calls do not allocate, addresses are stored as primitives.
  */
 public class FunctionCall {
   private CallType callType;
-  private SegmentedAddress entryPointAddress;
-  private SegmentedAddress expectedReturnAddress;
+  private FunctionInformation functionInformation;
+  private int entrySegment;
+  private int entryOffset;
+  private boolean hasExpectedReturnAddress;
+  private int expectedReturnSegment;
+  private int expectedReturnOffset;
   // stores the status of the stack after the function returns have been pushed to the stack so that it can be examined
   // if expected return differs from actual return.
-  private SegmentedAddress stackAddressAfterCall;
+  private int stackSegmentAfterCall;
+  private int stackOffsetAfterCall;
   private boolean recordReturn;
 
-  public FunctionCall(CallType callType, SegmentedAddress entryPointAddress, SegmentedAddress expectedReturnAddress,
-      SegmentedAddress stackAddressAfterCall, boolean recordReturn) {
-    super();
+  FunctionCall() {
+  }
+
+  @SuppressWarnings({
+      // Parameters are the fields, the instance is reused so there is no constructor to call
+      "java:S107"
+  })
+  void set(CallType callType, FunctionInformation functionInformation, int entrySegment, int entryOffset,
+      boolean hasExpectedReturnAddress, int expectedReturnSegment, int expectedReturnOffset, int stackSegmentAfterCall,
+      int stackOffsetAfterCall, boolean recordReturn) {
     this.callType = callType;
-    this.entryPointAddress = entryPointAddress;
-    this.expectedReturnAddress = expectedReturnAddress;
-    this.stackAddressAfterCall = stackAddressAfterCall;
+    this.functionInformation = functionInformation;
+    this.entrySegment = entrySegment;
+    this.entryOffset = entryOffset;
+    this.hasExpectedReturnAddress = hasExpectedReturnAddress;
+    this.expectedReturnSegment = expectedReturnSegment;
+    this.expectedReturnOffset = expectedReturnOffset;
+    this.stackSegmentAfterCall = stackSegmentAfterCall;
+    this.stackOffsetAfterCall = stackOffsetAfterCall;
     this.recordReturn = recordReturn;
   }
 
@@ -32,16 +51,38 @@ public class FunctionCall {
     return callType;
   }
 
+  public FunctionInformation getFunctionInformation() {
+    return functionInformation;
+  }
+
   public SegmentedAddress getEntryPointAddress() {
-    return entryPointAddress;
+    return new SegmentedAddress(entrySegment, entryOffset);
+  }
+
+  public boolean hasExpectedReturnAddress() {
+    return hasExpectedReturnAddress;
+  }
+
+  public int getExpectedReturnPhysicalAddress() {
+    return MemoryUtils.toPhysicalAddress(expectedReturnSegment, expectedReturnOffset);
   }
 
+  /**
+   * @return expected return address, null if there is none
+   */
   public SegmentedAddress getExpectedReturnAddress() {
-    return expectedReturnAddress;
+    if (!hasExpectedReturnAddress) {
+      return null;
+    }
+    return new SegmentedAddress(expectedReturnSegment, expectedReturnOffset);
+  }
+
+  public int getStackPhysicalAddressAfterCall() {
+    return MemoryUtils.toPhysicalAddress(stackSegmentAfterCall, stackOffsetAfterCall);
   }
 
   public SegmentedAddress getStackAddressAfterCall() {
-    return stackAddressAfterCall;
+    return new SegmentedAddress(stackSegmentAfterCall, stackOffsetAfterCall);
   }
 
   public boolean isRecordReturn() {
@@ -0,0 +1,69 @@
+package spice86.emulator.function;
+
+import java.util.Arrays;
+
+/**
+ * Array backed stack of FunctionCall.<br/>
+ * Popped FunctionCall instances stay in the array and are reused by the next push, so that calls do not allocate once
+ * the stack reached its maximum depth.
+ */
+class FunctionCallStack {
+  private FunctionCall[] calls = new FunctionCall[16];
+  private int size;
+
+  public int size() {
+    return size;
+  }
+
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  /**
+   * @return FunctionCall to fill, it is reused and has the values of a previous call
+   */
+  public FunctionCall push() {
+    if (size == calls.length) {
+      calls = Arrays.copyOf(calls, size * 2);
+    }
+    FunctionCall call = calls[size];
+    if (call == null) {
+      call = new FunctionCall();
+      calls[size] = call;
+    }
+    size++;
+    return call;
+  }
+
+  /**
+   * @return the call on top of the stack, null if empty. Valid until the next push.
+   */
+  public FunctionCall pop() {
+    if (size == 0) {
+      return null;
+    }
+    return calls[--size];
+  }
+
+  /**
+   * Puts back the call returned by the last pop.
+   */
+  public void cancelPop() {
+    size++;
+  }
+
+  public FunctionCall peek() {
+    if (size == 0) {
+      return null;
+    }
+    return calls[size - 1];
+  }
+
+  /**
+   * @param index
+   *          0 for the outermost call, size() - 1 for the top of the stack
+   */
+  public FunctionCall get(int index) {
+    return calls[index];
+  }
+}
@@ -1,8 +1,8 @@
 package spice86.emulator.function;
 
-import java.util.ArrayDeque;
-import java.util.Deque;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.function.Supplier;
@@ -10,24 +10,32 @@ import java.util.function.Supplier;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import spice86.emulator.cpu.Cpu;
 import spice86.emulator.cpu.State;
 import spice86.emulator.errors.InvalidOperationException;
 import spice86.emulator.machine.Machine;
 import spice86.emulator.memory.Memory;
+import spice86.emulator.memory.MemoryUtils;
 import spice86.emulator.memory.SegmentedAddress;
 import spice86.utils.ConvertUtils;
+import spice86.utils.LongKeyMap;
 
 /**
  * Called whenever a call / interrupt / ret is executed.<br/>
- * Does some dynamic analysis of the program flow and executes function overrides if provided.
+ * Does some dynamic analysis of the program flow and executes function overrides if provided.<br/>
+ * Calls and returns are handled on primitive addresses so that nothing is allocated once all the functions and returns
+ * of the program have been seen.<br/>
+ * Outside of debug mode functions are not tracked, calls only look for an override in the OverrideTable.
  */
 public class FunctionHandler {
   private static final Logger LOGGER = LoggerFactory.getLogger(FunctionHandler.class);
 
   private Machine machine;
-  private Deque<FunctionCall> callerStack = new ArrayDeque<>();
+  private FunctionCallStack callerStack = new FunctionCallStack();
   private Map<SegmentedAddress, FunctionInformation> functionInformations = new HashMap<>();
+  // Same content as functionInformations keyed by physical address, so that lookups do not allocate a SegmentedAddress.
+  // The map can be shared with another handler, so an entry missing here is looked up in the map before being created.
+  private LongKeyMap<FunctionInformation> functionInformationsByPhysicalAddress = new LongKeyMap<>();
+  private OverrideTable overrideTable = new OverrideTable(functionInformations);
   private boolean useCodeOverride;
   private boolean debugMode;
 
@@ -38,6 +46,11 @@ public class FunctionHandler {
 
   public void setFunctionInformations(Map<SegmentedAddress, FunctionInformation> functionInformations) {
     this.functionInformations = functionInformations;
+    this.functionInformationsByPhysicalAddress = new LongKeyMap<>();
+    for (Map.Entry<SegmentedAddress, FunctionInformation> entry : functionInformations.entrySet()) {
+      functionInformationsByPhysicalAddress.put(entry.getKey().toPhysical(), entry.getValue());
+    }
+    this.overrideTable = new OverrideTable(functionInformations);
   }
 
   public Map<SegmentedAddress, FunctionInformation> getFunctionInformations() {
@@ -48,10 +61,30 @@ public class FunctionHandler {
     this.useCodeOverride = useCodeOverride;
   }
 
-  public void icall(CallType callType, int entrySegment, int entryOffset, Integer expectedReturnSegment,
-      Integer expectedReturnOffset, int vectorNumber, boolean recordReturn) throws InvalidOperationException {
-    call(callType, entrySegment, entryOffset, expectedReturnSegment, expectedReturnOffset,
-        () -> "interrupt_handler_" + ConvertUtils.toHex(vectorNumber), recordReturn);
+  public void icall(CallType callType, int entrySegment, int entryOffset, int expectedReturnSegment,
+      int expectedReturnOffset, int vectorNumber, boolean recordReturn) throws InvalidOperationException {
+    if (!debugMode) {
+      callOverride(entrySegment, entryOffset);
+      return;
+    }
+    FunctionInformation currentFunction = getFunctionInformation(entrySegment, entryOffset);
+    if (currentFunction == null) {
+      currentFunction = createFunctionInformation(entrySegment, entryOffset,
+          "interrupt_handler_" + ConvertUtils.toHex(vectorNumber));
+    }
+    call(callType, currentFunction, entrySegment, entryOffset, true, expectedReturnSegment, expectedReturnOffset,
+        recordReturn);
+  }
+
+  public void call(CallType callType, int entrySegment, int entryOffset, int expectedReturnSegment,
+      int expectedReturnOffset) throws InvalidOperationException {
+    if (!debugMode) {
+      callOverride(entrySegment, entryOffset);
+      return;
+    }
+    FunctionInformation currentFunction = getOrCreateFunctionInformation(entrySegment, entryOffset, null);
+    call(callType, currentFunction, entrySegment, entryOffset, true, expectedReturnSegment, expectedReturnOffset,
+        true);
   }
 
   public void call(CallType callType, int entrySegment, int entryOffset, Integer expectedReturnSegment,
@@ -88,39 +121,90 @@ public class FunctionHandler {
   public void call(CallType callType, int entrySegment, int entryOffset, Integer expectedReturnSegment,
       Integer expectedReturnOffset, Supplier<String> nameGenerator, boolean recordReturn)
       throws InvalidOperationException {
-    SegmentedAddress entryAddress = new SegmentedAddress(entrySegment, entryOffset);
-    FunctionInformation currentFunction = functionInformations.computeIfAbsent(entryAddress,
-        k -> new FunctionInformation(entryAddress, nameGenerator != null ? nameGenerator.get() : "unknown"));
-    if (debugMode) {
-      // Determine caller
-      FunctionInformation caller = getFunctionInformation(getCurrentFunctionCall());
-      // Characterize current function
-      SegmentedAddress expectedReturnAddress = null;
-      if (expectedReturnSegment != null && expectedReturnOffset != null) {
-        expectedReturnAddress = new SegmentedAddress(expectedReturnSegment, expectedReturnOffset);
-      }
-      FunctionCall currentFunctionCall =
-          new FunctionCall(callType, entryAddress, expectedReturnAddress, getCurrentStackAddress(), recordReturn);
-      callerStack.addFirst(currentFunctionCall);
-      // Do the call
-      if (LOGGER.isDebugEnabled()) {
-        LOGGER.debug("Calling {} from {}", currentFunction, caller);
-      }
-      currentFunction.enter(caller);
+    if (!debugMode) {
+      callOverride(entrySegment, entryOffset);
+      return;
+    }
+    FunctionInformation currentFunction = getOrCreateFunctionInformation(entrySegment, entryOffset, nameGenerator);
+    boolean hasExpectedReturnAddress = expectedReturnSegment != null && expectedReturnOffset != null;
+    call(callType, currentFunction, entrySegment, entryOffset, hasExpectedReturnAddress,
+        hasExpectedReturnAddress ? expectedReturnSegment : 0, hasExpectedReturnAddress ? expectedReturnOffset : 0,
+        recordReturn);
+  }
+
+  @SuppressWarnings({
+      // Addresses are passed as primitives so that nothing is allocated
+      "java:S107"
+  })
+  private void call(CallType callType, FunctionInformation currentFunction, int entrySegment, int entryOffset,
+      boolean hasExpectedReturnAddress, int expectedReturnSegment, int expectedReturnOffset, boolean recordReturn)
+      throws InvalidOperationException {
+    // Determine caller
+    FunctionInformation caller = getFunctionInformation(getCurrentFunctionCall());
+    // Characterize current function
+    State state = machine.getCpu().getState();
+    FunctionCall currentFunctionCall = callerStack.push();
+    currentFunctionCall.set(callType, currentFunction, entrySegment, entryOffset, hasExpectedReturnAddress,
+        expectedReturnSegment, expectedReturnOffset, state.getSS(), state.getSP(), recordReturn);
+    // Do the call
+    if (LOGGER.isDebugEnabled()) {
+      LOGGER.debug("Calling {} from {}", currentFunction, caller);
     }
+    currentFunction.enter(caller);
     if (useCodeOverride) {
       currentFunction.callOverride();
     }
   }
 
+  /**
+   * Calls the override at the given address if there is one. Functions are not tracked.
+   */
+  private void callOverride(int entrySegment, int entryOffset) throws InvalidOperationException {
+    if (useCodeOverride) {
+      FunctionInformation function = overrideTable.get(MemoryUtils.toPhysicalAddress(entrySegment, entryOffset));
+      if (function != null) {
+        function.callOverride();
+      }
+    }
+  }
+
+  private FunctionInformation getFunctionInformation(int segment, int offset) {
+    int physicalAddress = MemoryUtils.toPhysicalAddress(segment, offset);
+    FunctionInformation res = functionInformationsByPhysicalAddress.get(physicalAddress);
+    if (res == null) {
+      res = functionInformations.get(new SegmentedAddress(segment, offset));
+      if (res != null) {
+        functionInformationsByPhysicalAddress.put(physicalAddress, res);
+      }
+    }
+    return res;
+  }
+
+  private FunctionInformation getOrCreateFunctionInformation(int segment, int offset,
+      Supplier<String> nameGenerator) {
+    FunctionInformation res = getFunctionInformation(segment, offset);
+    if (res == null) {
+      res = createFunctionInformation(segment, offset, nameGenerator != null ? nameGenerator.get() : "unknown");
+    }
+    return res;
+  }
+
+  private FunctionInformation createFunctionInformation(int segment, int offset, String name) {
+    SegmentedAddress address = new SegmentedAddress(segment, offset);
+    FunctionInformation res = new FunctionInformation(address, name);
+    functionInformations.put(address, res);
+    functionInformationsByPhysicalAddress.put(address.toPhysical(), res);
+    return res;
+  }
+
   public boolean ret(CallType returnCallType) {
     if (debugMode) {
-      FunctionCall currentFunctionCall = callerStack.pollFirst();
+      FunctionCall currentFunctionCall = callerStack.pop();
       if (currentFunctionCall == null) {
         LOGGER.warn("Returning but no call was done before!!");
         return false;
       }
-      FunctionInformation currentFunctionInformation = getFunctionInformation(currentFunctionCall);
+      FunctionInformation currentFunctionInformation = currentFunctionCall.getFunctionInformation();
       boolean returnAddressAlignedWithCallStack =
           addReturn(returnCallType, currentFunctionCall, currentFunctionInformation);
       if (LOGGER.isDebugEnabled()) {
@@ -130,7 +214,7 @@ public class FunctionHandler {
 
       if (!returnAddressAlignedWithCallStack) {
         // Put it back in the stack, we did a jump not a return
-        callerStack.addFirst(currentFunctionCall);
+        callerStack.cancelPop();
       }
     }
     return true;
@@ -151,71 +235,75 @@ public class FunctionHandler {
    */
   private boolean addReturn(CallType returnCallType, FunctionCall currentFunctionCall,
       FunctionInformation currentFunctionInformation) {
-    FunctionReturn currentFunctionReturn = generateCurrentFunctionReturn(returnCallType);
-    SegmentedAddress actualReturnAddress = peekReturnAddressOnMachineStack(returnCallType);
+    State state = machine.getCpu().getState();
+    Memory memory = machine.getMemory();
+    int stackPhysicalAddress = state.getStackPhysicalAddress();
+    // Actual return address as read on the VM stack, none for machine stop
+    boolean hasActualReturnAddress = returnCallType != CallType.MACHINE;
+    int actualReturnSegment = 0;
+    int actualReturnOffset = 0;
+    if (hasActualReturnAddress) {
+      actualReturnOffset = memory.getUint16(stackPhysicalAddress);
+      actualReturnSegment =
+          returnCallType == CallType.NEAR ? state.getCS() : memory.getUint16(stackPhysicalAddress + 2);
+    }
 
-    boolean returnAddressAlignedWithCallStack =
-        isReturnAddressAlignedWithCallStack(currentFunctionCall, actualReturnAddress, currentFunctionReturn);
+    // Not checked for machine stop call, in this case it won't be equals to what is in the stack but it's expected.
+    boolean returnAddressAlignedWithCallStack = !hasActualReturnAddress
+        || currentFunctionCall.hasExpectedReturnAddress() && currentFunctionCall
+            .getExpectedReturnPhysicalAddress() == MemoryUtils.toPhysicalAddress(actualReturnSegment,
+                actualReturnOffset);
+    if (!returnAddressAlignedWithCallStack) {
+      logUnalignedReturn(returnCallType, currentFunctionCall, new SegmentedAddress(actualReturnSegment,
+          actualReturnOffset));
+    }
 
     // Do not register returns for overrides
     if (currentFunctionInformation != null && !useOverride(currentFunctionInformation)) {
-      SegmentedAddress addressToRecord = actualReturnAddress;
-      if (!currentFunctionCall.isRecordReturn()) {
-        // Do not record this address. This is mainly for external interrupts for which return address does not make
-        // sense
-        addressToRecord = null;
-      }
-
-      if (returnAddressAlignedWithCallStack) {
-        currentFunctionInformation.addReturn(currentFunctionReturn, addressToRecord);
-      } else {
-        currentFunctionInformation.addUnalignedReturn(currentFunctionReturn, addressToRecord);
-      }
+      // Do not record the address when not asked to. This is mainly for external interrupts for which return address
+      // does not make sense
+      boolean recordAddress = hasActualReturnAddress && currentFunctionCall.isRecordReturn();
+      currentFunctionInformation.addReturn(returnAddressAlignedWithCallStack, returnCallType, state.getCS(),
+          state.getIP(), recordAddress, actualReturnSegment, actualReturnOffset);
     }
     return returnAddressAlignedWithCallStack;
   }
 
-  private boolean isReturnAddressAlignedWithCallStack(FunctionCall currentFunctionCall,
-      SegmentedAddress actualReturnAddress, FunctionReturn currentFunctionReturn) {
-    SegmentedAddress expectedReturnAddress = currentFunctionCall.getExpectedReturnAddress();
-
-    // Null check necessary for machine stop call, in this case it won't be equals to what is in the stack but it's
-    // expected.
-    if (actualReturnAddress != null && !actualReturnAddress.equals(expectedReturnAddress)) {
-      FunctionInformation currentFunctionInformation = getFunctionInformation(currentFunctionCall);
-      if (LOGGER.isInfoEnabled()
-          && !currentFunctionInformation.getUnalignedReturns().containsKey(currentFunctionReturn)) {
-        CallType callType = currentFunctionCall.getCallType();
-        SegmentedAddress stackAddressAfterCall = currentFunctionCall.getStackAddressAfterCall();
-        SegmentedAddress returnAddressOnCallTimeStack =
-            peekReturnAddressOnMachineStack(callType, stackAddressAfterCall.toPhysical());
-        SegmentedAddress currentStackAddress = getCurrentStackAddress();
-        String additionalInformation = "\n";
-        if (!currentStackAddress.equals(stackAddressAfterCall)) {
-          int delta = Math.abs(currentStackAddress.toPhysical() - stackAddressAfterCall.toPhysical());
-          additionalInformation +=
-              "Stack is not pointing at the same address as it was at call time. Delta is " + delta + " bytes\n";
-        }
-        if (!Objects.equals(expectedReturnAddress, returnAddressOnCallTimeStack)) {
-          additionalInformation += "Return address on stack was modified";
-        }
-        LOGGER.info("""
-            PROGRAM IS NOT WELL BEHAVED SO CALL STACK COULD NOT BE TRACEABLE ANYMORE!
-            Current function {} return {} will not go to the expected place:
-             - At {} call time, return was supposed to be {} stored at SS:SP {}. Value there is now {}
-             - On the stack it is now {} stored at SS:SP {}{}
-            """,
-            currentFunctionInformation, currentFunctionReturn,
-            //
-            callType, expectedReturnAddress, stackAddressAfterCall, returnAddressOnCallTimeStack,
-            //
-            actualReturnAddress, currentStackAddress,
-            //
-            additionalInformation);
+  private void logUnalignedReturn(CallType returnCallType, FunctionCall currentFunctionCall,
+      SegmentedAddress actualReturnAddress) {
+    FunctionInformation currentFunctionInformation = currentFunctionCall.getFunctionInformation();
+    FunctionReturn currentFunctionReturn = generateCurrentFunctionReturn(returnCallType);
+    if (LOGGER.isInfoEnabled()
+        && !currentFunctionInformation.getUnalignedReturns().containsKey(currentFunctionReturn)) {
+      SegmentedAddress expectedReturnAddress = currentFunctionCall.getExpectedReturnAddress();
+      CallType callType = currentFunctionCall.getCallType();
+      SegmentedAddress stackAddressAfterCall = currentFunctionCall.getStackAddressAfterCall();
+      SegmentedAddress returnAddressOnCallTimeStack =
+          peekReturnAddressOnMachineStack(callType, stackAddressAfterCall.toPhysical());
+      SegmentedAddress currentStackAddress = getCurrentStackAddress();
+      String additionalInformation = "\n";
+      if (!currentStackAddress.equals(stackAddressAfterCall)) {
+        int delta = Math.abs(currentStackAddress.toPhysical() - stackAddressAfterCall.toPhysical());
+        additionalInformation +=
+            "Stack is not pointing at the same address as it was at call time. Delta is " + delta + " bytes\n";
+      }
+      if (!Objects.equals(expectedReturnAddress, returnAddressOnCallTimeStack)) {
+        additionalInformation += "Return address on stack was modified";
       }
-      return false;
+      LOGGER.info("""
+          PROGRAM IS NOT WELL BEHAVED SO CALL STACK COULD NOT BE TRACEABLE ANYMORE!
+          Current function {} return {} will not go to the expected place:
+           - At {} call time, return was supposed to be {} stored at SS:SP {}. Value there is now {}
+           - On the stack it is now {} stored at SS:SP {}{}
+          """,
+          currentFunctionInformation, currentFunctionReturn,
+          //
+          callType, expectedReturnAddress, stackAddressAfterCall, returnAddressOnCallTimeStack,
+          //
+          actualReturnAddress, currentStackAddress,
+          //
+          additionalInformation);
     }
-    return true;
   }
 
   private int getStackPhysicalAddress() {
@@ -252,18 +340,14 @@ public class FunctionHandler {
   }
 
   private FunctionReturn generateCurrentFunctionReturn(CallType returnCallType) {
-    Cpu cpu = machine.getCpu();
-    State state = cpu.getState();
+    State state = machine.getCpu().getState();
     int cs = state.getCS();
     int ip = state.getIP();
     return new FunctionReturn(returnCallType, new SegmentedAddress(cs, ip));
   }
 
   private FunctionCall getCurrentFunctionCall() {
-    if (callerStack.isEmpty()) {
-      return null;
-    }
-    return callerStack.peekFirst();
+    return callerStack.peek();
   }
 
   private boolean useOverride(FunctionInformation functionInformation) {
@@ -274,12 +358,28 @@ public class FunctionHandler {
     if (functionCall == null) {
       return null;
     }
-    return functionInformations.get(functionCall.getEntryPointAddress());
+    return functionCall.getFunctionInformation();
+  }
+
+  /**
+   * @return the functions of the call stack, starting with the outermost one. Call stack is only tracked in debug
+   *         mode.
+   */
+  public List<FunctionInformation> getCallStackFunctionInformations() {
+    List<FunctionInformation> res = new ArrayList<>(callerStack.size());
+    for (int i = 0; i < callerStack.size(); i++) {
+      FunctionInformation functionInformation = getFunctionInformation(callerStack.get(i));
+      if (functionInformation != null) {
+        res.add(functionInformation);
+      }
+    }
+    return res;
   }
 
   public String dumpCallStack() {
     StringBuilder res = new StringBuilder();
-    for (FunctionCall functionCall : this.callerStack) {
+    for (int i = callerStack.size() - 1; i >= 0; i--) {
+      FunctionCall functionCall = callerStack.get(i);
       SegmentedAddress returnAddress = functionCall.getExpectedReturnAddress();
       FunctionInformation functionInformation = getFunctionInformation(functionCall);
       res.append(" - ");
@@ -6,9 +6,11 @@ import java.util.Map;
 import java.util.Set;
 
 import spice86.emulator.errors.InvalidOperationException;
+import spice86.emulator.memory.MemoryUtils;
 import spice86.emulator.memory.SegmentedAddress;
 import spice86.utils.CheckedSupplier;
 import spice86.utils.ConvertUtils;
+import spice86.utils.LongKeyMap;
 
 /**
  * Represents the informations about a function.<br/>
@@ -29,6 +31,8 @@ public class FunctionInformation implements Comparable<FunctionInformation> {
   // Addresses and types of the return instructions encountered that did not result in an actual return due to stack not
   // being in the state it was at function entry.
   private Map<FunctionReturn, Set<SegmentedAddress>> unalignedReturns = new HashMap<>();
+  // Keys of the returns already recorded, so that recording them again does not allocate. Created on first return.
+  private LongKeyMap<Boolean> recordedReturnKeys;
   // Functions that calls this one
   private Set<FunctionInformation> callers = new HashSet<>();
   // Override to execute instead of the assembly
@@ -81,6 +85,48 @@ public class FunctionInformation implements Comparable<FunctionInformation> {
     addReturn(returns, functionReturn, target);
   }
 
+  /**
+   * Records a return from primitive addresses. FunctionReturn and SegmentedAddress objects are only created the first
+   * time a given return / target combination is seen.
+   * 
+   * @param aligned
+   *          true if the return went where the call expected it to
+   * @param returnCallType
+   *          type of the ret instruction
+   * @param returnSegment
+   *          segment of the ret instruction
+   * @param returnOffset
+   *          offset of the ret instruction
+   * @param hasTarget
+   *          false if the address where the ret goes should not be recorded
+   * @param targetSegment
+   *          segment where the ret goes, ignored if hasTarget is false
+   * @param targetOffset
+   *          offset where the ret goes, ignored if hasTarget is false
+   */
+  @SuppressWarnings({
+      // Addresses are passed as primitives so that nothing is allocated
+      "java:S107"
+  })
+  public void addReturn(boolean aligned, CallType returnCallType, int returnSegment, int returnOffset,
+      boolean hasTarget, int targetSegment, int targetOffset) {
+    long targetKey = hasTarget ? MemoryUtils.toPhysicalAddress(targetSegment, targetOffset) + 1L : 0;
+    long key = (aligned ? 1L : 0L) << 45
+        | (long)returnCallType.ordinal() << 43
+        | (long)MemoryUtils.toPhysicalAddress(returnSegment, returnOffset) << 22
+        | targetKey;
+    if (recordedReturnKeys == null) {
+      recordedReturnKeys = new LongKeyMap<>();
+    } else if (recordedReturnKeys.get(key) != null) {
+      return;
+    }
+    recordedReturnKeys.put(key, Boolean.TRUE);
+    FunctionReturn functionReturn =
+        new FunctionReturn(returnCallType, new SegmentedAddress(returnSegment, returnOffset));
+    SegmentedAddress target = hasTarget ? new SegmentedAddress(targetSegment, targetOffset) : null;
+    addReturn(aligned ? returns : unalignedReturns, functionReturn, target);
+  }
+
   private void addReturn(Map<FunctionReturn, Set<SegmentedAddress>> returnsMap, FunctionReturn functionReturn,
       SegmentedAddress target) {
     Set<SegmentedAddress> addresses = returnsMap.computeIfAbsent(functionReturn, f -> new HashSet<>());
@@ -0,0 +1,66 @@
+package spice86.emulator.function;
+
+import java.util.Map;
+
+import spice86.emulator.memory.SegmentedAddress;
+
+/**
+ * Functions with an override indexed by physical address.<br/>
+ * A bitmap covering the whole addressable memory tells if there is an override at an address, so that calls to code
+ * that is not overridden cost one bit test. FunctionInformations are stored in pages only allocated for the parts of
+ * the memory that have overrides.
+ */
+public class OverrideTable {
+  // Physical addresses go up to FFFF:FFFF
+  private static final int ADDRESS_SPACE_SIZE = 0x10FFF0;
+  private static final int PAGE_SHIFT = 12;
+  private static final int PAGE_MASK = (1 << PAGE_SHIFT) - 1;
+
+  private final long[] hasOverride = new long[(ADDRESS_SPACE_SIZE + 63) >>> 6];
+  private final FunctionInformation[][] pages = new FunctionInformation[(ADDRESS_SPACE_SIZE >>> PAGE_SHIFT) + 1][];
+  private int size;
+
+  /**
+   * @param functionInformations
+   *          functions as generated by the OverrideSupplier, only the ones with an override are kept
+   */
+  public OverrideTable(Map<SegmentedAddress, FunctionInformation> functionInformations) {
+    for (Map.Entry<SegmentedAddress, FunctionInformation> entry : functionInformations.entrySet()) {
+      FunctionInformation functionInformation = entry.getValue();
+      if (functionInformation.hasOverride()) {
+        put(entry.getKey().toPhysical(), functionInformation);
+      }
+    }
+  }
+
+  private void put(int physicalAddress, FunctionInformation functionInformation) {
+    FunctionInformation[] page = pages[physicalAddress >>> PAGE_SHIFT];
+    if (page == null) {
+      page = new FunctionInformation[PAGE_MASK + 1];
+      pages[physicalAddress >>> PAGE_SHIFT] = page;
+    }
+    if (page[physicalAddress & PAGE_MASK] == null) {
+      size++;
+    }
+    page[physicalAddress & PAGE_MASK] = functionInformation;
+    hasOverride[physicalAddress >>> 6] |= 1L << physicalAddress;
+  }
+
+  public int size() {
+    return size;
+  }
+
+  public boolean hasOverride(int physicalAddress) {
+    return (hasOverride[physicalAddress >>> 6] & (1L << physicalAddress)) != 0;
+  }
+
+  /**
+   * @return the function with an override at this address, null if there is none
+   */
+  public FunctionInformation get(int physicalAddress) {
+    if (!hasOverride(physicalAddress)) {
+      return null;
+    }
+    return pages[physicalAddress >>> PAGE_SHIFT][physicalAddress & PAGE_MASK];
+  }
+}
@@ -0,0 +1,183 @@
+package spice86.emulator.function;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.LockSupport;
+
+import spice86.emulator.cpu.Cpu;
+
+/**
+ * Sampling profiler attributing the emulation time to the functions of the emulated program.<br/>
+ * A sampler thread periodically requests a sample, and the CPU takes it before executing its next instruction so that
+ * the call stack is read from the emulation thread. Time spent paused in the debugger is not sampled.<br/>
+ * Samples are aggregated per FunctionInformation (self and total) and per call stack, the latter can be dumped in the
+ * collapsed stack format understood by flamegraph tools.<br/>
+ * Call stacks are only tracked in debug mode, otherwise all the samples are attributed to NO_FUNCTION.
+ */
+public class SamplingProfiler {
+  public static final String NO_FUNCTION = "no_function";
+
+  /**
+   * Samples of a function, self when it was executing and total when it was anywhere in the call stack.
+   */
+  private static class FunctionSamples {
+    private final FunctionInformation functionInformation;
+    private long self;
+    private long total;
+
+    FunctionSamples(FunctionInformation functionInformation) {
+      this.functionInformation = functionInformation;
+    }
+  }
+
+  private final Cpu cpu;
+  private final long periodNanos;
+  private volatile boolean sampleRequested;
+  private volatile boolean running;
+  private Thread samplerThread;
+  private long sampleCount;
+  private final Map<String, Long> collapsedStacks = new HashMap<>();
+  private final Map<FunctionInformation, FunctionSamples> functionSamples = new HashMap<>();
+
+  /**
+   * @param frequency
+   *          number of samples to take per second of emulation
+   */
+  public SamplingProfiler(Cpu cpu, int frequency) {
+    this.cpu = cpu;
+    this.periodNanos = 1_000_000_000L / frequency;
+  }
+
+  public void start() {
+    if (running) {
+      return;
+    }
+    running = true;
+    samplerThread = new Thread(this::requestSamples, "Sampler");
+    samplerThread.setDaemon(true);
+    samplerThread.start();
+  }
+
+  public void stop() {
+    running = false;
+    sampleRequested = false;
+    if (samplerThread != null) {
+      LockSupport.unpark(samplerThread);
+      samplerThread = null;
+    }
+  }
+
+  private void requestSamples() {
+    while (running) {
+      LockSupport.parkNanos(periodNanos);
+      sampleRequested = running;
+    }
+  }
+
+  /**
+   * Checked by the CPU before each instruction.
+   */
+  public boolean isSampleRequested() {
+    return sampleRequested;
+  }
+
+  /**
+   * Records the current call stack. Has to be called from the emulation thread.
+   */
+  public synchronized void takeSample() {
+    sampleRequested = false;
+    List<FunctionInformation> stack = cpu.getFunctionHandler().getCallStackFunctionInformations();
+    FunctionHandler functionHandlerInUse = cpu.getFunctionHandlerInUse();
+    if (functionHandlerInUse != cpu.getFunctionHandler()) {
+      // External interrupts have their own call stack, on top of the one of the interrupted code
+      stack.addAll(functionHandlerInUse.getCallStackFunctionInformations());
+    }
+    sampleCount++;
+    StringBuilder collapsedStack = new StringBuilder();
+    if (stack.isEmpty()) {
+      collapsedStack.append(NO_FUNCTION);
+    }
+    // Recursive functions count only once in total
+    Set<FunctionInformation> seen = new HashSet<>();
+    for (FunctionInformation functionInformation : stack) {
+      if (collapsedStack.length() > 0) {
+        collapsedStack.append(';');
+      }
+      collapsedStack.append(toFrameName(functionInformation));
+      if (seen.add(functionInformation)) {
+        getFunctionSamples(functionInformation).total++;
+      }
+    }
+    if (!stack.isEmpty()) {
+      getFunctionSamples(stack.get(stack.size() - 1)).self++;
+    }
+    collapsedStacks.merge(collapsedStack.toString(), 1L, Long::sum);
+  }
+
+  private FunctionSamples getFunctionSamples(FunctionInformation functionInformation) {
+    return functionSamples.computeIfAbsent(functionInformation, FunctionSamples::new);
+  }
+
+  private String toFrameName(FunctionInformation functionInformation) {
+    // Semicolons separate frames and the last space separates the count in the collapsed format
+    return functionInformation.toString().replace(';', '_').replace(' ', '_');
+  }
+
+  public synchronized long getSampleCount() {
+    return sampleCount;
+  }
+
+  public synchronized long getSelfSamples(FunctionInformation functionInformation) {
+    FunctionSamples samples = functionSamples.get(functionInformation);
+    return samples == null ? 0 : samples.self;
+  }
+
+  public synchronized long getTotalSamples(FunctionInformation functionInformation) {
+    FunctionSamples samples = functionSamples.get(functionInformation);
+    return samples == null ? 0 : samples.total;
+  }
+
+  /**
+   * Dumps one line per call stack: frames from the outermost separated by semicolons, a space and the sample count.
+   */
+  public synchronized void dumpCollapsedStacks(String destinationFilePath) throws IOException {
+    try (PrintWriter printWriter = new PrintWriter(new FileWriter(destinationFilePath))) {
+      collapsedStacks.entrySet()
+          .stream()
+          .sorted(Map.Entry.comparingByKey())
+          .forEach(entry -> printWriter.println(entry.getKey() + " " + entry.getValue()));
+    }
+  }
+
+  /**
+   * Dumps the self and total samples of each function in CSV format, sorted by decreasing self samples.
+   */
+  public synchronized void dumpFunctionTable(String destinationFilePath) throws IOException {
+    List<FunctionSamples> samples = new ArrayList<>(functionSamples.values());
+    samples.sort(Comparator.comparingLong((FunctionSamples s) -> s.self)
+        .thenComparingLong(s -> s.total)
+        .reversed());
+    try (PrintWriter printWriter = new PrintWriter(new FileWriter(destinationFilePath))) {
+      printWriter.println("Name,SelfSamples,SelfPercent,TotalSamples,TotalPercent,Called");
+      for (FunctionSamples functionSample : samples) {
+        printWriter.println(String.join(",", functionSample.functionInformation.toString(),
+            Long.toString(functionSample.self), percent(functionSample.self),
+            Long.toString(functionSample.total), percent(functionSample.total),
+            Integer.toString(functionSample.functionInformation.getCalledCount())));
+      }
+    }
+  }
+
+  private String percent(long samples) {
+    return String.format(Locale.ROOT, "%.2f", samples * 100.0 / sampleCount);
+  }
+}
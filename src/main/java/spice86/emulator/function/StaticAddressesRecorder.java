@@ -20,8 +20,9 @@ public class StaticAddressesRecorder {
   private Set<SegmentedAddress> whiteListOfSegmentForOffset = new HashSet<>();
   private Map<Integer, SegmentRegisterBasedAddress> segmentRegisterBasedAddress = new HashMap<>();
   private Map<Integer, String> names = new HashMap<>();
-  private Integer currentSegmentIndex;
-  private Integer currentOffset;
+  // -1 when nothing has been recorded for the current instruction
+  private int currentSegmentIndex = -1;
+  private int currentOffset = -1;
   private AddressOperation currentAddressOperation;
 
   public StaticAddressesRecorder(State state, boolean debugMode) {
@@ -38,13 +39,13 @@ public class StaticAddressesRecorder {
   }
 
   public void reset() {
-    currentSegmentIndex = null;
-    currentOffset = null;
+    currentSegmentIndex = -1;
+    currentOffset = -1;
     currentAddressOperation = null;
   }
 
   public void commit() {
-    if (debugMode && currentSegmentIndex != null && currentOffset != null && currentAddressOperation != null) {
+    if (debugMode && currentSegmentIndex != -1 && currentOffset != -1 && currentAddressOperation != null) {
       int segmentValue = segmentRegisters.getRegister(currentSegmentIndex);
       int physicalAddress = MemoryUtils.toPhysicalAddress(segmentValue, currentOffset);
       SegmentRegisterBasedAddress value = segmentRegisterBasedAddress.computeIfAbsent(physicalAddress,
@@ -59,6 +60,10 @@ public class StaticAddressesRecorder {
   }
 
   public void setCurrentAddressOperation(ValueOperation valueOperation, OperandSize operandSize) {
+    if (!debugMode) {
+      // Only used in debug mode, no need to allocate
+      return;
+    }
     currentAddressOperation = new AddressOperation(valueOperation, operandSize);
   }
 
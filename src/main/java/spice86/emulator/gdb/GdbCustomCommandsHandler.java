@@ -6,8 +6,10 @@ import org.apache.commons.lang3.math.NumberUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import spice86.emulator.cpu.Cpu;
+import spice86.emulator.cpu.OpcodeProfiler;
 import spice86.emulator.devices.video.VgaCard;
 import spice86.emulator.function.CallType;
+import spice86.emulator.function.SamplingProfiler;
 import spice86.emulator.function.dump.CsvFunctionInformationToStringConverter;
 import spice86.emulator.function.dump.DetailedFunctionInformationToStringConverter;
 import spice86.emulator.function.dump.FunctionInformationDumper;
@@ -18,7 +20,7 @@ import spice86.emulator.machine.Machine;
 import spice86.emulator.machine.breakpoint.BreakPoint;
 import spice86.emulator.machine.breakpoint.BreakPointType;
 import spice86.emulator.machine.breakpoint.UnconditionalBreakPoint;
-import spice86.emulator.memory.Memory;
+import spice86.emulator.savestate.SaveStateManager;
 import spice86.ui.Gui;
 import spice86.ui.VideoBuffer;
 import spice86.utils.CheckedConsumer;
@@ -27,6 +29,7 @@ import spice86.utils.ConvertUtils;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.text.MessageFormat;
+import java.util.Arrays;
 import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
@@ -36,11 +39,16 @@ import java.util.stream.Collectors;
  */
 public class GdbCustomCommandsHandler {
   private static final Logger LOGGER = LoggerFactory.getLogger(GdbCustomCommandsHandler.class);
+  private static final int DEFAULT_SAMPLING_FREQUENCY = 100;
 
   private GdbIo gdbIo;
   private Machine machine;
   private Consumer<BreakPoint> onBreakpointReached;
   private String defaultDumpDirectory;
+  // Profiler of the last profile start, kept after profile stop so that it can be dumped
+  private OpcodeProfiler opcodeProfiler;
+  // Profiler of the last sample start, kept after sample stop so that it can be dumped
+  private SamplingProfiler samplingProfiler;
 
   public GdbCustomCommandsHandler(GdbIo gdbIo, Machine machine, Consumer<BreakPoint> onBreakpointReached,
       String defaultDumpDirectory) {
@@ -76,8 +84,13 @@ public class GdbCustomCommandsHandler {
       case "dumpjavastubs" -> dumpJavaStubs(args);
       case "dumpkotlinstubs" -> dumpKotlinStubs(args);
       case "dumpall" -> dumpAll();
+      case "savestate" -> saveState(args);
+      case "checkpoint" -> checkpoint(args);
+      case "loadstate" -> loadState(args);
       case "breakcycles" -> breakCycles(args);
       case "vbuffer" -> vbuffer(args);
+      case "profile" -> profile(args);
+      case "sample" -> sample(args);
       default -> invalidCommand(originalCommand);
     };
   }
@@ -105,9 +118,107 @@ public class GdbCustomCommandsHandler {
     dumpFunctions(args);
     dumpJavaStubs(args);
     dumpKotlinStubs(args);
+    if (opcodeProfiler != null) {
+      dumpOpcodeProfile(args);
+    }
+    if (samplingProfiler != null) {
+      dumpSamples(args);
+    }
     return gdbIo.generateMessageToDisplayResponse("Dumped everything in " + defaultDumpDirectory);
   }
 
+  private String profile(String[] args) {
+    if (args.length < 2) {
+      return invalidCommand("profile needs an action. Valid actions are [start, stop, dump]");
+    }
+    String action = args[1];
+    Cpu cpu = machine.getCpu();
+    switch (action) {
+      case "start" -> {
+        opcodeProfiler = new OpcodeProfiler();
+        cpu.setOpcodeProfiler(opcodeProfiler);
+        return gdbIo.generateMessageToDisplayResponse("Opcode profiling started");
+      }
+      case "stop" -> {
+        cpu.setOpcodeProfiler(null);
+        return gdbIo.generateMessageToDisplayResponse("Opcode profiling stopped");
+      }
+      case "dump" -> {
+        if (opcodeProfiler == null) {
+          return gdbIo.generateMessageToDisplayResponse("Nothing to dump, use profile start first");
+        }
+        // File path is the argument after the action
+        return dumpOpcodeProfile(Arrays.copyOfRange(args, 1, args.length));
+      }
+      default -> {
+        return invalidCommand("Could not understand profile action " + action);
+      }
+    }
+  }
+
+  private String dumpOpcodeProfile(String[] args) {
+    String fileName = getFirstArgumentOrDefaultFile(args, "OpcodeProfile.csv");
+    return doFileAction(fileName, opcodeProfiler::dumpCsv, "Error while dumping opcode profile");
+  }
+
+  private String sample(String[] args) {
+    if (args.length < 2) {
+      return invalidCommand("sample needs an action. Valid actions are [start, stop, dump]");
+    }
+    String action = args[1];
+    Cpu cpu = machine.getCpu();
+    switch (action) {
+      case "start" -> {
+        int frequency = DEFAULT_SAMPLING_FREQUENCY;
+        if (args.length >= 3) {
+          if (!NumberUtils.isDigits(args[2]) || Integer.parseInt(args[2]) == 0) {
+            return invalidCommand("sample start frequency needs to be a positive number. You gave " + args[2]);
+          }
+          frequency = Integer.parseInt(args[2]);
+        }
+        if (samplingProfiler != null) {
+          samplingProfiler.stop();
+        }
+        samplingProfiler = new SamplingProfiler(cpu, frequency);
+        cpu.setSamplingProfiler(samplingProfiler);
+        samplingProfiler.start();
+        return gdbIo.generateMessageToDisplayResponse("Sampling started at " + frequency + " samples per second");
+      }
+      case "stop" -> {
+        if (samplingProfiler != null) {
+          samplingProfiler.stop();
+        }
+        cpu.setSamplingProfiler(null);
+        return gdbIo.generateMessageToDisplayResponse("Sampling stopped");
+      }
+      case "dump" -> {
+        if (samplingProfiler == null) {
+          return gdbIo.generateMessageToDisplayResponse("Nothing to dump, use sample start first");
+        }
+        // File path prefix is the argument after the action
+        return dumpSamples(Arrays.copyOfRange(args, 1, args.length));
+      }
+      default -> {
+        return invalidCommand("Could not understand sample action " + action);
+      }
+    }
+  }
+
+  private String dumpSamples(String[] args) {
+    String prefix = args.length >= 2 ? args[1] : defaultDumpDirectory + "/spice86dump";
+    String collapsedStacksFileName = prefix + "SampledStacks.txt";
+    String functionTableFileName = prefix + "SampledFunctions.csv";
+    try {
+      samplingProfiler.dumpCollapsedStacks(collapsedStacksFileName);
+      samplingProfiler.dumpFunctionTable(functionTableFileName);
+    } catch (IOException e) {
+      LOGGER.error("Error while dumping samples", e);
+      return gdbIo.generateMessageToDisplayResponse("Error while dumping samples: " + e.getMessage());
+    }
+    return gdbIo.generateMessageToDisplayResponse(
+        "Results are in files " + collapsedStacksFileName + " and " + functionTableFileName);
+  }
+
   private String peekRet(String[] args) {
     if (args.length == 1) {
       return gdbIo.generateMessageToDisplayResponse(machine.peekReturn());
@@ -136,16 +247,25 @@ public class GdbCustomCommandsHandler {
             Supported custom commands:
              - help: display this
              - dumpall: dumps everything possible in the default directory which is {0}
-             - dumpMemory <file path to dump>: dump the memory as a binary file
+             - dumpMemory <file path to dump>: dump the memory as a binary file. File is written in the background.
              - dumpFunctionsCsv <file path to dump>: dump information about the function calls executed in csv format
              - dumpFunctions <file path to dump>: dump information about the function calls executed with details in human readable format
              - dumpJavaStubs <file path to dump>: dump java stubs for functions and globals to be used as override
              - dumpKotlinStubs <file path to dump>: dump kotlin stubs for functions and globals to be used as override
+             - saveState <file path to save to>: saves the whole machine in a compressed file
+             - checkpoint <file path to save to>: saves only what changed since the last saveState or checkpoint. By default checkpoint files are numbered
+             - loadState <save state file path> <checkpoint file paths...>: restores the machine from a save state and the checkpoints taken after it, in order
              - breakCycles <number of cycles to wait before break>: breaks after the given number of cycles is reached
              - breakStop: setups a breakpoint when machine shuts down
              - callStack: dumps the callstack to see in which function you are in the VM.
              - peekRet <optional type>: displays the return address of the current function as stored in the stack in RAM. If a parameter is provided, dump the return on the stack as if the return was one of the provided type. Valid values are: {1}
              - state: displays the state of the machine
+             - profile start: starts counting executions and time per opcode, group sub-opcode and prefixes. Slows down execution.
+             - profile stop: stops counting
+             - profile dump <file path to dump>: dump the counters of the last profile start in csv format
+             - sample start <optional samples per second>: starts sampling the call stack to see in which functions time is spent, 100 samples per second by default
+             - sample stop: stops sampling
+             - sample dump <file path prefix>: dump the samples of the last sample start as collapsed stacks for flamegraphs (prefix + SampledStacks.txt) and as a per function self / total table in csv format (prefix + SampledFunctions.csv)
              - vbuffer: family of commands to control video bufers:
                - vbuffer refresh: refreshes the screen
                - vbuffer add <address> <resolution> <scale?>: Example vbuffer add 0x1234 320x200 1.5 -> Add an additional buffer displaying what is at address 0x1234, with resolution 320x200 and scale 1.5
@@ -193,7 +313,37 @@ public class GdbCustomCommandsHandler {
 
   private String dumpMemory(String[] args) {
     String fileName = getFirstArgumentOrDefaultFile(args, "MemoryDump.bin");
-    return doFileAction(fileName, f -> machine.getMemory().dumpToFile(f), "Error while dumping memory");
+    // Only the copy of the memory is done here, the file is written in the background
+    machine.getMemory().dumpToFileAsync(fileName).exceptionally(e -> {
+      LOGGER.error("Error while dumping memory", e);
+      return null;
+    });
+    return gdbIo.generateMessageToDisplayResponse("Memory copied, it is being written to file " + fileName);
+  }
+
+  private String saveState(String[] args) {
+    String fileName = getFirstArgumentOrDefaultFile(args, "SaveState.bin");
+    return doFileAction(fileName, f -> machine.getSaveStateManager().saveState(f), "Error while saving state");
+  }
+
+  private String checkpoint(String[] args) {
+    SaveStateManager saveStateManager = machine.getSaveStateManager();
+    String fileName =
+        getFirstArgumentOrDefaultFile(args, "Checkpoint" + (saveStateManager.getSequence() + 1) + ".bin");
+    return doFileAction(fileName, saveStateManager::saveCheckpoint, "Error while saving checkpoint");
+  }
+
+  private String loadState(String[] args) {
+    if (args.length < 2) {
+      return invalidCommand("loadState needs at least the path of a save state.");
+    }
+    try {
+      machine.getSaveStateManager().restore(args[1], Arrays.asList(args).subList(2, args.length));
+    } catch (IOException e) {
+      LOGGER.error("Error while loading state", e);
+      return gdbIo.generateMessageToDisplayResponse("Error while loading state: " + e.getMessage());
+    }
+    return gdbIo.generateMessageToDisplayResponse("State restored from " + (args.length - 1) + " file(s)");
   }
 
   private String dumpFunctionWithFormat(String[] args, String defaultSuffix,
@@ -237,8 +387,7 @@ public class GdbCustomCommandsHandler {
       VgaCard vgaCard = machine.getVgaCard();
       // Actions for 1 parameter
       if ("refresh".equals(action)) {
-        Memory memory = machine.getMemory();
-        gui.draw(memory.getRam(), vgaCard.getVgaDac().getRgbs());
+        vgaCard.refreshScreen();
         return gdbIo.generateResponse("");
       } else if ("list".equals(action)) {
         String list = gui.getVideoBuffers().values().stream().map(Object::toString).collect(Collectors.joining("\n"));
@@ -6,12 +6,17 @@ import spice86.emulator.errors.UnrecoverableException;
 import spice86.emulator.memory.Memory;
 import spice86.emulator.memory.MemoryRange;
 import spice86.emulator.memory.MemoryUtils;
+import spice86.emulator.savestate.Savable;
 import spice86.utils.ConvertUtils;
 
+import java.io.DataInput;
+import java.io.DataOutput;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
@@ -27,7 +32,7 @@ import java.util.Map;
 import java.util.regex.Pattern;
 import java.util.stream.Stream;
 
-public class DosFileManager {
+public class DosFileManager implements Savable {
   private static final Logger LOGGER = LoggerFactory.getLogger(DosFileManager.class);
 
   public static final int FILE_HANDLE_OFFSET = 5;
@@ -48,6 +53,8 @@ public class DosFileManager {
   private String currentMatchingFileSearchFolder;
   private String currentMatchingFileSearchSpec;
   private Iterator<Path> matchingFilesIterator;
+  // Files reopened by prepareRestore, waiting for restoreState
+  private OpenFile[] preparedOpenFiles;
 
   public DosFileManager(Memory memory) {
     this.memory = memory;
@@ -186,7 +193,12 @@ public class DosFileManager {
       return fileNotOpenedError(fileHandle);
     }
     try {
-      file.getRandomAccessFile().write(memory.getRam(), bufferAddress, writeLength);
+      // The channel shares the position of the file and writes directly from memory
+      ByteBuffer buffer = memory.asByteBuffer(bufferAddress, writeLength);
+      FileChannel channel = file.getRandomAccessFile().getChannel();
+      while (buffer.hasRemaining()) {
+        channel.write(buffer);
+      }
     } catch (IOException e) {
       throw new UnrecoverableException("IOException while writing file", e);
     }
@@ -396,13 +408,154 @@ public class DosFileManager {
     int dosIndex = freeIndex + FILE_HANDLE_OFFSET;
     try {
       RandomAccessFile randomAccessFile = new RandomAccessFile(hostFileName, openMode);
-      setOpenFile(dosIndex, new OpenFile(fileName, dosIndex, randomAccessFile));
+      setOpenFile(dosIndex, new OpenFile(fileName, hostFileName, openMode, dosIndex, randomAccessFile));
     } catch (FileNotFoundException fne) {
       return fileNotFoundError(fileName);
     }
     return DosFileOperationResult.value16(dosIndex);
   }
 
+  /**
+   * Saves the current folder, the DTA and the open files with their position. Handles created by duplication are saved
+   * as references to the slot of the original file.<br/>
+   * Pending file searches are not saved.
+   */
+  @Override
+  public void saveState(DataOutput output) throws IOException {
+    output.writeBoolean(currentDir != null);
+    if (currentDir != null) {
+      output.writeUTF(currentDir);
+    }
+    output.writeShort(diskTransferAreaAddressSegment);
+    output.writeShort(diskTransferAreaAddressOffset);
+    for (int i = 0; i < openFiles.length; i++) {
+      OpenFile openFile = openFiles[i];
+      int firstIndex = indexOfOpenFile(openFile);
+      output.writeByte(firstIndex);
+      if (openFile != null && firstIndex == i) {
+        output.writeUTF(openFile.getName());
+        output.writeUTF(openFile.getHostFileName());
+        output.writeUTF(openFile.getOpenMode());
+        output.writeShort(openFile.getDescriptor());
+        output.writeLong(openFile.getRandomAccessFile().getFilePointer());
+      }
+    }
+  }
+
+  /**
+   * Reopens the saved files from the host file system, the current ones stay open until restoreState.
+   */
+  @Override
+  public void prepareRestore(DataInput input) throws IOException {
+    cancelRestore();
+    skipCurrentDirAndDiskTransferArea(input);
+    preparedOpenFiles = readOpenFiles(input, true);
+  }
+
+  @Override
+  public void cancelRestore() {
+    if (preparedOpenFiles != null) {
+      closeOpenFiles(preparedOpenFiles);
+      preparedOpenFiles = null;
+    }
+  }
+
+  /**
+   * Replaces the currently opened files with the ones reopened by prepareRestore, or reopens them now if it was not
+   * called. Current files are closed once replaced.
+   */
+  @Override
+  public void restoreState(DataInput input) throws IOException {
+    String restoredCurrentDir = input.readBoolean() ? input.readUTF() : null;
+    int restoredDiskTransferAreaAddressSegment = input.readUnsignedShort();
+    int restoredDiskTransferAreaAddressOffset = input.readUnsignedShort();
+    OpenFile[] restoredOpenFiles = readOpenFiles(input, preparedOpenFiles == null);
+    if (preparedOpenFiles != null) {
+      restoredOpenFiles = preparedOpenFiles;
+      preparedOpenFiles = null;
+    }
+    currentDir = restoredCurrentDir;
+    diskTransferAreaAddressSegment = restoredDiskTransferAreaAddressSegment;
+    diskTransferAreaAddressOffset = restoredDiskTransferAreaAddressOffset;
+    matchingFilesIterator = null;
+    OpenFile[] previousOpenFiles = openFiles;
+    openFiles = restoredOpenFiles;
+    closeOpenFiles(previousOpenFiles);
+  }
+
+  private void skipCurrentDirAndDiskTransferArea(DataInput input) throws IOException {
+    if (input.readBoolean()) {
+      input.readUTF();
+    }
+    input.readUnsignedShort();
+    input.readUnsignedShort();
+  }
+
+  /**
+   * @param open
+   *          false to only skip the saved files
+   * @return the saved open files, null if open is false. Files opened are closed if one cannot be opened.
+   */
+  private OpenFile[] readOpenFiles(DataInput input, boolean open) throws IOException {
+    OpenFile[] files = new OpenFile[MAX_OPEN_FILES];
+    try {
+      for (int i = 0; i < files.length; i++) {
+        int firstIndex = input.readByte();
+        if (firstIndex >= 0 && firstIndex < i) {
+          files[i] = files[firstIndex];
+        } else if (firstIndex >= 0) {
+          String name = input.readUTF();
+          String hostFileName = input.readUTF();
+          String openMode = input.readUTF();
+          int descriptor = input.readUnsignedShort();
+          long filePointer = input.readLong();
+          if (open) {
+            RandomAccessFile randomAccessFile = new RandomAccessFile(hostFileName, openMode);
+            files[i] = new OpenFile(name, hostFileName, openMode, descriptor, randomAccessFile);
+            randomAccessFile.seek(filePointer);
+          }
+        }
+      }
+    } catch (IOException e) {
+      closeOpenFiles(files);
+      throw e;
+    }
+    return open ? files : null;
+  }
+
+  private void closeOpenFiles(OpenFile[] files) {
+    for (int i = 0; i < files.length; i++) {
+      OpenFile openFile = files[i];
+      if (openFile == null || indexOf(files, openFile) != i) {
+        continue;
+      }
+      try {
+        openFile.getRandomAccessFile().close();
+      } catch (IOException e) {
+        LOGGER.warn("Could not close {}", openFile.getHostFileName(), e);
+      }
+    }
+  }
+
+  private static int indexOf(OpenFile[] files, OpenFile openFile) {
+    for (int i = 0; i < files.length; i++) {
+      if (files[i] == openFile) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * @return index of the first slot holding openFile, -1 if openFile is null
+   */
+  private int indexOfOpenFile(OpenFile openFile) {
+    if (openFile == null) {
+      return -1;
+    }
+    return indexOf(openFiles, openFile);
+  }
+
   private boolean isWriteDeviceFileHandle(int fileHandle) {
     return fileHandle > 0 && fileHandle < FILE_HANDLE_OFFSET;
   }
@@ -1,5 +1,8 @@
 package spice86.emulator.interrupthandlers.dos;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
@@ -11,8 +14,9 @@ import org.slf4j.LoggerFactory;
 
 import spice86.emulator.memory.Memory;
 import spice86.emulator.memory.MemoryUtils;
+import spice86.emulator.savestate.Savable;
 
-public class DosMemoryManager {
+public class DosMemoryManager implements Savable {
   private static final Logger LOGGER = LoggerFactory.getLogger(DosMemoryManager.class);
 
   private Memory memory;
@@ -38,6 +42,22 @@ public class DosMemoryManager {
     return pspSegment;
   }
 
+  /**
+   * MCBs live in emulated memory, only the position of the chain needs to be saved.
+   */
+  @Override
+  public void saveState(DataOutput output) throws IOException {
+    output.writeBoolean(start != null);
+    output.writeShort(pspSegment);
+  }
+
+  @Override
+  public void restoreState(DataInput input) throws IOException {
+    boolean initialized = input.readBoolean();
+    pspSegment = input.readUnsignedShort();
+    start = initialized ? getDosMemoryControlBlockFromSegment(pspSegment - 1) : null;
+  }
+
   public boolean modifyBlock(int blockSegment, int requestedSize) {
     DosMemoryControlBlock block = getDosMemoryControlBlockFromSegment(blockSegment);
     if (!checkValidOrLogError(block)) {
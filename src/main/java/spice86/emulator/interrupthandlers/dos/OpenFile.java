@@ -11,12 +11,17 @@ import spice86.emulator.memory.MemoryRange;
  */
 public class OpenFile {
   private String name;
+  private String hostFileName;
+  private String openMode;
   private int descriptor;
   private List<MemoryRange> loadMemoryRanges = new ArrayList<>();
   private RandomAccessFile randomAccessFile;
 
-  public OpenFile(String name, int descriptor, RandomAccessFile randomAccessFile) {
+  public OpenFile(String name, String hostFileName, String openMode, int descriptor,
+      RandomAccessFile randomAccessFile) {
     this.name = name;
+    this.hostFileName = hostFileName;
+    this.openMode = openMode;
     this.descriptor = descriptor;
     this.randomAccessFile = randomAccessFile;
   }
@@ -47,6 +52,14 @@ public class OpenFile {
     return name;
   }
 
+  public String getHostFileName() {
+    return hostFileName;
+  }
+
+  public String getOpenMode() {
+    return openMode;
+  }
+
   public int getDescriptor() {
     return descriptor;
   }
@@ -26,6 +26,11 @@ public class MouseInt33Handler extends InterruptHandler {
   private int userCallbackMask;
   private int userCallbackSegment;
   private int userCallbackOffset;
+  // Mouse state when there is no gui, in the coordinates expected by the program
+  private int injectedX;
+  private int injectedY;
+  private boolean injectedLeftClick;
+  private boolean injectedRightClick;
 
   public MouseInt33Handler(Machine machine, Gui gui) {
     super(machine);
@@ -70,11 +75,32 @@ public class MouseInt33Handler extends InterruptHandler {
     state.setBX(3);
   }
 
+  /**
+   * Simulates the mouse when there is no gui. x and y are in the coordinates expected by the program.
+   */
+  public void injectMouseState(int x, int y, boolean leftClick, boolean rightClick) {
+    injectedX = x;
+    injectedY = y;
+    injectedLeftClick = leftClick;
+    injectedRightClick = rightClick;
+  }
+
   public void getMousePositionAndStatus() {
-    int x = restrictValue(gui.getMouseX(), gui.getWidth(), mouseMinX, mouseMaxX);
-    int y = restrictValue(gui.getMouseY(), gui.getHeight(), mouseMinY, mouseMaxY);
-    boolean leftClick = gui.isLeftButtonClicked();
-    boolean rightClick = gui.isRightButtonClicked();
+    int x;
+    int y;
+    boolean leftClick;
+    boolean rightClick;
+    if (gui != null) {
+      x = restrictValue(gui.getMouseX(), gui.getWidth(), mouseMinX, mouseMaxX);
+      y = restrictValue(gui.getMouseY(), gui.getHeight(), mouseMinY, mouseMaxY);
+      leftClick = gui.isLeftButtonClicked();
+      rightClick = gui.isRightButtonClicked();
+    } else {
+      x = injectedX;
+      y = injectedY;
+      leftClick = injectedLeftClick;
+      rightClick = injectedRightClick;
+    }
     LOGGER.info("GET MOUSE POSITION AND STATUS x={}, y={}, leftClick={}, rightClick={}", x, y, leftClick, rightClick);
     state.setCX(x);
     state.setDX(y);
@@ -88,6 +114,11 @@ public class MouseInt33Handler extends InterruptHandler {
     int x = state.getCX();
     int y = state.getDX();
     LOGGER.info("SET MOUSE CURSOR POSITION x={}, y={}", x, y);
+    if (gui == null) {
+      injectedX = x;
+      injectedY = y;
+      return;
+    }
     if(oldX == gui.getMouseX() && oldY == gui.getMouseY()) {
       return;
     }
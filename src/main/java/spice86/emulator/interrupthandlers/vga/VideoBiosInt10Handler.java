@@ -13,7 +13,8 @@ import spice86.utils.ConvertUtils;
 
 /**
  * Implementation of int10.<br/>
- * Currently only supports mode 0x13.<br/>
+ * Supports the modes of the VGA card. Text services work in text mode, in graphic modes characters are logged and
+ * only the cursor moves.<br/>
  * Displays to the GUI.<br/>
  * <ul>
  * <li>https://stanislavs.org/helppc/int_10.html</li>
@@ -29,11 +30,29 @@ public class VideoBiosInt10Handler extends InterruptHandler {
   public static final int BIOS_VIDEO_MODE = 0x49;
   public static final int BIOS_VIDEO_MODE_ADDRESS =
       MemoryUtils.toPhysicalAddress(MemoryMap.BIOS_DATA_AREA_SEGMENT, BIOS_VIDEO_MODE);
+  public static final int BIOS_NUMBER_OF_COLUMNS_ADDRESS = biosDataAreaAddress(0x4A);
+  public static final int BIOS_PAGE_SIZE_ADDRESS = biosDataAreaAddress(0x4C);
+  public static final int BIOS_PAGE_START_ADDRESS = biosDataAreaAddress(0x4E);
+  // One word per page, column in the low byte and row in the high byte
+  public static final int BIOS_CURSOR_POSITIONS_ADDRESS = biosDataAreaAddress(0x50);
+  public static final int BIOS_CURSOR_TYPE_ADDRESS = biosDataAreaAddress(0x60);
+  public static final int BIOS_ACTIVE_PAGE_ADDRESS = biosDataAreaAddress(0x62);
+  public static final int BIOS_LAST_ROW_ADDRESS = biosDataAreaAddress(0x84);
+  public static final int BIOS_CHARACTER_HEIGHT_ADDRESS = biosDataAreaAddress(0x85);
+
+  private static final int TEXT_MEMORY_ADDRESS =
+      MemoryUtils.toPhysicalAddress(MemoryMap.COLOR_TEXT_VIDEO_MEMORY_SEGMENT, 0);
+  private static final int TEXT_PAGE_SIZE = 0x1000;
+  private static final int DEFAULT_CURSOR_TYPE = 0x0607;
+  private static final int DEFAULT_ATTRIBUTE = 0x07;
 
   private VgaCard vgaCard;
-  private int numberOfScreenColumns = 80;
   private int currentDisplayPage = 0;
 
+  private static int biosDataAreaAddress(int offset) {
+    return MemoryUtils.toPhysicalAddress(MemoryMap.BIOS_DATA_AREA_SEGMENT, offset);
+  }
+
   public VideoBiosInt10Handler(Machine machine, VgaCard vgaCard) {
     super(machine);
     this.vgaCard = vgaCard;
@@ -44,7 +63,12 @@ public class VideoBiosInt10Handler extends InterruptHandler {
     super.dispatchTable.put(0x00, this::setVideoMode);
     super.dispatchTable.put(0x01, this::setCursorType);
     super.dispatchTable.put(0x02, this::setCursorPosition);
+    super.dispatchTable.put(0x03, this::getCursorPosition);
     super.dispatchTable.put(0x06, this::scrollPageUp);
+    super.dispatchTable.put(0x07, this::scrollPageDown);
+    super.dispatchTable.put(0x08, this::readCharacterAndAttribute);
+    super.dispatchTable.put(0x09, this::writeCharacterAndAttribute);
+    super.dispatchTable.put(0x0A, this::writeCharacter);
     super.dispatchTable.put(0x0B, this::setColorPalette);
     super.dispatchTable.put(0x0E, this::writeTextInTeletypeMode);
     super.dispatchTable.put(0x0F, this::getVideoStatus);
@@ -79,15 +103,71 @@ public class VideoBiosInt10Handler extends InterruptHandler {
     if (LOGGER.isInfoEnabled()) {
       LOGGER.info("SET CURSOR TYPE, SCAN LINE START END IS {}", ConvertUtils.toHex(cursorStartEnd));
     }
+    setCursorTypeValue(cursorStartEnd);
+  }
+
+  /**
+   * Cursor types are given for characters of 8 lines like on the CGA, they are scaled to the character height like
+   * the VGA BIOS does.
+   */
+  private void setCursorTypeValue(int cursorStartEnd) {
+    memory.setUint16(BIOS_CURSOR_TYPE_ADDRESS, cursorStartEnd);
+    int start = cursorStartEnd >>> 8 & 0b11_1111;
+    int end = cursorStartEnd & 0b1_1111;
+    int characterHeight = vgaCard.getCharacterHeight();
+    if (characterHeight > 8 && end < 8 && start < 0b10_0000) {
+      if (end != start + 1) {
+        start = (start + 1) * characterHeight / 8 - 1;
+      } else {
+        start = (end + 1) * characterHeight / 8 - 2;
+      }
+      end = (end + 1) * characterHeight / 8 - 1;
+    }
+    vgaCard.setCursorShape(start, end);
   }
 
   public void setCursorPosition() {
+    int page = state.getBH();
     int cursorPositionRow = state.getDH();
     int cursorPositionColumn = state.getDL();
     if (LOGGER.isInfoEnabled()) {
-      LOGGER.info("SET CURSOR POSITION, ROW:{}, COL:{}", ConvertUtils.toHex8(cursorPositionRow),
+      LOGGER.info("SET CURSOR POSITION, PAGE:{}, ROW:{}, COL:{}", page, ConvertUtils.toHex8(cursorPositionRow),
           ConvertUtils.toHex8(cursorPositionColumn));
     }
+    setCursorPositionValue(page, cursorPositionRow, cursorPositionColumn);
+  }
+
+  public void getCursorPosition() {
+    int page = state.getBH();
+    LOGGER.debug("GET CURSOR POSITION, PAGE:{}", page);
+    state.setDX(memory.getUint16(getCursorPositionAddress(page)));
+    state.setCX(memory.getUint16(BIOS_CURSOR_TYPE_ADDRESS));
+  }
+
+  private int getCursorPositionAddress(int page) {
+    return BIOS_CURSOR_POSITIONS_ADDRESS + (page & 0b111) * 2;
+  }
+
+  private void setCursorPositionValue(int page, int row, int column) {
+    memory.setUint16(getCursorPositionAddress(page), row << 8 | column);
+    if (page == currentDisplayPage) {
+      vgaCard.setCursorAddress(getTextOffset(page, row, column));
+    }
+  }
+
+  /**
+   * @return offset of the character in the text memory
+   */
+  private int getTextOffset(int page, int row, int column) {
+    return page * TEXT_PAGE_SIZE + (row * getNumberOfColumns() + column) * 2;
+  }
+
+  private int getNumberOfColumns() {
+    return memory.getUint16(BIOS_NUMBER_OF_COLUMNS_ADDRESS);
+  }
+
+  private int getNumberOfRows() {
+    return memory.getUint8(BIOS_LAST_ROW_ADDRESS) + 1;
   }
 
   public void scrollPageUp() {
@@ -95,6 +175,107 @@ public class VideoBiosInt10Handler extends InterruptHandler {
     if (LOGGER.isInfoEnabled()) {
       LOGGER.info("SCROLL PAGE UP BY AMOUNT {}", ConvertUtils.toHex8(scrollAmount));
     }
+    scroll(scrollAmount, true);
+  }
+
+  public void scrollPageDown() {
+    int scrollAmount = state.getAL();
+    if (LOGGER.isInfoEnabled()) {
+      LOGGER.info("SCROLL PAGE DOWN BY AMOUNT {}", ConvertUtils.toHex8(scrollAmount));
+    }
+    scroll(scrollAmount, false);
+  }
+
+  /**
+   * Scrolls the window defined by CX (top left) and DX (bottom right) on the active page, lines appearing are filled
+   * with spaces of attribute BH.
+   */
+  private void scroll(int amount, boolean up) {
+    if (!vgaCard.isTextMode()) {
+      LOGGER.info("SCROLL IN GRAPHIC MODE IS NOT IMPLEMENTED");
+      return;
+    }
+    int top = state.getCH();
+    int left = state.getCL();
+    int bottom = Math.min(state.getDH(), getNumberOfRows() - 1);
+    int right = Math.min(state.getDL(), getNumberOfColumns() - 1);
+    scrollWindow(top, left, bottom, right, amount, up, state.getBH());
+  }
+
+  private void scrollWindow(int top, int left, int bottom, int right, int amount, boolean up, int attribute) {
+    if (top > bottom || left > right) {
+      return;
+    }
+    int height = bottom - top + 1;
+    if (amount == 0 || amount > height) {
+      // 0 clears the window
+      amount = height;
+    }
+    int bytesPerRow = (right - left + 1) * 2;
+    for (int i = 0; i < height; i++) {
+      int row = up ? top + i : bottom - i;
+      int destination = TEXT_MEMORY_ADDRESS + getTextOffset(currentDisplayPage, row, left);
+      if (i < height - amount) {
+        int sourceRow = up ? row + amount : row - amount;
+        memory.memCopy(TEXT_MEMORY_ADDRESS + getTextOffset(currentDisplayPage, sourceRow, left), destination,
+            bytesPerRow);
+      } else {
+        memory.memset16(destination, attribute << 8 | ' ', bytesPerRow / 2);
+      }
+    }
+  }
+
+  public void readCharacterAndAttribute() {
+    int page = state.getBH();
+    LOGGER.debug("READ CHARACTER AND ATTRIBUTE, PAGE:{}", page);
+    if (!vgaCard.isTextMode()) {
+      LOGGER.info("READ CHARACTER IN GRAPHIC MODE IS NOT IMPLEMENTED");
+      state.setAX(0);
+      return;
+    }
+    state.setAX(memory.getUint16(getCursorTextAddress(page)));
+  }
+
+  public void writeCharacterAndAttribute() {
+    if (LOGGER.isInfoEnabled()) {
+      LOGGER.info("WRITE CHARACTER {} WITH ATTRIBUTE {} {} TIMES", ConvertUtils.toHex8(state.getAL()),
+          ConvertUtils.toHex8(state.getBL()), state.getCX());
+    }
+    writeCharacters(state.getBH(), state.getAL(), state.getBL(), state.getCX());
+  }
+
+  public void writeCharacter() {
+    if (LOGGER.isInfoEnabled()) {
+      LOGGER.info("WRITE CHARACTER {} {} TIMES", ConvertUtils.toHex8(state.getAL()), state.getCX());
+    }
+    writeCharacters(state.getBH(), state.getAL(), -1, state.getCX());
+  }
+
+  /**
+   * Writes count times character from the cursor, without moving it.
+   *
+   * @param attribute
+   *          -1 to keep the attributes in memory
+   */
+  private void writeCharacters(int page, int character, int attribute, int count) {
+    if (!vgaCard.isTextMode()) {
+      LOGGER.info("WRITE CHARACTER IN GRAPHIC MODE IS NOT IMPLEMENTED");
+      return;
+    }
+    int address = getCursorTextAddress(page);
+    int pageEnd = TEXT_MEMORY_ADDRESS + page * TEXT_PAGE_SIZE + getNumberOfRows() * getNumberOfColumns() * 2;
+    for (int i = 0; i < count && address < pageEnd; i++) {
+      memory.setUint8(address, character);
+      if (attribute != -1) {
+        memory.setUint8(address + 1, attribute);
+      }
+      address += 2;
+    }
+  }
+
+  private int getCursorTextAddress(int page) {
+    int position = memory.getUint16(getCursorPositionAddress(page));
+    return TEXT_MEMORY_ADDRESS + getTextOffset(page, position >>> 8, position & 0xFF);
   }
 
   public void setColorPalette() {
@@ -109,11 +290,42 @@ public class VideoBiosInt10Handler extends InterruptHandler {
       LOGGER.info("Write Text in Teletype Mode ascii code {}, chr {}", ConvertUtils.toHex(chr),
           ConvertUtils.toChar(chr));
     }
+    int position = memory.getUint16(getCursorPositionAddress(currentDisplayPage));
+    int row = position >>> 8;
+    int column = position & 0xFF;
+    switch (chr) {
+      // Bell
+      case 0x07 -> {
+        return;
+      }
+      case '\b' -> column = Math.max(0, column - 1);
+      case '\n' -> row++;
+      case '\r' -> column = 0;
+      default -> {
+        if (vgaCard.isTextMode()) {
+          // Attribute already in memory is kept
+          memory.setUint8(TEXT_MEMORY_ADDRESS + getTextOffset(currentDisplayPage, row, column), chr);
+        }
+        column++;
+      }
+    }
+    if (column >= getNumberOfColumns()) {
+      column = 0;
+      row++;
+    }
+    int numberOfRows = getNumberOfRows();
+    if (row >= numberOfRows) {
+      row = numberOfRows - 1;
+      if (vgaCard.isTextMode()) {
+        scrollWindow(0, 0, row, getNumberOfColumns() - 1, 1, true, DEFAULT_ATTRIBUTE);
+      }
+    }
+    setCursorPositionValue(currentDisplayPage, row, column);
   }
 
   public void getVideoStatus() {
     LOGGER.debug("GET VIDEO STATUS");
-    state.setAH(numberOfScreenColumns);
+    state.setAH(getNumberOfColumns());
     state.setAL(getVideoModeValue());
     state.setBH(currentDisplayPage);
   }
@@ -205,7 +417,21 @@ public class VideoBiosInt10Handler extends InterruptHandler {
     if (LOGGER.isInfoEnabled()) {
       LOGGER.info("SET VIDEO MODE {}", ConvertUtils.toHex8(mode));
     }
-    memory.setUint8(BIOS_VIDEO_MODE_ADDRESS, mode);
-    vgaCard.setVideoModeValue(mode);
+    memory.setUint8(BIOS_VIDEO_MODE_ADDRESS, mode & 0x7F);
+    if (!vgaCard.setVideoModeValue(mode)) {
+      return;
+    }
+    int columns = vgaCard.getColumns();
+    int rows = vgaCard.getRows();
+    currentDisplayPage = 0;
+    memory.setUint16(BIOS_NUMBER_OF_COLUMNS_ADDRESS, columns);
+    memory.setUint16(BIOS_PAGE_SIZE_ADDRESS, vgaCard.isTextMode() ? TEXT_PAGE_SIZE : 0);
+    memory.setUint16(BIOS_PAGE_START_ADDRESS, 0);
+    memory.memset(BIOS_CURSOR_POSITIONS_ADDRESS, 0, 16);
+    memory.setUint8(BIOS_ACTIVE_PAGE_ADDRESS, currentDisplayPage);
+    memory.setUint8(BIOS_LAST_ROW_ADDRESS, rows - 1);
+    memory.setUint16(BIOS_CHARACTER_HEIGHT_ADDRESS, vgaCard.getCharacterHeight());
+    setCursorTypeValue(DEFAULT_CURSOR_TYPE);
+    vgaCard.setCursorAddress(0);
   }
 }
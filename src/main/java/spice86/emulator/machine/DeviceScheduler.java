@@ -0,0 +1,86 @@
+package spice86.emulator.machine;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+/**
+ * Priority queue of device events stamped with the CPU cycle at which they have to fire.<br/>
+ * The machine executes instructions without checking the devices until the cycle of the first event is reached.
+ */
+public class DeviceScheduler {
+  private static final Comparator<ScheduledEvent> EVENT_ORDER =
+      Comparator.comparingLong(ScheduledEvent::getCycle).thenComparingLong(ScheduledEvent::getSequence);
+
+  private final PriorityQueue<ScheduledEvent> events = new PriorityQueue<>(EVENT_ORDER);
+  private long sequence;
+  // When true, the time spent in each event handler is measured
+  private boolean eventTimingEnabled;
+  private final Set<ScheduledEvent> timedEvents = new LinkedHashSet<>();
+
+  public boolean isEventTimingEnabled() {
+    return eventTimingEnabled;
+  }
+
+  public void setEventTimingEnabled(boolean eventTimingEnabled) {
+    this.eventTimingEnabled = eventTimingEnabled;
+  }
+
+  /**
+   * @return the events fired while event timing was enabled, in the order they were first fired
+   */
+  public Collection<ScheduledEvent> getTimedEvents() {
+    return Collections.unmodifiableCollection(timedEvents);
+  }
+
+  /**
+   * Schedules the event to fire when the CPU reaches the given cycle. Reschedules it if it was already scheduled.
+   */
+  public void schedule(ScheduledEvent event, long cycle) {
+    if (event.isScheduled()) {
+      events.remove(event);
+    }
+    event.schedule(cycle, sequence++);
+    events.add(event);
+  }
+
+  public void cancel(ScheduledEvent event) {
+    if (event.isScheduled()) {
+      events.remove(event);
+      event.unschedule();
+    }
+  }
+
+  /**
+   * @return cycle of the next event to fire, Long.MAX_VALUE if nothing is scheduled
+   */
+  public long getNextEventCycle() {
+    ScheduledEvent event = events.peek();
+    if (event == null) {
+      return Long.MAX_VALUE;
+    }
+    return event.getCycle();
+  }
+
+  /**
+   * Fires all the events scheduled for a cycle lower or equal to currentCycles. Events can reschedule themselves when
+   * fired.
+   */
+  public void processEvents(long currentCycles) {
+    ScheduledEvent event = events.peek();
+    while (event != null && event.getCycle() <= currentCycles) {
+      events.poll();
+      event.unschedule();
+      if (eventTimingEnabled) {
+        timedEvents.add(event);
+        event.fireTimed(currentCycles);
+      } else {
+        event.fire(currentCycles);
+      }
+      event = events.peek();
+    }
+  }
+}
@@ -29,18 +29,24 @@ import spice86.emulator.interrupthandlers.timer.TimerInt8Handler;
 import spice86.emulator.interrupthandlers.vga.VideoBiosInt10Handler;
 import spice86.emulator.ioports.IOPortDispatcher;
 import spice86.emulator.ioports.IOPortHandler;
+import spice86.emulator.memory.ByteArrayMemoryBackend;
 import spice86.emulator.memory.Memory;
+import spice86.emulator.memory.MemoryBackend;
 import spice86.emulator.memory.SegmentedAddress;
+import spice86.emulator.savestate.SaveStateManager;
 import spice86.ui.Gui;
 
 /**
  * Emulates an IBM PC
  */
 public class Machine {
+  // A full 1MB of addressable memory :)
+  public static final int MEMORY_SIZE = 0x100_000;
   private static final int INTERRUPT_HANDLERS_SEGMENT = 0xF000;
 
   private Memory memory;
   private Cpu cpu;
+  private DeviceScheduler deviceScheduler = new DeviceScheduler();
   // IO Devices
   private IOPortDispatcher ioPortDispatcher;
 
@@ -69,12 +75,19 @@ public class Machine {
   private DosInt21Handler dosInt21Handler;
   private MouseInt33Handler mouseInt33Handler;
   private MachineBreakpoints machineBreakpoints;
+  // Created on first use since it tracks every memory write
+  private SaveStateManager saveStateManager;
   private boolean debugMode;
 
   public Machine(Gui gui, CounterConfigurator counterConfigurator, boolean failOnUnhandledPort, boolean debugMode) {
+    this(gui, counterConfigurator, failOnUnhandledPort, debugMode, new ByteArrayMemoryBackend(MEMORY_SIZE));
+  }
+
+  public Machine(Gui gui, CounterConfigurator counterConfigurator, boolean failOnUnhandledPort, boolean debugMode,
+      MemoryBackend memoryBackend) {
     this.gui = gui;
     this.debugMode = debugMode;
-    initHardware(counterConfigurator, failOnUnhandledPort);
+    initHardware(counterConfigurator, failOnUnhandledPort, memoryBackend);
     initServices();
   }
 
@@ -86,6 +99,10 @@ public class Machine {
     return cpu;
   }
 
+  public DeviceScheduler getDeviceScheduler() {
+    return deviceScheduler;
+  }
+
   public IOPortDispatcher getIoPortDispatcher() {
     return ioPortDispatcher;
   }
@@ -178,6 +195,13 @@ public class Machine {
     return machineBreakpoints;
   }
 
+  public SaveStateManager getSaveStateManager() {
+    if (saveStateManager == null) {
+      saveStateManager = new SaveStateManager(this);
+    }
+    return saveStateManager;
+  }
+
   public String peekReturn() {
     return toString(cpu.getFunctionHandlerInUse().peekReturnAddressOnMachineStackForCurrentFunction());
   }
@@ -193,9 +217,9 @@ public class Machine {
     return "null";
   }
 
-  private final void initHardware(CounterConfigurator counterConfigurator, boolean failOnUnhandledPort) {
-    // A full 1MB of addressable memory :)
-    memory = new Memory(0x100_000);
+  private final void initHardware(CounterConfigurator counterConfigurator, boolean failOnUnhandledPort,
+      MemoryBackend memoryBackend) {
+    memory = new Memory(memoryBackend);
 
     cpu = new Cpu(this, debugMode);
 
@@ -300,12 +324,26 @@ public class Machine {
   }
 
   private void runLoop() throws InvalidOperationException {
+    if (debugMode) {
+      runLoopWithBreakpoints();
+      return;
+    }
+    State state = cpu.getState();
+    while (cpu.isRunning()) {
+      // Instructions are executed without checking the devices until the next device event
+      long endCycles = Math.max(state.getCycles() + 1, deviceScheduler.getNextEventCycle());
+      do {
+        cpu.executeNextInstruction();
+      } while (cpu.isRunning() && state.getCycles() < endCycles);
+      deviceScheduler.processEvents(state.getCycles());
+    }
+  }
+
+  private void runLoopWithBreakpoints() throws InvalidOperationException {
     while (cpu.isRunning()) {
-      if (debugMode) {
-        machineBreakpoints.checkBreakPoint();
-      }
+      machineBreakpoints.checkBreakPoint();
       cpu.executeNextInstruction();
-      timer.tick();
+      deviceScheduler.processEvents(cpu.getState().getCycles());
     }
   }
 
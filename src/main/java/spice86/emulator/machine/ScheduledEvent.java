@@ -0,0 +1,75 @@
+package spice86.emulator.machine;
+
+import java.util.function.LongConsumer;
+
+/**
+ * Something a device wants to happen at a given CPU cycle. Scheduled and fired by the DeviceScheduler.<br/>
+ * Devices create their events once and reschedule them, so that scheduling does not allocate.
+ */
+public class ScheduledEvent {
+  private final String name;
+  // Called with the current cycle count when the event fires
+  private final LongConsumer handler;
+  private long cycle;
+  // Order of scheduling, used to fire events scheduled for the same cycle in a predictable order
+  private long sequence;
+  private boolean scheduled;
+  // Only updated when event timing is enabled in the DeviceScheduler
+  private long fireCount;
+  private long fireNanos;
+
+  public ScheduledEvent(String name, LongConsumer handler) {
+    this.name = name;
+    this.handler = handler;
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public long getCycle() {
+    return cycle;
+  }
+
+  public boolean isScheduled() {
+    return scheduled;
+  }
+
+  public long getFireCount() {
+    return fireCount;
+  }
+
+  public long getFireNanos() {
+    return fireNanos;
+  }
+
+  long getSequence() {
+    return sequence;
+  }
+
+  void schedule(long cycle, long sequence) {
+    this.cycle = cycle;
+    this.sequence = sequence;
+    this.scheduled = true;
+  }
+
+  void unschedule() {
+    this.scheduled = false;
+  }
+
+  void fire(long currentCycles) {
+    handler.accept(currentCycles);
+  }
+
+  void fireTimed(long currentCycles) {
+    long start = System.nanoTime();
+    handler.accept(currentCycles);
+    fireNanos += System.nanoTime() - start;
+    fireCount++;
+  }
+
+  @Override
+  public String toString() {
+    return name + (scheduled ? " at cycle " + cycle : " (not scheduled)");
+  }
+}
@@ -1,10 +1,10 @@
 package spice86.emulator.machine.breakpoint;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
-import java.util.Map;
+
+import spice86.utils.LongKeyMap;
 
 /**
  * Breakpoint container.<br/>
@@ -13,12 +13,25 @@ import java.util.Map;
  */
 public class BreakPointHolder {
   private List<BreakPoint> unconditionalBreakPoints = new ArrayList<>();
-  private Map<Long, List<BreakPoint>> breakPoints = new HashMap<>();
+  private LongKeyMap<List<BreakPoint>> breakPoints = new LongKeyMap<>();
+  // Keys of breakPoints in order, for range queries
+  private SortedLongSet addresses = new SortedLongSet();
 
   public boolean isEmpty() {
     return breakPoints.isEmpty() && unconditionalBreakPoints.isEmpty();
   }
 
+  public boolean hasUnconditionalBreakPoints() {
+    return !unconditionalBreakPoints.isEmpty();
+  }
+
+  /**
+   * @return addresses that have at least one breakpoint not counting unconditional breakpoints
+   */
+  public long[] getBreakPointAddresses() {
+    return addresses.toArray();
+  }
+
   public void toggleBreakPoint(BreakPoint breakPoint, boolean on) {
     if (breakPoint instanceof UnconditionalBreakPoint) {
       toggleUnconditionalBreakPointBreakPoint(breakPoint, on);
@@ -36,19 +49,25 @@ public class BreakPointHolder {
   }
 
   private void toggleConditionalBreakPoint(BreakPoint breakPoint, boolean on) {
-    Long address = breakPoint.getAddress();
+    long address = breakPoint.getAddress();
+    List<BreakPoint> breakPointList = breakPoints.get(address);
     if (on) {
-      List<BreakPoint> breakPointList =
-          breakPoints.computeIfAbsent(address, key -> new ArrayList<>());
-      breakPointList.add(breakPoint);
-    } else {
-      List<BreakPoint> breakPointList = breakPoints.get(address);
-      if (breakPointList != null) {
-        breakPointList.remove(breakPoint);
-        if (breakPointList.isEmpty()) {
-          breakPoints.remove(address);
-        }
+      if (breakPointList == null) {
+        breakPointList = new ArrayList<>();
+        breakPoints.put(address, breakPointList);
+        addresses.add(address);
       }
+      breakPointList.add(breakPoint);
+    } else if (breakPointList != null) {
+      breakPointList.remove(breakPoint);
+      removeIfEmpty(address, breakPointList);
+    }
+  }
+
+  private void removeIfEmpty(long address, List<BreakPoint> breakPointList) {
+    if (breakPointList.isEmpty()) {
+      breakPoints.remove(address);
+      addresses.remove(address);
     }
   }
 
@@ -57,9 +76,7 @@ public class BreakPointHolder {
       List<BreakPoint> breakPointList = breakPoints.get(address);
       if (breakPointList != null) {
         triggerBreakPointsFromList(breakPointList, address);
-        if (breakPointList.isEmpty()) {
-          breakPoints.remove(address);
-        }
+        removeIfEmpty(address, breakPointList);
       }
     }
     if (!unconditionalBreakPoints.isEmpty()) {
@@ -82,7 +99,14 @@ public class BreakPointHolder {
 
   public void triggerBreakPointsWithAddressRange(long startAddress, long endAddress) {
     if (!breakPoints.isEmpty()) {
-      for (List<BreakPoint> breakPointList : breakPoints.values()) {
+      // Collected first since triggering a breakpoint can toggle breakpoints
+      List<List<BreakPoint>> breakPointListsInRange = new ArrayList<>();
+      int index = addresses.indexOfFirstGreaterOrEqual(startAddress);
+      while (index < addresses.size() && addresses.get(index) < endAddress) {
+        breakPointListsInRange.add(breakPoints.get(addresses.get(index)));
+        index++;
+      }
+      for (List<BreakPoint> breakPointList : breakPointListsInRange) {
         triggerBreakPointsWithAddressRangeFromList(breakPointList, startAddress, endAddress);
       }
     }
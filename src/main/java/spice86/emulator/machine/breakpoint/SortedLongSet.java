@@ -0,0 +1,59 @@
+package spice86.emulator.machine.breakpoint;
+
+import java.util.Arrays;
+
+/**
+ * Sorted set of primitive longs.<br/>
+ * Finding the elements in a range is a binary search followed by a scan of the matching elements. Adding and removing
+ * is linear, but happens only when breakpoints are toggled.
+ */
+class SortedLongSet {
+  private long[] elements = new long[16];
+  private int size;
+
+  public int size() {
+    return size;
+  }
+
+  public long get(int index) {
+    return elements[index];
+  }
+
+  public void add(long value) {
+    int index = Arrays.binarySearch(elements, 0, size, value);
+    if (index >= 0) {
+      return;
+    }
+    int insertionPoint = -index - 1;
+    if (size == elements.length) {
+      elements = Arrays.copyOf(elements, size * 2);
+    }
+    System.arraycopy(elements, insertionPoint, elements, insertionPoint + 1, size - insertionPoint);
+    elements[insertionPoint] = value;
+    size++;
+  }
+
+  public void remove(long value) {
+    int index = Arrays.binarySearch(elements, 0, size, value);
+    if (index < 0) {
+      return;
+    }
+    System.arraycopy(elements, index + 1, elements, index, size - index - 1);
+    size--;
+  }
+
+  /**
+   * @return index of the first element greater or equal to value, size() if there is none
+   */
+  public int indexOfFirstGreaterOrEqual(long value) {
+    int index = Arrays.binarySearch(elements, 0, size, value);
+    if (index >= 0) {
+      return index;
+    }
+    return -index - 1;
+  }
+
+  public long[] toArray() {
+    return Arrays.copyOf(elements, size);
+  }
+}
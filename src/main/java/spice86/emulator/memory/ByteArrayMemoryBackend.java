@@ -0,0 +1,117 @@
+package spice86.emulator.memory;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+/**
+ * Memory stored in a java byte array.<br/>
+ * An access starting at the end of the memory wraps around to its beginning, like accesses at the end of the address
+ * space do.
+ */
+public class ByteArrayMemoryBackend implements MemoryBackend {
+  private final byte[] physicalMemory;
+
+  public ByteArrayMemoryBackend(int size) {
+    this.physicalMemory = new byte[size];
+  }
+
+  public byte[] getArray() {
+    return physicalMemory;
+  }
+
+  @Override
+  public int getSize() {
+    return physicalMemory.length;
+  }
+
+  @Override
+  public int getUint8(int address) {
+    return MemoryUtils.getUint8(physicalMemory, address);
+  }
+
+  @Override
+  public void setUint8(int address, int value) {
+    MemoryUtils.setUint8(physicalMemory, address, value);
+  }
+
+  @Override
+  public int getUint16(int address) {
+    if (address > physicalMemory.length - 2) {
+      return getUint8(address) | (getUint8(wrap(address + 1)) << 8);
+    }
+    return MemoryUtils.getUint16(physicalMemory, address);
+  }
+
+  @Override
+  public void setUint16(int address, int value) {
+    if (address > physicalMemory.length - 2) {
+      setUint8(address, value);
+      setUint8(wrap(address + 1), value >>> 8);
+      return;
+    }
+    MemoryUtils.setUint16(physicalMemory, address, value);
+  }
+
+  @Override
+  public int getUint32(int address) {
+    if (address > physicalMemory.length - 4) {
+      return getUint16(address) | (getUint16(wrap(address + 2)) << 16);
+    }
+    return MemoryUtils.getUint32(physicalMemory, address);
+  }
+
+  @Override
+  public void setUint32(int address, int value) {
+    if (address > physicalMemory.length - 4) {
+      setUint16(address, value);
+      setUint16(wrap(address + 2), value >>> 16);
+      return;
+    }
+    MemoryUtils.setUint32(physicalMemory, address, value);
+  }
+
+  private int wrap(int address) {
+    return address >= physicalMemory.length ? address - physicalMemory.length : address;
+  }
+
+  @Override
+  public void load(int address, byte[] source, int sourceOffset, int length) {
+    System.arraycopy(source, sourceOffset, physicalMemory, address, length);
+  }
+
+  @Override
+  public void read(int address, byte[] destination, int destinationOffset, int length) {
+    System.arraycopy(physicalMemory, address, destination, destinationOffset, length);
+  }
+
+  @Override
+  public void copy(int sourceAddress, int destinationAddress, int length) {
+    System.arraycopy(physicalMemory, sourceAddress, physicalMemory, destinationAddress, length);
+  }
+
+  @Override
+  public void fill(int address, int length, byte value) {
+    Arrays.fill(physicalMemory, address, address + length, value);
+  }
+
+  @Override
+  public int mismatch(int address1, int address2, int length) {
+    return Arrays.mismatch(physicalMemory, address1, address1 + length, physicalMemory, address2, address2 + length);
+  }
+
+  @Override
+  public int indexOf(int address, int length, byte value) {
+    for (int i = 0; i < length; i++) {
+      if (physicalMemory[address + i] == value) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  @Override
+  public ByteBuffer asByteBuffer(int address, int length) {
+    return ByteBuffer.wrap(physicalMemory, address, length).slice().order(ByteOrder.LITTLE_ENDIAN);
+  }
+}
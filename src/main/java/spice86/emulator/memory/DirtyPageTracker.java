@@ -0,0 +1,74 @@
+package spice86.emulator.memory;
+
+import java.util.Arrays;
+
+/**
+ * Remembers which memory pages were written since the last call to clear().<br/>
+ * Page size is a power of 2 chosen by the user of the tracker. One bit per page so that marking a write is a shift and
+ * an or.
+ */
+public class DirtyPageTracker {
+  private final int memorySize;
+  private final int pageShift;
+  private final int numberOfPages;
+  private final long[] dirtyBitmap;
+
+  DirtyPageTracker(int memorySize, int pageShift) {
+    this.memorySize = memorySize;
+    this.pageShift = pageShift;
+    this.numberOfPages = ((memorySize - 1) >>> pageShift) + 1;
+    this.dirtyBitmap = new long[((numberOfPages - 1) >>> 6) + 1];
+  }
+
+  public int getPageShift() {
+    return pageShift;
+  }
+
+  public int getPageSize() {
+    return 1 << pageShift;
+  }
+
+  public int getNumberOfPages() {
+    return numberOfPages;
+  }
+
+  void markDirty(int startAddress, int endAddress) {
+    int lastPage = Math.min((endAddress - 1) >>> pageShift, numberOfPages - 1);
+    for (int page = startAddress >>> pageShift; page <= lastPage; page++) {
+      dirtyBitmap[page >>> 6] |= 1L << page;
+    }
+    if (endAddress > memorySize) {
+      // Word accesses at the end of memory wrap around to the beginning
+      dirtyBitmap[0] |= 1L;
+    }
+  }
+
+  public boolean isDirty(int page) {
+    return (dirtyBitmap[page >>> 6] & (1L << page)) != 0;
+  }
+
+  /**
+   * @return true if at least one page containing an address between startAddress and endAddress (excluded) is dirty
+   */
+  public boolean isDirty(int startAddress, int endAddress) {
+    int lastPage = Math.min((endAddress - 1) >>> pageShift, numberOfPages - 1);
+    for (int page = startAddress >>> pageShift; page <= lastPage; page++) {
+      if (isDirty(page)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  public int countDirtyPages() {
+    int res = 0;
+    for (long bits : dirtyBitmap) {
+      res += Long.bitCount(bits);
+    }
+    return res;
+  }
+
+  public void clear() {
+    Arrays.fill(dirtyBitmap, 0);
+  }
+}
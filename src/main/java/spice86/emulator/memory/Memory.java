@@ -1,10 +1,13 @@
 package spice86.emulator.memory;
 
-import java.io.File;
 import java.io.IOException;
-import java.nio.file.Files;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 import spice86.emulator.errors.UnrecoverableException;
 import spice86.emulator.machine.breakpoint.BreakPoint;
@@ -12,23 +15,95 @@ import spice86.emulator.machine.breakpoint.BreakPointHolder;
 import spice86.utils.ConvertUtils;
 
 /**
- * Addressable memory of the machine.
+ * Addressable memory of the machine.<br/>
+ * Bytes are stored by a MemoryBackend, this class checks the breakpoints, notifies the write listeners and forwards
+ * the accesses to the mapped devices.<br/>
+ * Pages with breakpoints or devices are watched. Accesses to the other pages go straight to the backend.
  */
 public class Memory {
-  private byte[] physicalMemory;
+  // Breakpoints are watched by pages of 256 bytes
+  private static final int WATCH_PAGE_SHIFT = 8;
+
+  private final MemoryBackend backend;
+  private final MemorySnapshotWriter snapshotWriter;
   private BreakPointHolder readBreakPoints = new BreakPointHolder();
   private BreakPointHolder writeBreakPoints = new BreakPointHolder();
+  // One bit per page, set when a breakpoint could be triggered by an access in the page or when a device is mapped
+  // there. Accesses to other pages do not check breakpoints nor devices at all.
+  private long[] readWatchBitmap;
+  private long[] writeWatchBitmap;
+  // False when no bit is set in the bitmap, in this case accesses do not even look at it
+  private boolean readWatched;
+  private boolean writeWatched;
+  private MemoryWriteListener[] writeListeners = new MemoryWriteListener[0];
+  // Trackers of the pages written, one per user since each clears it at its own pace
+  private DirtyPageTracker[] dirtyPageTrackers = new DirtyPageTracker[0];
+  private DeviceMapping[] deviceMappings = new DeviceMapping[0];
+
+  private record DeviceMapping(MemoryMappedDevice device, int startAddress, int endAddress) {
+    boolean overlaps(int rangeStartAddress, int rangeEndAddress) {
+      return rangeStartAddress < endAddress && startAddress < rangeEndAddress;
+    }
+  }
 
   public Memory(int size) {
-    this.physicalMemory = new byte[size];
+    this(new ByteArrayMemoryBackend(size));
+  }
+
+  public Memory(MemoryBackend backend) {
+    this.backend = backend;
+    this.snapshotWriter = new MemorySnapshotWriter(backend);
+    int size = backend.getSize();
+    int numberOfPages = ((size - 1) >>> WATCH_PAGE_SHIFT) + 1;
+    this.readWatchBitmap = new long[((numberOfPages - 1) >>> 6) + 1];
+    this.writeWatchBitmap = new long[readWatchBitmap.length];
   }
 
   public int getSize() {
-    return physicalMemory.length;
+    return backend.getSize();
   }
 
+  /**
+   * @return the backend, accessing memory through it does not trigger breakpoints nor notify listeners
+   */
+  public MemoryBackend getBackend() {
+    return backend;
+  }
+
+  /**
+   * @return the array storing the memory. Only available when memory is stored in a java byte array.
+   */
   public byte[] getRam() {
-    return physicalMemory;
+    if (backend instanceof ByteArrayMemoryBackend byteArrayMemoryBackend) {
+      return byteArrayMemoryBackend.getArray();
+    }
+    throw new UnrecoverableException("Memory is not stored in a java byte array, use the MemoryBackend instead");
+  }
+
+  /**
+   * @return a view of length bytes starting at address, without copy. Breakpoints are not triggered.
+   */
+  public ByteBuffer asByteBuffer(int address, int length) {
+    return backend.asByteBuffer(address, length);
+  }
+
+  public void addWriteListener(MemoryWriteListener writeListener) {
+    writeListeners = Arrays.copyOf(writeListeners, writeListeners.length + 1);
+    writeListeners[writeListeners.length - 1] = writeListener;
+  }
+
+  /**
+   * Starts tracking written pages. Each tracker makes writes slightly slower.
+   * 
+   * @param pageShift
+   *          log2 of the size of the pages
+   * @return a new tracker, initially clean
+   */
+  public DirtyPageTracker trackDirtyPages(int pageShift) {
+    DirtyPageTracker dirtyPageTracker = new DirtyPageTracker(backend.getSize(), pageShift);
+    dirtyPageTrackers = Arrays.copyOf(dirtyPageTrackers, dirtyPageTrackers.length + 1);
+    dirtyPageTrackers[dirtyPageTrackers.length - 1] = dirtyPageTracker;
+    return dirtyPageTracker;
   }
 
   public void toggleBreakPoint(BreakPoint breakPoint, boolean on) {
@@ -42,6 +117,94 @@ public class Memory {
       default -> throw new UnrecoverableException(
           "Trying to add unsupported breakpoint of type " + breakPoint.getBreakPointType());
     }
+    updateWatchBitmaps();
+  }
+
+  /**
+   * Makes device handle the accesses to the addresses between startAddress and endAddress (excluded) instead of the
+   * RAM. Content of the RAM in the range is kept as is and is visible again once the device is unmapped.<br/>
+   * Bulk operations on the range are done one byte at a time.
+   */
+  public void mapDevice(MemoryMappedDevice device, int startAddress, int endAddress) {
+    unmapDevice(device);
+    deviceMappings = Arrays.copyOf(deviceMappings, deviceMappings.length + 1);
+    deviceMappings[deviceMappings.length - 1] = new DeviceMapping(device, startAddress, endAddress);
+    updateWatchBitmaps();
+  }
+
+  public void unmapDevice(MemoryMappedDevice device) {
+    DeviceMapping[] remaining =
+        Arrays.stream(deviceMappings).filter(mapping -> mapping.device() != device).toArray(DeviceMapping[]::new);
+    if (remaining.length != deviceMappings.length) {
+      deviceMappings = remaining;
+      updateWatchBitmaps();
+    }
+  }
+
+  private void updateWatchBitmaps() {
+    readWatched = updateWatchBitmap(readBreakPoints, readWatchBitmap);
+    writeWatched = updateWatchBitmap(writeBreakPoints, writeWatchBitmap);
+  }
+
+  /**
+   * Sets the bits of the pages where breakPointHolder has breakpoints and of the pages where devices are mapped.
+   * 
+   * @return true if at least one page is watched
+   */
+  private boolean updateWatchBitmap(BreakPointHolder breakPointHolder, long[] watchBitmap) {
+    if (breakPointHolder.hasUnconditionalBreakPoints()) {
+      Arrays.fill(watchBitmap, -1L);
+      return true;
+    }
+    Arrays.fill(watchBitmap, 0);
+    boolean watched = false;
+    for (long address : breakPointHolder.getBreakPointAddresses()) {
+      if (address >= 0 && address < backend.getSize()) {
+        watchPage(watchBitmap, (int)(address >>> WATCH_PAGE_SHIFT));
+        watched = true;
+      }
+    }
+    for (DeviceMapping deviceMapping : deviceMappings) {
+      int lastPage = (deviceMapping.endAddress() - 1) >>> WATCH_PAGE_SHIFT;
+      for (int page = deviceMapping.startAddress() >>> WATCH_PAGE_SHIFT; page <= lastPage; page++) {
+        watchPage(watchBitmap, page);
+        watched = true;
+      }
+    }
+    return watched;
+  }
+
+  private static void watchPage(long[] watchBitmap, int page) {
+    watchBitmap[page >>> 6] |= 1L << page;
+  }
+
+  private static boolean isWatched(long[] watchBitmap, int address) {
+    int page = address >>> WATCH_PAGE_SHIFT;
+    return (watchBitmap[page >>> 6] & (1L << page)) != 0;
+  }
+
+  /**
+   * @return true if the page of the first or of the last byte of an access of length bytes is watched. Accesses at the
+   *         end of the memory wrap around to its beginning.
+   */
+  private boolean isAccessWatched(long[] watchBitmap, int address, int length) {
+    int lastAddress = address + length - 1;
+    if (lastAddress >= backend.getSize()) {
+      lastAddress -= backend.getSize();
+    }
+    return isWatched(watchBitmap, address) || isWatched(watchBitmap, lastAddress);
+  }
+
+  private static boolean isWatched(long[] watchBitmap, int startAddress, int endAddress) {
+    if (endAddress <= startAddress) {
+      return false;
+    }
+    for (int page = startAddress >>> WATCH_PAGE_SHIFT; page <= (endAddress - 1) >>> WATCH_PAGE_SHIFT; page++) {
+      if ((watchBitmap[page >>> 6] & (1L << page)) != 0) {
+        return true;
+      }
+    }
+    return false;
   }
 
   public void loadData(int address, byte[] data) {
@@ -50,69 +213,185 @@ public class Memory {
 
   public void loadData(int address, byte[] data, int length) {
     monitorRangeWriteAccess(address, address + length);
-    System.arraycopy(data, 0, physicalMemory, address, length);
+    if (hasDevicesInRange(address, address + length)) {
+      for (int i = 0; i < length; i++) {
+        storeUint8(address + i, data[i]);
+      }
+    } else {
+      backend.load(address, data, 0, length);
+    }
+    notifyWrite(address, address + length);
+  }
+
+  /**
+   * Same as loadData, but writes to the RAM even where devices are mapped. Used to restore the RAM they hide.
+   */
+  public void loadRam(int address, byte[] data, int length) {
+    monitorRangeWriteAccess(address, address + length);
+    backend.load(address, data, 0, length);
+    notifyWrite(address, address + length);
   }
 
   public byte[] getData(int address, int length) {
     byte[] res = new byte[length];
-    System.arraycopy(physicalMemory, address, res, 0, length);
+    if (hasDevicesInRange(address, address + length)) {
+      for (int i = 0; i < length; i++) {
+        res[i] = (byte)loadUint8(address + i);
+      }
+    } else {
+      backend.read(address, res, 0, length);
+    }
     return res;
   }
 
   public void memCopy(int sourceAddress, int destinationAddress, int length) {
-    System.arraycopy(physicalMemory, sourceAddress, physicalMemory, destinationAddress, length);
+    if (hasDevicesInRange(sourceAddress, sourceAddress + length)
+        || hasDevicesInRange(destinationAddress, destinationAddress + length)) {
+      for (int i = 0; i < length; i++) {
+        storeUint8(destinationAddress + i, loadUint8(sourceAddress + i));
+      }
+    } else {
+      backend.copy(sourceAddress, destinationAddress, length);
+    }
+    notifyWrite(destinationAddress, destinationAddress + length);
   }
 
   public void memset(int address, int value, int length) {
-    Arrays.fill(physicalMemory, address, address + length, ConvertUtils.uint8b(value));
+    if (hasDevicesInRange(address, address + length)) {
+      for (int i = 0; i < length; i++) {
+        storeUint8(address + i, value);
+      }
+    } else {
+      backend.fill(address, length, ConvertUtils.uint8b(value));
+    }
+    notifyWrite(address, address + length);
+  }
+
+  /**
+   * Fills count words starting at address with value
+   */
+  public void memset16(int address, int value, int count) {
+    int endAddress = address + count * 2;
+    boolean devicesInRange = hasDevicesInRange(address, endAddress);
+    for (int i = address; i < endAddress; i += 2) {
+      if (devicesInRange) {
+        storeUint8(i, value);
+        storeUint8(i + 1, value >>> 8);
+      } else {
+        backend.setUint16(i, value);
+      }
+    }
+    notifyWrite(address, endAddress);
+  }
+
+  /**
+   * @return index of the first byte that differs between the ranges starting at address1 and address2, -1 if they are
+   *         equal
+   */
+  public int mismatch(int address1, int address2, int length) {
+    return backend.mismatch(address1, address2, length);
+  }
+
+  /**
+   * @return index from address of the first byte equal to value, -1 if there is none in the range
+   */
+  public int indexOf(int address, int length, int value) {
+    return backend.indexOf(address, length, ConvertUtils.uint8b(value));
+  }
+
+  /**
+   * @return true if an access to an address in [startAddress, endAddress[ could trigger a breakpoint or is handled by
+   *         a device. Operations working directly on the backend must not be used on such ranges.
+   */
+  public boolean isWatchedRange(int startAddress, int endAddress) {
+    return readWatched && isWatched(readWatchBitmap, startAddress, endAddress)
+        || writeWatched && isWatched(writeWatchBitmap, startAddress, endAddress);
   }
 
   public int getUint8(int addr) {
-    int res = MemoryUtils.getUint8(physicalMemory, addr);
-    monitorReadAccess(addr);
-    return res;
+    if (readWatched && isWatched(readWatchBitmap, addr)) {
+      int res = loadUint8(addr);
+      readBreakPoints.triggerMatchingBreakPoints(addr);
+      return res;
+    }
+    return backend.getUint8(addr);
   }
 
   public void setUint8(int address, int value) {
-    monitorWriteAccess(address);
-    MemoryUtils.setUint8(physicalMemory, address, value);
+    if (writeWatched && isWatched(writeWatchBitmap, address)) {
+      writeBreakPoints.triggerMatchingBreakPoints(address);
+      storeUint8(address, value);
+    } else {
+      backend.setUint8(address, value);
+    }
+    notifyWrite(address, address + 1);
   }
 
   public int getUint16(int address) {
-    int res = MemoryUtils.getUint16(physicalMemory, address);
-    monitorReadAccess(address);
-    return res;
+    if (readWatched && isAccessWatched(readWatchBitmap, address, 2)) {
+      int res = hasDevicesInRange(address, address + 2) ? loadUint8(address) | loadUint8(address + 1) << 8
+          : backend.getUint16(address);
+      readBreakPoints.triggerMatchingBreakPoints(address);
+      return res;
+    }
+    return backend.getUint16(address);
   }
 
   public void setUint16(int address, int value) {
-    monitorWriteAccess(address);
-    MemoryUtils.setUint16(physicalMemory, address, value);
+    if (writeWatched && isAccessWatched(writeWatchBitmap, address, 2)) {
+      writeBreakPoints.triggerMatchingBreakPoints(address);
+      if (hasDevicesInRange(address, address + 2)) {
+        storeUint8(address, value);
+        storeUint8(address + 1, value >>> 8);
+      } else {
+        backend.setUint16(address, value);
+      }
+    } else {
+      backend.setUint16(address, value);
+    }
+    notifyWrite(address, address + 2);
   }
 
   public int getUint32(int address) {
-    int res = MemoryUtils.getUint32(physicalMemory, address);
-    monitorReadAccess(address);
-    return res;
+    if (readWatched && isAccessWatched(readWatchBitmap, address, 4)) {
+      int res = hasDevicesInRange(address, address + 4) ? loadUint8(address) | loadUint8(address + 1) << 8
+          | loadUint8(address + 2) << 16 | loadUint8(address + 3) << 24 : backend.getUint32(address);
+      readBreakPoints.triggerMatchingBreakPoints(address);
+      return res;
+    }
+    return backend.getUint32(address);
   }
 
   public void setUint32(int address, int value) {
-    monitorWriteAccess(address);
     // For convenience, no get as 16 bit apps are not supposed call this directly
-    MemoryUtils.setUint32(physicalMemory, address, value);
+    if (writeWatched && isAccessWatched(writeWatchBitmap, address, 4)) {
+      writeBreakPoints.triggerMatchingBreakPoints(address);
+      if (hasDevicesInRange(address, address + 4)) {
+        for (int i = 0; i < 4; i++) {
+          storeUint8(address + i, value >>> (i * 8));
+        }
+      } else {
+        backend.setUint32(address, value);
+      }
+    } else {
+      backend.setUint32(address, value);
+    }
+    notifyWrite(address, address + 4);
   }
 
   public Integer searchValue(int address, int len, List<Byte> value) {
+    int size = backend.getSize();
     int end = address + len;
-    if (end >= physicalMemory.length) {
-      end = physicalMemory.length;
+    if (end >= size) {
+      end = size;
     }
     for (int i = address; i < end; i++) {
       int endValue = value.size();
-      if (endValue + i >= physicalMemory.length) {
-        endValue = physicalMemory.length - i;
+      if (endValue + i >= size) {
+        endValue = size - i;
       }
       int j = 0;
-      while (j < endValue && physicalMemory[i + j] == value.get(j)) {
+      while (j < endValue && (byte)backend.getUint8(i + j) == value.get(j)) {
         j++;
       }
       if (j == endValue) {
@@ -123,18 +402,76 @@ public class Memory {
   }
 
   public void dumpToFile(String path) throws IOException {
-    Files.write(new File(path).toPath(), physicalMemory);
+    try (FileChannel channel = FileChannel.open(Path.of(path), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+        StandardOpenOption.TRUNCATE_EXISTING)) {
+      ByteBuffer buffer = backend.asByteBuffer(0, backend.getSize());
+      while (buffer.hasRemaining()) {
+        channel.write(buffer);
+      }
+    }
+  }
+
+  /**
+   * Copies the memory and writes the copy to path in the background, so that emulation can go on while the file is
+   * written.
+   * 
+   * @return future completed when the file is written
+   */
+  public CompletableFuture<Void> dumpToFileAsync(String path) {
+    return snapshotWriter.dump(path);
   }
 
-  private void monitorReadAccess(int address) {
-    readBreakPoints.triggerMatchingBreakPoints(address);
+  private boolean hasDevicesInRange(int startAddress, int endAddress) {
+    for (DeviceMapping deviceMapping : deviceMappings) {
+      if (deviceMapping.overlaps(startAddress, endAddress)) {
+        return true;
+      }
+    }
+    return false;
   }
 
-  private void monitorWriteAccess(int address) {
-    writeBreakPoints.triggerMatchingBreakPoints(address);
+  private MemoryMappedDevice getDevice(int address) {
+    for (DeviceMapping deviceMapping : deviceMappings) {
+      if (deviceMapping.overlaps(address, address + 1)) {
+        return deviceMapping.device();
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Reads from the device mapped at address, or from the RAM if there is none
+   */
+  private int loadUint8(int address) {
+    MemoryMappedDevice device = getDevice(address);
+    if (device != null) {
+      return device.readUint8(address);
+    }
+    return backend.getUint8(address);
+  }
+
+  private void storeUint8(int address, int value) {
+    MemoryMappedDevice device = getDevice(address);
+    if (device != null) {
+      device.writeUint8(address, value & 0xFF);
+    } else {
+      backend.setUint8(address, value);
+    }
+  }
+
+  private void notifyWrite(int startAddress, int endAddress) {
+    // Not listeners so that the listener call stays bimorphic for the instruction caches
+    for (DirtyPageTracker dirtyPageTracker : dirtyPageTrackers) {
+      dirtyPageTracker.markDirty(startAddress, endAddress);
+    }
+    for (MemoryWriteListener writeListener : writeListeners) {
+      writeListener.onWrite(startAddress, endAddress);
+    }
   }
 
   private void monitorRangeWriteAccess(int startAddress, int endAddress) {
-    writeBreakPoints.triggerBreakPointsWithAddressRange(startAddress, endAddress);
+    if (writeWatched && isWatched(writeWatchBitmap, startAddress, endAddress)) {
+      writeBreakPoints.triggerBreakPointsWithAddressRange(startAddress, endAddress);
+    }
   }
 }
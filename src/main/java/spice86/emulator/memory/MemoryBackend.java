@@ -0,0 +1,58 @@
+package spice86.emulator.memory;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Storage of the bytes of the memory.<br/>
+ * Words and DWords are stored little-endian. Implementations do not check breakpoints nor notify listeners, this is
+ * done by Memory.
+ */
+public interface MemoryBackend {
+  public int getSize();
+
+  public int getUint8(int address);
+
+  public void setUint8(int address, int value);
+
+  public int getUint16(int address);
+
+  public void setUint16(int address, int value);
+
+  public int getUint32(int address);
+
+  public void setUint32(int address, int value);
+
+  /**
+   * Copies length bytes of source starting at sourceOffset to address
+   */
+  public void load(int address, byte[] source, int sourceOffset, int length);
+
+  /**
+   * Copies length bytes starting at address to destination at destinationOffset
+   */
+  public void read(int address, byte[] destination, int destinationOffset, int length);
+
+  /**
+   * Copies length bytes from sourceAddress to destinationAddress. Ranges can overlap, the result is as if the source
+   * was copied to a temporary buffer first.
+   */
+  public void copy(int sourceAddress, int destinationAddress, int length);
+
+  public void fill(int address, int length, byte value);
+
+  /**
+   * @return index of the first byte that differs between the ranges starting at address1 and address2, -1 if they are
+   *         equal
+   */
+  public int mismatch(int address1, int address2, int length);
+
+  /**
+   * @return index from address of the first byte equal to value, -1 if there is none in the range
+   */
+  public int indexOf(int address, int length, byte value);
+
+  /**
+   * @return a view of length bytes starting at address, without copy. Position of the buffer is 0.
+   */
+  public ByteBuffer asByteBuffer(int address, int length);
+}
@@ -0,0 +1,19 @@
+package spice86.emulator.memory;
+
+/**
+ * Hardware answering to the accesses to a range of addresses instead of the RAM, like the VGA planes.<br/>
+ * Accesses wider than a byte are split in byte accesses, from the lowest address to the highest.
+ */
+public interface MemoryMappedDevice {
+  /**
+   * @param address
+   *          physical address read
+   */
+  int readUint8(int address);
+
+  /**
+   * @param address
+   *          physical address written
+   */
+  void writeUint8(int address, int value);
+}
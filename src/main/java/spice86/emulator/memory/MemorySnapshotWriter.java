@@ -0,0 +1,80 @@
+package spice86.emulator.memory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Dumps the memory to files without making the caller wait for the file to be written.<br/>
+ * The memory is copied to a snapshot buffer in the calling thread, then the buffer is written by a background thread.
+ * Snapshot buffers are reused between dumps.<br/>
+ * The writer thread stops when there is nothing to write, and is not a daemon so that pending dumps are written before
+ * the JVM exits.
+ */
+public class MemorySnapshotWriter {
+  // Enough for a dump being written while the next snapshot is taken
+  private static final int MAX_POOLED_BUFFERS = 2;
+
+  private final MemoryBackend backend;
+  private final Queue<byte[]> bufferPool = new ConcurrentLinkedQueue<>();
+  private final ExecutorService executor = new ThreadPoolExecutor(0, 1, 1, TimeUnit.SECONDS,
+      new LinkedBlockingQueue<>(), runnable -> new Thread(runnable, "MemorySnapshotWriter"));
+
+  public MemorySnapshotWriter(MemoryBackend backend) {
+    this.backend = backend;
+  }
+
+  /**
+   * Takes a snapshot of the memory and writes it to path in the background.
+   * 
+   * @return future completed when the file is written, completed exceptionally with an UncheckedIOException if it
+   *         could not be
+   */
+  public CompletableFuture<Void> dump(String path) {
+    byte[] snapshot = takeSnapshot();
+    return CompletableFuture.runAsync(() -> {
+      try {
+        write(snapshot, path);
+      } catch (IOException e) {
+        throw new UncheckedIOException("Error while writing memory snapshot to " + path, e);
+      } finally {
+        releaseBuffer(snapshot);
+      }
+    }, executor);
+  }
+
+  private byte[] takeSnapshot() {
+    byte[] snapshot = bufferPool.poll();
+    if (snapshot == null) {
+      snapshot = new byte[backend.getSize()];
+    }
+    backend.read(0, snapshot, 0, snapshot.length);
+    return snapshot;
+  }
+
+  private void releaseBuffer(byte[] buffer) {
+    if (bufferPool.size() < MAX_POOLED_BUFFERS) {
+      bufferPool.offer(buffer);
+    }
+  }
+
+  private static void write(byte[] snapshot, String path) throws IOException {
+    try (FileChannel channel = FileChannel.open(Path.of(path), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+        StandardOpenOption.TRUNCATE_EXISTING)) {
+      ByteBuffer buffer = ByteBuffer.wrap(snapshot);
+      while (buffer.hasRemaining()) {
+        channel.write(buffer);
+      }
+    }
+  }
+}
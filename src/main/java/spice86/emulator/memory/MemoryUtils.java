@@ -4,10 +4,21 @@ import static spice86.utils.ConvertUtils.uint16;
 import static spice86.utils.ConvertUtils.uint8;
 import static spice86.utils.ConvertUtils.uint8b;
 
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+
 /**
  * Utils to get and set values in an array. Words and DWords are considered to be stored little-endian.<br/>
+ * Words and DWords are accessed in one go via VarHandles, unaligned accesses are supported. Accesses going past the
+ * end of the array throw an IndexOutOfBoundsException.
  */
 public class MemoryUtils {
+  private static final VarHandle SHORT_HANDLE =
+      MethodHandles.byteArrayViewVarHandle(short[].class, ByteOrder.LITTLE_ENDIAN);
+  private static final VarHandle INT_HANDLE =
+      MethodHandles.byteArrayViewVarHandle(int[].class, ByteOrder.LITTLE_ENDIAN);
+
   public static int getUint8(byte[] memory, int address) {
     return uint8(memory[address]);
   }
@@ -17,24 +28,19 @@ public class MemoryUtils {
   }
 
   public static int getUint16(byte[] memory, int address) {
-    return uint16(uint8(memory[address]) | (uint8(memory[address + 1]) << 8));
+    return uint16((short)SHORT_HANDLE.get(memory, address));
   }
 
   public static void setUint16(byte[] memory, int address, int value) {
-    memory[address] = uint8b(value);
-    memory[address + 1] = uint8b(value >>> 8);
+    SHORT_HANDLE.set(memory, address, (short)value);
   }
 
   public static int getUint32(byte[] memory, int address) {
-    return uint8(memory[address]) | (uint8(memory[address + 1]) << 8) | (uint8(memory[address + 2]) << 16)
-        | (uint8(memory[address + 3]) << 24);
+    return (int)INT_HANDLE.get(memory, address);
   }
 
   public static void setUint32(byte[] memory, int address, int value) {
-    memory[address] = uint8b(value);
-    memory[address + 1] = uint8b(value >>> 8);
-    memory[address + 2] = uint8b(value >>> 16);
-    memory[address + 3] = uint8b(value >>> 24);
+    INT_HANDLE.set(memory, address, value);
   }
 
   public static int toPhysicalAddress(int segment, int offset) {
@@ -0,0 +1,14 @@
+package spice86.emulator.memory;
+
+/**
+ * Notified each time the memory content is modified.
+ */
+public interface MemoryWriteListener {
+  /**
+   * @param startAddress
+   *          physical address of the first byte written
+   * @param endAddress
+   *          physical address after the last byte written
+   */
+  void onWrite(int startAddress, int endAddress);
+}
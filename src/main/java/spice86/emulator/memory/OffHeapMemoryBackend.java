@@ -0,0 +1,136 @@
+package spice86.emulator.memory;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import spice86.utils.ConvertUtils;
+
+/**
+ * Memory stored outside of the java heap in a direct ByteBuffer.<br/>
+ * Words and DWords are accessed with little-endian VarHandles, so that they are read and written in one access instead
+ * of byte by byte. Like in ByteArrayMemoryBackend, an access starting at the end of the memory wraps around to its
+ * beginning.<br/>
+ * Views of the memory can be given to channels and native code without copy.
+ */
+public class OffHeapMemoryBackend implements MemoryBackend {
+  private static final VarHandle SHORT_HANDLE =
+      MethodHandles.byteBufferViewVarHandle(short[].class, ByteOrder.LITTLE_ENDIAN);
+  private static final VarHandle INT_HANDLE =
+      MethodHandles.byteBufferViewVarHandle(int[].class, ByteOrder.LITTLE_ENDIAN);
+
+  private final ByteBuffer physicalMemory;
+  private final int size;
+
+  public OffHeapMemoryBackend(int size) {
+    this.physicalMemory = ByteBuffer.allocateDirect(size).order(ByteOrder.LITTLE_ENDIAN);
+    this.size = size;
+  }
+
+  @Override
+  public int getSize() {
+    return size;
+  }
+
+  @Override
+  public int getUint8(int address) {
+    return ConvertUtils.uint8(physicalMemory.get(address));
+  }
+
+  @Override
+  public void setUint8(int address, int value) {
+    physicalMemory.put(address, ConvertUtils.uint8b(value));
+  }
+
+  @Override
+  public int getUint16(int address) {
+    if (address > size - 2) {
+      return getUint8(address) | (getUint8(wrap(address + 1)) << 8);
+    }
+    return ConvertUtils.uint16((short)SHORT_HANDLE.get(physicalMemory, address));
+  }
+
+  @Override
+  public void setUint16(int address, int value) {
+    if (address > size - 2) {
+      setUint8(address, value);
+      setUint8(wrap(address + 1), value >>> 8);
+      return;
+    }
+    SHORT_HANDLE.set(physicalMemory, address, (short)value);
+  }
+
+  @Override
+  public int getUint32(int address) {
+    if (address > size - 4) {
+      return getUint16(address) | (getUint16(wrap(address + 2)) << 16);
+    }
+    return (int)INT_HANDLE.get(physicalMemory, address);
+  }
+
+  @Override
+  public void setUint32(int address, int value) {
+    if (address > size - 4) {
+      setUint16(address, value);
+      setUint16(wrap(address + 2), value >>> 16);
+      return;
+    }
+    INT_HANDLE.set(physicalMemory, address, value);
+  }
+
+  private int wrap(int address) {
+    return address >= size ? address - size : address;
+  }
+
+  @Override
+  public void load(int address, byte[] source, int sourceOffset, int length) {
+    physicalMemory.put(address, source, sourceOffset, length);
+  }
+
+  @Override
+  public void read(int address, byte[] destination, int destinationOffset, int length) {
+    physicalMemory.get(address, destination, destinationOffset, length);
+  }
+
+  @Override
+  public void copy(int sourceAddress, int destinationAddress, int length) {
+    // Copying via a duplicate handles overlapping ranges like System.arraycopy
+    physicalMemory.put(destinationAddress, physicalMemory.duplicate(), sourceAddress, length);
+  }
+
+  @Override
+  public void fill(int address, int length, byte value) {
+    int end = address + length;
+    int i = address;
+    if (length >= 8) {
+      long pattern = (value & 0xFFL) * 0x0101010101010101L;
+      for (; i + 8 <= end; i += 8) {
+        physicalMemory.putLong(i, pattern);
+      }
+    }
+    for (; i < end; i++) {
+      physicalMemory.put(i, value);
+    }
+  }
+
+  @Override
+  public int mismatch(int address1, int address2, int length) {
+    return asByteBuffer(address1, length).mismatch(asByteBuffer(address2, length));
+  }
+
+  @Override
+  public int indexOf(int address, int length, byte value) {
+    for (int i = 0; i < length; i++) {
+      if (physicalMemory.get(address + i) == value) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  @Override
+  public ByteBuffer asByteBuffer(int address, int length) {
+    return physicalMemory.slice(address, length).order(ByteOrder.LITTLE_ENDIAN);
+  }
+}
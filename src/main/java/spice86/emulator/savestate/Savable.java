@@ -0,0 +1,30 @@
+package spice86.emulator.savestate;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Part of the machine that can be written to a save state and restored from it.<br/>
+ * restoreState has to read exactly what saveState wrote, in the same order.
+ */
+public interface Savable {
+  public void saveState(DataOutput output) throws IOException;
+
+  public void restoreState(DataInput input) throws IOException;
+
+  /**
+   * Called with the data restoreState will get, before any part of the machine is restored. Acquires what restoreState
+   * could fail to acquire, so that a failure leaves the machine as it was.
+   */
+  public default void prepareRestore(DataInput input) throws IOException {
+    // Nothing to acquire by default
+  }
+
+  /**
+   * Releases what prepareRestore acquired when the restore is abandoned.
+   */
+  public default void cancelRestore() {
+    // Nothing to release by default
+  }
+}
@@ -0,0 +1,320 @@
+package spice86.emulator.savestate;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import spice86.emulator.interrupthandlers.dos.DosInt21Handler;
+import spice86.emulator.machine.Machine;
+import spice86.emulator.memory.DirtyPageTracker;
+import spice86.emulator.memory.Memory;
+import spice86.emulator.memory.MemoryBackend;
+
+/**
+ * Saves the whole machine to a file and restores it.<br/>
+ * Two kinds of files are written:
+ * <ul>
+ * <li>Full save states, containing every memory page</li>
+ * <li>Checkpoints, containing only the memory pages written since the previous save. They can only be restored on top
+ * of the full save state and of all the checkpoints taken before them.</li>
+ * </ul>
+ * Devices and CPU are fully written in both kinds, the biggest are the 256KB of VGA planes.<br/>
+ * Files are gzip compressed. Each component is written in a section prefixed with its name and its length, so that a
+ * file can be checked completely before anything is restored. States have to be taken and restored between two
+ * instructions, when the emulator is paused.<br/>
+ * Not saved: sound devices, keyboard and mouse host state, the function call stack used in debug mode, and pending DOS
+ * file searches. The BIOS keyboard buffer lives in emulated memory and is restored with it.
+ */
+public class SaveStateManager {
+  private static final Logger LOGGER = LoggerFactory.getLogger(SaveStateManager.class);
+  // "S86S"
+  private static final int MAGIC = 0x53383653;
+  private static final int VERSION = 3;
+  private static final String MEMORY_SECTION = "memory";
+  // Checkpoints contain 4KB pages
+  private static final int PAGE_SHIFT = 12;
+
+  private final Memory memory;
+  private final Map<String, Savable> components = new LinkedHashMap<>();
+  private final DirtyPageTracker dirtyPageTracker;
+  private final SecureRandom random = new SecureRandom();
+  private final byte[] pageBuffer = new byte[1 << PAGE_SHIFT];
+  // Content of the section being written, to know its length before writing it
+  private final ByteArrayOutputStream sectionBuffer = new ByteArrayOutputStream();
+  // Sections longer than this cannot come from this machine, the memory section is the biggest
+  private final int maxSectionLength;
+  // Identifies the full save state the checkpoints are based on, 0 when no full state was saved or restored yet
+  private long chainId;
+  private int sequence;
+
+  public SaveStateManager(Machine machine) {
+    this.memory = machine.getMemory();
+    DosInt21Handler dosInt21Handler = machine.getDosInt21Handler();
+    // CPU first since counters schedule themselves according to the restored cycles
+    components.put("cpu", machine.getCpu());
+    components.put("timer", machine.getTimer());
+    components.put("pic", machine.getPic());
+    components.put("vgaDac", machine.getVgaCard().getVgaDac());
+    components.put("vgaCard", machine.getVgaCard());
+    components.put("dosMemoryManager", dosInt21Handler.getDosMemoryManager());
+    components.put("dosFileManager", dosInt21Handler.getDosFileManager());
+    this.dirtyPageTracker = memory.trackDirtyPages(PAGE_SHIFT);
+    this.maxSectionLength = Integer.BYTES * (dirtyPageTracker.getNumberOfPages() + 1) + memory.getSize();
+  }
+
+  /**
+   * @return sequence number of the last checkpoint written or restored, 0 for the full save state
+   */
+  public int getSequence() {
+    return sequence;
+  }
+
+  /**
+   * Writes the whole machine to path and starts a new chain of checkpoints.
+   */
+  public void saveState(String path) throws IOException {
+    long newChainId = random.nextLong();
+    if (newChainId == 0) {
+      newChainId = 1;
+    }
+    write(path, false, newChainId, 0);
+    chainId = newChainId;
+    sequence = 0;
+  }
+
+  /**
+   * Writes to path what changed since the last save state or checkpoint.
+   */
+  public void saveCheckpoint(String path) throws IOException {
+    if (chainId == 0) {
+      throw new IOException("A full save state has to be saved or restored before saving a checkpoint");
+    }
+    write(path, true, chainId, sequence + 1);
+    sequence++;
+  }
+
+  /**
+   * Restores the machine from a full save state and the checkpoints following it, in order. Files are read completely
+   * and validated before anything is modified: headers, sections, memory pages and the gzip checksum. Components then
+   * prepare their restore, for example by reopening the DOS files. When an IOException is thrown the machine is left
+   * as it was.<br/>
+   * Components are fully written in each file so they are restored from the last one only, memory pages are restored
+   * from every file.<br/>
+   * Next checkpoints continue the restored chain.
+   */
+  public void restore(String fullStatePath, List<String> checkpointPaths) throws IOException {
+    List<String> paths = new ArrayList<>();
+    paths.add(fullStatePath);
+    paths.addAll(checkpointPaths);
+    long restoredChainId = 0;
+    List<byte[][]> contents = new ArrayList<>();
+    for (int i = 0; i < paths.size(); i++) {
+      String path = paths.get(i);
+      try (DataInputStream input = open(path)) {
+        restoredChainId = checkHeader(input, path, i, restoredChainId);
+        contents.add(readSections(input, path));
+      }
+    }
+    byte[][] lastSections = contents.get(contents.size() - 1);
+    prepareComponents(lastSections);
+    restoreComponents(lastSections);
+    for (int i = 0; i < paths.size(); i++) {
+      byte[][] sections = contents.get(i);
+      restoreMemory(sections[sections.length - 1]);
+      LOGGER.info("Restored state from {}", paths.get(i));
+    }
+    dirtyPageTracker.clear();
+    chainId = restoredChainId;
+    sequence = checkpointPaths.size();
+  }
+
+  private void write(String path, boolean checkpoint, long chainIdToWrite, int sequenceToWrite) throws IOException {
+    try (DataOutputStream output = new DataOutputStream(
+        new BufferedOutputStream(new GZIPOutputStream(Files.newOutputStream(Path.of(path)))))) {
+      output.writeInt(MAGIC);
+      output.writeShort(VERSION);
+      output.writeBoolean(checkpoint);
+      output.writeLong(chainIdToWrite);
+      output.writeInt(sequenceToWrite);
+      for (Map.Entry<String, Savable> component : components.entrySet()) {
+        writeSection(output, component.getKey(), component.getValue()::saveState);
+      }
+      writeSection(output, MEMORY_SECTION, sectionOutput -> writeMemory(sectionOutput, checkpoint));
+    }
+    dirtyPageTracker.clear();
+  }
+
+  private void writeSection(DataOutputStream output, String name, SectionWriter sectionWriter) throws IOException {
+    sectionBuffer.reset();
+    sectionWriter.write(new DataOutputStream(sectionBuffer));
+    output.writeUTF(name);
+    output.writeInt(sectionBuffer.size());
+    sectionBuffer.writeTo(output);
+  }
+
+  private void writeMemory(DataOutput output, boolean onlyDirtyPages) throws IOException {
+    MemoryBackend backend = memory.getBackend();
+    int numberOfPages = dirtyPageTracker.getNumberOfPages();
+    output.writeInt(onlyDirtyPages ? dirtyPageTracker.countDirtyPages() : numberOfPages);
+    for (int page = 0; page < numberOfPages; page++) {
+      if (onlyDirtyPages && !dirtyPageTracker.isDirty(page)) {
+        continue;
+      }
+      int address = page << PAGE_SHIFT;
+      int length = pageLength(address);
+      backend.read(address, pageBuffer, 0, length);
+      output.writeInt(page);
+      output.write(pageBuffer, 0, length);
+    }
+  }
+
+  private DataInputStream open(String path) throws IOException {
+    return new DataInputStream(new BufferedInputStream(new GZIPInputStream(Files.newInputStream(Path.of(path)))));
+  }
+
+  /**
+   * @return the chain id of the file
+   */
+  private long checkHeader(DataInput input, String path, int expectedSequence, long expectedChainId)
+      throws IOException {
+    if (input.readInt() != MAGIC) {
+      throw new IOException(path + " is not a save state");
+    }
+    int version = input.readUnsignedShort();
+    if (version != VERSION) {
+      throw new IOException(path + " has unsupported version " + version);
+    }
+    boolean checkpoint = input.readBoolean();
+    long fileChainId = input.readLong();
+    int fileSequence = input.readInt();
+    if (checkpoint != (expectedSequence != 0)) {
+      throw new IOException(path + (checkpoint ? " is a checkpoint, expected a full save state"
+          : " is a full save state, expected a checkpoint"));
+    }
+    if (checkpoint && (fileChainId != expectedChainId || fileSequence != expectedSequence)) {
+      throw new IOException(
+          path + " is not checkpoint " + expectedSequence + " of the given save state, it is checkpoint "
+              + fileSequence + (fileChainId == expectedChainId ? "" : " of another save state"));
+    }
+    return fileChainId;
+  }
+
+  /**
+   * Reads the content of a file after its header and checks it can be restored.
+   * 
+   * @return content of each component followed by the memory section
+   */
+  private byte[][] readSections(DataInputStream input, String path) throws IOException {
+    byte[][] sections = new byte[components.size() + 1][];
+    int index = 0;
+    for (String name : components.keySet()) {
+      sections[index++] = readSection(input, path, name);
+    }
+    sections[index] = readSection(input, path, MEMORY_SECTION);
+    checkMemorySection(sections[index], path);
+    // Reading until the end also makes the gzip stream verify its checksum
+    if (input.read() != -1) {
+      throw new IOException(path + " is corrupted, it has data after the memory section");
+    }
+    return sections;
+  }
+
+  private byte[] readSection(DataInput input, String path, String expectedSection) throws IOException {
+    checkSection(input, path, expectedSection);
+    int length = input.readInt();
+    if (length < 0 || length > maxSectionLength) {
+      throw new IOException(path + " is corrupted, section " + expectedSection + " has invalid length " + length);
+    }
+    byte[] section = new byte[length];
+    input.readFully(section);
+    return section;
+  }
+
+  private void checkMemorySection(byte[] section, String path) throws IOException {
+    DataInputStream input = new DataInputStream(new ByteArrayInputStream(section));
+    int numberOfPages = input.readInt();
+    for (int i = 0; i < numberOfPages; i++) {
+      int page = input.readInt();
+      if (page < 0 || page >= dirtyPageTracker.getNumberOfPages()) {
+        throw new IOException(path + " contains invalid memory page " + page);
+      }
+      input.readFully(pageBuffer, 0, pageLength(page << PAGE_SHIFT));
+    }
+    if (input.available() != 0) {
+      throw new IOException(path + " is corrupted, memory section is longer than its pages");
+    }
+  }
+
+  /**
+   * Calls prepareRestore on every component. If one fails, the components already prepared cancel their restore.
+   */
+  private void prepareComponents(byte[][] sections) throws IOException {
+    List<Savable> prepared = new ArrayList<>();
+    try {
+      int index = 0;
+      for (Savable component : components.values()) {
+        component.prepareRestore(new DataInputStream(new ByteArrayInputStream(sections[index++])));
+        prepared.add(component);
+      }
+    } catch (IOException | RuntimeException e) {
+      for (Savable component : prepared) {
+        component.cancelRestore();
+      }
+      throw e;
+    }
+  }
+
+  private void restoreComponents(byte[][] sections) throws IOException {
+    int index = 0;
+    for (Savable component : components.values()) {
+      component.restoreState(new DataInputStream(new ByteArrayInputStream(sections[index++])));
+    }
+  }
+
+  private void restoreMemory(byte[] section) throws IOException {
+    DataInputStream input = new DataInputStream(new ByteArrayInputStream(section));
+    int numberOfPages = input.readInt();
+    for (int i = 0; i < numberOfPages; i++) {
+      int address = input.readInt() << PAGE_SHIFT;
+      int length = pageLength(address);
+      input.readFully(pageBuffer, 0, length);
+      // Goes through the memory so that caches of decoded and recompiled code are invalidated. Devices like the VGA
+      // planes are restored with their own state, the RAM they hide is restored here.
+      memory.loadRam(address, pageBuffer, length);
+    }
+  }
+
+  private void checkSection(DataInput input, String path, String expectedSection) throws IOException {
+    String section = input.readUTF();
+    if (!expectedSection.equals(section)) {
+      throw new IOException(path + " is corrupted, expected section " + expectedSection + " but got " + section);
+    }
+  }
+
+  private int pageLength(int address) {
+    return Math.min(pageBuffer.length, memory.getSize() - address);
+  }
+
+  @FunctionalInterface
+  private interface SectionWriter {
+    void write(DataOutput output) throws IOException;
+  }
+}
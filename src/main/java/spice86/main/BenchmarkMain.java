@@ -0,0 +1,92 @@
+package spice86.main;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.math.NumberUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import spice86.emulator.Configuration;
+import spice86.emulator.benchmark.BenchmarkResult;
+import spice86.emulator.benchmark.HeadlessBenchmark;
+import spice86.emulator.errors.InvalidOperationException;
+import spice86.emulator.errors.UnrecoverableException;
+import spice86.ui.CommandLineParser;
+
+/**
+ * Entry point for headless benchmarks. Runs a program without gui for a fixed number of cycles and writes the
+ * measurements as JSON.<br/>
+ * Accepts the same parameters as Main, plus the benchmark ones.
+ */
+public class BenchmarkMain {
+  private static final Logger LOGGER = LoggerFactory.getLogger(BenchmarkMain.class);
+  private static final long DEFAULT_BENCHMARK_CYCLES = 100_000_000l;
+  // Timers based on the number of instructions make the runs of different builds execute the same code
+  private static final long DEFAULT_INSTRUCTIONS_PER_SECOND = 2_000_000l;
+
+  @SuppressWarnings("java:S106")
+  public static void main(String[] args) {
+    List<String> unNamedParameters = new ArrayList<>();
+    Map<String, String> namedParameters = new HashMap<>();
+    for (String arg : args) {
+      if (arg.startsWith("--") && arg.contains("=")) {
+        namedParameters.put(StringUtils.substringBetween(arg, "--", "="), StringUtils.substringAfter(arg, "="));
+      } else {
+        unNamedParameters.add(arg);
+      }
+    }
+    Configuration configuration = new CommandLineParser().parseCommandLine(unNamedParameters, namedParameters);
+    if (configuration == null) {
+      LOGGER.info("""
+          Benchmark parameters:
+          --benchmarkCycles=<number of cycles to execute, 100000000 by default>
+          --inputScript=<path of a file with the input to inject at given cycles, see InputScript>
+          --benchmarkOutput=<path of the JSON file to write the results to, standard output if blank>""");
+      System.exit(1);
+    }
+    if (configuration.getInstructionsPerSecond() == null) {
+      configuration.setInstructionsPerSecond(DEFAULT_INSTRUCTIONS_PER_SECOND);
+    }
+    // No gdb server, it would wait for a connection
+    configuration.setGdbPort(null);
+    long cycles = parseBenchmarkCycles(namedParameters.get("benchmarkCycles"));
+    try {
+      BenchmarkResult result = new HeadlessBenchmark(configuration, cycles, namedParameters.get("inputScript")).run();
+      writeResult(result, namedParameters.get("benchmarkOutput"));
+    } catch (InvalidOperationException | UnrecoverableException e) {
+      LOGGER.error("An error occurred during the benchmark", e);
+      System.exit(1);
+    }
+    // Devices may have started non daemon threads
+    System.exit(0);
+  }
+
+  private static long parseBenchmarkCycles(String value) {
+    if (NumberUtils.isDigits(value)) {
+      return Long.parseLong(value);
+    }
+    return DEFAULT_BENCHMARK_CYCLES;
+  }
+
+  @SuppressWarnings("java:S106")
+  private static void writeResult(BenchmarkResult result, String path) {
+    String json = result.toJson();
+    if (StringUtils.isEmpty(path)) {
+      System.out.println(json);
+      return;
+    }
+    try {
+      Files.writeString(Path.of(path), json, StandardCharsets.UTF_8);
+    } catch (IOException e) {
+      throw new UnrecoverableException("Failed to write benchmark results to " + path, e);
+    }
+  }
+}
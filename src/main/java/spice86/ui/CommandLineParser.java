@@ -14,6 +14,8 @@ import org.slf4j.LoggerFactory;
 
 import javafx.application.Application;
 import spice86.emulator.Configuration;
+import spice86.emulator.cpu.OpcodeDispatchMode;
+import spice86.emulator.devices.video.capture.CaptureFormat;
 import spice86.emulator.errors.UnrecoverableException;
 import spice86.emulator.function.OverrideSupplier;
 import spice86.utils.ConvertUtils;
@@ -74,8 +76,7 @@ public class CommandLineParser {
     }
   }
 
-  private String getExe(Application.Parameters parameters) {
-    List<String> unNamedParameters = parameters.getUnnamed();
+  private String getExe(List<String> unNamedParameters) {
     if (CollectionUtils.isEmpty(unNamedParameters)) {
       return null;
     }
@@ -109,6 +110,25 @@ public class CommandLineParser {
     return BooleanUtils.isTrue(booleanValue);
   }
 
+  private boolean parseOffHeapMemory(String value) {
+    Boolean booleanValue = BooleanUtils.toBooleanObject(value);
+    // By default if null will return false
+    return BooleanUtils.isTrue(booleanValue);
+  }
+
+  private List<String> parseLoadStateFiles(String value) {
+    if (StringUtils.isEmpty(value)) {
+      return List.of();
+    }
+    return List.of(value.split(","));
+  }
+
+  private boolean parseLazyFlags(String value) {
+    Boolean booleanValue = BooleanUtils.toBooleanObject(value);
+    // By default if null will return false
+    return BooleanUtils.isTrue(booleanValue);
+  }
+
   private double parseTimeMultiplier(String value) {
     if (!NumberUtils.isParsable(value)) {
       return 1.0;
@@ -122,10 +142,51 @@ public class CommandLineParser {
     return defaultDumpDirectory;
   }
 
-  @SuppressWarnings("java:S106")
+  private OpcodeDispatchMode parseOpcodeDispatchMode(String value) {
+    if (StringUtils.isEmpty(value)) {
+      return OpcodeDispatchMode.SWITCH;
+    }
+    try {
+      return OpcodeDispatchMode.valueOf(value.toUpperCase());
+    } catch (IllegalArgumentException exception) {
+      throw new UnrecoverableException("Invalid opcode dispatch mode " + value, exception);
+    }
+  }
+
+  private String parseCaptureVideo(String value) {
+    if (StringUtils.isEmpty(value)) {
+      return null;
+    }
+    return value;
+  }
+
+  private CaptureFormat parseCaptureFormat(String value) {
+    if (StringUtils.isEmpty(value)) {
+      return CaptureFormat.Y4M;
+    }
+    try {
+      return CaptureFormat.valueOf(value.toUpperCase());
+    } catch (IllegalArgumentException exception) {
+      throw new UnrecoverableException("Invalid capture format " + value, exception);
+    }
+  }
+
   public Configuration parseCommandLine(Application.Parameters parameters) {
+    return parseCommandLine(parameters.getUnnamed(), parameters.getNamed());
+  }
+
+  /**
+   * Same as parseCommandLine(Application.Parameters) for when javafx is not started.
+   * 
+   * @param unNamedParameters
+   *          parameters without a name, the first one is the exe
+   * @param commandLineParameters
+   *          values of the --name=value parameters
+   */
+  @SuppressWarnings("java:S106")
+  public Configuration parseCommandLine(List<String> unNamedParameters, Map<String, String> commandLineParameters) {
     Configuration configuration = new Configuration();
-    configuration.setExe(getExe(parameters));
+    configuration.setExe(getExe(unNamedParameters));
     if (StringUtils.isEmpty(configuration.getExe())) {
       LOGGER.info(
           """
@@ -141,10 +202,16 @@ public class CommandLineParser {
               --programEntryPointSegment=<Segment where to load the program. DOS PSP and MCB will be created before it>
               --expectedChecksum=<Hexadecimal string representing the expected checksum of the checksum>
               --failOnUnhandledPort=<if true, will fail when encountering an unhandled IO port. Useful to check for unimplemented hardware. false by default.>
-              --defaultDumpDirectory=<Directory to dump data to when not specified otherwise. Workin directory if blank>""");
+              --defaultDumpDirectory=<Directory to dump data to when not specified otherwise. Workin directory if blank>
+              --opcodeDispatchMode=<switch or table> How the CPU finds the code to execute for an opcode. switch by default.
+              --recompileThreshold=<number of times an address is executed before the code there is compiled to JVM bytecode> Recompilation is disabled if blank.
+              --lazyFlags=<if true, flags of arithmetic operations are computed only when read. false by default.>
+              --offHeapMemory=<if true, emulated memory is stored outside of the java heap. false by default.>
+              --loadState=<save state file>,<checkpoint files...> restores the machine from the given files after loading the program
+              --captureVideo=<file, or directory for png, to write the displayed frames to> Video is not captured if blank.
+              --captureFormat=<y4m, raw or png> Format of the video capture. y4m by default.""");
       return null;
     }
-    Map<String, String> commandLineParameters = parameters.getNamed();
     configuration.setExeArgs(commandLineParameters.get("exeArgs"));
     configuration.setcDrive(getCDrive(commandLineParameters.get("cDrive")));
     configuration.setInstructionsPerSecond(
@@ -162,6 +229,13 @@ public class CommandLineParser {
     configuration
         .setFailOnUnhandledPort(this.parseFailOnUnhandledPort(commandLineParameters.get("failOnUnhandledPort")));
     configuration.setDefaultDumpDirectory(this.parseDefaultDumpDirectory((commandLineParameters.get("defaultDumpDirectory"))));
+    configuration.setOpcodeDispatchMode(this.parseOpcodeDispatchMode(commandLineParameters.get("opcodeDispatchMode")));
+    configuration.setRecompileThreshold(parseInt(commandLineParameters.get("recompileThreshold")));
+    configuration.setLazyFlags(this.parseLazyFlags(commandLineParameters.get("lazyFlags")));
+    configuration.setOffHeapMemory(this.parseOffHeapMemory(commandLineParameters.get("offHeapMemory")));
+    configuration.setLoadStateFiles(this.parseLoadStateFiles(commandLineParameters.get("loadState")));
+    configuration.setCaptureVideo(this.parseCaptureVideo(commandLineParameters.get("captureVideo")));
+    configuration.setCaptureFormat(this.parseCaptureFormat(commandLineParameters.get("captureFormat")));
     return configuration;
   }
 }
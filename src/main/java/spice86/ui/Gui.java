@@ -1,5 +1,6 @@
 package spice86.ui;
 
+import javafx.animation.AnimationTimer;
 import javafx.application.Platform;
 import javafx.scene.Cursor;
 import javafx.scene.Group;
@@ -13,7 +14,8 @@ import javafx.scene.layout.AnchorPane;
 import javafx.stage.Stage;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import spice86.emulator.devices.video.Rgb;
+import spice86.emulator.memory.DirtyPageTracker;
+import spice86.emulator.memory.MemoryBackend;
 
 import java.util.HashMap;
 import java.util.HashSet;
@@ -32,11 +34,27 @@ import java.util.function.Consumer;
 public class Gui {
   private static final Logger LOGGER = LoggerFactory.getLogger(Gui.class);
 
+  // Main display is scaled so that its width is close to this
+  private static final int MAIN_CANVAS_TARGET_WIDTH = 960;
+
   private Stage stage;
   private int mainCanvasScale = 3;
   private AnchorPane layout = new AnchorPane();
   // Map associating a start address to a canvas
   private Map<Integer, VideoBuffer> videoBuffers = new HashMap<>();
+  // Displays the frames rendered by the VGA card, the other buffers display the memory at their address
+  private volatile VideoBuffer mainBuffer;
+  // Sorted copy of the buffers, updated when they change so that drawing does not allocate
+  private volatile VideoBuffer[] buffersToDraw = new VideoBuffer[0];
+  // Displays the frames drawn by the emulator at each JavaFX pulse, emulation does not wait for the display
+  private final AnimationTimer presenter = new AnimationTimer() {
+    @Override
+    public void handle(long now) {
+      for (VideoBuffer videoBuffer : buffersToDraw) {
+        videoBuffer.present();
+      }
+    }
+  };
   private int width = 1;
   private int height = 1;
   private KeyCode lastKeyCode = null;
@@ -135,10 +153,17 @@ public class Gui {
 
   }
 
+  /**
+   * Replaces all the buffers with a main display of the given size.
+   * 
+   * @param address
+   *          address of the video memory, used to identify the main display in the list of buffers
+   */
   public void setResolution(int width, int height, int address) {
     videoBuffers.clear();
     this.width = width;
     this.height = height;
+    this.mainCanvasScale = Math.max(1, MAIN_CANVAS_TARGET_WIDTH / width);
     addBuffer(address, mainCanvasScale, width, height, canvas -> {
       canvas.setOnMouseMoved(this::onMouseMoved);
       canvas.setOnMousePressed(event -> onMouseClick(event, true));
@@ -150,6 +175,9 @@ public class Gui {
     VideoBuffer videoBuffer = new VideoBuffer(bufferWidth, bufferHeight, scale, address, videoBuffers.size());
     Canvas canvas = videoBuffer.getCanvas();
     videoBuffers.put(address, videoBuffer);
+    if (videoBuffer.getIndex() == 0) {
+      mainBuffer = videoBuffer;
+    }
     if (canvasPostSetupAction != null) {
       canvasPostSetupAction.accept(canvas);
     }
@@ -157,6 +185,7 @@ public class Gui {
   }
 
   private void relayout() {
+    buffersToDraw = sortedBuffers().toArray(new VideoBuffer[0]);
     if (stage != null) {
       Platform.runLater(() -> {
         layout.getChildren().clear();
@@ -198,9 +227,34 @@ public class Gui {
     relayout();
   }
 
-  public void draw(byte[] memory, Rgb[] palette) {
-    for (VideoBuffer videoBuffer : sortedBuffers()) {
-      videoBuffer.draw(memory, palette);
+  /**
+   * Displays a frame rendered by the VGA card in the main display.
+   * 
+   * @param colorIndexes
+   *          one byte per pixel, of the size given to setResolution
+   * @param firstLine
+   *          first line that changed since the previous frame
+   * @param endLine
+   *          line after the last one that changed since the previous frame
+   */
+  public void drawScreen(byte[] colorIndexes, int firstLine, int endLine, int[] argbPalette) {
+    VideoBuffer videoBuffer = mainBuffer;
+    if (videoBuffer != null) {
+      videoBuffer.drawFrame(colorIndexes, firstLine, endLine, argbPalette);
+    }
+  }
+
+  /**
+   * Draws the additional buffers, they display the memory at their address.
+   * 
+   * @param dirtyRegions
+   *          memory modified since the last draw, null to draw everything
+   */
+  public void draw(MemoryBackend memory, int[] argbPalette, DirtyPageTracker dirtyRegions) {
+    for (VideoBuffer videoBuffer : buffersToDraw) {
+      if (videoBuffer != mainBuffer) {
+        videoBuffer.draw(memory, argbPalette, dirtyRegions);
+      }
     }
   }
 
@@ -210,6 +264,7 @@ public class Gui {
 
   public void setStage(Stage stage) {
     this.stage = stage;
+    presenter.start();
     Scene scene = new Scene(layout);
     scene.setCursor(Cursor.NONE);
     scene.setOnKeyPressed(this::onKeyPressed);
@@ -0,0 +1,44 @@
+package spice86.ui;
+
+/**
+ * Snapshot of a video buffer as found in the emulated memory: one color index per pixel and the palette to convert
+ * them.<br/>
+ * Also holds the lines that changed since the frame the consumer acquired last, only those are converted and
+ * uploaded.
+ */
+class IndexedFrame {
+  private final byte[] colorIndexes;
+  private final int[] argbPalette = new int[256];
+  private int firstDirtyLine;
+  // Exclusive
+  private int endDirtyLine;
+
+  public IndexedFrame(int numberOfPixels) {
+    this.colorIndexes = new byte[numberOfPixels];
+  }
+
+  public byte[] getColorIndexes() {
+    return colorIndexes;
+  }
+
+  public int[] getArgbPalette() {
+    return argbPalette;
+  }
+
+  public int getFirstDirtyLine() {
+    return firstDirtyLine;
+  }
+
+  public int getEndDirtyLine() {
+    return endDirtyLine;
+  }
+
+  /**
+   * @param endLine
+   *          exclusive
+   */
+  public void setDirtyLines(int firstLine, int endLine) {
+    this.firstDirtyLine = firstLine;
+    this.endDirtyLine = endLine;
+  }
+}
@@ -0,0 +1,60 @@
+package spice86.ui;
+
+import spice86.utils.TripleBuffer;
+
+/**
+ * Frames of a video buffer going from the emulator thread to the JavaFX thread through a TripleBuffer.<br/>
+ * The JavaFX thread only converts the dirty lines of the frames it acquires, so each published frame carries all the
+ * lines changed since the last frame the JavaFX thread acquired, including those of the frames it skipped.
+ */
+class IndexedFrameBuffer {
+  private final TripleBuffer<IndexedFrame> frames;
+  // Lines changed since the last frame the JavaFX thread acquired, producer thread only
+  private int pendingFirstLine;
+  private int pendingEndLine;
+
+  IndexedFrameBuffer(int width, int height) {
+    this.frames = new TripleBuffer<>(() -> new IndexedFrame(width * height));
+    this.pendingFirstLine = height;
+    this.pendingEndLine = 0;
+  }
+
+  /**
+   * Producer thread only.
+   * 
+   * @return the frame to fill before calling publish
+   */
+  public IndexedFrame getProducerSlot() {
+    return frames.getProducerSlot();
+  }
+
+  /**
+   * Producer thread only. Makes the producer slot available to the JavaFX thread.
+   * 
+   * @param firstLine
+   *          first line that changed since the frame published before
+   * @param endLine
+   *          line after the last one that changed since the frame published before
+   */
+  public void publish(int firstLine, int endLine) {
+    if (frames.isPublishedAcquired()) {
+      // Frame published before is displayed, only the lines of this frame can be missing from the screen
+      pendingFirstLine = firstLine;
+      pendingEndLine = endLine;
+    } else {
+      pendingFirstLine = Math.min(pendingFirstLine, firstLine);
+      pendingEndLine = Math.max(pendingEndLine, endLine);
+    }
+    frames.getProducerSlot().setDirtyLines(pendingFirstLine, pendingEndLine);
+    frames.publish();
+  }
+
+  /**
+   * JavaFX thread only.
+   * 
+   * @return the last published frame, null if nothing was published since the previous call
+   */
+  public IndexedFrame acquire() {
+    return frames.acquire();
+  }
+}
@@ -1,91 +1,166 @@
-package spice86.ui;
-
-import com.google.gson.Gson;
-import javafx.application.Platform;
-import javafx.scene.canvas.Canvas;
-import javafx.scene.canvas.GraphicsContext;
-import javafx.scene.image.PixelFormat;
-import javafx.scene.image.PixelWriter;
-import javafx.scene.transform.Scale;
-import spice86.emulator.devices.video.Rgb;
-import spice86.utils.ConvertUtils;
-
-import java.io.Serializable;
-import java.nio.IntBuffer;
-
-public class VideoBuffer implements Comparable<VideoBuffer>, Serializable {
-  private int address;
-  private int width;
-  private int height;
-  private double scaleFactor;
-  private int index;
-  private transient Canvas canvas;
-
-  public VideoBuffer(int width, int height, double scaleFactor, int address, int index) {
-    this.width = width;
-    this.height = height;
-    this.scaleFactor = scaleFactor;
-    this.address = address;
-    this.index = index;
-    this.canvas = new Canvas(width, height);
-    canvas.getGraphicsContext2D();
-    if (scaleFactor != 1) {
-      Scale scale = new Scale();
-      scale.setPivotX(0);
-      scale.setPivotY(0);
-      scale.setX(this.scaleFactor);
-      scale.setY(this.scaleFactor);
-      canvas.getTransforms().add(scale);
-    }
-  }
-
-  public Canvas getCanvas() {
-    return canvas;
-  }
-
-  public int getIndex() {
-    return index;
-  }
-
-  public void draw(byte[] memory, Rgb[] palette) {
-    if (canvas == null) {
-      return;
-    }
-    int size = width * height;
-    IntBuffer buffer = IntBuffer.allocate(size);
-    int endAddress = address + size;
-    for (int i = address; i < endAddress; i++) {
-      int colorIndex = ConvertUtils.uint8(memory[i]);
-      Rgb pixel = palette[colorIndex];
-      int argb = pixel.toArgb();
-      buffer.put(argb);
-    }
-    buffer.flip();
-    Platform.runLater(() -> {
-      GraphicsContext gc = canvas.getGraphicsContext2D();
-      PixelWriter pw = gc.getPixelWriter();
-      pw.setPixels(0, 0, width, height,
-          PixelFormat.getIntArgbInstance(), buffer, width);
-    });
-  }
-
-  @Override
-  public String toString() {
-    return new Gson().toJson(this);
-  }
-
-  @Override
-  public int compareTo(VideoBuffer o) {
-    return Integer.compare(this.index, o.index);
-  }
-
-  @Override
-  public boolean equals(Object o) {
-    return this == o || (o instanceof VideoBuffer that) && this.index == that.index;
-  }
-
-  @Override
-  public int hashCode() {
-    return index;
-  }
-}
+package spice86.ui;
+
+import com.google.gson.Gson;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.PixelWriter;
+import javafx.scene.transform.Scale;
+import spice86.emulator.memory.DirtyPageTracker;
+import spice86.emulator.memory.MemoryBackend;
+
+import java.io.Serializable;
+
+public class VideoBuffer implements Comparable<VideoBuffer>, Serializable {
+  private int address;
+  private int width;
+  private int height;
+  private double scaleFactor;
+  private int index;
+  private transient Canvas canvas;
+  // False until a frame has been sent, the first one covers all the lines
+  private transient boolean drawn;
+  // Snapshots of the memory going from the emulator thread to the JavaFX thread
+  private transient IndexedFrameBuffer frames;
+  // Converted pixels of the last frame, only accessed by the JavaFX thread
+  private transient int[] pixels;
+
+  public VideoBuffer(int width, int height, double scaleFactor, int address, int index) {
+    this.width = width;
+    this.height = height;
+    this.scaleFactor = scaleFactor;
+    this.address = address;
+    this.index = index;
+    this.canvas = new Canvas(width, height);
+    canvas.getGraphicsContext2D();
+    if (scaleFactor != 1) {
+      Scale scale = new Scale();
+      scale.setPivotX(0);
+      scale.setPivotY(0);
+      scale.setX(this.scaleFactor);
+      scale.setY(this.scaleFactor);
+      canvas.getTransforms().add(scale);
+    }
+    this.frames = new IndexedFrameBuffer(width, height);
+    this.pixels = new int[width * height];
+  }
+
+  public Canvas getCanvas() {
+    return canvas;
+  }
+
+  public int getIndex() {
+    return index;
+  }
+
+  /**
+   * Takes a snapshot of the buffer memory and of the palette for the JavaFX thread. Conversion and display happen
+   * there, in present(), for the lines containing modified memory only.<br/>
+   * Synchronized because GDB can request a refresh from its own thread while the emulator draws.
+   * 
+   * @param argbPalette
+   *          ARGB value of each color index
+   * @param dirtyRegions
+   *          memory modified since the last draw, null to draw even if nothing changed
+   */
+  public synchronized void draw(MemoryBackend memory, int[] argbPalette, DirtyPageTracker dirtyRegions) {
+    if (canvas == null) {
+      return;
+    }
+    int firstLine = 0;
+    int endLine = height;
+    if (drawn && dirtyRegions != null) {
+      while (firstLine < endLine && !isLineDirty(dirtyRegions, firstLine)) {
+        firstLine++;
+      }
+      if (firstLine == endLine) {
+        // Frame displayed is still valid
+        return;
+      }
+      while (!isLineDirty(dirtyRegions, endLine - 1)) {
+        endLine--;
+      }
+    }
+    IndexedFrame frame = frames.getProducerSlot();
+    memory.read(address, frame.getColorIndexes(), 0, width * height);
+    publish(frame, argbPalette, firstLine, endLine);
+  }
+
+  private boolean isLineDirty(DirtyPageTracker dirtyRegions, int line) {
+    int lineAddress = address + line * width;
+    return dirtyRegions.isDirty(lineAddress, lineAddress + width);
+  }
+
+  /**
+   * Same as draw, for a frame already converted to color indexes.
+   * 
+   * @param colorIndexes
+   *          one byte per pixel of the buffer
+   * @param firstLine
+   *          first line that changed since the previous frame
+   * @param endLine
+   *          line after the last one that changed since the previous frame
+   */
+  public synchronized void drawFrame(byte[] colorIndexes, int firstLine, int endLine, int[] argbPalette) {
+    if (canvas == null) {
+      return;
+    }
+    if (!drawn) {
+      firstLine = 0;
+      endLine = height;
+    }
+    IndexedFrame frame = frames.getProducerSlot();
+    System.arraycopy(colorIndexes, 0, frame.getColorIndexes(), 0, width * height);
+    publish(frame, argbPalette, firstLine, endLine);
+  }
+
+  private void publish(IndexedFrame frame, int[] argbPalette, int firstLine, int endLine) {
+    drawn = true;
+    System.arraycopy(argbPalette, 0, frame.getArgbPalette(), 0, frame.getArgbPalette().length);
+    frames.publish(firstLine, endLine);
+  }
+
+  /**
+   * Displays the last frame drawn if it was not already. Frames drawn in the meantime are skipped, their dirty lines
+   * are part of the last one. Only the dirty lines are converted and uploaded. To be called from the JavaFX thread.
+   */
+  public void present() {
+    IndexedFrame frame = frames.acquire();
+    if (frame == null) {
+      return;
+    }
+    int firstLine = frame.getFirstDirtyLine();
+    int numberOfLines = frame.getEndDirtyLine() - firstLine;
+    if (numberOfLines <= 0) {
+      return;
+    }
+    byte[] colorIndexes = frame.getColorIndexes();
+    int[] argbPalette = frame.getArgbPalette();
+    int startIndex = firstLine * width;
+    int endIndex = startIndex + numberOfLines * width;
+    for (int i = startIndex; i < endIndex; i++) {
+      pixels[i] = argbPalette[colorIndexes[i] & 0xFF];
+    }
+    PixelWriter pw = canvas.getGraphicsContext2D().getPixelWriter();
+    pw.setPixels(0, firstLine, width, numberOfLines, PixelFormat.getIntArgbInstance(), pixels, startIndex, width);
+  }
+
+  @Override
+  public String toString() {
+    return new Gson().toJson(this);
+  }
+
+  @Override
+  public int compareTo(VideoBuffer o) {
+    return Integer.compare(this.index, o.index);
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    return this == o || (o instanceof VideoBuffer that) && this.index == that.index;
+  }
+
+  @Override
+  public int hashCode() {
+    return index;
+  }
+}
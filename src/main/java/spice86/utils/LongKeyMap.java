@@ -0,0 +1,98 @@
+package spice86.utils;
+
+/**
+ * Hash map with primitive long keys, so that lookups do not box the key.<br/>
+ * Open addressing with linear probing. Values cannot be null, null means there is no entry.
+ */
+public class LongKeyMap<V> {
+  private static final int INITIAL_CAPACITY = 16;
+
+  private long[] keys = new long[INITIAL_CAPACITY];
+  private Object[] values = new Object[INITIAL_CAPACITY];
+  private int size;
+
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  public int size() {
+    return size;
+  }
+
+  @SuppressWarnings("unchecked")
+  public V get(long key) {
+    int mask = keys.length - 1;
+    for (int index = hash(key) & mask; values[index] != null; index = (index + 1) & mask) {
+      if (keys[index] == key) {
+        return (V)values[index];
+      }
+    }
+    return null;
+  }
+
+  public void put(long key, V value) {
+    // Keep the load factor under 1/2 so that probe sequences stay short
+    if ((size + 1) * 2 > keys.length) {
+      resize(keys.length * 2);
+    }
+    int mask = keys.length - 1;
+    int index = hash(key) & mask;
+    while (values[index] != null) {
+      if (keys[index] == key) {
+        values[index] = value;
+        return;
+      }
+      index = (index + 1) & mask;
+    }
+    keys[index] = key;
+    values[index] = value;
+    size++;
+  }
+
+  public void remove(long key) {
+    int mask = keys.length - 1;
+    int index = hash(key) & mask;
+    while (values[index] != null && keys[index] != key) {
+      index = (index + 1) & mask;
+    }
+    if (values[index] == null) {
+      return;
+    }
+    values[index] = null;
+    size--;
+    // Move back the entries of the probe sequence that would not be reachable anymore
+    int next = (index + 1) & mask;
+    while (values[next] != null) {
+      int desired = hash(keys[next]) & mask;
+      // Entry can fill the hole if the hole is between its desired slot and its current slot
+      if (((next - desired) & mask) >= ((next - index) & mask)) {
+        keys[index] = keys[next];
+        values[index] = values[next];
+        values[next] = null;
+        index = next;
+      }
+      next = (next + 1) & mask;
+    }
+  }
+
+  private void resize(int capacity) {
+    long[] oldKeys = keys;
+    Object[] oldValues = values;
+    keys = new long[capacity];
+    values = new Object[capacity];
+    size = 0;
+    for (int i = 0; i < oldKeys.length; i++) {
+      if (oldValues[i] != null) {
+        @SuppressWarnings("unchecked")
+        V value = (V)oldValues[i];
+        put(oldKeys[i], value);
+      }
+    }
+  }
+
+  private static int hash(long key) {
+    // Mixes the bits so that consecutive addresses do not end up in consecutive slots
+    long h = key * 0x9E3779B97F4A7C15L;
+    return (int)(h ^ (h >>> 32));
+  }
+}
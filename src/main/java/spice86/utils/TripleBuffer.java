@@ -0,0 +1,68 @@
+package spice86.utils;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Lock-free exchange of values between one producer thread and one consumer thread.<br/>
+ * There are three slots: one filled by the producer, one read by the consumer and one holding the last published
+ * value. Publishing and acquiring swap a slot with the published one, so none of them waits or allocates. Values
+ * published while the consumer is not looking are replaced by newer ones.
+ */
+public class TripleBuffer<T> {
+  // Set along the index of the published slot when the consumer did not acquire it yet
+  private static final int FRESH = 0b100;
+  private static final int INDEX_MASK = 0b11;
+
+  private final Object[] slots;
+  private final AtomicInteger published = new AtomicInteger(1);
+  private int producerIndex = 0;
+  private int consumerIndex = 2;
+
+  public TripleBuffer(Supplier<T> slotFactory) {
+    this.slots = new Object[] { slotFactory.get(), slotFactory.get(), slotFactory.get() };
+  }
+
+  /**
+   * Producer thread only.
+   * 
+   * @return the slot to fill before calling publish
+   */
+  @SuppressWarnings("unchecked")
+  public T getProducerSlot() {
+    return (T)slots[producerIndex];
+  }
+
+  /**
+   * Producer thread only. Makes the producer slot available to the consumer, getProducerSlot returns another slot
+   * afterwards.
+   */
+  public void publish() {
+    producerIndex = published.getAndSet(producerIndex | FRESH) & INDEX_MASK;
+  }
+
+  /**
+   * Producer thread only. Only the producer publishes values, so once true this stays true until the next publish.
+   * 
+   * @return true if the consumer acquired the value published last
+   */
+  public boolean isPublishedAcquired() {
+    return (published.get() & FRESH) == 0;
+  }
+
+  /**
+   * Consumer thread only.
+   * 
+   * @return the last published value, null if nothing was published since the previous call. It is not modified by the
+   *         producer until the next call.
+   */
+  @SuppressWarnings("unchecked")
+  public T acquire() {
+    // Only the consumer clears the flag, so it cannot disappear between the check and the swap
+    if ((published.get() & FRESH) == 0) {
+      return null;
+    }
+    consumerIndex = published.getAndSet(consumerIndex) & INDEX_MASK;
+    return (T)slots[consumerIndex];
+  }
+}
@@ -4,19 +4,55 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 
 import java.io.File;
 import java.io.IOException;
+import java.lang.management.ManagementFactory;
 import java.net.URISyntaxException;
 import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
+import spice86.emulator.benchmark.BenchmarkResult;
+import spice86.emulator.benchmark.HeadlessBenchmark;
+import spice86.emulator.benchmark.InputScript;
 import spice86.emulator.cpu.Cpu;
 import spice86.emulator.cpu.Flags;
+import spice86.emulator.cpu.OpcodeDispatchMode;
+import spice86.emulator.cpu.OpcodeProfiler;
+import spice86.emulator.cpu.SegmentRegisters;
 import spice86.emulator.cpu.State;
+import spice86.emulator.devices.timer.CounterConfigurator;
+import spice86.emulator.devices.video.VgaCard;
 import spice86.emulator.errors.InvalidOperationException;
+import spice86.emulator.function.CallType;
+import spice86.emulator.function.FunctionHandler;
+import spice86.emulator.function.FunctionInformation;
+import spice86.emulator.function.FunctionReturn;
+import spice86.emulator.function.SamplingProfiler;
+import spice86.emulator.interrupthandlers.dos.DosFileManager;
+import spice86.emulator.interrupthandlers.dos.DosFileOperationResult;
+import spice86.emulator.interrupthandlers.vga.VideoBiosInt10Handler;
+import spice86.emulator.machine.DeviceScheduler;
 import spice86.emulator.machine.Machine;
+import spice86.emulator.machine.breakpoint.BreakPoint;
+import spice86.emulator.machine.breakpoint.BreakPointType;
+import spice86.emulator.machine.breakpoint.UnconditionalBreakPoint;
+import spice86.emulator.memory.ByteArrayMemoryBackend;
+import spice86.emulator.memory.DirtyPageTracker;
 import spice86.emulator.memory.Memory;
 import spice86.emulator.memory.MemoryUtils;
+import spice86.emulator.memory.OffHeapMemoryBackend;
+import spice86.emulator.memory.SegmentedAddress;
+import spice86.emulator.savestate.SaveStateManager;
 import spice86.utils.ConvertUtils;
 
 /**
@@ -31,6 +67,33 @@ import spice86.utils.ConvertUtils;
  * https://twitter.com/theartlav/status/1299816147165081606
  */
 public class MachineTest {
+  // Infinite loop of instructions with memory operands, a segment override prefix and a rep prefix
+  private static final byte[] DECODER_ALLOCATION_TEST_CODE = ConvertUtils.hexToByteArray(
+      "BB0002" // MOV BX,0200
+          + "BE1000" // MOV SI,0010
+          + "034010" // loop: ADD AX,[BX+SI+10]
+          + "89800020" // MOV [BX+SI+2000],AX
+          + "26FF060003" // INC word ptr ES:[0300]
+          + "31C2" // XOR DX,AX
+          + "B90400" // MOV CX,0004
+          + "BF0004" // MOV DI,0400
+          + "F3AA" // REP STOSB
+          + "EBE8"); // JMP loop
+  // REP string instructions, some of them can be executed in bulk and some have to be executed element by element
+  private static final byte[] REP_STRING_OPERATIONS_TEST_CODE = ConvertUtils.hexToByteArray(
+      "FC" // CLD
+          + "B83412" + "BF0000" + "B90001" + "F3AB" // MOV AX,1234 / MOV DI,0000 / MOV CX,0100 / REP STOSW
+          + "BF0002" + "B91000" + "F3AA" // MOV DI,0200 / MOV CX,0010 / REP STOSB
+          + "BE0000" + "BF0010" + "B98000" + "26F3A5" // MOV SI,0000 / MOV DI,1000 / MOV CX,0080 / ES: REP MOVSW
+          // Destination overlapping source, propagates the first byte
+          + "BE0002" + "BF0102" + "B92000" + "26F3A4" // MOV SI,0200 / MOV DI,0201 / MOV CX,0020 / ES: REP MOVSB
+          + "26C606501000" // MOV byte ptr ES:[1050],00
+          + "BE0000" + "BF0010" + "B90001" + "26F3A6" + "9C" // MOV SI / MOV DI / MOV CX / ES: REPE CMPSB / PUSHF
+          + "B000" + "BF0010" + "B90001" + "F2AE" + "9C" // MOV AL,00 / MOV DI / MOV CX / REPNE SCASB / PUSHF
+          + "B077" + "BF0000" + "B94000" + "F2AE" + "9C" // MOV AL,77 / MOV DI / MOV CX / REPNE SCASB / PUSHF
+          + "FD" // STD
+          + "BEFF00" + "BFFF20" + "B91000" + "26F3A4" // MOV SI,00FF / MOV DI,20FF / MOV CX,0010 / ES: REP MOVSB
+          + "F4"); // HLT
 
   @Test
   public void testAdd() throws Exception {
@@ -152,6 +215,584 @@ public class MachineTest {
     testOneBin("sub");
   }
 
+  @Test
+  public void testDecodingDoesNotAllocate() throws Exception {
+    try (ProgramExecutor programExecutor = createProgramExecutor()) {
+      Machine machine = programExecutor.getMachine();
+      Cpu cpu = machine.getCpu();
+      loadCode(machine, DECODER_ALLOCATION_TEST_CODE);
+      // Fills the decoded instruction cache and gives the JIT time to kick in
+      executeInstructions(cpu, 100000);
+      com.sun.management.ThreadMXBean threadMXBean =
+          (com.sun.management.ThreadMXBean)ManagementFactory.getThreadMXBean();
+      long allocatedBefore = threadMXBean.getCurrentThreadAllocatedBytes();
+      executeInstructions(cpu, 100000);
+      long allocated = threadMXBean.getCurrentThreadAllocatedBytes() - allocatedBefore;
+      assertEquals(0, allocated, "Bytes allocated while executing instructions in the steady state");
+    }
+  }
+
+  @Test
+  public void testFunctionCallTrackingDoesNotAllocate() throws Exception {
+    Configuration configuration = new Configuration();
+    configuration.setInstructionsPerSecond(10000000l);
+    // Call stack is only tracked in debug mode
+    Machine machine = new Machine(null, new CounterConfigurator(configuration), false, true);
+    loadCode(machine, ConvertUtils.hexToByteArray(
+        "E80700" // loop: CALL near_function
+            + "9A0B000010" // CALL 1000:far_function
+            + "EBF6" // JMP loop
+            + "C3" // near_function: RET
+            + "CB")); // far_function: RETF
+    Cpu cpu = machine.getCpu();
+    // Discovers the functions and their returns and gives the JIT time to kick in
+    executeInstructions(cpu, 100000);
+    com.sun.management.ThreadMXBean threadMXBean =
+        (com.sun.management.ThreadMXBean)ManagementFactory.getThreadMXBean();
+    long allocatedBefore = threadMXBean.getCurrentThreadAllocatedBytes();
+    executeInstructions(cpu, 100000);
+    long allocated = threadMXBean.getCurrentThreadAllocatedBytes() - allocatedBefore;
+    assertEquals(0, allocated, "Bytes allocated while tracking calls and returns in the steady state");
+    Map<SegmentedAddress, FunctionInformation> functionInformations =
+        cpu.getFunctionHandler().getFunctionInformations();
+    FunctionInformation nearFunction = functionInformations.get(new SegmentedAddress(0x1000, 0x0A));
+    FunctionInformation farFunction = functionInformations.get(new SegmentedAddress(0x1000, 0x0B));
+    assertEquals(Map.of(new FunctionReturn(CallType.NEAR, new SegmentedAddress(0x1000, 0x0A)),
+        Set.of(new SegmentedAddress(0x1000, 0x03))), nearFunction.getReturns());
+    assertEquals(Map.of(new FunctionReturn(CallType.FAR, new SegmentedAddress(0x1000, 0x0B)),
+        Set.of(new SegmentedAddress(0x1000, 0x08))), farFunction.getReturns());
+    Assertions.assertTrue(nearFunction.getUnalignedReturns().isEmpty());
+    assertEquals(40000, nearFunction.getCalledCount());
+    assertEquals("", cpu.getFunctionHandler().dumpCallStack());
+  }
+
+  @Test
+  public void testCodeOverride() throws Exception {
+    for (boolean debugMode : new boolean[] { false, true }) {
+      Configuration configuration = new Configuration();
+      configuration.setInstructionsPerSecond(10000000l);
+      Machine machine = new Machine(null, new CounterConfigurator(configuration), false, debugMode);
+      // CALL overridden / CALL not_overridden / HLT / overridden: HLT / not_overridden: RET
+      loadCode(machine, ConvertUtils.hexToByteArray("E80400" + "E80200" + "F4" + "F4" + "C3"));
+      Cpu cpu = machine.getCpu();
+      Map<SegmentedAddress, FunctionInformation> functionInformations = new HashMap<>();
+      SegmentedAddress overriddenAddress = new SegmentedAddress(0x1000, 7);
+      functionInformations.put(overriddenAddress, new FunctionInformation(overriddenAddress, "overridden", () -> {
+        cpu.getState().setAX(0x1234);
+        return () -> cpu.nearRet(0);
+      }));
+      FunctionHandler functionHandler = cpu.getFunctionHandler();
+      functionHandler.setFunctionInformations(functionInformations);
+      functionHandler.setUseCodeOverride(true);
+      executeInstructions(cpu, 3);
+      State state = cpu.getState();
+      assertEquals(0x1234, state.getAX());
+      assertEquals(0x100, state.getSP());
+      assertEquals(0x6, state.getIP());
+      // Functions are discovered only in debug mode
+      assertEquals(debugMode ? 2 : 1, functionInformations.size());
+    }
+  }
+
+  @Test
+  public void testMemoryBackends() {
+    Memory byteArrayMemory = new Memory(new ByteArrayMemoryBackend(0x1000));
+    Memory offHeapMemory = new Memory(new OffHeapMemoryBackend(0x1000));
+    for (Memory memory : List.of(byteArrayMemory, offHeapMemory)) {
+      memory.setUint32(0x10, 0x12345678);
+      assertEquals(0x5678, memory.getUint16(0x10));
+      assertEquals(0x34, memory.getUint8(0x12));
+      assertEquals(0x12345678, memory.getUint32(0x10));
+      memory.setUint16(0x21, 0xABCD);
+      memory.setUint8(0x23, 0xEF);
+      assertEquals(0xEFABCD00, memory.getUint32(0x20));
+      memory.memset(0x100, 0x42, 0x21);
+      memory.memset16(0x200, 0x1234, 0x10);
+      // Overlapping copies in both directions
+      memory.loadData(0x300, ConvertUtils.hexToByteArray("0102030405060708"));
+      memory.memCopy(0x300, 0x302, 6);
+      memory.loadData(0x400, ConvertUtils.hexToByteArray("0102030405060708"));
+      memory.memCopy(0x402, 0x400, 6);
+      Assertions.assertArrayEquals(ConvertUtils.hexToByteArray("0102010203040506"), memory.getData(0x300, 8));
+      Assertions.assertArrayEquals(ConvertUtils.hexToByteArray("0304050607080708"), memory.getData(0x400, 8));
+      assertEquals(2, memory.mismatch(0x300, 0x302, 6));
+      assertEquals(-1, memory.mismatch(0x100, 0x101, 0x20));
+      assertEquals(4, memory.indexOf(0x400, 8, 0x07));
+      assertEquals(-1, memory.indexOf(0x400, 8, 0x42));
+      assertEquals(0x1234, memory.asByteBuffer(0x200, 2).getShort(0));
+      // Accesses at the end of the memory wrap around to the beginning
+      memory.setUint32(0xFFE, 0x11223344);
+      assertEquals(0x22, memory.getUint8(0));
+      assertEquals(0x2233, memory.getUint16(0xFFF));
+      assertEquals(0x11223344, memory.getUint32(0xFFE));
+      memory.setUint16(0xFFF, 0x5566);
+      assertEquals(0x11556644, memory.getUint32(0xFFE));
+    }
+    Assertions.assertArrayEquals(byteArrayMemory.getData(0, 0x1000), offHeapMemory.getData(0, 0x1000));
+  }
+
+  @Test
+  public void testDirtyPageTracking() throws Exception {
+    Memory memory = new Memory(0x10000);
+    DirtyPageTracker lines = memory.trackDirtyPages(8);
+    DirtyPageTracker pages = memory.trackDirtyPages(12);
+    memory.setUint16(0x1FFF, 0x1234);
+    memory.memset(0x5000, 0, 0x200);
+    Assertions.assertTrue(lines.isDirty(0x1F00, 0x2000));
+    Assertions.assertTrue(lines.isDirty(0x2000, 0x2001));
+    Assertions.assertFalse(lines.isDirty(0x2100, 0x5000));
+    Assertions.assertTrue(lines.isDirty(0x5100, 0x5140));
+    Assertions.assertFalse(lines.isDirty(0x5200, 0x5300));
+    Assertions.assertEquals(4, lines.countDirtyPages());
+    Assertions.assertEquals(3, pages.countDirtyPages());
+    lines.clear();
+    Assertions.assertEquals(0, lines.countDirtyPages());
+    // Trackers are independent
+    Assertions.assertTrue(pages.isDirty(5));
+    // Word write at the end of memory wraps around
+    memory.setUint16(0xFFFF, 0x1234);
+    Assertions.assertTrue(lines.isDirty(0));
+    Assertions.assertTrue(lines.isDirty(0xFF));
+  }
+
+  @Test
+  public void testVgaModes() throws Exception {
+    try (ProgramExecutor programExecutor = createProgramExecutor()) {
+      Machine machine = programExecutor.getMachine();
+      Memory memory = machine.getMemory();
+      VgaCard vgaCard = machine.getVgaCard();
+      VideoBiosInt10Handler videoBios = machine.getVideoBiosInt10Handler();
+      State state = machine.getCpu().getState();
+      List<byte[]> frames = new ArrayList<>();
+      vgaCard.setFrameSink((colorIndexes, width, height, argbPalette) -> frames.add(colorIndexes.clone()));
+      int videoMemory = MemoryUtils.toPhysicalAddress(0xA000, 0);
+
+      // Mode X: what was written with chain 4 is kept when it is disabled
+      videoBios.setVideoModeValue(VgaCard.MODE_320_200_256);
+      memory.setUint8(videoMemory + 5, 7);
+      vgaCard.outw(VgaCard.VGA_SEQUENCER_ADDRESS_REGISTER_PORT, 0x0604);
+      vgaCard.outw(VgaCard.CRT_CONTROLLER_ADDRESS_REGISTER_PORT, 0x0014);
+      vgaCard.outw(VgaCard.CRT_CONTROLLER_ADDRESS_REGISTER_PORT, 0xE317);
+      // Pixel 5 is in plane 1 at offset 1
+      vgaCard.outw(VgaCard.GRAPHICS_ADDRESS_REGISTER_PORT, 0x0104);
+      Assertions.assertEquals(7, memory.getUint8(videoMemory + 1));
+      // Planes 0 and 1 at offset 10 are pixels 40 and 41
+      vgaCard.outw(VgaCard.VGA_SEQUENCER_ADDRESS_REGISTER_PORT, 0x0302);
+      memory.setUint8(videoMemory + 10, 9);
+      // Write mode 1 copies the latches loaded by a read
+      vgaCard.outw(VgaCard.VGA_SEQUENCER_ADDRESS_REGISTER_PORT, 0x0F02);
+      vgaCard.outw(VgaCard.GRAPHICS_ADDRESS_REGISTER_PORT, 0x4105);
+      memory.getUint8(videoMemory + 10);
+      memory.setUint8(videoMemory + 100, 0);
+      vgaCard.updateScreen();
+      byte[] frame = frames.get(frames.size() - 1);
+      Assertions.assertEquals(320 * 200, frame.length);
+      Assertions.assertEquals(7, frame[5]);
+      Assertions.assertEquals(9, frame[40]);
+      Assertions.assertEquals(9, frame[41]);
+      Assertions.assertEquals(0, frame[42]);
+      // Offset 100 is the 21st pixel of line 1
+      Assertions.assertEquals(9, frame[320 + 80]);
+      Assertions.assertEquals(9, frame[320 + 81]);
+      // Page flipping changes the start address
+      vgaCard.outw(VgaCard.CRT_CONTROLLER_ADDRESS_REGISTER_PORT, 0x0A0D);
+      vgaCard.updateScreen();
+      frame = frames.get(frames.size() - 1);
+      Assertions.assertEquals(9, frame[0]);
+      Assertions.assertEquals(9, frame[1]);
+      // Accesses starting in the RAM and ending in the planes reach the planes for their last bytes
+      vgaCard.outw(VgaCard.GRAPHICS_ADDRESS_REGISTER_PORT, 0x4005);
+      vgaCard.outw(VgaCard.GRAPHICS_ADDRESS_REGISTER_PORT, 0x0004);
+      memory.setUint32(videoMemory - 2, 0x44332211);
+      Assertions.assertEquals(0, memory.getRam()[videoMemory]);
+      Assertions.assertEquals(0x4433, memory.getUint16(videoMemory));
+      Assertions.assertEquals(0x44332211, memory.getUint32(videoMemory - 2));
+      memory.setUint16(videoMemory - 1, 0x6655);
+      Assertions.assertEquals(0, memory.getRam()[videoMemory]);
+      Assertions.assertEquals(0x44665511, memory.getUint32(videoMemory - 2));
+
+      // Planar 16 colors: write mode 2 sets the pixels of the bit mask to the color written
+      videoBios.setVideoModeValue(VgaCard.MODE_640_480_16);
+      Assertions.assertEquals(0, memory.getUint8(videoMemory + 5));
+      vgaCard.outw(VgaCard.GRAPHICS_ADDRESS_REGISTER_PORT, 0x0205);
+      vgaCard.outw(VgaCard.GRAPHICS_ADDRESS_REGISTER_PORT, 0x4008);
+      memory.getUint8(videoMemory);
+      memory.setUint8(videoMemory, 0x0C);
+      // Read mode 1 compares each pixel to the color compare register
+      vgaCard.outw(VgaCard.GRAPHICS_ADDRESS_REGISTER_PORT, 0x0C02);
+      vgaCard.outw(VgaCard.GRAPHICS_ADDRESS_REGISTER_PORT, 0x0805);
+      Assertions.assertEquals(0x40, memory.getUint8(videoMemory));
+      vgaCard.updateScreen();
+      frame = frames.get(frames.size() - 1);
+      Assertions.assertEquals(640 * 480, frame.length);
+      Assertions.assertEquals(0, frame[0]);
+      // Color 12 is bright red in the attribute controller palette
+      Assertions.assertEquals(0x3C, frame[1]);
+      Assertions.assertEquals(0, frame[2]);
+
+      // Text: characters printed by the BIOS are rendered with the font
+      videoBios.setVideoModeValue(VgaCard.MODE_80_25_TEXT);
+      int textMemory = MemoryUtils.toPhysicalAddress(0xB800, 0);
+      state.setAL('A');
+      videoBios.writeTextInTeletypeMode();
+      Assertions.assertEquals(0x0741, memory.getUint16(textMemory));
+      vgaCard.updateScreen();
+      frame = frames.get(frames.size() - 1);
+      Assertions.assertEquals(640 * 400, frame.length);
+      int foregroundPixels = 0;
+      for (int y = 0; y < 16; y++) {
+        for (int x = 0; x < 8; x++) {
+          byte pixel = frame[y * 640 + x];
+          Assertions.assertTrue(pixel == 0 || pixel == 7);
+          foregroundPixels += pixel == 7 ? 1 : 0;
+        }
+      }
+      Assertions.assertTrue(foregroundPixels > 10);
+      // Cursor is on the last scan lines of the next character
+      Assertions.assertEquals(0, frame[13 * 640 + 8]);
+      Assertions.assertEquals(7, frame[15 * 640 + 8]);
+      state.setAL('\r');
+      videoBios.writeTextInTeletypeMode();
+      state.setAL('\n');
+      videoBios.writeTextInTeletypeMode();
+      state.setBH(0);
+      videoBios.getCursorPosition();
+      Assertions.assertEquals(0x0100, state.getDX());
+      vgaCard.updateScreen();
+      frame = frames.get(frames.size() - 1);
+      Assertions.assertEquals(0, frame[15 * 640 + 8]);
+      Assertions.assertEquals(7, frame[31 * 640]);
+      // Line feeds on the last row scroll the screen
+      for (int i = 0; i < 24; i++) {
+        videoBios.writeTextInTeletypeMode();
+      }
+      Assertions.assertEquals(0x0720, memory.getUint16(textMemory));
+      videoBios.getVideoStatus();
+      Assertions.assertEquals(80, state.getAH());
+      Assertions.assertEquals(VgaCard.MODE_80_25_TEXT, state.getAL());
+
+      // Back to mode 0x13, memory is accessed linearly again
+      videoBios.setVideoModeValue(VgaCard.MODE_320_200_256);
+      memory.setUint8(videoMemory + 5, 3);
+      vgaCard.updateScreen();
+      frame = frames.get(frames.size() - 1);
+      Assertions.assertEquals(320 * 200, frame.length);
+      Assertions.assertEquals(3, frame[5]);
+    }
+  }
+
+  @Test
+  public void testMemoryDump() throws Exception {
+    Memory memory = new Memory(0x1000);
+    byte[] data = ConvertUtils.hexToByteArray("0102030405060708");
+    memory.loadData(0x800, data);
+    Path dump = Files.createTempFile("memoryDump", ".bin");
+    Path asyncDump = Files.createTempFile("asyncMemoryDump", ".bin");
+    try {
+      memory.dumpToFile(dump.toString());
+      CompletableFuture<Void> asyncDumpWritten = memory.dumpToFileAsync(asyncDump.toString());
+      // Snapshot was taken when the dump was requested
+      memory.setUint8(0x800, 0xFF);
+      asyncDumpWritten.get(10, TimeUnit.SECONDS);
+      byte[] expected = new byte[0x1000];
+      System.arraycopy(data, 0, expected, 0x800, data.length);
+      Assertions.assertArrayEquals(expected, Files.readAllBytes(dump));
+      Assertions.assertArrayEquals(expected, Files.readAllBytes(asyncDump));
+    } finally {
+      Files.delete(dump);
+      Files.delete(asyncDump);
+    }
+  }
+
+  @Test
+  public void testSaveState() throws Exception {
+    Path saveState = Files.createTempFile("saveState", ".bin");
+    Path checkpoint = Files.createTempFile("checkpoint", ".bin");
+    Path truncated = Files.createTempFile("truncated", ".bin");
+    try (ProgramExecutor savedProgramExecutor = createProgramExecutor();
+        ProgramExecutor restoredProgramExecutor = createProgramExecutor()) {
+      Machine saved = savedProgramExecutor.getMachine();
+      Machine restored = restoredProgramExecutor.getMachine();
+      SaveStateManager saveStateManager = saved.getSaveStateManager();
+      Assertions.assertThrows(IOException.class, () -> saveStateManager.saveCheckpoint(checkpoint.toString()));
+      loadCode(saved, REP_STRING_OPERATIONS_TEST_CODE);
+      Cpu cpu = saved.getCpu();
+      executeInstructions(cpu, 5);
+      saveStateManager.saveState(saveState.toString());
+      executeInstructions(cpu, 10);
+      saved.getTimer().getCounter(0).setValue(0x1234);
+      saved.getVgaCard().getVgaDac().setColor(1, 0x3F, 0, 0);
+      // Mode X, written to the VGA planes and not to the RAM
+      saved.getVgaCard().outw(VgaCard.VGA_SEQUENCER_ADDRESS_REGISTER_PORT, 0x0604);
+      int videoMemory = MemoryUtils.toPhysicalAddress(0xA000, 0);
+      saved.getMemory().setUint8(videoMemory + 5, 0x42);
+      saveStateManager.saveCheckpoint(checkpoint.toString());
+      Assertions.assertEquals(1, saveStateManager.getSequence());
+
+      // Machine restored to has already run longer than the saved one, its device events are far in the future
+      State restoredState = restored.getCpu().getState();
+      restoredState.setCycles(cpu.getState().getCycles() + 100_000_000);
+      restored.getDeviceScheduler().processEvents(restoredState.getCycles());
+      SaveStateManager restoredSaveStateManager = restored.getSaveStateManager();
+      Assertions.assertThrows(IOException.class,
+          () -> restoredSaveStateManager.restore(checkpoint.toString(), List.of()));
+      // Truncated files, in the middle or only missing the gzip checksum, are rejected before anything is restored
+      byte[] content = Files.readAllBytes(saveState);
+      long cyclesBeforeRestore = restoredState.getCycles();
+      for (int length : new int[] { content.length / 2, content.length - 4 }) {
+        Files.write(truncated, Arrays.copyOf(content, length));
+        Assertions.assertThrows(IOException.class,
+            () -> restoredSaveStateManager.restore(truncated.toString(), List.of()));
+        assertEquals(cyclesBeforeRestore, restoredState.getCycles());
+      }
+      restoredSaveStateManager.restore(saveState.toString(), List.of(checkpoint.toString()));
+      // Screen refresh is rescheduled from the restored cycles and not from the ones counted before the restore
+      DeviceScheduler deviceScheduler = restored.getDeviceScheduler();
+      deviceScheduler.setEventTimingEnabled(true);
+      deviceScheduler.processEvents(restoredState.getCycles() + 1000);
+      Assertions.assertTrue(
+          deviceScheduler.getTimedEvents().stream().anyMatch(event -> event.getName().equals("Counter 4")));
+      Assertions.assertEquals(1, restoredSaveStateManager.getSequence());
+      assertEquals(cpu.getState(), restored.getCpu().getState());
+      assertEquals(cpu.getState().getCycles(), restored.getCpu().getState().getCycles());
+      assertEquals(0x1234, restored.getTimer().getCounter(0).getValue());
+      assertEquals(0x3F, restored.getVgaCard().getVgaDac().getRgbs()[1].getR());
+      assertEquals(0xFF3F0000, restored.getVgaCard().getVgaDac().getArgbs()[1]);
+      assertEquals(0x42, restored.getMemory().getUint8(videoMemory + 5));
+      assertEquals(0, restored.getMemory().getRam()[videoMemory + 5]);
+      // Both machines continue the same way
+      for (Machine machine : new Machine[] { saved, restored }) {
+        while (machine.getCpu().isRunning()) {
+          machine.getCpu().executeNextInstruction();
+        }
+      }
+      assertEquals(cpu.getState(), restored.getCpu().getState());
+      Memory savedMemory = saved.getMemory();
+      compareMemoryWithExpected(restored.getMemory(), savedMemory.getData(0, savedMemory.getSize()), 0,
+          savedMemory.getSize());
+    } finally {
+      Files.delete(saveState);
+      Files.delete(checkpoint);
+      Files.delete(truncated);
+    }
+  }
+
+  @Test
+  public void testSaveStateWithMissingOpenFile() throws Exception {
+    Path directory = Files.createTempDirectory("dosFiles");
+    Path saveState = Files.createTempFile("saveState", ".bin");
+    try (ProgramExecutor savedProgramExecutor = createProgramExecutor();
+        ProgramExecutor restoredProgramExecutor = createProgramExecutor()) {
+      Machine saved = savedProgramExecutor.getMachine();
+      Machine restored = restoredProgramExecutor.getMachine();
+      DosFileManager savedFiles = saved.getDosInt21Handler().getDosFileManager();
+      savedFiles.setDiskParameters(directory + "/", Map.of());
+      // Read only, files opened in read write mode are created again when missing
+      Files.createFile(directory.resolve("SAVED.TXT"));
+      Assertions.assertFalse(savedFiles.openFile("SAVED.TXT", 0).isError());
+      saved.getCpu().getState().setCycles(1000);
+      saved.getSaveStateManager().saveState(saveState.toString());
+      Files.delete(directory.resolve("SAVED.TXT"));
+
+      DosFileManager restoredFiles = restored.getDosInt21Handler().getDosFileManager();
+      restoredFiles.setDiskParameters(directory + "/", Map.of());
+      DosFileOperationResult opened = restoredFiles.createFileUsingHandle("KEPT.TXT", 0);
+      long cycles = restored.getCpu().getState().getCycles();
+      Assertions.assertThrows(IOException.class,
+          () -> restored.getSaveStateManager().restore(saveState.toString(), List.of()));
+      // Nothing was restored and files opened before are still usable
+      assertEquals(cycles, restored.getCpu().getState().getCycles());
+      Assertions.assertFalse(restoredFiles.moveFilePointerUsingHandle(0, opened.getValue(), 0).isError());
+      Assertions.assertFalse(restoredFiles.closeFile(opened.getValue()).isError());
+    } finally {
+      Files.delete(saveState);
+      Files.deleteIfExists(directory.resolve("SAVED.TXT"));
+      Files.deleteIfExists(directory.resolve("KEPT.TXT"));
+      Files.delete(directory);
+    }
+  }
+
+  @Test
+  public void testRepStringOperations() throws Exception {
+    try (ProgramExecutor bulkProgramExecutor = createProgramExecutor();
+        ProgramExecutor elementByElementProgramExecutor = createProgramExecutor()) {
+      Machine bulk = bulkProgramExecutor.getMachine();
+      Machine elementByElement = elementByElementProgramExecutor.getMachine();
+      // Bulk memory operations are not done when a breakpoint could be triggered
+      elementByElement.getMemory()
+          .toggleBreakPoint(new UnconditionalBreakPoint(BreakPointType.ACCESS, breakPoint -> {}, false), true);
+      for (Machine machine : new Machine[] { bulk, elementByElement }) {
+        loadCode(machine, REP_STRING_OPERATIONS_TEST_CODE);
+        Cpu cpu = machine.getCpu();
+        while (cpu.isRunning()) {
+          cpu.executeNextInstruction();
+        }
+      }
+      assertEquals(elementByElement.getCpu().getState(), bulk.getCpu().getState());
+      compareMemoryWithExpected(bulk.getMemory(), elementByElement.getMemory().getRam(), 0,
+          bulk.getMemory().getSize());
+    }
+  }
+
+  @Test
+  public void testMemoryBreakPoints() {
+    Memory memory = new Memory(0x100_000);
+    int[] triggered = new int[1];
+    BreakPoint breakPoint = new BreakPoint(BreakPointType.WRITE, 0x1234, b -> triggered[0]++, false);
+    memory.toggleBreakPoint(breakPoint, true);
+    memory.setUint8(0x1234, 1);
+    // Same watched page but another address
+    memory.setUint8(0x1235, 1);
+    memory.getUint8(0x1234);
+    assertEquals(1, triggered[0]);
+    memory.toggleBreakPoint(breakPoint, false);
+    memory.setUint8(0x1234, 1);
+    assertEquals(1, triggered[0]);
+  }
+
+  @Test
+  public void testManyMemoryBreakPoints() {
+    Memory memory = new Memory(0x100_000);
+    int[] triggered = new int[0x100_000];
+    List<BreakPoint> breakPoints = new ArrayList<>();
+    for (int address = 0; address < 0x100_000; address += 97) {
+      BreakPoint breakPoint =
+          new BreakPoint(BreakPointType.WRITE, address, b -> triggered[(int)b.getAddress()]++, false);
+      breakPoints.add(breakPoint);
+      memory.toggleBreakPoint(breakPoint, true);
+    }
+    // Removing one breakpoint out of 2 exercises removal from the middle of probe sequences
+    for (int i = 0; i < breakPoints.size(); i += 2) {
+      memory.toggleBreakPoint(breakPoints.get(i), false);
+    }
+    for (int address = 0; address < 0x100_000; address++) {
+      memory.setUint8(address, 0);
+    }
+    // Range write
+    memory.loadData(0, new byte[0x1000]);
+    for (int address = 0; address < 0x100_000; address++) {
+      int index = address / 97;
+      boolean enabled = address % 97 == 0 && index % 2 == 1;
+      int expected = enabled ? (address < 0x1000 ? 2 : 1) : 0;
+      assertEquals(expected, triggered[address], "Triggers for address " + ConvertUtils.toHex(address));
+    }
+  }
+
+  @Test
+  public void testOpcodeProfiler() throws Exception {
+    try (ProgramExecutor programExecutor = createProgramExecutor()) {
+      Machine machine = programExecutor.getMachine();
+      loadCode(machine, DECODER_ALLOCATION_TEST_CODE);
+      Cpu cpu = machine.getCpu();
+      OpcodeProfiler opcodeProfiler = new OpcodeProfiler();
+      cpu.setOpcodeProfiler(opcodeProfiler);
+      // 2 instructions before the loop, then 10 times the 8 instructions of the loop
+      executeInstructions(cpu, 2 + 8 * 10);
+      assertEquals(2, opcodeProfiler.getOpcodeCount(0xBB) + opcodeProfiler.getOpcodeCount(0xBE));
+      assertEquals(10, opcodeProfiler.getOpcodeCount(0x03));
+      // INC word ptr ES:[0300]
+      assertEquals(10, opcodeProfiler.getGroupCount(0xFF, 0));
+      assertEquals(10, opcodeProfiler.getPrefixCount(SegmentRegisters.ES_INDEX, 0));
+      // REP STOSB
+      assertEquals(10, opcodeProfiler.getPrefixCount(State.NO_SEGMENT_OVERRIDE, 2));
+      assertEquals(62, opcodeProfiler.getPrefixCount(State.NO_SEGMENT_OVERRIDE, 0));
+      Path csv = Files.createTempFile("opcodeProfile", ".csv");
+      try {
+        opcodeProfiler.dumpCsv(csv.toString());
+        List<String> lines = Files.readAllLines(csv);
+        assertEquals("Kind,Name,Count,TotalNanoseconds,AverageNanoseconds", lines.get(0));
+        Assertions.assertTrue(lines.stream().anyMatch(line -> line.startsWith("group,0xFF/0,10,")));
+      } finally {
+        Files.delete(csv);
+      }
+    }
+  }
+
+  @Test
+  public void testSamplingProfiler() throws Exception {
+    Configuration configuration = new Configuration();
+    configuration.setInstructionsPerSecond(10000000l);
+    // Call stack is only tracked in debug mode
+    Machine machine = new Machine(null, new CounterConfigurator(configuration), false, true);
+    // CALL function / HLT / function: JMP function
+    loadCode(machine, ConvertUtils.hexToByteArray("E80100" + "F4" + "EBFE"));
+    Cpu cpu = machine.getCpu();
+    cpu.getFunctionHandler().call(CallType.MACHINE, 0x1000, 0, null, null, () -> "entry", false);
+    SamplingProfiler samplingProfiler = new SamplingProfiler(cpu, 1000);
+    cpu.setSamplingProfiler(samplingProfiler);
+    executeInstructions(cpu, 2);
+    for (int i = 0; i < 3; i++) {
+      samplingProfiler.takeSample();
+    }
+    Map<SegmentedAddress, FunctionInformation> functionInformations =
+        cpu.getFunctionHandler().getFunctionInformations();
+    FunctionInformation entry = functionInformations.get(new SegmentedAddress(0x1000, 0));
+    FunctionInformation function = functionInformations.get(new SegmentedAddress(0x1000, 4));
+    assertEquals(3, samplingProfiler.getSampleCount());
+    assertEquals(0, samplingProfiler.getSelfSamples(entry));
+    assertEquals(3, samplingProfiler.getTotalSamples(entry));
+    assertEquals(3, samplingProfiler.getSelfSamples(function));
+    Path collapsedStacks = Files.createTempFile("collapsedStacks", ".txt");
+    try {
+      samplingProfiler.dumpCollapsedStacks(collapsedStacks.toString());
+      assertEquals(List.of(entry + ";" + function + " 3"), Files.readAllLines(collapsedStacks));
+    } finally {
+      Files.delete(collapsedStacks);
+    }
+    // Samples requested by the sampler thread are taken by the CPU
+    samplingProfiler.start();
+    long timeout = System.currentTimeMillis() + 10000;
+    while (samplingProfiler.getSampleCount() == 3 && System.currentTimeMillis() < timeout) {
+      executeInstructions(cpu, 1000);
+    }
+    samplingProfiler.stop();
+    Assertions.assertTrue(samplingProfiler.getSampleCount() > 3);
+  }
+
+  @Test
+  public void testHeadlessBenchmark() throws Exception {
+    Path inputScript = Files.createTempFile("inputScript", ".txt");
+    try {
+      Files.writeString(inputScript, "# Cycle, event\n50 mouse 10 20 1\n");
+      Configuration configuration = new Configuration();
+      configuration.setInstructionsPerSecond(10000000l);
+      configuration.setExe(getBinPath("add"));
+      BenchmarkResult result = new HeadlessBenchmark(configuration, 100, inputScript.toString()).run();
+      // Stops exactly at the requested cycle
+      assertEquals(100, result.getExecutedInstructions());
+      assertEquals(1, result.getInputEvents());
+      assertEquals(1, result.getDeviceTimes().get(InputScript.MOUSE_EVENT_NAME).getFires());
+      Assertions.assertTrue(result.toJson().contains("\"mips\""));
+    } finally {
+      Files.delete(inputScript);
+    }
+  }
+
+  private ProgramExecutor createProgramExecutor() throws URISyntaxException {
+    Configuration configuration = new Configuration();
+    configuration.setInstructionsPerSecond(10000000l);
+    configuration.setExe(getBinPath("add"));
+    return new ProgramExecutor(null, configuration);
+  }
+
+  private void loadCode(Machine machine, byte[] code) {
+    machine.getMemory().loadData(MemoryUtils.toPhysicalAddress(0x1000, 0), code);
+    State state = machine.getCpu().getState();
+    state.setCS(0x1000);
+    state.setIP(0);
+    state.setDS(0x2000);
+    state.setES(0x3000);
+    state.setSS(0x4000);
+    state.setSP(0x100);
+    state.setInterruptFlag(false);
+  }
+
+  private void executeInstructions(Cpu cpu, int count) throws InvalidOperationException {
+    for (int i = 0; i < count; i++) {
+      cpu.executeNextInstruction();
+    }
+  }
+
   private Machine testOneBin(String binName) throws Exception {
     byte[] expected =
         this.getClass().getClassLoader().getResourceAsStream("cpuTests/res/" + binName + ".bin").readAllBytes();
@@ -159,14 +800,31 @@ public class MachineTest {
   }
 
   private Machine testOneBin(String binName, byte[] expected) throws Exception {
-    Machine machine = execute(binName);
-    Memory memory = machine.getMemory();
-    compareMemoryWithExpected(memory, expected, 0, expected.length - 1);
+    // Each execution mode has to give exactly the same results
+    Machine machine = null;
+    for (OpcodeDispatchMode opcodeDispatchMode : OpcodeDispatchMode.values()) {
+      // Threshold of 0 recompiles every block the first time it is encountered
+      for (Integer recompileThreshold : new Integer[] { null, 0 }) {
+        for (boolean lazyFlags : new boolean[] { false, true }) {
+          machine = execute(binName, opcodeDispatchMode, recompileThreshold, lazyFlags, false);
+          Memory memory = machine.getMemory();
+          compareMemoryWithExpected(memory, expected, 0, expected.length - 1);
+        }
+      }
+    }
+    // Where the memory is stored must not change the results either
+    Machine offHeapMachine = execute(binName, OpcodeDispatchMode.SWITCH, null, false, true);
+    compareMemoryWithExpected(offHeapMachine.getMemory(), expected, 0, expected.length - 1);
     return machine;
   }
 
-  private Machine execute(String binName) throws InvalidOperationException, IOException, URISyntaxException {
+  private Machine execute(String binName, OpcodeDispatchMode opcodeDispatchMode, Integer recompileThreshold,
+      boolean lazyFlags, boolean offHeapMemory) throws InvalidOperationException, IOException, URISyntaxException {
     Configuration configuration = new Configuration();
+    configuration.setOpcodeDispatchMode(opcodeDispatchMode);
+    configuration.setRecompileThreshold(recompileThreshold);
+    configuration.setLazyFlags(lazyFlags);
+    configuration.setOffHeapMemory(offHeapMemory);
     // making sure int8 is not going to be triggered during the tests
     configuration.setInstructionsPerSecond(10000000l);
     configuration.setExe(getBinPath(binName));
@@ -190,7 +848,7 @@ public class MachineTest {
   }
 
   private void compareMemoryWithExpected(Memory memory, byte[] expected, int start, int end) {
-    byte[] actual = memory.getRam();
+    byte[] actual = memory.getData(0, memory.getSize());
     for (int i = 0; i < end; i++) {
       byte actualByte = actual[i];
       byte expectedByte = expected[i];
@@ -0,0 +1,34 @@
+package spice86.emulator.devices.video;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import spice86.emulator.Configuration;
+import spice86.emulator.devices.timer.CounterConfigurator;
+import spice86.emulator.machine.Machine;
+import spice86.emulator.memory.MemoryUtils;
+
+public class VgaCardTest {
+  @Test
+  public void testFrameSink() throws Exception {
+    Machine machine = new Machine(null, new CounterConfigurator(new Configuration()), false, false);
+    VgaCard vgaCard = machine.getVgaCard();
+    List<byte[]> frames = new ArrayList<>();
+    vgaCard.setFrameSink((colorIndexes, width, height, argbPalette) -> frames.add(colorIndexes.clone()));
+    vgaCard.updateScreen();
+    vgaCard.updateScreen();
+    // Frames are sent only when the video memory or the palette changed
+    Assertions.assertEquals(1, frames.size());
+    Assertions.assertEquals(320 * 200, frames.get(0).length);
+    machine.getMemory().setUint8(MemoryUtils.toPhysicalAddress(0xA000, 320), 5);
+    vgaCard.updateScreen();
+    Assertions.assertEquals(2, frames.size());
+    Assertions.assertEquals(5, frames.get(1)[320]);
+    vgaCard.getVgaDac().setColor(5, 0x3F, 0x3F, 0x3F);
+    vgaCard.updateScreen();
+    Assertions.assertEquals(3, frames.size());
+  }
+}
@@ -0,0 +1,42 @@
+package spice86.emulator.devices.video;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import spice86.emulator.Configuration;
+import spice86.emulator.devices.timer.CounterConfigurator;
+import spice86.emulator.machine.Machine;
+
+public class VgaDacTest {
+  @Test
+  public void testDacWrite() throws Exception {
+    VgaDac vgaDac = new VgaDac(null);
+    vgaDac.setPaletteModified(false);
+    vgaDac.writeColor(0x3F);
+    Assertions.assertTrue(vgaDac.isPaletteModified());
+    // ARGB palette follows the DAC writes
+    Assertions.assertEquals(vgaDac.getRgbs()[0].toArgb(), vgaDac.getArgbs()[0]);
+    Assertions.assertEquals(0xFF3F0000, vgaDac.getArgbs()[0]);
+  }
+
+  @Test
+  public void testDacRead() throws Exception {
+    VgaCard vgaCard = new Machine(null, new CounterConfigurator(new Configuration()), false, false).getVgaCard();
+    VgaDac vgaDac = vgaCard.getVgaDac();
+    // Full sweep of writes leaves the write index after the last color
+    vgaCard.outb(VgaCard.VGA_WRITE_INDEX_PORT, 0);
+    for (int i = 0; i < 256 * 3; i++) {
+      vgaCard.outb(VgaCard.VGA_RGB_DATA_PORT, i % 3 == 0 ? (i / 3) & 0x3F : 0);
+    }
+    int[] argbs = vgaDac.getArgbs().clone();
+    vgaDac.setPaletteModified(false);
+    vgaCard.outb(VgaCard.VGA_READ_INDEX_PORT, 5);
+    Assertions.assertEquals(5, vgaCard.inb(VgaCard.VGA_RGB_DATA_PORT));
+    Assertions.assertEquals(0, vgaCard.inb(VgaCard.VGA_RGB_DATA_PORT));
+    Assertions.assertEquals(0, vgaCard.inb(VgaCard.VGA_RGB_DATA_PORT));
+    // Reading the palette does not change the displayed colors
+    Assertions.assertArrayEquals(argbs, vgaDac.getArgbs());
+    // and does not redraw the screen
+    Assertions.assertFalse(vgaDac.isPaletteModified());
+  }
+}
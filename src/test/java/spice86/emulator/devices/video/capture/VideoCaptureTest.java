@@ -0,0 +1,72 @@
+package spice86.emulator.devices.video.capture;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import javax.imageio.ImageIO;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class VideoCaptureTest {
+  private static final byte[] FIRST = new byte[] { 0, 1, 1, 0, 2, 2, 2, 2 };
+  private static final byte[] SECOND = new byte[] { 1, 1, 1, 1, 0, 0, 0, 0 };
+
+  @Test
+  public void testY4mCapture() throws Exception {
+    int[] palette = createPalette();
+    Path y4m = Files.createTempFile("capture", ".y4m");
+    try {
+      VideoCapture y4mCapture = new VideoCapture(y4m, CaptureFormat.Y4M);
+      y4mCapture.submitFrame(FIRST, 4, 2, palette);
+      y4mCapture.submitFrame(FIRST, 4, 2, palette);
+      y4mCapture.submitFrame(SECOND, 4, 2, palette);
+      // Another resolution cannot be written in the same stream
+      y4mCapture.submitFrame(SECOND, 2, 4, palette);
+      y4mCapture.close();
+      Assertions.assertEquals(1, y4mCapture.getDuplicateFrames());
+      String header = "YUV4MPEG2 W4 H2 F30:1 Ip A1:1 C444\n";
+      byte[] content = Files.readAllBytes(y4m);
+      Assertions.assertEquals(header.length() + 2 * ("FRAME\n".length() + 3 * 8), content.length);
+      Assertions.assertEquals(header, new String(content, 0, header.length(), StandardCharsets.US_ASCII));
+      // Luma of black then red
+      Assertions.assertEquals(16, content[header.length() + 6]);
+      Assertions.assertEquals(82, content[header.length() + 7]);
+    } finally {
+      Files.delete(y4m);
+    }
+  }
+
+  @Test
+  public void testPngCapture() throws Exception {
+    int[] palette = createPalette();
+    Path pngDirectory = Files.createTempDirectory("capture");
+    try {
+      VideoCapture pngCapture = new VideoCapture(pngDirectory, CaptureFormat.PNG);
+      pngCapture.submitFrame(FIRST, 4, 2, palette);
+      palette[1] = 0xFF0000FF;
+      // Same pixels with another palette is a new frame
+      pngCapture.submitFrame(FIRST, 4, 2, palette);
+      pngCapture.close();
+      Assertions.assertEquals(2, pngCapture.getWrittenFrames());
+      BufferedImage image = ImageIO.read(pngDirectory.resolve("frame_000001.png").toFile());
+      Assertions.assertEquals(0xFF0000FF, image.getRGB(1, 0));
+      Assertions.assertEquals(0xFF00FF00, image.getRGB(3, 1));
+    } finally {
+      for (File file : pngDirectory.toFile().listFiles()) {
+        Files.delete(file.toPath());
+      }
+      Files.delete(pngDirectory);
+    }
+  }
+
+  private int[] createPalette() {
+    int[] palette = new int[256];
+    palette[1] = 0xFFFF0000;
+    palette[2] = 0xFF00FF00;
+    return palette;
+  }
+}
@@ -0,0 +1,19 @@
+package spice86.emulator.memory;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class MemoryUtilsTest {
+  @Test
+  public void testAccessesPastTheEndAreRejected() {
+    byte[] array = new byte[] { 0x11, 0x22, 0x33, 0x44, 0x55 };
+    Assertions.assertEquals(0x5544, MemoryUtils.getUint16(array, 3));
+    Assertions.assertEquals(0x55443322, MemoryUtils.getUint32(array, 1));
+    // Arrays like files read from disk do not wrap around like the memory does
+    Assertions.assertThrows(IndexOutOfBoundsException.class, () -> MemoryUtils.getUint16(array, 4));
+    Assertions.assertThrows(IndexOutOfBoundsException.class, () -> MemoryUtils.getUint32(array, 2));
+    Assertions.assertThrows(IndexOutOfBoundsException.class, () -> MemoryUtils.setUint16(array, 4, 0));
+    Assertions.assertThrows(IndexOutOfBoundsException.class, () -> MemoryUtils.setUint32(array, 2, 0));
+    Assertions.assertEquals(0x11, array[0]);
+  }
+}
@@ -0,0 +1,30 @@
+package spice86.ui;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class IndexedFrameBufferTest {
+  @Test
+  public void testDroppedFrameLinesArePublished() {
+    IndexedFrameBuffer frames = new IndexedFrameBuffer(4, 200);
+    frames.publish(0, 10);
+    // First frame is replaced before being acquired
+    frames.publish(100, 110);
+    IndexedFrame frame = frames.acquire();
+    Assertions.assertEquals(0, frame.getFirstDirtyLine());
+    Assertions.assertEquals(110, frame.getEndDirtyLine());
+    Assertions.assertNull(frames.acquire());
+
+    // Lines of acquired frames are not carried over
+    frames.publish(50, 60);
+    frame = frames.acquire();
+    Assertions.assertEquals(50, frame.getFirstDirtyLine());
+    Assertions.assertEquals(60, frame.getEndDirtyLine());
+    frames.publish(20, 30);
+    frames.publish(40, 45);
+    frames.publish(5, 6);
+    frame = frames.acquire();
+    Assertions.assertEquals(5, frame.getFirstDirtyLine());
+    Assertions.assertEquals(45, frame.getEndDirtyLine());
+  }
+}
@@ -0,0 +1,53 @@
+package spice86.utils;
+
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class TripleBufferTest {
+  @Test
+  public void testLatestValueIsAcquired() {
+    TripleBuffer<int[]> tripleBuffer = new TripleBuffer<>(() -> new int[64]);
+    Assertions.assertNull(tripleBuffer.acquire());
+    Arrays.fill(tripleBuffer.getProducerSlot(), 1);
+    tripleBuffer.publish();
+    Assertions.assertFalse(tripleBuffer.isPublishedAcquired());
+    Arrays.fill(tripleBuffer.getProducerSlot(), 2);
+    tripleBuffer.publish();
+    // Value 1 was never acquired and is dropped
+    Assertions.assertEquals(2, tripleBuffer.acquire()[0]);
+    Assertions.assertTrue(tripleBuffer.isPublishedAcquired());
+    Assertions.assertNull(tripleBuffer.acquire());
+    Arrays.fill(tripleBuffer.getProducerSlot(), 3);
+    tripleBuffer.publish();
+    Assertions.assertEquals(3, tripleBuffer.acquire()[0]);
+  }
+
+  @Test
+  public void testConcurrentProducerAndConsumer() throws Exception {
+    TripleBuffer<int[]> tripleBuffer = new TripleBuffer<>(() -> new int[64]);
+    // Consumer only sees complete values, in increasing order
+    int numberOfValues = 200000;
+    Thread producer = new Thread(() -> {
+      for (int value = 1; value <= numberOfValues; value++) {
+        Arrays.fill(tripleBuffer.getProducerSlot(), value);
+        tripleBuffer.publish();
+      }
+    });
+    producer.start();
+    int lastValue = 0;
+    while (lastValue != numberOfValues) {
+      int[] slot = tripleBuffer.acquire();
+      if (slot == null) {
+        Thread.onSpinWait();
+        continue;
+      }
+      int value = slot[0];
+      Assertions.assertTrue(value > lastValue);
+      Assertions.assertEquals(value, slot[slot.length - 1]);
+      lastValue = value;
+    }
+    producer.join();
+  }
+}